@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Compares the output of the demangler with the one of c++filt.
+ */
+public class CPPDemanglerTest extends TestCase {
+	/** Mangled names and their demangled form as printed by c++filt */
+	private static final String[][] CORPUS = {
+		{"_Z3foov", "foo()"},
+		{"_Z3fooiPKc", "foo(int, char const*)"},
+		{"_ZN1A1B3barERKS0_", "A::B::bar(A::B const&)"},
+		{"_ZNK1A3getEv", "A::get() const"},
+		{"_ZN1AC2Ev", "A::A()"},
+		{"_ZN1AD0Ev", "A::~A()"},
+		{"_ZNSt6vectorI10HashStringSaIS0_EE17_M_realloc_insertIJRKS0_EEEvN9__gnu_cxx17__normal_iteratorIPS0_S2_EEDpOT_", "void std::vector<HashString, std::allocator<HashString> >::_M_realloc_insert<HashString const&>(__gnu_cxx::__normal_iterator<HashString*, std::vector<HashString, std::allocator<HashString> > >, HashString const&)"},
+		{"_ZN6LercNS4Lerc14EncodeInternalIaEENS_7ErrCodeEPKT_iiiiiiPKhdRjPhjS8_S7_PKd", "LercNS::ErrCode LercNS::Lerc::EncodeInternal<signed char>(signed char const*, int, int, int, int, int, int, unsigned char const*, double, unsigned int&, unsigned char*, unsigned int, unsigned int&, unsigned char const*, double const*)"},
+		{"_ZStplIcSt11char_traitsIcESaIcEESbIT_T0_T1_EPKS3_RKS6_", "std::basic_string<char, std::char_traits<char>, std::allocator<char> > std::operator+<char, std::char_traits<char>, std::allocator<char> >(char const*, std::basic_string<char, std::char_traits<char>, std::allocator<char> > const&)"},
+		{"_ZN6icu_726number4impl10MicroPropsUt_D1Ev", "icu_72::number::impl::MicroProps::{unnamed type#1}::~MicroProps()"},
+		{"_ZNKSs4sizeEv", "std::basic_string<char, std::char_traits<char>, std::allocator<char> >::size() const"},
+		{"_Z1fSb", "f(std::basic_string)"},
+		{"_Z1fIRiEvOT_", "void f<int&>(int&)"},
+		{"_Z1fPA10_i", "f(int (*) [10])"},
+		{"_Z1fRKPFvvE", "f(void (* const&)())"},
+		{"_Z1fIiEPFvvEv", "void (*f<int>())()"},
+		{"_ZltIiEbRK1AIT_ES4_", "bool operator< <int>(A<int> const&, A<int> const&)"},
+		{"_Z1fIJEEvv", "void f<>()"},
+		{"_Z1fIJidEEvDpT_", "void f<int, double>(int, double)"},
+		{"_Z1fIiEvDpRT_", "void f<int>((int&)...)"},
+		{"_Z1fIiEDTplfp_Li1EET_", "decltype ({parm#1}+(1)) f<int>(int)"},
+		{"_Z1fIiEDTgtfp_fp_ET_", "decltype (({parm#1}>{parm#1})) f<int>(int)"},
+		{"_Z1fILb1EEvv", "void f<true>()"},
+		{"_Z1fILin5EEvv", "void f<-5>()"},
+		{"_ZN24EventMarkWithLogFunctionIXadL_ZN6Events3logEP6ThreadPKczEEEC1ES4_z", "EventMarkWithLogFunction<&Events::log>::EventMarkWithLogFunction(char const*, ...)"},
+		{"_Z1fM1AKFivE", "f(int (A::*)() const)"},
+		{"_ZN1AcviEv", "A::operator int()"},
+		{"_ZN12_GLOBAL__N_11AC2Ev", "(anonymous namespace)::A::A()"},
+		{"_ZZ1fvE1x_0", "f()::x"},
+		{"_ZZ1fvEs", "f()::string literal"},
+		{"_ZZ1fIiEPFvvEvE1x", "f<int>()::x"},
+		{"_ZTV1A", "vtable for A"},
+		{"_ZTI1A", "typeinfo for A"},
+		{"_ZTCN1A1BE0_1C", "construction vtable for C-in-A::B"},
+		{"_ZThn8_N1A1fEv", "non-virtual thunk to A::f()"},
+		{"_ZTv0_n24_N1A1fEv", "virtual thunk to A::f()"},
+		{"_ZGVZ1fvE1x", "guard variable for f()::x"},
+		{"_Z3foov.part.0.isra.0", "foo() [clone .part.0] [clone .isra.0]"},
+		{"_GLOBAL__I__Z1fv", "global constructors keyed to f()"},
+	};
+
+	public static Test suite() {
+		return new TestSuite(CPPDemanglerTest.class);
+	}
+
+	public void testCorpus() {
+		CPPDemangler demangler= new CPPDemangler(100);
+		for (String[] pair : CORPUS) {
+			assertEquals(pair[0], pair[1], demangler.demangle(pair[0]));
+		}
+	}
+
+	public void testBatch() {
+		String[] names= new String[CORPUS.length + 2];
+		for (int i = 0; i < CORPUS.length; i++) {
+			names[i]= CORPUS[i][0];
+		}
+		names[CORPUS.length]= "main";
+		names[CORPUS.length + 1]= "_Zinvalid";
+
+		// The second run is served from the cache.
+		CPPDemangler demangler= new CPPDemangler(1000);
+		for (int run = 0; run < 2; run++) {
+			String[] result= demangler.demangle(names);
+			assertEquals(names.length, result.length);
+			for (int i = 0; i < CORPUS.length; i++) {
+				assertEquals(names[i], CORPUS[i][1], result[i]);
+			}
+			assertNull(result[CORPUS.length]);
+			assertNull(result[CORPUS.length + 1]);
+		}
+	}
+
+	public void testNotDemangled() {
+		CPPDemangler demangler= new CPPDemangler(10);
+		assertNull(demangler.demangle("main"));
+		assertNull(demangler.demangle("_start"));
+		assertNull(demangler.demangle("_Z"));
+		assertEquals("foo", demangler.demangle("_Z3foo"));
+		assertNull(demangler.demangle("_Z3foov_"));
+		assertNull(demangler.demangle("_Z1fS_"));
+		assertNull(demangler.demangle("_ZN1Av1xEv"));
+		assertNull(demangler.demangle("_Z1fIiEvT0_"));
+		assertFalse(CPPDemangler.isMangledName("main"));
+		assertTrue(CPPDemangler.isMangledName("_Z3foov"));
+	}
+
+	public void testCacheBound() {
+		CPPDemangler demangler= new CPPDemangler(2);
+		for (String[] pair : CORPUS) {
+			assertEquals(pair[0], pair[1], demangler.demangle(pair[0]));
+		}
+		demangler.clearCache();
+		for (String[] pair : CORPUS) {
+			assertEquals(pair[0], pair[1], demangler.demangle(pair[0]));
+		}
+	}
+}
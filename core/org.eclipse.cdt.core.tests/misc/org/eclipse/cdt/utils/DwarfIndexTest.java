@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.utils.debug.dwarf.Dwarf;
+import org.eclipse.cdt.utils.debug.dwarf.DwarfConstants;
+import org.eclipse.cdt.utils.debug.dwarf.DwarfEntry;
+import org.eclipse.cdt.utils.debug.dwarf.DwarfIndex;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests the index of the debugging information entries with the executables of
+ * resources/exe. The x86_64 executables have DWARF 4 debug information in the 32-bit and the
+ * 64-bit format, or DWARF 5 debug information, the x86 and ppc ones have stabs and DWARF 1
+ * debug information, only.
+ */
+public class DwarfIndexTest extends TestCase {
+	/** The name of the function in utf8.c */
+	static final String UTF8_FUNCTION = "gr\u00fc\u00dfe";
+
+	public static Test suite() {
+		return new TestSuite(DwarfIndexTest.class);
+	}
+
+	static Dwarf getDwarf(String path) throws IOException {
+		return new Dwarf(CTestPlugin.getDefault().getFileInPlugin(new Path(path)).getAbsolutePath());
+	}
+
+	private void checkIndex(String path) throws IOException {
+		DwarfIndex index = getDwarf(path).getIndex();
+		assertEquals(4, index.getCompileUnitCount());
+		assertEquals("../../main.c", index.getCompileUnit(0).getName());
+		assertEquals("utf8.c", index.getCompileUnit(3).getName());
+
+		// The names of test2.c, which has no public names, come from the pre-scan.
+		List<String> names = Arrays.asList(index.getNames());
+		assertTrue(names.containsAll(Arrays.asList("main", "func1", "func2", "test2func1", "test2func2", UTF8_FUNCTION, "int")));
+
+		DwarfEntry[] entries = index.findEntries("test2func2");
+		assertEquals(1, entries.length);
+		assertEquals(DwarfConstants.DW_TAG_subprogram, entries[0].getTag());
+		assertEquals(0x40118eL, entries[0].getLowPC());
+		assertEquals("../../test2.c", entries[0].getCompileUnit().getName());
+
+		entries = index.findEntries(UTF8_FUNCTION);
+		assertEquals(1, entries.length);
+		assertEquals(UTF8_FUNCTION, entries[0].getName());
+
+		// Each unit has its own base type
+		assertEquals(4, index.findEntries("int").length);
+		assertEquals(0, index.findEntries("printf").length);
+	}
+
+	private void checkAddresses(String path) throws IOException {
+		DwarfIndex index = getDwarf(path).getIndex();
+		assertEquals("main", index.findFunction(0x401126L).getName());
+		assertEquals("func1", index.findFunction(0x401140L).getName());
+		assertEquals("func2", index.findFunction(0x40115eL).getName());
+		assertEquals("test2func2", index.findFunction(0x40118eL).getName());
+		assertEquals(UTF8_FUNCTION, index.findFunction(0x4011a8L).getName());
+		assertEquals("../../test.c", index.findCompileUnit(0x40115eL).getName());
+
+		// The startup code has no debug information
+		assertNull(index.findFunction(0x401040L));
+		assertNull(index.findCompileUnit(0x401040L));
+	}
+
+	public void testNames() throws Exception {
+		checkIndex("resources/exe/x86_64/dwarf.g/exe_g");
+	}
+
+	public void testNames64() throws Exception {
+		checkIndex("resources/exe/x86_64/dwarf.g/exe_g64");
+	}
+
+	public void testAddresses() throws Exception {
+		checkAddresses("resources/exe/x86_64/dwarf.g/exe_g");
+	}
+
+	public void testAddresses64() throws Exception {
+		checkAddresses("resources/exe/x86_64/dwarf.g/exe_g64");
+	}
+
+	public void testChildren() throws Exception {
+		DwarfIndex index = getDwarf("resources/exe/x86_64/dwarf.g/exe_g").getIndex();
+		DwarfEntry unit = index.findCompileUnit(0x401140L);
+		int functions = 0;
+		for (DwarfEntry child : unit.getChildren()) {
+			assertEquals(unit, child.getParent());
+			if (child.getTag() == DwarfConstants.DW_TAG_subprogram) {
+				functions++;
+			}
+		}
+		assertEquals(2, functions);
+		assertEquals(unit, index.getEntry(unit.getOffset()));
+	}
+
+	public void testWithoutDwarf2() throws Exception {
+		// The index is empty for older formats of the debug information.
+		for (String path : new String[] { "resources/exe/x86/o.g/exe_g", "resources/exe/ppc/be.g/exe_g" }) {
+			DwarfIndex index = getDwarf(path).getIndex();
+			assertEquals(0, index.getCompileUnitCount());
+			assertEquals(0, index.getNames().length);
+			assertEquals(0, index.findEntries("main").length);
+			assertNull(index.findFunction(0x08048424L));
+		}
+	}
+
+	public void testDwarf5() throws Exception {
+		// The units of newer versions are skipped.
+		DwarfIndex index = getDwarf("resources/exe/x86_64/dwarf.g/exe_g5").getIndex();
+		assertEquals(0, index.getCompileUnitCount());
+		assertEquals(0, index.findEntries("main").length);
+	}
+}
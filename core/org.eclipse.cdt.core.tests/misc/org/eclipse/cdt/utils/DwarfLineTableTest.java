@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.IBinaryParser.ISymbol;
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.utils.debug.dwarf.DwarfLineTable;
+import org.eclipse.cdt.utils.elf.parser.GNUElfBinaryObject;
+import org.eclipse.cdt.utils.elf.parser.GNUElfParser;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests the line table decoded from the DWARF information and its use by the GNU ELF binary
+ * parser, with the executables of resources/exe.
+ */
+public class DwarfLineTableTest extends TestCase {
+	private static final String EXE_G = "resources/exe/x86_64/dwarf.g/exe_g";
+	private static final String EXE_G64 = "resources/exe/x86_64/dwarf.g/exe_g64";
+	private static final String EXE_G5 = "resources/exe/x86_64/dwarf.g/exe_g5";
+	private static final String UTF8_FILE = "/cdt/gr\u00fc\u00dfe.c";
+
+	public static Test suite() {
+		return new TestSuite(DwarfLineTableTest.class);
+	}
+
+	private static File getFile(String path) {
+		return CTestPlugin.getDefault().getFileInPlugin(new Path(path));
+	}
+
+	private static GNUElfBinaryObject getBinary(File file) throws IOException {
+		return (GNUElfBinaryObject) new GNUElfParser().getBinary(new Path(file.getAbsolutePath()));
+	}
+
+	private static String getFileName(DwarfLineTable table, long address) {
+		String name = table.getFileName(address);
+		return name != null ? new Path(name).lastSegment() : null;
+	}
+
+	private void checkLines(String path) throws IOException {
+		DwarfLineTable table = DwarfIndexTest.getDwarf(path).getLineTable();
+		assertFalse(table.isEmpty());
+
+		// main, func1 and func2, test2func1
+		assertEquals(4, table.getLineNumber(0x401126L));
+		assertEquals(5, table.getLineNumber(0x40112aL));
+		assertEquals(5, table.getLineNumber(0x401140L));
+		assertEquals(12, table.getLineNumber(0x40115eL));
+		assertEquals(4, table.getLineNumber(0x401174L));
+		assertEquals("main.c", getFileName(table, 0x401126L));
+		assertEquals("test.c", getFileName(table, 0x40115eL));
+		assertEquals("test2.c", getFileName(table, 0x401174L));
+
+		// Within an instruction
+		assertEquals(5, table.getLineNumber(0x40112bL));
+
+		// The file names are UTF-8, the directory comes from the compilation unit.
+		assertEquals(2, table.getLineNumber(0x4011a8L));
+		assertEquals(UTF8_FILE, table.getFileName(0x4011a8L));
+
+		// The startup code has no line information.
+		assertEquals(-1, table.getLineNumber(0x401040L));
+		assertNull(table.getFileName(0x401040L));
+
+		int[] lines = table.getLineNumbers(new long[] { 0x401126L, 0x401040L, 0x4011acL });
+		assertEquals(4, lines[0]);
+		assertEquals(-1, lines[1]);
+		assertEquals(3, lines[2]);
+	}
+
+	public void testLines() throws Exception {
+		checkLines(EXE_G);
+	}
+
+	public void testLines64() throws Exception {
+		checkLines(EXE_G64);
+	}
+
+	public void testWithoutDwarf2() throws Exception {
+		// Stabs and DWARF 1 are not decoded, addr2line is used for them.
+		for (String path : new String[] { "resources/exe/x86/o.g/exe_g", "resources/exe/ppc/be.g/exe_g" }) {
+			assertTrue(DwarfIndexTest.getDwarf(path).getLineTable().isEmpty());
+			assertNull(getBinary(getFile(path)).getLineTable());
+		}
+	}
+
+	public void testDwarf5() throws Exception {
+		// DWARF 5 is not decoded, addr2line is used for it.
+		assertTrue(DwarfIndexTest.getDwarf(EXE_G5).getLineTable().isEmpty());
+		GNUElfBinaryObject binary = getBinary(getFile(EXE_G5));
+		assertNull(binary.getLineTable());
+
+		// The symbols are loaded nevertheless.
+		boolean found = false;
+		for (ISymbol symbol : binary.getSymbols()) {
+			if (symbol.getName().equals("func2")) {
+				found = true;
+			}
+		}
+		assertTrue(found);
+	}
+
+	public void testBinarySymbols() throws Exception {
+		GNUElfBinaryObject binary = getBinary(getFile(EXE_G));
+		DwarfLineTable table = binary.getLineTable();
+		assertNotNull(table);
+		assertSame(table, binary.getLineTable());
+
+		ISymbol func2 = null;
+		for (ISymbol symbol : binary.getSymbols()) {
+			if (symbol.getName().equals("func2")) {
+				func2 = symbol;
+			}
+		}
+		assertNotNull(func2);
+		assertEquals("test.c", func2.getFilename().lastSegment());
+		assertEquals(11, func2.getStartLine());
+		assertEquals(14, func2.getEndLine());
+		assertEquals(12, func2.getLineNumber(4));
+
+		// Loading the symbols used the table decoded before.
+		assertSame(table, binary.getLineTable());
+	}
+
+	public void testBinaryFailure() throws Exception {
+		File file = File.createTempFile("exe_g", null);
+		try {
+			copy(getFile(EXE_G), file);
+			GNUElfBinaryObject binary = getBinary(file);
+			final long timestamp = file.lastModified();
+
+			// Make the binary unreadable
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write(new byte[16]);
+			} finally {
+				out.close();
+			}
+			file.setLastModified(timestamp);
+			assertNull(binary.getLineTable());
+
+			// The failure is remembered while the binary does not change.
+			copy(getFile(EXE_G), file);
+			file.setLastModified(timestamp);
+			assertNull(binary.getLineTable());
+
+			file.setLastModified(timestamp + 10000);
+			assertNotNull(binary.getLineTable());
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void copy(File from, File to) throws IOException {
+		InputStream in = new FileInputStream(from);
+		try {
+			OutputStream out = new FileOutputStream(to);
+			try {
+				byte[] buffer = new byte[4096];
+				int count;
+				while ((count = in.read(buffer)) > 0) {
+					out.write(buffer, 0, count);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
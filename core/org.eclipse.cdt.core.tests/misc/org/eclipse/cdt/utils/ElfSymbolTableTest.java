@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.IAddress;
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.utils.elf.Elf;
+import org.eclipse.cdt.utils.elf.ElfSymbolTable;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests the lookup of symbols by address in the symbol tables of the executables of
+ * resources/exe, before and after all of the symbols are loaded.
+ */
+public class ElfSymbolTableTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(ElfSymbolTableTest.class);
+	}
+
+	private static File getFile(String path) {
+		return CTestPlugin.getDefault().getFileInPlugin(new Path(path));
+	}
+
+	private static Elf getElf(String path) throws IOException {
+		return new Elf(getFile(path).getAbsolutePath());
+	}
+
+	private static String getSymbolName(Elf elf, IAddress address) {
+		Elf.Symbol symbol = elf.getSymbol(address);
+		return symbol != null ? symbol.toString() : null;
+	}
+
+	/**
+	 * Checks that the symbols containing the given addresses have the expected names, with the
+	 * symbol table and with the loaded symbols.
+	 */
+	private void checkSymbols(Elf elf, IAddress[] addresses, String[] names) throws IOException {
+		try {
+			// The symbols are looked up without loading them
+			for (int i = 0; i < addresses.length; i++) {
+				assertEquals(addresses[i].toHexAddressString(), names[i], getSymbolName(elf, addresses[i]));
+			}
+			assertNull(elf.getSymbols());
+
+			elf.loadSymbols();
+			for (int i = 0; i < addresses.length; i++) {
+				assertEquals(addresses[i].toHexAddressString(), names[i], getSymbolName(elf, addresses[i]));
+			}
+		} finally {
+			elf.dispose();
+		}
+	}
+
+	public void testX86() throws Exception {
+		checkSymbols(getElf("resources/exe/x86/o.g/exe_g"),
+				new IAddress[] { new Addr32(0x08048424L), new Addr32(0x08048430L), new Addr32(0x0804843cL),
+						new Addr32(0x0804845cL), new Addr32(0x08048470L), new Addr32(0x0804848cL),
+						new Addr32(0x08048378L) },
+				new String[] { "main", "main", "func1", "func2", "test2func1", "test2func2", "_start" });
+	}
+
+	public void testPpc() throws Exception {
+		// Big endian
+		checkSymbols(getElf("resources/exe/ppc/be.g/exe_g"),
+				new IAddress[] { new Addr32(0x480404b8L), new Addr32(0x480404e8L), new Addr32(0x48040520L),
+						new Addr32(0x48040548L), new Addr32(0x48040578L) },
+				new String[] { "main", "func1", "func2", "test2func1", "test2func2" });
+	}
+
+	public void testX86_64() throws Exception {
+		checkSymbols(getElf("resources/exe/x86_64/dwarf.g/exe_g"),
+				new IAddress[] { new Addr64("401126", 16), new Addr64("40112a", 16), new Addr64("401140", 16),
+						new Addr64("40115e", 16), new Addr64("401174", 16), new Addr64("40118e", 16),
+						new Addr64("401040", 16) },
+				new String[] { "main", "main", "func1", "func2", "test2func1", "test2func2", "_start" });
+	}
+
+	public void testTable() throws Exception {
+		Elf elf = getElf("resources/exe/x86_64/dwarf.g/exe_g");
+		try {
+			ElfSymbolTable table = elf.getSymtabSymbolTable();
+			assertSame(table, elf.getSymtabSymbolTable());
+			int index = table.findSymbol(0x40115aL);
+			assertEquals("func2", table.getName(index));
+			assertEquals(0x40115aL, table.getAddress(index));
+			assertEquals(0x401174L - 0x40115aL, table.getSize(index));
+			assertEquals(Elf.Symbol.STT_FUNC, table.getType(index));
+			assertEquals(Elf.Symbol.STB_GLOBAL, table.getBind(index));
+			assertSame(table.getSymbol(index), table.getSymbol(index));
+
+			// The addresses are sorted
+			for (int i = 1; i < table.getSymbolCount(); i++) {
+				assertTrue(table.getAddress(i - 1) <= table.getAddress(i));
+			}
+
+			elf.loadSymbols();
+			assertEquals(table.getSymbolCount(), elf.getSymtabSymbols().length);
+		} finally {
+			elf.dispose();
+		}
+	}
+
+	public void testNegativeSize() throws Exception {
+		File file = File.createTempFile("exe_g", null);
+		try {
+			copy(getFile("resources/exe/x86_64/dwarf.g/exe_g"), file);
+			Elf elf = new Elf(file.getAbsolutePath());
+			Elf.Section symtab;
+			try {
+				symtab = elf.getSections(Elf.Section.SHT_SYMTAB)[0];
+			} finally {
+				elf.dispose();
+			}
+
+			// Set the size of the last symbol to -1
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				long last = 0;
+				for (long entry = symtab.sh_offset; entry < symtab.sh_offset + symtab.sh_size; entry += 24) {
+					raf.seek(entry + 4);
+					if (raf.readByte() != 0) {
+						last = entry;
+					}
+				}
+				raf.seek(last + 16);
+				raf.writeLong(-1);
+			} finally {
+				raf.close();
+			}
+
+			elf = new Elf(file.getAbsolutePath());
+			try {
+				elf.getSymtabSymbolTable();
+				fail("The size of the symbol was accepted");
+			} catch (IOException e) {
+			}
+			try {
+				elf.loadSymbols();
+				fail("The size of the symbol was accepted");
+			} catch (IOException e) {
+			} finally {
+				elf.dispose();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void copy(File from, File to) throws IOException {
+		InputStream in = new FileInputStream(from);
+		try {
+			OutputStream out = new FileOutputStream(to);
+			try {
+				byte[] buffer = new byte[4096];
+				int count;
+				while ((count = in.read(buffer)) > 0) {
+					out.write(buffer, 0, count);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
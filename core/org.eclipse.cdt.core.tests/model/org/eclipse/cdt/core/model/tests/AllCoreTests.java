@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -47,6 +47,7 @@ public class AllCoreTests {
         suite.addTest(FlagTests.suite());
         suite.addTest(ArchiveTests.suite());
         suite.addTest(BinaryTests.suite());
+        suite.addTest(BinaryFileCacheTests.suite());
         suite.addTest(TranslationUnitTests.suite());
 		suite.addTest(DeclaratorsTests.suite());
 		suite.addTest(MacroTests.suite());
@@ -57,6 +58,8 @@ public class AllCoreTests {
 		suite.addTest(AllCProjectDescriptionTests.suite());
 		suite.addTest(PathSettingsContainerTests.suite());
 		suite.addTest(ASTCacheTests.suite());
+		suite.addTest(CModelCacheTests.suite());
+		suite.addTest(BatchedElementDeltaTests.suite());
 		suite.addTest(AsmModelBuilderTest.suite());
 		suite.addTest(CModelBuilderBugsTest.suite());
 		suite.addTest(Bug311189.suite());
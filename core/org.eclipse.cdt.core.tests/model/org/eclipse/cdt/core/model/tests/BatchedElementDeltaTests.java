@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.model.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.model.ElementChangedEvent;
+import org.eclipse.cdt.core.model.IBatchedElementChangedListener;
+import org.eclipse.cdt.core.model.ICElement;
+import org.eclipse.cdt.core.model.ICElementDelta;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.IElementChangedListener;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.model.CModelManager;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Tests the delivery of deltas to {@link IBatchedElementChangedListener}s.
+ */
+public class BatchedElementDeltaTests extends BaseTestCase {
+	private static final int FILE_COUNT = 20;
+
+	private static class ImmediateListener implements IElementChangedListener {
+		int fPostChangeCount;
+
+		public void elementChanged(ElementChangedEvent event) {
+			if (event.getType() == ElementChangedEvent.POST_CHANGE) {
+				fPostChangeCount++;
+			}
+		}
+	}
+
+	private static class BatchedListener implements IBatchedElementChangedListener {
+		int fPostChangeCount;
+		List<ICElement> fAdded = new ArrayList<ICElement>();
+		List<ICElement> fRemoved = new ArrayList<ICElement>();
+		List<String> fProjectDeltas = new ArrayList<String>();
+		volatile CountDownLatch fEntered;
+		volatile CountDownLatch fRelease;
+
+		public void elementChanged(ElementChangedEvent event) {
+			if (event.getType() == ElementChangedEvent.POST_CHANGE) {
+				fPostChangeCount++;
+				collect(event.getDelta());
+				block();
+			}
+		}
+
+		private void block() {
+			CountDownLatch entered = fEntered;
+			CountDownLatch release = fRelease;
+			if (entered != null && release != null) {
+				fEntered = null;
+				entered.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void collect(ICElementDelta delta) {
+			if (delta.getElement().getElementType() == ICElement.C_PROJECT) {
+				if (delta.getKind() == ICElementDelta.ADDED) {
+					fProjectDeltas.add("added " + delta.getElement().getElementName());
+				} else if (delta.getKind() == ICElementDelta.REMOVED) {
+					fProjectDeltas.add("removed " + delta.getElement().getElementName());
+				}
+			}
+			if (delta.getElement().getElementType() == ICElement.C_UNIT) {
+				if (delta.getKind() == ICElementDelta.ADDED) {
+					fAdded.add(delta.getElement());
+				} else if (delta.getKind() == ICElementDelta.REMOVED) {
+					fRemoved.add(delta.getElement());
+				}
+			}
+			for (ICElementDelta child : delta.getAffectedChildren()) {
+				collect(child);
+			}
+		}
+	}
+
+	private ICProject fCProject;
+	private ImmediateListener fImmediateListener;
+	private BatchedListener fBatchedListener;
+
+	public BatchedElementDeltaTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(BatchedElementDeltaTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fCProject = CProjectHelper.createCProject("BatchedElementDeltaTests", null, IPDOMManager.ID_NO_INDEXER);
+		waitForBatches();
+		fImmediateListener = new ImmediateListener();
+		fBatchedListener = new BatchedListener();
+		CoreModel.getDefault().addElementChangedListener(fImmediateListener);
+		CoreModel.getDefault().addElementChangedListener(fBatchedListener);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		CoreModel.getDefault().removeElementChangedListener(fImmediateListener);
+		CoreModel.getDefault().removeElementChangedListener(fBatchedListener);
+		if (fCProject != null) {
+			CProjectHelper.delete(fCProject);
+		}
+		super.tearDown();
+	}
+
+	private void waitForBatches() throws Exception {
+		Job.getJobManager().join(CModelManager.BATCHED_DELTAS_JOB_FAMILY, new NullProgressMonitor());
+	}
+
+	public void testDeltasAreBatched() throws Exception {
+		IFile[] files = new IFile[FILE_COUNT];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = TestSourceReader.createFile(fCProject.getProject(), new Path("file" + i + ".c"), "int a" + i + ";");
+		}
+		waitForBatches();
+
+		assertTrue(fImmediateListener.fPostChangeCount >= FILE_COUNT);
+		assertTrue(fBatchedListener.fPostChangeCount > 0);
+		assertTrue(fBatchedListener.fPostChangeCount < fImmediateListener.fPostChangeCount);
+		assertEquals(FILE_COUNT, fBatchedListener.fAdded.size());
+		for (IFile file : files) {
+			assertTrue(fBatchedListener.fAdded.contains(CoreModel.getDefault().create(file)));
+		}
+	}
+
+	public void testAddedAndRemovedWithinBatch() throws Exception {
+		IFile file = TestSourceReader.createFile(fCProject.getProject(), new Path("transient.c"), "int a;");
+		file.delete(true, new NullProgressMonitor());
+		waitForBatches();
+
+		ICElement tu = CoreModel.getDefault().create(file);
+		assertFalse(fBatchedListener.fAdded.contains(tu));
+		assertFalse(fBatchedListener.fRemoved.contains(tu));
+	}
+
+	public void testProjectRecreatedWithinBatch() throws Exception {
+		final String name = "BatchedElementDeltaTestsRecreated";
+		ICProject other = CProjectHelper.createCProject(name, null, IPDOMManager.ID_NO_INDEXER);
+		try {
+			waitForBatches();
+			fBatchedListener.fProjectDeltas.clear();
+
+			// Hold the delivery of a batch, such that the project is deleted and created again
+			// while the deltas are collected.
+			CountDownLatch entered = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			fBatchedListener.fRelease = release;
+			fBatchedListener.fEntered = entered;
+			TestSourceReader.createFile(fCProject.getProject(), new Path("trigger.c"), "int a;");
+			assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+			CProjectHelper.delete(other);
+			other = CProjectHelper.createCProject(name, null, IPDOMManager.ID_NO_INDEXER);
+			release.countDown();
+			waitForBatches();
+
+			List<String> expected = new ArrayList<String>();
+			expected.add("removed " + name);
+			expected.add("added " + name);
+			assertEquals(expected, fBatchedListener.fProjectDeltas);
+		} finally {
+			fBatchedListener.fRelease = null;
+			CProjectHelper.delete(other);
+		}
+	}
+}
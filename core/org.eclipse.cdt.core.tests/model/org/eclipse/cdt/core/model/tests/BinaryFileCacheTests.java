@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.model.tests;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.AbstractCExtension;
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.IBinaryParser;
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
+import org.eclipse.cdt.core.settings.model.ICProjectDescription;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.model.BinaryFileCache;
+import org.eclipse.cdt.internal.core.model.CModelManager;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests for the {@link BinaryFileCache}, which remembers the results of probing the files of
+ * a project for binaries.
+ */
+public class BinaryFileCacheTests extends BaseTestCase {
+	private static final String GNU_ELF = "org.eclipse.cdt.core.GNU_ELF";
+	private static final String FAILING = "org.eclipse.cdt.core.tests.FailingBinaryParser";
+	private static final String PARSERS = "parser1,parser2,";
+
+	/**
+	 * A binary parser that fails to read any file while {@link #failing} is set.
+	 */
+	public static class FailingBinaryParser extends AbstractCExtension implements IBinaryParser {
+		static volatile boolean failing;
+
+		public IBinaryFile getBinary(byte[] hints, IPath path) throws IOException {
+			throw new IOException("Cannot read " + path);
+		}
+
+		public IBinaryFile getBinary(IPath path) throws IOException {
+			return getBinary(null, path);
+		}
+
+		public String getFormat() {
+			return "Failing";
+		}
+
+		public boolean isBinary(byte[] hints, IPath path) {
+			return failing;
+		}
+
+		public int getHintBufferSize() {
+			return 4;
+		}
+	}
+
+	private File fStorage;
+	private ICProject fProject;
+
+	public BinaryFileCacheTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(BinaryFileCacheTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fStorage = File.createTempFile("binaryFileCache", ".cache");
+		fStorage.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		FailingBinaryParser.failing = false;
+		fStorage.delete();
+		if (fProject != null) {
+			CProjectHelper.delete(fProject);
+		}
+		super.tearDown();
+	}
+
+	public void testLookup() throws Exception {
+		BinaryFileCache cache = new BinaryFileCache(fStorage);
+		IPath exe = new Path("Debug/exe");
+		cache.put(PARSERS, exe, 100, 1000, "parser2");
+		cache.put(PARSERS, new Path("data"), 10, 1000, BinaryFileCache.NOT_BINARY);
+
+		assertEquals("parser2", cache.getParserID(PARSERS, exe, 100, 1000));
+		assertEquals(BinaryFileCache.NOT_BINARY, cache.getParserID(PARSERS, new Path("data"), 10, 1000));
+		assertNull(cache.getParserID(PARSERS, new Path("Debug/other"), 100, 1000));
+
+		// The file has changed
+		assertNull(cache.getParserID(PARSERS, exe, 101, 1000));
+		assertNull(cache.getParserID(PARSERS, exe, 100, 1001));
+		cache.put(PARSERS, exe, 101, 1001, BinaryFileCache.NOT_BINARY);
+		assertEquals(BinaryFileCache.NOT_BINARY, cache.getParserID(PARSERS, exe, 101, 1001));
+	}
+
+	public void testParsersChanged() throws Exception {
+		BinaryFileCache cache = new BinaryFileCache(fStorage);
+		IPath exe = new Path("exe");
+		cache.put(PARSERS, exe, 100, 1000, "parser1");
+		assertNull(cache.getParserID("parser1,", exe, 100, 1000));
+
+		// The results for the former parsers have been discarded
+		assertNull(cache.getParserID(PARSERS, exe, 100, 1000));
+	}
+
+	public void testStoreAndReload() throws Exception {
+		BinaryFileCache cache = new BinaryFileCache(fStorage);
+		cache.put(PARSERS, new Path("exe"), 100, 1000, "parser1");
+		cache.put(PARSERS, new Path("lib/libx.so"), 200, 2000, "parser2");
+		cache.put(PARSERS, new Path("data"), 10, 1000, BinaryFileCache.NOT_BINARY);
+		cache.save();
+		assertTrue(fStorage.isFile());
+
+		cache = new BinaryFileCache(fStorage);
+		assertEquals("parser1", cache.getParserID(PARSERS, new Path("exe"), 100, 1000));
+		assertEquals("parser2", cache.getParserID(PARSERS, new Path("lib/libx.so"), 200, 2000));
+		assertEquals(BinaryFileCache.NOT_BINARY, cache.getParserID(PARSERS, new Path("data"), 10, 1000));
+
+		// An unchanged cache is not written again
+		fStorage.delete();
+		cache.save();
+		assertFalse(fStorage.exists());
+
+		cache.delete();
+		assertNull(new BinaryFileCache(fStorage).getParserID(PARSERS, new Path("exe"), 100, 1000));
+	}
+
+	public void testCorruptFile() throws Exception {
+		BinaryFileCache cache = new BinaryFileCache(fStorage);
+		cache.put(PARSERS, new Path("exe"), 100, 1000, "parser1");
+		cache.put(PARSERS, new Path("data"), 10, 1000, BinaryFileCache.NOT_BINARY);
+		cache.save();
+
+		// Truncate the file within the entries
+		byte[] contents = new byte[(int) fStorage.length()];
+		FileInputStream in = new FileInputStream(fStorage);
+		try {
+			assertEquals(contents.length, in.read(contents));
+		} finally {
+			in.close();
+		}
+		OutputStream out = new FileOutputStream(fStorage);
+		try {
+			out.write(contents, 0, contents.length - 4);
+		} finally {
+			out.close();
+		}
+
+		cache = new BinaryFileCache(fStorage);
+		assertNull(cache.getParserID(PARSERS, new Path("exe"), 100, 1000));
+		assertNull(cache.getParserID(PARSERS, new Path("data"), 10, 1000));
+
+		// The broken file is replaced
+		cache.save();
+		cache = new BinaryFileCache(fStorage);
+		assertNull(cache.getParserID(PARSERS, new Path("exe"), 100, 1000));
+		cache.put(PARSERS, new Path("exe"), 100, 1000, "parser1");
+		cache.save();
+		assertEquals("parser1", new BinaryFileCache(fStorage).getParserID(PARSERS, new Path("exe"), 100, 1000));
+	}
+
+	private String getParserID(IFile file) {
+		CModelManager manager = CModelManager.getDefault();
+		File location = file.getLocation().toFile();
+		String parsersKey = BinaryFileCache.getParsersKey(manager.getBinaryParser(file.getProject()));
+		return manager.getBinaryFileCache(file.getProject()).getParserID(parsersKey, file.getProjectRelativePath(),
+				location.length(), location.lastModified());
+	}
+
+	public void testProbedFiles() throws Exception {
+		fProject = CProjectHelper.createCProject("BinaryFileCacheTests", "none", IPDOMManager.ID_NO_INDEXER);
+		ICProjectDescription projDesc = CoreModel.getDefault().getProjectDescription(fProject.getProject(), true);
+		ICConfigurationDescription defaultConfig = projDesc.getDefaultSettingConfiguration();
+		defaultConfig.remove(CCorePlugin.BINARY_PARSER_UNIQ_ID);
+		defaultConfig.create(CCorePlugin.BINARY_PARSER_UNIQ_ID, GNU_ELF);
+		defaultConfig.create(CCorePlugin.BINARY_PARSER_UNIQ_ID, FAILING);
+		CoreModel.getDefault().setProjectDescription(fProject.getProject(), projDesc);
+
+		IFile exe = fProject.getProject().getFile("exe_g");
+		exe.create(new FileInputStream(CTestPlugin.getDefault().getFileInPlugin(new Path("resources/exe/x86/o.g/exe_g"))),
+				false, null);
+		FailingBinaryParser.failing = true;
+		IFile data = TestSourceReader.createFile(fProject.getProject(), new Path("data"), "no binary");
+
+		CModelManager manager = CModelManager.getDefault();
+		assertNotNull(manager.createBinaryFile(exe));
+		assertEquals(GNU_ELF, getParserID(exe));
+
+		// A file that cannot be read is not recorded as a non-binary
+		assertNull(manager.createBinaryFile(data));
+		assertNull(getParserID(data));
+
+		FailingBinaryParser.failing = false;
+		assertNull(manager.createBinaryFile(data));
+		assertEquals(BinaryFileCache.NOT_BINARY, getParserID(data));
+
+		// The cached results are used
+		assertNotNull(manager.createBinaryFile(exe));
+		assertNull(manager.createBinaryFile(data));
+	}
+}
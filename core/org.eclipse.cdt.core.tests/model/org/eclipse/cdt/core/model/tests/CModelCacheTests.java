@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.model.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.model.ICElement;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.model.ConcurrentElementCache;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests for the {@link ConcurrentElementCache} and for opening translation units from
+ * several threads.
+ */
+public class CModelCacheTests extends BaseTestCase {
+	private static final boolean PRINT_TIMING = false;
+
+	private static final int FILE_COUNT = 2000;
+	private static final int THREAD_COUNT = 4;
+	private static final int ROUNDS = 3;
+
+	private ICProject fProject;
+	private ITranslationUnit[] fTUs;
+
+	public CModelCacheTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(CModelCacheTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject = CProjectHelper.createCProject("CModelCacheTests", null, IPDOMManager.ID_NO_INDEXER);
+		final IFile[] files = new IFile[FILE_COUNT];
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0; i < files.length; i++) {
+					String contents = "int var" + i + ";\nvoid f" + i + "() {}\nstruct S" + i + " { int m; };\n";
+					files[i] = TestSourceReader.createFile(fProject.getProject(), new Path("source" + i + ".c"), contents);
+				}
+			}
+		}, null);
+		fTUs = new ITranslationUnit[files.length];
+		for (int i = 0; i < files.length; i++) {
+			fTUs[i] = (ITranslationUnit) CoreModel.getDefault().create(files[i]);
+			assertNotNull(fTUs[i]);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fProject != null) {
+			CProjectHelper.delete(fProject);
+		}
+		super.tearDown();
+	}
+
+	public void testSpaceLimit() throws Exception {
+		ConcurrentElementCache cache = new ConcurrentElementCache(160);
+		ITranslationUnit recent = fTUs[0];
+		Object recentInfo = new Object();
+		cache.put(recent, recentInfo);
+		for (int i = 1; i < 1000; i++) {
+			cache.put(fTUs[i], new Object());
+			// Keep the first element the most recently used one
+			assertSame(recentInfo, cache.get(recent));
+			assertTrue(cache.size() <= 160);
+		}
+		assertSame(recentInfo, cache.peek(recent));
+		assertTrue(cache.fillingRatio() <= 100);
+
+		cache.remove(recent);
+		assertNull(cache.peek(recent));
+	}
+
+	public void testConcurrentOpen() throws Exception {
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread[] threads = new Thread[THREAD_COUNT];
+		for (int t = 0; t < threads.length; t++) {
+			final long seed = t;
+			threads[t] = new Thread("CModelCacheTests-" + t) {
+				@Override
+				public void run() {
+					try {
+						openAll(new Random(seed));
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			};
+		}
+		long time = System.currentTimeMillis();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		time = System.currentTimeMillis() - time;
+		if (PRINT_TIMING) {
+			System.out.println("Opened " + FILE_COUNT + " translation units " + ROUNDS + " times in " //$NON-NLS-1$ //$NON-NLS-2$
+					+ THREAD_COUNT + " threads: " + time + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (!failures.isEmpty()) {
+			Throwable e = failures.get(0);
+			if (e instanceof Exception)
+				throw (Exception) e;
+			throw (Error) e;
+		}
+	}
+
+	private void openAll(Random random) throws Exception {
+		List<ITranslationUnit> tus = new ArrayList<ITranslationUnit>(fTUs.length);
+		Collections.addAll(tus, fTUs);
+		for (int round = 0; round < ROUNDS; round++) {
+			Collections.shuffle(tus, random);
+			for (ITranslationUnit tu : tus) {
+				ICElement[] children = tu.getChildren();
+				assertEquals(tu.getElementName(), 3, children.length);
+				assertEquals(ICElement.C_VARIABLE, children[0].getElementType());
+				assertEquals(ICElement.C_FUNCTION, children[1].getElementType());
+				assertEquals(ICElement.C_STRUCT, children[2].getElementType());
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Intel Corporation and others.
+ * Copyright (c) 2007, 2011 Intel Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,8 @@ public class AllCProjectDescriptionTests {
 		suite.addTest(BackwardCompatibilityTests.suite());
 		suite.addTest(CProjectDescriptionBasicTests.suite());
 		suite.addTest(CProjectDescriptionStorageTests.suite());
+		suite.addTest(ScannerInfoProviderTests.suite());
+		suite.addTest(XmlDocumentLoaderTests.suite());
         return suite;
     }
 }
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.settings.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfoProvider;
+import org.eclipse.cdt.core.testplugin.ResourceHelper;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Tests the scanner infos computed from the per-file settings of a project description.
+ */
+public class ScannerInfoProviderTests extends BaseTestCase {
+
+	public static TestSuite suite() {
+		return suite(ScannerInfoProviderTests.class, "_");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ResourceHelper.cleanUp();
+	}
+
+	private static void setIncludePath(ICConfigurationDescription cfgDescription, IFile file, String path) throws Exception {
+		ICResourceDescription rcDescription = cfgDescription.getResourceDescription(file.getProjectRelativePath(), true);
+		ICFileDescription fileDescription;
+		if (rcDescription instanceof ICFileDescription) {
+			fileDescription = (ICFileDescription) rcDescription;
+		} else {
+			fileDescription = cfgDescription.createFileDescription(file.getProjectRelativePath(), cfgDescription.getRootFolderDescription());
+		}
+		ICLanguageSetting langSetting = fileDescription.getLanguageSetting();
+		langSetting.setSettingEntries(ICSettingEntry.INCLUDE_PATH, new ICLanguageSettingEntry[] {new CIncludePathEntry(path, 0)});
+	}
+
+	private static List<String> getIncludePaths(IScannerInfo info) {
+		return Arrays.asList(info.getIncludePaths());
+	}
+
+	public void testPerFileScannerInfoSharing() throws Exception {
+		ICProjectDescriptionManager mngr = CoreModel.getDefault().getProjectDescriptionManager();
+		IProject project = ResourceHelper.createCDTProjectWithConfig(getName());
+		IFile file1 = ResourceHelper.createFile(project, "a.cpp");
+		IFile file2 = ResourceHelper.createFile(project, "b.cpp");
+		IFile file3 = ResourceHelper.createFile(project, "c.cpp");
+
+		ICProjectDescription prjDescription = mngr.getProjectDescription(project, true);
+		ICConfigurationDescription cfgDescription = prjDescription.getDefaultSettingConfiguration();
+		setIncludePath(cfgDescription, file1, "/shared");
+		setIncludePath(cfgDescription, file2, "/shared");
+		setIncludePath(cfgDescription, file3, "/other");
+		mngr.setProjectDescription(project, prjDescription);
+
+		IScannerInfoProvider provider = CCorePlugin.getDefault().getScannerInfoProvider(project);
+		IScannerInfo info1 = provider.getScannerInformation(file1);
+		IScannerInfo info2 = provider.getScannerInformation(file2);
+		IScannerInfo info3 = provider.getScannerInformation(file3);
+
+		String shared = new Path("/shared").toOSString();
+		String other = new Path("/other").toOSString();
+		assertTrue(getIncludePaths(info1).contains(shared));
+		assertTrue(getIncludePaths(info3).contains(other));
+		assertFalse(getIncludePaths(info3).contains(shared));
+
+		// Files with equal settings share the scanner info, repeated requests are cached
+		assertSame(info1, info2);
+		assertNotSame(info1, info3);
+		assertSame(info1, provider.getScannerInformation(file1));
+
+		// Changing the settings invalidates the cached scanner infos
+		prjDescription = mngr.getProjectDescription(project, true);
+		cfgDescription = prjDescription.getDefaultSettingConfiguration();
+		setIncludePath(cfgDescription, file1, "/other");
+		mngr.setProjectDescription(project, prjDescription);
+
+		IScannerInfo newInfo1 = provider.getScannerInformation(file1);
+		assertTrue(getIncludePaths(newInfo1).contains(other));
+		assertFalse(getIncludePaths(newInfo1).contains(shared));
+		assertSame(newInfo1, provider.getScannerInformation(file3));
+		assertTrue(getIncludePaths(provider.getScannerInformation(file2)).contains(shared));
+	}
+}
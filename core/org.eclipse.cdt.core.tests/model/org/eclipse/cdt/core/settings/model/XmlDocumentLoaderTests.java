@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.settings.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.CTestPlugin;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.settings.model.xml.XmlDocumentLoader;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.Path;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Compares the documents read by the {@link XmlDocumentLoader} with the ones read by a
+ * {@link DocumentBuilder}.
+ */
+public class XmlDocumentLoaderTests extends BaseTestCase {
+	private static final String EXAMPLE = "resources/projectDescription/example.cproject";
+
+	private ICProject fProject;
+
+	public XmlDocumentLoaderTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return new TestSuite(XmlDocumentLoaderTests.class);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fProject != null) {
+			CProjectHelper.delete(fProject);
+		}
+		super.tearDown();
+	}
+
+	private static DocumentBuilder newBuilder() throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+	}
+
+	private static Document loadWithBuilder(File file) throws Exception {
+		InputStream in = new FileInputStream(file);
+		try {
+			return newBuilder().parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static Document loadWithLoader(File file) throws Exception {
+		InputStream in = new FileInputStream(file);
+		try {
+			return XmlDocumentLoader.load(in, newBuilder());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Removes the text consisting of white space only from the elements that contain other
+	 * elements, like the loader does.
+	 */
+	private static void dropWhiteSpace(Node node) {
+		boolean hasElements = false;
+		for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				hasElements = true;
+				dropWhiteSpace(child);
+			}
+		}
+		if (hasElements && node.getNodeType() == Node.ELEMENT_NODE) {
+			Node child = node.getFirstChild();
+			while (child != null) {
+				Node next = child.getNextSibling();
+				if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().trim().length() == 0) {
+					node.removeChild(child);
+				}
+				child = next;
+			}
+		}
+	}
+
+	private static void assertEqualNodes(String path, Node expected, Node actual) {
+		assertEquals(path, expected.getNodeType(), actual.getNodeType());
+		assertEquals(path, expected.getNodeName(), actual.getNodeName());
+		assertEquals(path, expected.getNodeValue(), actual.getNodeValue());
+		path = path + '/' + expected.getNodeName();
+
+		NamedNodeMap expectedAttributes = expected.getAttributes();
+		if (expectedAttributes != null) {
+			NamedNodeMap actualAttributes = actual.getAttributes();
+			assertEquals(path, expectedAttributes.getLength(), actualAttributes.getLength());
+			for (int i = 0; i < expectedAttributes.getLength(); i++) {
+				Node attribute = expectedAttributes.item(i);
+				assertEquals(path + '@' + attribute.getNodeName(), attribute.getNodeValue(),
+						((Element) actual).getAttribute(attribute.getNodeName()));
+			}
+		}
+
+		Node expectedChild = expected.getFirstChild();
+		Node actualChild = actual.getFirstChild();
+		while (expectedChild != null && actualChild != null) {
+			assertEqualNodes(path, expectedChild, actualChild);
+			expectedChild = expectedChild.getNextSibling();
+			actualChild = actualChild.getNextSibling();
+		}
+		assertNull(path, expectedChild);
+		assertNull(path, actualChild);
+	}
+
+	private static void checkRoundTrip(File file) throws Exception {
+		Document expected = loadWithBuilder(file);
+		dropWhiteSpace(expected);
+		assertEqualNodes("", expected, loadWithLoader(file));
+	}
+
+	private static Element getElement(Document document, String name) {
+		return (Element) document.getElementsByTagName(name).item(0);
+	}
+
+	public void testExampleFile() throws Exception {
+		checkRoundTrip(CTestPlugin.getDefault().getFileInPlugin(new Path(EXAMPLE)));
+	}
+
+	public void testProjectFile() throws Exception {
+		fProject = CProjectHelper.createCProject("XmlDocumentLoaderTests", "none");
+		IFile file = fProject.getProject().getFile(".cproject");
+		assertTrue(file.exists());
+		checkRoundTrip(file.getLocation().toFile());
+	}
+
+	public void testCDATA() throws Exception {
+		Document document = loadWithLoader(CTestPlugin.getDefault().getFileInPlugin(new Path(EXAMPLE)));
+
+		Node script = getElement(document, "script").getFirstChild();
+		assertEquals(Node.CDATA_SECTION_NODE, script.getNodeType());
+		assertEquals("if (a < b && c > d) { run(); }", script.getNodeValue());
+		assertNull(script.getNextSibling());
+
+		Node notes = getElement(document, "notes").getFirstChild();
+		assertEquals(Node.TEXT_NODE, notes.getNodeType());
+		assertEquals("Build with ", notes.getNodeValue());
+		notes = notes.getNextSibling();
+		assertEquals(Node.CDATA_SECTION_NODE, notes.getNodeType());
+		assertEquals("<make> & <install>", notes.getNodeValue());
+		notes = notes.getNextSibling();
+		assertEquals(Node.TEXT_NODE, notes.getNodeType());
+		assertEquals(" afterwards", notes.getNodeValue());
+
+		Node empty = getElement(document, "empty").getFirstChild();
+		assertEquals(Node.CDATA_SECTION_NODE, empty.getNodeType());
+		assertEquals("", empty.getNodeValue());
+	}
+
+	public void testWhiteSpace() throws Exception {
+		Document document = loadWithLoader(CTestPlugin.getDefault().getFileInPlugin(new Path(EXAMPLE)));
+
+		// The text of a leaf element is kept, the indentation is not
+		assertEquals("  ", getElement(document, "description").getTextContent());
+		Element extensions = getElement(document, "extensions");
+		for (Node child = extensions.getFirstChild(); child != null; child = child.getNextSibling()) {
+			assertEquals(Node.ELEMENT_NODE, child.getNodeType());
+		}
+		assertEquals(Node.COMMENT_NODE, getElement(document, "storageModule").getFirstChild().getNodeType());
+	}
+
+	public void testSharedStrings() throws Exception {
+		Document document = loadWithLoader(CTestPlugin.getDefault().getFileInPlugin(new Path(EXAMPLE)));
+		Element configuration = getElement(document, "cconfiguration");
+		Element storageModule = (Element) configuration.getElementsByTagName("storageModule").item(0);
+		assertSame(configuration.getAttribute("id"), storageModule.getAttribute("id"));
+	}
+}
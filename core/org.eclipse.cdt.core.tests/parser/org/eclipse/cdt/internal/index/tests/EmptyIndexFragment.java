@@ -28,6 +28,7 @@ import org.eclipse.cdt.internal.core.index.IIndexFragmentFileSet;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentInclude;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentName;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
+import org.eclipse.cdt.internal.core.index.IndexCallEdge;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -88,6 +89,14 @@ public class EmptyIndexFragment implements IIndexFragment {
 		return IIndexFragmentName.EMPTY_NAME_ARRAY;
 	}
 
+	public IIndexFragmentBinding[] findDerivedClasses(IBinding binding) {
+		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+	}
+
+	public IndexCallEdge[] findCallers(IBinding binding, int flags) {
+		return IndexCallEdge.EMPTY_CALL_EDGE_ARRAY;
+	}
+
 	public IIndexFragmentBinding[] findMacroContainers(Pattern pattern, IndexFilter filter, IProgressMonitor monitor) {
 		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
 	}
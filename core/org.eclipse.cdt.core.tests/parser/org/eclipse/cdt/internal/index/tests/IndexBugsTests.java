@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -83,8 +84,12 @@ import org.eclipse.cdt.core.testplugin.CTestPlugin;
 import org.eclipse.cdt.core.testplugin.TestScannerProvider;
 import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
 import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.CCoreInternals;
 import org.eclipse.cdt.internal.core.dom.parser.ASTNode;
+import org.eclipse.cdt.internal.core.index.IIndexFragmentBinding;
 import org.eclipse.cdt.internal.core.pdom.CModelListener;
+import org.eclipse.cdt.internal.core.pdom.PDOM;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -1049,6 +1054,65 @@ public class IndexBugsTests extends BaseTestCase {
 		}		
 	}
 	
+	// int getTypeName;
+	// int getTheTypeName;
+	// int get_type_name;
+	// int gtnValue;
+	// int getName;
+	// int setTypeName;
+	// namespace ns {
+	//   int gTypeName;
+	// };
+	public void testFindBindingsForContentAssistWithSegments() throws Exception {
+		waitForIndexer();
+		String content= getContentsForTest(1)[0];
+
+		IFile file= TestSourceReader.createFile(fCProject.getProject(), "testFBFCAWS.cpp", content);
+		TestSourceReader.waitUntilFileIsIndexed(fIndex, file, INDEX_WAIT_TIME);
+
+		fIndex.acquireReadLock();
+		try {
+			IBinding[] bindings= fIndex.findBindingsForContentAssist("gTN".toCharArray(), true, IndexFilter.ALL, null);
+			assertEquals("[getTheTypeName, getTypeName, get_type_name, gtnValue]", getSortedNames(bindings));
+
+			bindings= fIndex.findBindingsForContentAssist("gTN".toCharArray(), false, IndexFilter.ALL, null);
+			assertEquals("[gTypeName, getTheTypeName, getTypeName, get_type_name, gtnValue]", getSortedNames(bindings));
+
+			bindings= fIndex.findBindingsForContentAssist("getTyNa".toCharArray(), true, IndexFilter.ALL, null);
+			assertEquals("[getTypeName]", getSortedNames(bindings));
+
+			// Content assist looks up the prefix case-insensitively
+			bindings= fIndex.findBindingsForContentAssist("GTN".toCharArray(), true, IndexFilter.ALL, null);
+			assertEquals("[gtnValue]", getSortedNames(bindings));
+		} finally {
+			fIndex.releaseReadLock();
+		}		
+
+		// The segments of a removed binding are removed, also
+		PDOM pdom= (PDOM) CCoreInternals.getPDOMManager().getPDOM(fCProject);
+		pdom.acquireWriteLock();
+		try {
+			IIndexFragmentBinding[] nested= pdom.findBindings(new char[][] {"ns".toCharArray(), "gTypeName".toCharArray()},
+					IndexFilter.ALL, npm());
+			assertEquals(1, nested.length);
+			PDOMBinding binding= (PDOMBinding) nested[0];
+			binding.getLinkage().beforeRemoveBinding(binding);
+			IBinding[] bindings= pdom.findBindingsForContentAssist("gTN".toCharArray(), false, IndexFilter.ALL, null);
+			assertEquals("[getTheTypeName, getTypeName, get_type_name, gtnValue]", getSortedNames(bindings));
+		} finally {
+			pdom.releaseWriteLock();
+		}
+	}
+
+	private String getSortedNames(IBinding[] bindings) {
+		String[] names= new String[bindings.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i]= bindings[i].getName();
+		}
+		Arrays.sort(names);
+		return Arrays.asList(names).toString();
+	}
+
 	// class a { class b { class c { void f(); }; }; };
 	public void testFilterFindBindingsFQCharArray() throws Exception {
 		waitForIndexer();
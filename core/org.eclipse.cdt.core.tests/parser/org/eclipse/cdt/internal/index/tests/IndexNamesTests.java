@@ -12,6 +12,7 @@
 package org.eclipse.cdt.internal.index.tests;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import junit.framework.TestSuite;
@@ -19,10 +20,13 @@ import junit.framework.TestSuite;
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.ILinkage;
 import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexCallEdge;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IIndexTypeHierarchy;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.index.IndexLocationFactory;
 import org.eclipse.cdt.core.model.ICProject;
@@ -446,4 +450,115 @@ public class IndexNamesTests extends BaseTestCase {
 
 		checkReadWriteFlags(file, ILinkage.CPP_LINKAGE_ID, 2);
 	}
+
+	//	class Base {};
+	//	class A : public Base {};
+	//	class B : public Base {};
+	//	class C : public A, public B {};
+	//	typedef Base TBase;
+	//	class D : TBase {};
+	public void testDerivedClasses() throws Exception {
+		waitForIndexer();
+		String content= getComment();
+		IFile file= createFile(getProject().getProject(), "testDerivedClasses.cpp", content);
+		waitUntilFileIsIndexed(file, 4000);
+
+		fIndex.acquireReadLock();
+		try {
+			IIndexBinding[] bases= fIndex.findBindings(getPattern("Base"), true, IndexFilter.ALL, npm());
+			assertLength(1, bases);
+			IIndexBinding base= bases[0];
+			assertDerivedClasses(new String[] {"A", "B"}, fIndex.findDerivedClasses(base));
+			
+			IIndexTypeHierarchy th= fIndex.createSubTypeHierarchy(base);
+			assertSame(base, th.getRoot());
+			assertTrue(th.hasNextLevel());
+			assertDerivedClasses(new String[] {"A", "B"}, th.nextLevel());
+			assertDerivedClasses(new String[] {"C"}, th.nextLevel());
+			assertLength(0, th.nextLevel());
+			assertFalse(th.hasNextLevel());
+			assertEquals(2, th.getLevelCount());
+			
+			IIndexBinding[] typedefs= fIndex.findBindings(getPattern("TBase"), true, IndexFilter.ALL, npm());
+			assertLength(1, typedefs);
+			assertDerivedClasses(new String[] {"D"}, fIndex.findDerivedClasses(typedefs[0]));
+		} finally {
+			fIndex.releaseReadLock();
+		}
+		
+		file= createFile(getProject().getProject(), "testDerivedClasses.cpp", "class Base {}; class B : public Base {};");
+		waitUntilFileIsIndexed(file, 4000);
+		fIndex.acquireReadLock();
+		try {
+			IIndexBinding[] bases= fIndex.findBindings(getPattern("Base"), true, IndexFilter.ALL, npm());
+			assertLength(1, bases);
+			assertDerivedClasses(new String[] {"B"}, fIndex.findDerivedClasses(bases[0]));
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
+	//	int v;
+	//	void f() {}
+	//	void g() {f(); v= 1;}
+	//	void h() {f(); g(); f();}
+	//	int i= v;
+	public void testCallers() throws Exception {
+		waitForIndexer();
+		String content= getComment();
+		IFile file= createFile(getProject().getProject(), "testCallers.cpp", content);
+		waitUntilFileIsIndexed(file, 4000);
+
+		fIndex.acquireReadLock();
+		try {
+			IIndexBinding f= fIndex.findBindings(getPattern("f"), true, IndexFilter.ALL, npm())[0];
+			IIndexBinding g= fIndex.findBindings(getPattern("g"), true, IndexFilter.ALL, npm())[0];
+			IIndexBinding v= fIndex.findBindings(getPattern("v"), true, IndexFilter.ALL, npm())[0];
+			IIndexCallEdge[][] edges= fIndex.findCallers(new IBinding[] {f, g, v}, 0);
+			assertEquals(3, edges.length);
+			assertCallers(new String[] {"g", "h", "h"}, edges[0], content, "f");
+			assertCallers(new String[] {"h"}, edges[1], content, "g");
+			// The initializer of i is not enclosed by a definition.
+			assertCallers(new String[] {"g"}, edges[2], content, "v");
+		} finally {
+			fIndex.releaseReadLock();
+		}
+
+		file= createFile(getProject().getProject(), "testCallers.cpp", "void f() {} void k() {f();}");
+		waitUntilFileIsIndexed(file, 4000);
+		fIndex.acquireReadLock();
+		try {
+			IIndexBinding f= fIndex.findBindings(getPattern("f"), true, IndexFilter.ALL, npm())[0];
+			assertCallers(new String[] {"k"}, fIndex.findCallers(new IBinding[] {f}, 0)[0], null, "f");
+		} finally {
+			fIndex.releaseReadLock();
+		}
+	}
+
+	private void assertCallers(String[] expected, IIndexCallEdge[] edges, String content, String callee)
+			throws CoreException {
+		String[] actual= new String[edges.length];
+		for (int i = 0; i < actual.length; i++) {
+			IIndexName caller= edges[i].getCaller();
+			assertTrue(caller.isDefinition());
+			actual[i]= caller.toString();
+			IIndexName callSite= edges[i].getCallSite();
+			assertTrue(callSite.isReference());
+			if (content != null) {
+				assertEquals(callee, content.substring(callSite.getNodeOffset(),
+						callSite.getNodeOffset() + callSite.getNodeLength()));
+			}
+		}
+		Arrays.sort(actual);
+		assertEquals(Arrays.asList(expected).toString(), Arrays.asList(actual).toString());
+	}
+
+	private void assertDerivedClasses(String[] expected, IIndexBinding[] derived) {
+		String[] actual= new String[derived.length];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i]= derived[i].getName();
+		}
+		Arrays.sort(actual);
+		assertEquals(Arrays.asList(expected).toString(), Arrays.asList(actual).toString());
+	}
 }
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.index.tests;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.testplugin.util.BaseTestCase;
+import org.eclipse.cdt.internal.core.index.CIndex;
+import org.eclipse.cdt.internal.core.index.IIndexFragment;
+import org.eclipse.cdt.internal.core.index.IndexFileLocation;
+import org.eclipse.cdt.internal.core.index.IndexQueryCache;
+import org.eclipse.cdt.internal.core.pdom.PDOM.ChangeEvent;
+
+/**
+ * Tests for the invalidation of the results cached across index locks.
+ */
+public class IndexQueryCacheTest extends BaseTestCase {
+	private static final String QUERY = "query";
+
+	private IndexQueryCache fCache;
+	private CIndex fIndex;
+	private IIndexFileLocation fFile1;
+	private IIndexFileLocation fFile2;
+
+	public static Test suite() {
+		return suite(IndexQueryCacheTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fCache= new IndexQueryCache(3);
+		fIndex= new CIndex(new IIndexFragment[] {new EmptyIndexFragment()});
+		fFile1= new IndexFileLocation(new URI("file:/test/file1.h"), null);
+		fFile2= new IndexFileLocation(new URI("file:/test/file2.h"), null);
+	}
+
+	public void testHitsAndMisses() throws Exception {
+		IndexQueryCache.Key key= fCache.createKey(fIndex, QUERY, fFile1);
+		assertNull(fCache.get(key));
+		fCache.put(key, "result", Collections.singleton(fFile1), Collections.<char[]>emptySet());
+		assertEquals("result", fCache.get(fCache.createKey(fIndex, QUERY, fFile1)));
+		assertNull(fCache.get(fCache.createKey(fIndex, "other", fFile1)));
+		assertEquals(1, fCache.getCacheHits());
+		assertEquals(2, fCache.getCacheMisses());
+	}
+
+	public void testInvalidationByFile() throws Exception {
+		IndexQueryCache.Key key1= fCache.createKey(fIndex, QUERY, fFile1);
+		IndexQueryCache.Key key2= fCache.createKey(fIndex, QUERY, fFile2);
+		fCache.put(key1, "r1", Collections.singleton(fFile1), Collections.<char[]>emptySet());
+		fCache.put(key2, "r2", Collections.singleton(fFile2), Collections.<char[]>emptySet());
+
+		ChangeEvent event= new ChangeEvent();
+		event.fFilesWritten.add(fFile1);
+		fCache.invalidate(event);
+		assertNull(fCache.get(key1));
+		assertEquals("r2", fCache.get(key2));
+
+		event= new ChangeEvent();
+		event.fClearedFiles.add(fFile2);
+		fCache.invalidate(event);
+		assertNull(fCache.get(key2));
+		assertEquals(2, fCache.getInvalidations());
+	}
+
+	public void testInvalidationByName() throws Exception {
+		IndexQueryCache.Key key1= fCache.createKey(fIndex, QUERY, fFile1);
+		IndexQueryCache.Key key2= fCache.createKey(fIndex, QUERY, fFile2);
+		fCache.put(key1, "r1", Collections.<IIndexFileLocation>emptySet(), Collections.singleton("foo".toCharArray()));
+		fCache.put(key2, "r2", Collections.<IIndexFileLocation>emptySet(), Collections.singleton("bar".toCharArray()));
+
+		ChangeEvent event= new ChangeEvent();
+		event.addChangedName("foo".toCharArray());
+		fCache.invalidate(event);
+		assertNull(fCache.get(key1));
+		assertEquals("r2", fCache.get(key2));
+	}
+
+	public void testInvalidationByIncludeTarget() throws Exception {
+		IndexQueryCache.Key key= fCache.createKey(fIndex, QUERY, fFile2);
+		fCache.put(key, "r", Collections.singleton(fFile2), Collections.<char[]>emptySet());
+
+		ChangeEvent event= new ChangeEvent();
+		event.addChangedIncludeTarget(fFile2);
+		fCache.invalidate(event);
+		assertNull(fCache.get(key));
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() throws Exception {
+		IndexQueryCache.Key[] keys= new IndexQueryCache.Key[4];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i]= fCache.createKey(fIndex, QUERY + i, fFile1);
+			fCache.put(keys[i], "r" + i, Arrays.asList(fFile1), Collections.<char[]>emptySet());
+			if (i == 2) {
+				fCache.get(keys[0]);
+			}
+		}
+		assertEquals(3, fCache.size());
+		assertEquals("r0", fCache.get(keys[0]));
+		assertNull(fCache.get(keys[1]));
+	}
+
+	public void testNoKeyForOtherIndex() throws Exception {
+		assertNull(fCache.createKey(null, QUERY, fFile1));
+		fCache.put(null, "r", Collections.singleton(fFile1), Collections.<char[]>emptySet());
+		assertTrue(fCache.isEmpty());
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2011 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,8 @@ public class IndexTests extends TestSuite {
 		suite.addTest(IndexNamesTests.suite());
 		suite.addTest(TeamSharedIndexTest.suite());
 		suite.addTest(IndexProviderManagerTest.suite());
+		suite.addTest(IndexQueryCacheTest.suite());
+		suite.addTest(TodoTaskMarkerTests.suite());
 		
 		IndexCPPBindingResolutionBugs.addTests(suite);
 		IndexCPPBindingResolutionTest.addTests(suite);
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.index.tests;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.model.ICModelMarker;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.internal.core.pdom.indexer.TodoTaskUpdater;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Tests the task markers created for the task tags in the comments of indexed files.
+ */
+public class TodoTaskMarkerTests extends IndexTestBase {
+	private ICProject fProject;
+	private IIndex fIndex;
+
+	public TodoTaskMarkerTests(String name) {
+		super(name);
+	}
+
+	public static Test suite() {
+		return suite(TodoTaskMarkerTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fProject= CProjectHelper.createCCProject("todoTaskMarkerTests", null, IPDOMManager.ID_FAST_INDEXER);
+		assertTrue(CCorePlugin.getIndexManager().joinIndexer(INDEXER_WAIT_TIME, npm()));
+		fIndex= CCorePlugin.getIndexManager().getIndex(fProject);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fProject != null) {
+			CProjectHelper.delete(fProject);
+		}
+		super.tearDown();
+	}
+
+	private IFile indexFile(String contents) throws Exception {
+		IFile file= TestSourceReader.createFile(fProject.getProject(), "tasks.cpp", contents);
+		TestSourceReader.waitUntilFileIsIndexed(fIndex, file, INDEXER_WAIT_TIME);
+		Job.getJobManager().join(TodoTaskUpdater.JOB_FAMILY, npm());
+		return file;
+	}
+
+	private Map<String, Long> getMarkerIds(IFile file) throws Exception {
+		Map<String, Long> ids= new HashMap<String, Long>();
+		for (IMarker marker : file.findMarkers(ICModelMarker.TASK_MARKER, false, IResource.DEPTH_ZERO)) {
+			ids.put(marker.getAttribute(IMarker.MESSAGE, null), marker.getId());
+		}
+		return ids;
+	}
+
+	public void testUnchangedMarkersAreKept() throws Exception {
+		IFile file= indexFile("// TODO first\nint a;\n// FIXME second\nint b;\n// XXX third\n");
+		Map<String, Long> before= getMarkerIds(file);
+		assertEquals(3, before.size());
+		assertTrue(before.containsKey("TODO first"));
+		assertTrue(before.containsKey("FIXME second"));
+		assertTrue(before.containsKey("XXX third"));
+
+		// The changed task does not move the others
+		file= indexFile("// TODO first\nint a;\n// FIXME change\nint b;\n// XXX third\n");
+		Map<String, Long> after= getMarkerIds(file);
+		assertEquals(3, after.size());
+		assertEquals(before.get("TODO first"), after.get("TODO first"));
+		assertEquals(before.get("XXX third"), after.get("XXX third"));
+		assertFalse(after.containsKey("FIXME second"));
+		assertNotNull(after.get("FIXME change"));
+		assertFalse(after.containsValue(before.get("FIXME second")));
+	}
+
+	public void testRemoveTasks() throws Exception {
+		IFile file= indexFile("// TODO first\nint a;\n");
+		assertEquals(1, getMarkerIds(file).size());
+
+		TodoTaskUpdater.removeTasksFor(file);
+		Job.getJobManager().join(TodoTaskUpdater.JOB_FAMILY, npm());
+		assertEquals(0, getMarkerIds(file).size());
+	}
+}
@@ -0,0 +1,5 @@
+#line 1 "grüße.c"
+int grüße(void)
+{
+	return 3;
+}
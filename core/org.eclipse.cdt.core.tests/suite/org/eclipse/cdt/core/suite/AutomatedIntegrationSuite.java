@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2010 IBM Corporation and others.
+ *  Copyright (c) 2005, 2011 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -33,8 +33,12 @@ import org.eclipse.cdt.core.resources.tests.RefreshScopeTests;
 import org.eclipse.cdt.core.tests.templateengine.AllTemplateEngineTests;
 import org.eclipse.cdt.internal.index.tests.IndexTests;
 import org.eclipse.cdt.internal.pdom.tests.PDOMTests;
+import org.eclipse.cdt.utils.CPPDemanglerTest;
 import org.eclipse.cdt.utils.CdtVariableResolverTest;
 import org.eclipse.cdt.utils.CommandLineUtilTest;
+import org.eclipse.cdt.utils.DwarfIndexTest;
+import org.eclipse.cdt.utils.DwarfLineTableTest;
+import org.eclipse.cdt.utils.ElfSymbolTableTest;
 import org.eclipse.cdt.utils.FindProgramLocationTest;
 
 /**
@@ -77,6 +81,10 @@ public class AutomatedIntegrationSuite extends TestSuite {
 		suite.addTest(CdtVariableResolverTest.suite());
 		suite.addTest(CommandLineUtilTest.suite());
 		suite.addTest(FindProgramLocationTest.suite());
+		suite.addTest(CPPDemanglerTest.suite());
+		suite.addTest(DwarfIndexTest.suite());
+		suite.addTest(DwarfLineTableTest.suite());
+		suite.addTest(ElfSymbolTableTest.suite());
 		suite.addTest(EFSExtensionTests.suite());
 
 		// Add in PDOM tests
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.model;
+
+/**
+ * An element changed listener that receives the {@link ElementChangedEvent#POST_CHANGE} deltas
+ * in batches. The deltas are collected for a short time after a change, merged into a single
+ * delta per batch and delivered from a background job, such that a listener does not have to
+ * react to each of the many deltas created by an operation touching a lot of files.
+ * <p>
+ * The events of the other types are delivered to the listener immediately, as for any other
+ * element changed listener.
+ *
+ * @since 5.4
+ */
+public interface IBatchedElementChangedListener extends IElementChangedListener {
+}
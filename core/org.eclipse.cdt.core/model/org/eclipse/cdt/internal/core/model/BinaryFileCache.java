@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Remembers for the files of a project which binary parser has recognized them, such that
+ * unchanged files need not be probed again. A file is identified by its project relative
+ * path and is considered unchanged as long as its size and modification time do not change.
+ * The cache is stored in the state location of the plugin and is discarded when the binary
+ * parsers of the project change.
+ */
+public class BinaryFileCache {
+	/** Parser id recorded for files that are not binaries */
+	public static final String NOT_BINARY = ""; //$NON-NLS-1$
+
+	private static final int VERSION = 1;
+	private static final String CACHE_FOLDER = "binaryCache"; //$NON-NLS-1$
+	private static final String CACHE_EXTENSION = ".cache"; //$NON-NLS-1$
+
+	private static final class Entry {
+		final long size;
+		final long modified;
+		final String parserID;
+
+		Entry(long size, long modified, String parserID) {
+			this.size = size;
+			this.modified = modified;
+			this.parserID = parserID;
+		}
+	}
+
+	private final File storage;
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private String parsersKey = ""; //$NON-NLS-1$
+	private boolean loaded;
+	private boolean dirty;
+
+	BinaryFileCache(IProject project) {
+		this(new File(CCorePlugin.getDefault().getStateLocation().append(CACHE_FOLDER).toFile(),
+				project.getName() + CACHE_EXTENSION));
+	}
+
+	/**
+	 * Creates a cache that is stored in the given file.
+	 */
+	public BinaryFileCache(File storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * Computes the key for a list of binary parsers, the cache is valid only for a given list.
+	 */
+	public static String getParsersKey(BinaryParserConfig[] parsers) {
+		StringBuilder buf = new StringBuilder();
+		for (BinaryParserConfig parser : parsers) {
+			buf.append(parser.getId()).append(',');
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Returns the id of the binary parser that has recognized the file, {@link #NOT_BINARY}
+	 * if the file is not a binary, or <code>null</code> if the file is not in the cache or
+	 * has changed.
+	 */
+	public synchronized String getParserID(String parsersKey, IPath path, long size, long modified) {
+		checkParsers(parsersKey);
+		Entry entry = entries.get(path.toString());
+		if (entry != null && entry.size == size && entry.modified == modified) {
+			return entry.parserID;
+		}
+		return null;
+	}
+
+	/**
+	 * Records the result of probing a file.
+	 * @param parserID the id of the parser that has recognized the file or {@link #NOT_BINARY}.
+	 */
+	public synchronized void put(String parsersKey, IPath path, long size, long modified, String parserID) {
+		checkParsers(parsersKey);
+		Entry old = entries.put(path.toString(), new Entry(size, modified, parserID));
+		if (old == null || old.size != size || old.modified != modified || !old.parserID.equals(parserID)) {
+			dirty = true;
+		}
+	}
+
+	private void checkParsers(String key) {
+		if (!loaded) {
+			loaded = true;
+			load();
+		}
+		if (!parsersKey.equals(key)) {
+			parsersKey = key;
+			entries.clear();
+			dirty = true;
+		}
+	}
+
+	private void load() {
+		if (!storage.isFile())
+			return;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(storage)));
+			try {
+				if (in.readInt() != VERSION)
+					return;
+				parsersKey = in.readUTF();
+				final int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					String path = in.readUTF();
+					long size = in.readLong();
+					long modified = in.readLong();
+					String parserID = in.readUTF();
+					entries.put(path, new Entry(size, modified, parserID));
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// The cache is rebuilt and overwrites the broken file
+			entries.clear();
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Writes the cache to the disk, if it has changed.
+	 */
+	public synchronized void save() {
+		if (!dirty)
+			return;
+		dirty = false;
+		try {
+			storage.getParentFile().mkdirs();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(storage)));
+			try {
+				out.writeInt(VERSION);
+				out.writeUTF(parsersKey);
+				out.writeInt(entries.size());
+				for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+					Entry entry = mapEntry.getValue();
+					out.writeUTF(mapEntry.getKey());
+					out.writeLong(entry.size);
+					out.writeLong(entry.modified);
+					out.writeUTF(entry.parserID);
+				}
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			CCorePlugin.log(e);
+		}
+	}
+
+	/**
+	 * Removes the cache from the disk.
+	 */
+	public synchronized void delete() {
+		entries.clear();
+		dirty = false;
+		storage.delete();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,9 @@
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.IBinaryParser.IBinaryFile;
@@ -83,6 +86,11 @@ public class BinaryRunner {
 		
 	}
 	
+	/**
+	 * Minimum number of candidates that justifies an additional job for probing them.
+	 */
+	private static final int MIN_CANDIDATES_PER_JOB = 16;
+
 	private final ICProject cproject;
 	private final Job runnerJob;		// final fields don't need synchronization
 	private IOutputEntry[] entries = new IOutputEntry[0];
@@ -117,9 +125,24 @@ public class BinaryRunner {
 						vbin.removeChildren();
 
 						// traverse project, but only if at least one binary parser is configured
-						BinaryParserConfig[] parsers = CModelManager.getDefault().getBinaryParser(cproject.getProject());
+						CModelManager factory = CModelManager.getDefault();
+						IProject project = cproject.getProject();
+						BinaryParserConfig[] parsers = factory.getBinaryParser(project);
 						if (parsers.length > 0) {
-							cproject.getProject().accept(new Visitor(monitor), IContainer.INCLUDE_PHANTOMS);
+							Visitor visitor = new Visitor(monitor);
+							project.accept(visitor, IContainer.INCLUDE_PHANTOMS);
+							IFile[] candidates = visitor.getCandidates();
+
+							// Instantiate the parsers before they are used by several jobs
+							for (BinaryParserConfig parser : parsers) {
+								try {
+									parser.getBinaryParser();
+								} catch (CoreException e) {
+									CCorePlugin.log(e);
+								}
+							}
+							probe(candidates, monitor);
+							factory.saveBinaryFileCache(project);
 						}
 
 						if (!monitor.isCanceled()) {
@@ -141,6 +164,84 @@ public class BinaryRunner {
 		return job;
 	}
 
+	/**
+	 * Probes the candidates for binaries and creates the elements for the binaries found.
+	 * Files that have been probed before are recognized by the cache of the model manager, the
+	 * others are read. As this is dominated by I/O, the candidates are distributed among
+	 * several jobs. The elements are created by the runner job in the order of the candidates,
+	 * as soon as the candidates before them have been probed.
+	 */
+	private void probe(final IFile[] candidates, final IProgressMonitor monitor) {
+		final ProbeResults results = new ProbeResults(candidates.length);
+		final AtomicInteger next = new AtomicInteger();
+		int jobCount = Math.min(Runtime.getRuntime().availableProcessors(), candidates.length / MIN_CANDIDATES_PER_JOB);
+		Job[] jobs = new Job[Math.max(jobCount - 1, 0)];
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i] = new Job(runnerJob.getName()) {
+				@Override
+				protected IStatus run(IProgressMonitor jobMonitor) {
+					probe(candidates, results, next, monitor);
+					return Status.OK_STATUS;
+				}
+			};
+			jobs[i].setSystem(true);
+			jobs[i].setPriority(Job.LONG);
+			jobs[i].schedule();
+		}
+		// The runner job takes part in probing and creates the elements in between
+		CModelManager factory = CModelManager.getDefault();
+		int created = 0;
+		int i;
+		while (!monitor.isCanceled() && (i = next.getAndIncrement()) < candidates.length) {
+			results.set(i, factory.createBinaryFile(candidates[i]));
+			created = create(candidates, results, created, false, monitor);
+		}
+		create(candidates, results, created, true, monitor);
+		try {
+			for (Job job : jobs) {
+				job.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void probe(IFile[] candidates, ProbeResults results, AtomicInteger next, IProgressMonitor monitor) {
+		CModelManager factory = CModelManager.getDefault();
+		int i;
+		while (!monitor.isCanceled() && (i = next.getAndIncrement()) < candidates.length) {
+			results.set(i, factory.createBinaryFile(candidates[i]));
+		}
+	}
+
+	/**
+	 * Creates the elements for the candidates that have been probed, starting with the given
+	 * index and stopping at the first candidate that has not been probed yet.
+	 * @param wait whether to wait for the remaining candidates to be probed.
+	 * @return the index of the first candidate for which no element has been created.
+	 */
+	private int create(IFile[] candidates, ProbeResults results, int index, boolean wait, IProgressMonitor monitor) {
+		CModelManager factory = CModelManager.getDefault();
+		while (index < candidates.length && !monitor.isCanceled()) {
+			IBinaryFile bin;
+			try {
+				if (!results.isDone(index, wait, monitor)) {
+					break;
+				}
+				bin = results.get(index);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			if (bin != null) {
+				// Create the file will add it to the {Archive,Binary}Container.
+				factory.create(candidates[index], bin, cproject);
+			}
+			index++;
+		}
+		return index;
+	}
+
 	public void start() {
 		synchronized (runnerJob) {
 			if (!isStopped) {
@@ -156,6 +257,7 @@ public class BinaryRunner {
 		try {
 			runnerJob.join();
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -170,10 +272,49 @@ public class BinaryRunner {
 		waitIfRunning();
 	}
 
+	/**
+	 * The binaries found by the probing jobs, in the order of the candidates.
+	 */
+	private static class ProbeResults {
+		/** Time between checks for cancellation while waiting for a result */
+		private static final long WAIT_INTERVAL = 100;
+
+		private final IBinaryFile[] bins;
+		private final boolean[] done;
+
+		ProbeResults(int count) {
+			bins = new IBinaryFile[count];
+			done = new boolean[count];
+		}
+
+		synchronized void set(int index, IBinaryFile bin) {
+			bins[index] = bin;
+			done[index] = true;
+			notifyAll();
+		}
+
+		synchronized IBinaryFile get(int index) {
+			return bins[index];
+		}
+
+		/**
+		 * Returns whether the candidate has been probed.
+		 * @param wait whether to wait until the candidate has been probed, the waiting stops
+		 * when the given monitor is canceled.
+		 */
+		synchronized boolean isDone(int index, boolean wait, IProgressMonitor monitor) throws InterruptedException {
+			while (wait && !done[index] && !monitor.isCanceled()) {
+				wait(WAIT_INTERVAL);
+			}
+			return done[index];
+		}
+	}
+
 	private class Visitor implements IResourceProxyVisitor {
 		private IProgressMonitor vMonitor;
 		private IProject project;
 		private IContentType textContentType;
+		private final List<IFile> candidates = new ArrayList<IFile>();
 
 		public Visitor(IProgressMonitor monitor) {
 			vMonitor = monitor;
@@ -215,13 +356,7 @@ public class BinaryRunner {
 			if (path != null) {
 				for (int i = 0; i < entries.length; ++i) {
 					if (isOnOutputEntry(entries[i], path)) {
-						IFile file = (IFile) proxy.requestResource();
-						CModelManager factory = CModelManager.getDefault();
-						IBinaryFile bin = factory.createBinaryFile(file);
-						if (bin != null) {
-							// Create the file will add it to the {Archive,Binary}Container.
-							factory.create(file, bin, cproject);
-						}
+						candidates.add((IFile) proxy.requestResource());
 						return true;
 					}
 				}
@@ -229,6 +364,13 @@ public class BinaryRunner {
 			return true;
 		}
 		
+		/**
+		 * Returns the files on the output entries that may be binaries, in the order of the visit.
+		 */
+		public IFile[] getCandidates() {
+			return candidates.toArray(new IFile[candidates.size()]);
+		}
+
 		private boolean isOnOutputEntry(IOutputEntry entry, IPath path) {
 			if (entry.getPath().isPrefixOf(path) && !CoreModelUtil.isExcluded(path, entry.fullExclusionPatternChars())) {
 				return true;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -210,6 +210,29 @@ public class CElementDelta implements ICElementDelta {
 		insertDeltaTree(element, addedDelta);
 	}
 
+	/**
+	 * Returns a deep copy of this delta. Merging the copy with other deltas does not modify
+	 * this delta.
+	 */
+	CElementDelta copy() {
+		CElementDelta copy = new CElementDelta(fChangedElement);
+		copy.fKind = fKind;
+		copy.fChangeFlags = fChangeFlags;
+		copy.fMovedFromHandle = fMovedFromHandle;
+		copy.fMovedToHandle = fMovedToHandle;
+		if (resourceDeltas != null) {
+			copy.resourceDeltas = resourceDeltas.clone();
+			copy.resourceDeltasCounter = resourceDeltasCounter;
+		}
+		if (fAffectedChildren.length > 0) {
+			copy.fAffectedChildren = new ICElementDelta[fAffectedChildren.length];
+			for (int i = 0; i < fAffectedChildren.length; i++) {
+				copy.fAffectedChildren[i] = ((CElementDelta) fAffectedChildren[i]).copy();
+			}
+		}
+		return copy;
+	}
+
 	/**
 	 * Adds the child delta to the collection of affected children.  If the
 	 * child is already in the collection, walk down the hierarchy.
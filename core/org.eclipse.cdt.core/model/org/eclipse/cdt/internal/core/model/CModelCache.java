@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2002, 2008 IBM Corporation and others.
+ * Copyright (c) 2002, 2011 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,29 +7,34 @@
  *
  * Contributors:
  * Rational Software - Initial API and implementation
+ * Wind River Systems - concurrent cache
  *******************************************************************************/
 package org.eclipse.cdt.internal.core.model;
 
 
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.IOpenable;
-import org.eclipse.cdt.internal.core.util.OverflowingLRUCache;
 
 
 /**
  * The cache of C elements to their respective info.
  * 
- * This class is similar to the JDT CModelCache class.
+ * This class is similar to the JDT CModelCache class. The infos can be read concurrently,
+ * modifications are synchronized by the {@link CModelManager}.
  */
 public class CModelCache {
 	public static final int PROJ_CACHE_SIZE = 50;	
 	public static final int FOLDER_CACHE_SIZE = 500;	
 	public static final int FILE_CACHE_SIZE = 2000;
 	public static final int CHILDREN_CACHE_SIZE = FILE_CACHE_SIZE * 20;
+	/**
+	 * Space limit for the open files, an openable takes space for itself and for its children.
+	 */
+	public static final int FILE_CACHE_SPACE = FILE_CACHE_SIZE + CHILDREN_CACHE_SIZE;
 	
 	/**
 	 * Cache of open projects and roots.
@@ -44,7 +49,7 @@ public class CModelCache {
 	/**
 	 * Cache of open translation unit files
 	 */
-	protected OverflowingLRUCache<IOpenable, Object> fileCache;
+	protected ConcurrentElementCache fileCache;
 
 	/**
 	 * Cache of children of C elements
@@ -52,10 +57,10 @@ public class CModelCache {
 	protected Map<ICElement, Object> childrenCache;
 	
 public CModelCache() {
-	this.projectAndRootCache = new HashMap<ICElement, Object>(PROJ_CACHE_SIZE);
-	this.folderCache = new HashMap<ICElement, Object>(FOLDER_CACHE_SIZE);	
-	this.fileCache = new ElementCache<Object>(FILE_CACHE_SIZE);
-	this.childrenCache = new HashMap<ICElement, Object>(CHILDREN_CACHE_SIZE); // average 20 children per openable
+	this.projectAndRootCache = new ConcurrentHashMap<ICElement, Object>(PROJ_CACHE_SIZE);
+	this.folderCache = new ConcurrentHashMap<ICElement, Object>(FOLDER_CACHE_SIZE);	
+	this.fileCache = new ConcurrentElementCache(FILE_CACHE_SPACE);
+	this.childrenCache = new ConcurrentHashMap<ICElement, Object>(CHILDREN_CACHE_SIZE); // average 20 children per openable
 }
 
 public double openableFillingRatio() {
@@ -75,7 +80,7 @@ public Object getInfo(ICElement element) {
 		case ICElement.C_ARCHIVE:
 		case ICElement.C_BINARY:		
 		case ICElement.C_UNIT:
-			return this.fileCache.get(element);
+			return this.fileCache.get((IOpenable) element);
 		default:
 			return this.childrenCache.get(element);
 	}
@@ -105,6 +110,11 @@ protected Object peekAtInfo(ICElement element) {
  * Remember the info for the element.
  */
 protected void putInfo(ICElement element, Object info) {
+	if (info == null) {
+		// The concurrent maps do not support null values
+		removeInfo(element);
+		return;
+	}
 	switch (element.getElementType()) {
 		case ICElement.C_MODEL:
 		case ICElement.C_PROJECT:
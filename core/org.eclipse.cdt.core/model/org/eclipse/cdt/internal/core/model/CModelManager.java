@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,6 +39,7 @@ import org.eclipse.cdt.core.IBinaryParser.IBinaryObject;
 import org.eclipse.cdt.core.model.CModelException;
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ElementChangedEvent;
+import org.eclipse.cdt.core.model.IBatchedElementChangedListener;
 import org.eclipse.cdt.core.model.ICContainer;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ICElementDelta;
@@ -100,6 +102,11 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 
 	public static final int DEFAULT_CHANGE_EVENT = 0; // must not collide with ElementChangedEvent event masks
 
+	/**
+	 * Family of the job delivering the deltas to the {@link IBatchedElementChangedListener}s.
+	 */
+	public static final Object BATCHED_DELTAS_JOB_FAMILY = new Object();
+
 	/**
 	 * Used to convert <code>IResourceDelta</code>s into <code>ICElementDelta</code>s.
 	 */
@@ -127,6 +134,11 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 	 */
 	protected List<IElementChangedListener> fElementChangedListeners = Collections.synchronizedList(new ArrayList<IElementChangedListener>());
 
+	/**
+	 * Collects the post change deltas for the batched listeners.
+	 */
+	private final ElementDeltaBatcher fDeltaBatcher = new ElementDeltaBatcher(this);
+
 	/**
 	 * A map from ITranslationUnit to IWorkingCopy of the shared working copies.
 	 */
@@ -161,6 +173,11 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 	 */
 	private final Map<IProject, BinaryParserConfig[]> binaryParsersMap = Collections.synchronizedMap(new HashMap<IProject, BinaryParserConfig[]>());
 
+	/**
+	 * Map of the results of probing the files of a project for binaries.
+	 */
+	private final Map<IProject, BinaryFileCache> binaryFileCaches = new HashMap<IProject, BinaryFileCache>();
+
 	/**
 	 * The lis of the SourceMappers on projects.
 	 */
@@ -677,7 +694,71 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 			}
 			//return null;
 		}
-		
+
+		// Files that have not changed since they were last probed are not probed again.
+		IFileInfo fileInfo = null;
+		try {
+			fileInfo = EFS.getStore(fileUri).fetchInfo();
+		} catch (CoreException e) {
+		}
+		BinaryFileCache cache = null;
+		String parsersKey = null;
+		IPath cachePath = file.getProjectRelativePath();
+		if (fileInfo != null && fileInfo.exists() && fileInfo.getLastModified() != EFS.NONE) {
+			cache = getBinaryFileCache(file.getProject());
+			parsersKey = BinaryFileCache.getParsersKey(parsers);
+			String parserID = cache.getParserID(parsersKey, cachePath, fileInfo.getLength(), fileInfo.getLastModified());
+			if (parserID != null) {
+				if (parserID.equals(BinaryFileCache.NOT_BINARY)) {
+					return null;
+				}
+				for (BinaryParserConfig parser : parsers) {
+					if (parserID.equals(parser.getId())) {
+						parsers = new BinaryParserConfig[] { parser };
+						break;
+					}
+				}
+			}
+		}
+
+		byte[] bytes = readHints(file, parsers);
+		if (bytes == null) {
+			return null;
+		}
+
+		IPath location = file.getLocation();
+
+		// A file that could not be read is probed again the next time
+		boolean failed = false;
+		for (BinaryParserConfig parser2 : parsers) {
+			try {
+				IBinaryParser parser = parser2.getBinaryParser();
+				if (parser.isBinary(bytes, location)) {
+    			    IBinaryFile binFile = parser.getBinary(bytes, location);
+    			    if (binFile != null) {
+    			    	if (cache != null) {
+    			    		cache.put(parsersKey, cachePath, fileInfo.getLength(), fileInfo.getLastModified(), parser2.getId());
+    			    	}
+    			    	return binFile;
+    			    }
+				}
+			} catch (IOException e) {
+				failed = true;
+			} catch (CoreException e) {
+				failed = true;
+			}
+		}
+		if (cache != null && !failed) {
+			cache.put(parsersKey, cachePath, fileInfo.getLength(), fileInfo.getLastModified(), BinaryFileCache.NOT_BINARY);
+		}
+		return null;
+	}
+
+	/**
+	 * Reads as many bytes from the beginning of the file as the parsers need to recognize it.
+	 * @return the bytes read or <code>null</code> if the file cannot be read.
+	 */
+	private byte[] readHints(IFile file, BinaryParserConfig[] parsers) {
 		int hints = 0;
 		
 		for (BinaryParserConfig parser2 : parsers) {
@@ -722,23 +803,40 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 				}
 			}
 		}
+		return bytes;
+	}
 
-		IPath location = file.getLocation();
-
-		for (BinaryParserConfig parser2 : parsers) {
-			try {
-				IBinaryParser parser = parser2.getBinaryParser();
-				if (parser.isBinary(bytes, location)) {
-    			    IBinaryFile binFile = parser.getBinary(bytes, location);
-    			    if (binFile != null) {
-    			    	return binFile;
-    			    }
-				}
-			} catch (IOException e) {
-			} catch (CoreException e) {
+	/**
+	 * Returns the cache of the results of probing the files of the project for binaries.
+	 */
+	public BinaryFileCache getBinaryFileCache(IProject project) {
+		synchronized (binaryFileCaches) {
+			BinaryFileCache cache = binaryFileCaches.get(project);
+			if (cache == null) {
+				cache = new BinaryFileCache(project);
+				binaryFileCaches.put(project, cache);
 			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Writes the cache of the results of probing for binaries of the project to the disk.
+	 */
+	void saveBinaryFileCache(IProject project) {
+		BinaryFileCache cache;
+		synchronized (binaryFileCaches) {
+			cache = binaryFileCaches.get(project);
+		}
+		if (cache != null) {
+			cache.save();
+		}
+	}
+
+	private BinaryFileCache removeBinaryFileCache(IProject project) {
+		synchronized (binaryFileCaches) {
+			return binaryFileCaches.remove(project);
 		}
-		return null;
 	}
 
 	public void resetBinaryParser(IProject project) {
@@ -1048,10 +1146,46 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 		if (deltaToNotify != null) {
 				// flush now so as to keep listener reactions to post their own deltas for subsequent iteration
 			this.flush();
-			notifyListeners(deltaToNotify, ElementChangedEvent.POST_CHANGE, listeners, listenerMask, listenerCount);
+			// batched listeners are notified later on
+			IElementChangedListener[] immediateListeners = new IElementChangedListener[listenerCount];
+			int immediateCount = 0;
+			for (int i = 0; i < listenerCount; i++) {
+				if (!(listeners[i] instanceof IBatchedElementChangedListener)) {
+					immediateListeners[immediateCount++] = listeners[i];
+				}
+			}
+			if (immediateCount < listenerCount) {
+				fDeltaBatcher.add(deltaToNotify);
+			}
+			notifyListeners(deltaToNotify, ElementChangedEvent.POST_CHANGE, immediateListeners, listenerMask, immediateCount);
 		}
 	}
 
+	/**
+	 * Merges the deltas collected for the batched listeners and notifies them.
+	 */
+	void fireBatchedDeltas(ICElementDelta[] deltas) {
+		ICElementDelta deltaToNotify = mergeDeltas(new ArrayList<ICElementDelta>(Arrays.asList(deltas)));
+		if (deltaToNotify == null)
+			return;
+
+		IElementChangedListener[] listeners;
+		int listenerCount = 0;
+		synchronized (fElementChangedListeners) {
+			listeners = new IElementChangedListener[fElementChangedListeners.size()];
+			for (IElementChangedListener listener : fElementChangedListeners) {
+				if (listener instanceof IBatchedElementChangedListener) {
+					listeners[listenerCount++] = listener;
+				}
+			}
+		}
+		if (Util.VERBOSE_DELTA) {
+			System.out.println("FIRING batched POST_CHANGE Delta of " + deltas.length + " deltas [" + Thread.currentThread() + "]:"); //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$
+			System.out.println(deltaToNotify.toString());
+		}
+		notifyListeners(deltaToNotify, ElementChangedEvent.POST_CHANGE, listeners, null, listenerCount);
+	}
+
 	private void fireReconcileDelta(IElementChangedListener[] listeners, int[] listenerMask, int listenerCount) {
 		ICElementDelta deltaToNotify = mergeDeltas(this.reconcileDeltas.values());
 		if (Util.VERBOSE_DELTA) {
@@ -1162,9 +1296,10 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 	}
 
 	/**
-	 * Returns the info for the element.
+	 * Returns the info for the element. The cache is read without holding the lock of the
+	 * manager, modifications of the cache are synchronized.
 	 */
-	public synchronized Object getInfo(ICElement element) {
+	public Object getInfo(ICElement element) {
 		Map<ICElement, CElementInfo> tempCache = this.temporaryCache.get();
 		if (tempCache != null) {
 			Object result = tempCache.get(element);
@@ -1178,7 +1313,7 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 	 *  Returns the info for this element without
 	 *  disturbing the cache ordering.
 	 */
-	protected synchronized Object peekAtInfo(ICElement element) {
+	protected Object peekAtInfo(ICElement element) {
 		Map<ICElement, CElementInfo> tempCache = this.temporaryCache.get();
 		if (tempCache != null) {
 			Object result = tempCache.get(element);
@@ -1211,8 +1346,19 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 			}
 		}
 
-		for (Map.Entry<ICElement, CElementInfo> element : newElements.entrySet())
-			this.cache.putInfo(element.getKey(), element.getValue());
+		// The info of the opened element is added last, such that readers that find it also
+		// find the infos of its children.
+		CElementInfo openedInfo = null;
+		for (Map.Entry<ICElement, CElementInfo> element : newElements.entrySet()) {
+			if (element.getKey().equals(openedElement)) {
+				openedInfo = element.getValue();
+			} else {
+				this.cache.putInfo(element.getKey(), element.getValue());
+			}
+		}
+		if (openedInfo != null) {
+			this.cache.putInfo(openedElement, openedInfo);
+		}
 	}
 
 	/**
@@ -1282,6 +1428,7 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 
 		// Do any shutdown of services.
 		ResourcesPlugin.getWorkspace().removeResourceChangeListener(factory);
+		fDeltaBatcher.cancel();
 
 		BinaryRunner[] runners;
 		synchronized (binaryRunners) {
@@ -1290,6 +1437,14 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 		for (BinaryRunner runner : runners) {
 			runner.stop();
 		}
+		BinaryFileCache[] caches;
+		synchronized (binaryFileCaches) {
+			caches = binaryFileCaches.values().toArray(new BinaryFileCache[binaryFileCaches.size()]);
+			binaryFileCaches.clear();
+		}
+		for (BinaryFileCache cache : caches) {
+			cache.save();
+		}
 
 		// Nullify the static factory
 		factory = null;
@@ -1315,6 +1470,12 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 		binaryParsersMap.remove(project);
 		// stop the binary runner for this project
 		removeBinaryRunner(project);
+		// discard the results of probing for binaries
+		BinaryFileCache cache = removeBinaryFileCache(project);
+		if (cache == null) {
+			cache = new BinaryFileCache(project);
+		}
+		cache.delete();
 		// stop indexing jobs for this project
 		CCoreInternals.getPDOMManager().preDeleteProject(create(project));
 	}
@@ -1324,6 +1485,11 @@ public class CModelManager implements IResourceChangeListener, IContentTypeChang
 		binaryParsersMap.remove(project);
 		// stop the binary runner for this project
 		removeBinaryRunner(project);
+		// keep the results of probing for binaries for the next time the project is opened
+		BinaryFileCache cache = removeBinaryFileCache(project);
+		if (cache != null) {
+			cache.save();
+		}
 		// stop indexing jobs for this project
 		CCoreInternals.getPDOMManager().preCloseProject(create(project));
 	}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.cdt.core.model.CModelException;
+import org.eclipse.cdt.core.model.IOpenable;
+import org.eclipse.cdt.internal.core.util.ILRUCacheable;
+
+/**
+ * A size bounded cache for the infos of openable elements, which can be read without locking.
+ * <p>
+ * The elements are distributed over segments by their hash code. Each segment has its own lock
+ * for modifications, accounts for the space of its entries and evicts its least recently used
+ * entries independently of the other segments. Like the {@link ElementCache} the cache evicts an
+ * element by closing it, elements with unsaved changes or that cannot be closed stay in the cache
+ * which then grows beyond its limit.
+ * <p>
+ * The space taken by an info is its weight: the footprint of an {@link ILRUCacheable}, or one
+ * plus the number of children for a {@link CElementInfo} since the infos of the children are
+ * released together with the openable.
+ */
+public class ConcurrentElementCache {
+	private static final int SEGMENT_COUNT = 16;
+
+	private static final class Entry {
+		final IOpenable element;
+		final Object info;
+		final int weight;
+		volatile long lastAccess;
+
+		Entry(IOpenable element, Object info, int weight, long lastAccess) {
+			this.element = element;
+			this.info = info;
+			this.weight = weight;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	/**
+	 * Snapshot of the last access of an entry, the entries are accessed while they are sorted.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+		final Entry entry;
+		final long lastAccess;
+
+		Candidate(Entry entry) {
+			this.entry = entry;
+			this.lastAccess = entry.lastAccess;
+		}
+
+		public int compareTo(Candidate other) {
+			return lastAccess < other.lastAccess ? -1 : (lastAccess > other.lastAccess ? 1 : 0);
+		}
+	}
+
+	private static final class Segment {
+		final Map<IOpenable, Entry> entries = new ConcurrentHashMap<IOpenable, Entry>();
+		final AtomicLong clock = new AtomicLong();
+		/** Space used by the entries, guarded by the segment */
+		int space;
+	}
+
+	private final Segment[] segments;
+	private final int segmentSpaceLimit;
+	/**
+	 * Indicates how much space should be reclaimed when a segment overflows, the same initial
+	 * load factor of one third as in {@link org.eclipse.cdt.internal.core.util.OverflowingLRUCache}.
+	 */
+	private final double loadFactor = 0.333;
+
+	/**
+	 * Constructs a new cache with the given space limit.
+	 */
+	public ConcurrentElementCache(int spaceLimit) {
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment();
+		}
+		segmentSpaceLimit = Math.max(1, (spaceLimit + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+	}
+
+	private Segment segmentFor(Object element) {
+		int h = element.hashCode();
+		// Spread the bits, the hash codes of elements combine the hash codes of their names.
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return segments[h & (SEGMENT_COUNT - 1)];
+	}
+
+	/**
+	 * Returns the info for the element and marks it as recently used, or returns
+	 * <code>null</code> if the element is not in the cache.
+	 */
+	public Object get(IOpenable element) {
+		final Segment segment = segmentFor(element);
+		final Entry entry = segment.entries.get(element);
+		if (entry == null)
+			return null;
+		entry.lastAccess = segment.clock.incrementAndGet();
+		return entry.info;
+	}
+
+	/**
+	 * Returns the info for the element without changing the order of eviction.
+	 */
+	public Object peek(IOpenable element) {
+		final Entry entry = segmentFor(element).entries.get(element);
+		return entry != null ? entry.info : null;
+	}
+
+	/**
+	 * Stores the info for the element. When the segment of the element exceeds its space limit,
+	 * the least recently used elements of the segment are closed. They are closed by the calling
+	 * thread, after the lock of the segment has been released.
+	 */
+	public void put(IOpenable element, Object info) {
+		final Segment segment = segmentFor(element);
+		final int weight = spaceFor(info);
+		List<Entry> victims = null;
+		synchronized (segment) {
+			Entry entry = new Entry(element, info, weight, segment.clock.incrementAndGet());
+			Entry old = segment.entries.put(element, entry);
+			segment.space += weight - (old != null ? old.weight : 0);
+			if (segment.space > segmentSpaceLimit) {
+				victims = selectVictims(segment, entry);
+			}
+		}
+		if (victims != null) {
+			for (Entry victim : victims) {
+				close(victim);
+			}
+		}
+	}
+
+	/**
+	 * Removes the info for the element, without closing it.
+	 */
+	public void remove(IOpenable element) {
+		final Segment segment = segmentFor(element);
+		synchronized (segment) {
+			Entry old = segment.entries.remove(element);
+			if (old != null) {
+				segment.space -= old.weight;
+			}
+		}
+	}
+
+	/**
+	 * Returns the used space of the cache in percent of its limit.
+	 */
+	public double fillingRatio() {
+		long space = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				space += segment.space;
+			}
+		}
+		return space * 100.0 / ((long) segmentSpaceLimit * SEGMENT_COUNT);
+	}
+
+	/**
+	 * Returns the number of elements in the cache.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.entries.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Selects the oldest entries of the segment, such that the segment is reduced to the fraction
+	 * of its limit that is given by the load factor. The entry just added is never selected.
+	 */
+	private List<Entry> selectVictims(Segment segment, Entry added) {
+		List<Candidate> candidates = new ArrayList<Candidate>(segment.entries.size());
+		for (Entry entry : segment.entries.values()) {
+			if (entry != added) {
+				candidates.add(new Candidate(entry));
+			}
+		}
+		Collections.sort(candidates);
+		final int target = (int) ((1 - loadFactor) * segmentSpaceLimit);
+		List<Entry> victims = new ArrayList<Entry>();
+		int space = segment.space;
+		for (Candidate candidate : candidates) {
+			if (space <= target)
+				break;
+			victims.add(candidate.entry);
+			space -= candidate.entry.weight;
+		}
+		return victims;
+	}
+
+	/**
+	 * Closes the element of an entry, which removes it from the cache.
+	 */
+	private void close(Entry entry) {
+		final IOpenable element = entry.element;
+		final Segment segment = segmentFor(element);
+		if (segment.entries.get(element) != entry) {
+			// Replaced or removed in the meantime
+			return;
+		}
+		try {
+			if (element.hasUnsavedChanges()) {
+				return;
+			}
+			element.close();
+		} catch (CModelException e) {
+			// The element stays in the cache
+			return;
+		}
+		// Closing the element normally removes it, make sure the space is reclaimed anyway.
+		synchronized (segment) {
+			if (segment.entries.get(element) == entry) {
+				segment.entries.remove(element);
+				segment.space -= entry.weight;
+			}
+		}
+	}
+
+	/**
+	 * Returns the space taken by an info.
+	 */
+	protected int spaceFor(Object info) {
+		if (info instanceof ILRUCacheable) {
+			return ((ILRUCacheable) info).getCacheFootprint();
+		}
+		if (info instanceof CElementInfo) {
+			return 1 + ((CElementInfo) info).internalGetChildren().size();
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.core.model.IBatchedElementChangedListener;
+import org.eclipse.cdt.core.model.ICElement;
+import org.eclipse.cdt.core.model.ICElementDelta;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Collects the post change deltas for the {@link IBatchedElementChangedListener}s and delivers
+ * them from a system job. The job runs when no delta has been added for {@link #QUIET_TIME}
+ * milliseconds, but at the latest {@link #MAX_DELAY} milliseconds after the first delta of a
+ * batch has been added.
+ * <p>
+ * Deltas adding or removing a project are not merged with other deltas, a project removed
+ * and added again within a batch would turn into a changed project. Such a delta ends the
+ * current batch and is delivered on its own, right away.
+ */
+class ElementDeltaBatcher {
+	/** Time without new deltas after which a batch is delivered */
+	static final long QUIET_TIME = 100;
+	/** Maximum time a delta is held back */
+	static final long MAX_DELAY = 1000;
+
+	private final CModelManager fManager;
+	private final List<ICElementDelta> fPending = new ArrayList<ICElementDelta>();
+	private long fFirstTime;
+	private long fLastTime;
+	/** Number of pending deltas to deliver without waiting, they end with a project delta */
+	private int fUrgentCount;
+	private final Job fJob;
+
+	ElementDeltaBatcher(CModelManager manager) {
+		fManager = manager;
+		fJob = new Job(CoreModelMessages.getString("ElementDeltaBatcher.jobName")) { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				for (ICElementDelta[] deltas : takeBatches()) {
+					fManager.fireBatchedDeltas(deltas);
+				}
+				return Status.OK_STATUS;
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == CModelManager.BATCHED_DELTAS_JOB_FAMILY;
+			}
+		};
+		fJob.setSystem(true);
+	}
+
+	/**
+	 * Adds a delta to the current batch. The delta is copied, it may be modified when it is
+	 * merged with the other deltas of the batch.
+	 */
+	void add(ICElementDelta delta) {
+		if (delta instanceof CElementDelta) {
+			delta = ((CElementDelta) delta).copy();
+		}
+		final boolean urgent = addsOrRemovesProject(delta);
+		final long now = System.currentTimeMillis();
+		synchronized (fPending) {
+			if (fPending.size() == fUrgentCount) {
+				fFirstTime = now;
+			}
+			fLastTime = now;
+			fPending.add(delta);
+			if (urgent) {
+				fUrgentCount = fPending.size();
+			}
+		}
+		// Has no effect when the job is already waiting, it checks the time itself.
+		// A sleeping job is woken up with the new delay.
+		fJob.schedule(urgent ? 0 : QUIET_TIME);
+	}
+
+	private static boolean addsOrRemovesProject(ICElementDelta delta) {
+		switch (delta.getElement().getElementType()) {
+		case ICElement.C_PROJECT:
+			return delta.getKind() == ICElementDelta.ADDED || delta.getKind() == ICElementDelta.REMOVED;
+		case ICElement.C_MODEL:
+			for (ICElementDelta child : delta.getAffectedChildren()) {
+				if (addsOrRemovesProject(child))
+					return true;
+			}
+			break;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the batches to deliver now, in order. Deltas adding or removing a project are
+	 * returned as batches of their own. When the remaining deltas do not yet form a complete
+	 * batch the job is scheduled again.
+	 */
+	private List<ICElementDelta[]> takeBatches() {
+		List<ICElementDelta[]> batches = new ArrayList<ICElementDelta[]>();
+		synchronized (fPending) {
+			List<ICElementDelta> batch = new ArrayList<ICElementDelta>();
+			for (ICElementDelta delta : fPending.subList(0, fUrgentCount)) {
+				if (addsOrRemovesProject(delta)) {
+					if (!batch.isEmpty()) {
+						batches.add(batch.toArray(new ICElementDelta[batch.size()]));
+						batch.clear();
+					}
+					batches.add(new ICElementDelta[] { delta });
+				} else {
+					batch.add(delta);
+				}
+			}
+			fPending.subList(0, fUrgentCount).clear();
+			fUrgentCount = 0;
+
+			if (!fPending.isEmpty()) {
+				final long wait = Math.min(fLastTime + QUIET_TIME, fFirstTime + MAX_DELAY) - System.currentTimeMillis();
+				if (wait > 0) {
+					fJob.schedule(wait);
+				} else {
+					batches.add(fPending.toArray(new ICElementDelta[fPending.size()]));
+					fPending.clear();
+				}
+			}
+		}
+		return batches;
+	}
+
+	/**
+	 * Discards the pending deltas.
+	 */
+	void cancel() {
+		synchronized (fPending) {
+			fPending.clear();
+			fUrgentCount = 0;
+		}
+		fJob.cancel();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Intel Corporation and others.
+ * Copyright (c) 2007, 2011 Intel Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,8 +15,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
 import org.eclipse.cdt.core.parser.IScannerInfo;
 import org.eclipse.cdt.core.parser.IScannerInfoChangeListener;
 import org.eclipse.cdt.core.parser.IScannerInfoProvider;
@@ -46,8 +46,9 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 	private ICProjectDescription fProjDes;
 	private ICConfigurationDescription fCfgDes;
 	private Map<String, IScannerInfo> fIdToLanguageSettingsMap = Collections.synchronizedMap(new HashMap<String, IScannerInfo>());
-	private String fCurrentFileDescriptionId;
-	private IScannerInfo fCurrentFileScannerInfo;
+	/** Scanner infos by project relative path of the resource, replaced when invalidated */
+	private volatile Map<IPath, IScannerInfo> fResourceToInfoMap = new ConcurrentHashMap<IPath, IScannerInfo>();
+	private final ScannerInfoStore fStore = new ScannerInfoStore();
 	private static final ScannerInfo INEXISTENT_SCANNER_INFO = new ScannerInfo();
 	private boolean fInited;
 
@@ -58,15 +59,21 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 	}
 
 	private void updateProjCfgInfo(ICProjectDescription des){
+		updateProjCfgInfo(des, true);
+	}
+
+	private void updateProjCfgInfo(ICProjectDescription des, boolean invalidate){
 		fInited = true;
 		fProjDes = des;
 		if(fProjDes != null){
 			fCfgDes = des.getDefaultSettingConfiguration();
 		}
 
-		fIdToLanguageSettingsMap.clear();
-		fCurrentFileDescriptionId = null;
-		fCurrentFileScannerInfo = null;
+		if(invalidate){
+			fResourceToInfoMap = new ConcurrentHashMap<IPath, IScannerInfo>();
+			fIdToLanguageSettingsMap.clear();
+			fStore.clear();
+		}
 	}
 
 	public IProject getProject(){
@@ -80,10 +87,20 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 		if(fCfgDes == null)
 			return INEXISTENT_SCANNER_INFO;
 
+		final Map<IPath, IScannerInfo> resourceToInfoMap = fResourceToInfoMap;
+		final IPath rcPath = resource.getProjectRelativePath();
+		IScannerInfo info = resourceToInfoMap.get(rcPath);
+		if(info == null){
+			info = computeScannerInformation(resource, rcPath);
+			resourceToInfoMap.put(rcPath, info);
+		}
+		return info;
+	}
+
+	private IScannerInfo computeScannerInformation(IResource resource, IPath rcPath) {
 		ICLanguageSetting setting = null;
 		ICResourceDescription rcDes = null;
 		if(resource.getType() != IResource.PROJECT){
-			IPath rcPath = resource.getProjectRelativePath();
 			rcDes = fCfgDes.getResourceDescription(rcPath, false);
 
 			if(rcDes.getType() == ICSettingBase.SETTING_FILE){
@@ -108,30 +125,13 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 //			return INEXISTENT_SCANNER_INFO;
 		boolean useMap = rcDes == null || rcDes.getType() == ICSettingBase.SETTING_FOLDER;
 
-		IScannerInfo info;
+		IScannerInfo info = null;
 		if(useMap)
 			info = fIdToLanguageSettingsMap.get(mapKey);
-		else {
-			if(fCurrentFileScannerInfo != null && rcDes != null){
-				if(rcDes.getId().equals(fCurrentFileDescriptionId))
-					info = fCurrentFileScannerInfo;
-				else {
-					info = null;
-					fCurrentFileScannerInfo = null;
-					fCurrentFileDescriptionId = null;
-				}
-			} else {
-				info = null;
-			}
-		}
 		if(info == null){
 			info = createScannerInfo(ls);
 			if(useMap)
 				fIdToLanguageSettingsMap.put(mapKey, info);
-			else if (rcDes != null){
-				fCurrentFileScannerInfo = info;
-				fCurrentFileDescriptionId = rcDes.getId();
-			}
 		}
 		return info;
 	}
@@ -167,7 +167,7 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 		ICMacroEntry macroEntries[] = getMacroEntries(lSettings);
 		Map<String, String> macrosMap = getValues(macroEntries);
 
-		return new ExtendedScannerInfo(macrosMap, incs, macroFiles, incFiles);
+		return fStore.getScannerInfo(macrosMap, incs, macroFiles, incFiles);
 	}
 
 
@@ -209,7 +209,7 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 		ICMacroEntry macroEntries[] = getMacroEntries(ls);
 		Map<String, String> macrosMap = getValues(macroEntries);
 
-		return new ExtendedScannerInfo(macrosMap, incs, macroFiles, incFiles);
+		return fStore.getScannerInfo(macrosMap, incs, macroFiles, incFiles);
 	}
 
 	private Map<String, String> getValues(ICMacroEntry macroEntries[]){
@@ -279,9 +279,14 @@ public class DescriptionScannerInfoProvider implements IScannerInfoProvider, ICP
 		if(!event.getProject().equals(fProject))
 			return;
 
-		//TODO: check delta and notify listeners
+		//TODO: notify listeners
 
-		updateProjCfgInfo(event.getNewCProjectDescription());
+		// The cached scanner infos remain valid as long as the default setting configuration
+		// is not changed.
+		boolean invalidate = event.getEventType() != CProjectDescriptionEvent.APPLIED
+				|| event.getOldCProjectDescription() == null || event.getNewCProjectDescription() == null
+				|| event.getDefaultSettingCfgDelta() != null;
+		updateProjCfgInfo(event.getNewCProjectDescription(), invalidate);
 	}
 
 }
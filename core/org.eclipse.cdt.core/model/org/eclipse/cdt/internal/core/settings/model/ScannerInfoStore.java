@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.settings.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.parser.ExtendedScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+
+/**
+ * Shares scanner infos with equal contents. Projects with per-file settings typically have many
+ * files with the same include paths and macros, the store makes sure that the strings, the
+ * arrays of paths, the maps of macros and the scanner infos themselves are kept only once.
+ * <p>
+ * The shared arrays and maps must not be modified, the maps are unmodifiable.
+ */
+final class ScannerInfoStore {
+	private static final String[] EMPTY_STRING_ARRAY = new String[0];
+	private static final Map<String, String> EMPTY_MACROS = Collections.emptyMap();
+
+	/**
+	 * Key for an array of strings, compares the contents of the array.
+	 */
+	private static final class ArrayKey {
+		final String[] fArray;
+		private final int fHash;
+
+		ArrayKey(String[] array) {
+			fArray = array;
+			fHash = Arrays.hashCode(array);
+		}
+
+		@Override
+		public int hashCode() {
+			return fHash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ArrayKey && Arrays.equals(fArray, ((ArrayKey) obj).fArray);
+		}
+	}
+
+	/**
+	 * Key for a scanner info made of shared components, compares the components by identity.
+	 */
+	private static final class InfoKey {
+		private final Map<String, String> fMacros;
+		private final String[] fIncludePaths;
+		private final String[] fMacroFiles;
+		private final String[] fIncludeFiles;
+
+		InfoKey(Map<String, String> macros, String[] includePaths, String[] macroFiles, String[] includeFiles) {
+			fMacros = macros;
+			fIncludePaths = includePaths;
+			fMacroFiles = macroFiles;
+			fIncludeFiles = includeFiles;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(fMacros);
+			hash = 31 * hash + System.identityHashCode(fIncludePaths);
+			hash = 31 * hash + System.identityHashCode(fMacroFiles);
+			return 31 * hash + System.identityHashCode(fIncludeFiles);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof InfoKey))
+				return false;
+			InfoKey other = (InfoKey) obj;
+			return fMacros == other.fMacros && fIncludePaths == other.fIncludePaths
+					&& fMacroFiles == other.fMacroFiles && fIncludeFiles == other.fIncludeFiles;
+		}
+	}
+
+	private final Map<String, String> fStrings = new HashMap<String, String>();
+	private final Map<ArrayKey, String[]> fArrays = new HashMap<ArrayKey, String[]>();
+	private final Map<Map<String, String>, Map<String, String>> fMacroMaps = new HashMap<Map<String, String>, Map<String, String>>();
+	private final Map<InfoKey, IScannerInfo> fInfos = new HashMap<InfoKey, IScannerInfo>();
+
+	/**
+	 * Returns a scanner info with the given contents, shared with all other scanner infos of
+	 * this store that have the same contents. The arguments are not modified by the store.
+	 */
+	synchronized IScannerInfo getScannerInfo(Map<String, String> macros, String[] includePaths,
+			String[] macroFiles, String[] includeFiles) {
+		Map<String, String> sharedMacros = shareMacros(macros);
+		String[] sharedIncludePaths = shareArray(includePaths);
+		String[] sharedMacroFiles = shareArray(macroFiles);
+		String[] sharedIncludeFiles = shareArray(includeFiles);
+
+		InfoKey key = new InfoKey(sharedMacros, sharedIncludePaths, sharedMacroFiles, sharedIncludeFiles);
+		IScannerInfo info = fInfos.get(key);
+		if (info == null) {
+			info = new ExtendedScannerInfo(sharedMacros, sharedIncludePaths, sharedMacroFiles, sharedIncludeFiles);
+			fInfos.put(key, info);
+		}
+		return info;
+	}
+
+	/**
+	 * Returns the number of distinct scanner infos in this store.
+	 */
+	synchronized int size() {
+		return fInfos.size();
+	}
+
+	synchronized void clear() {
+		fStrings.clear();
+		fArrays.clear();
+		fMacroMaps.clear();
+		fInfos.clear();
+	}
+
+	private String shareString(String string) {
+		if (string == null)
+			return null;
+		String shared = fStrings.get(string);
+		if (shared == null) {
+			fStrings.put(string, string);
+			return string;
+		}
+		return shared;
+	}
+
+	private String[] shareArray(String[] array) {
+		if (array == null || array.length == 0)
+			return EMPTY_STRING_ARRAY;
+		ArrayKey key = new ArrayKey(array);
+		String[] shared = fArrays.get(key);
+		if (shared == null) {
+			shared = new String[array.length];
+			for (int i = 0; i < array.length; i++) {
+				shared[i] = shareString(array[i]);
+			}
+			fArrays.put(new ArrayKey(shared), shared);
+		}
+		return shared;
+	}
+
+	private Map<String, String> shareMacros(Map<String, String> macros) {
+		if (macros == null || macros.isEmpty())
+			return EMPTY_MACROS;
+		Map<String, String> shared = fMacroMaps.get(macros);
+		if (shared == null) {
+			Map<String, String> copy = new LinkedHashMap<String, String>(macros.size());
+			for (Map.Entry<String, String> entry : macros.entrySet()) {
+				copy.put(shareString(entry.getKey()), shareString(entry.getValue()));
+			}
+			shared = Collections.unmodifiableMap(copy);
+			fMacroMaps.put(shared, shared);
+		}
+		return shared;
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.settings.model.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the project description file into a DOM document with a SAX parser. The document is
+ * built while the file is parsed, without the intermediate structures of a DOM parser.
+ * <p>
+ * Strings that are repeated throughout the file are shared between the nodes of the document,
+ * that is the names of elements and attributes as well as attribute values such as the ids of
+ * super classes and options. Text that consists of white space only is dropped from elements
+ * that contain other elements, the indentation is recreated by
+ * {@link org.eclipse.cdt.internal.core.XmlUtil#prettyFormat(Document)} when the document is
+ * written. Otherwise the document equals the one read by a {@link DocumentBuilder}, CDATA
+ * sections and comments are preserved.
+ */
+public class XmlDocumentLoader extends DefaultHandler implements LexicalHandler {
+	private static final String LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler"; //$NON-NLS-1$
+
+	private final Document fDocument;
+	private Node fCurrent;
+	private final StringBuilder fText = new StringBuilder();
+	private final Map<String, String> fStrings = new HashMap<String, String>();
+	private boolean fInDTD;
+
+	private XmlDocumentLoader(Document document) {
+		fDocument = document;
+		fCurrent = document;
+	}
+
+	/**
+	 * Reads a document from the given stream.
+	 * @param builder the builder used to create the empty document.
+	 */
+	public static Document load(InputStream stream, DocumentBuilder builder) throws SAXException, IOException {
+		XmlDocumentLoader loader = new XmlDocumentLoader(builder.newDocument());
+		try {
+			SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+			try {
+				parser.setProperty(LEXICAL_HANDLER_PROPERTY, loader);
+			} catch (SAXException e) {
+				// Comments are not preserved
+			}
+			parser.parse(new InputSource(stream), loader);
+		} catch (ParserConfigurationException e) {
+			throw new SAXException(e);
+		}
+		return loader.fDocument;
+	}
+
+	private String share(String string) {
+		String shared = fStrings.get(string);
+		if (shared == null) {
+			fStrings.put(string, string);
+			return string;
+		}
+		return shared;
+	}
+
+	/**
+	 * Adds the pending text to the current node.
+	 */
+	private void flushText() {
+		if (fText.length() == 0)
+			return;
+		String text = fText.toString();
+		fText.setLength(0);
+		if (fCurrent == fDocument)
+			return;
+		fCurrent.appendChild(fDocument.createTextNode(text));
+	}
+
+	/**
+	 * Removes the text nodes consisting of white space only from an element that contains
+	 * other elements.
+	 */
+	private static void dropWhiteSpace(Node element) {
+		boolean hasElements = false;
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				hasElements = true;
+				break;
+			}
+		}
+		if (!hasElements)
+			return;
+		Node child = element.getFirstChild();
+		while (child != null) {
+			Node next = child.getNextSibling();
+			if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().trim().length() == 0) {
+				element.removeChild(child);
+			}
+			child = next;
+		}
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes) {
+		flushText();
+		Element element = fDocument.createElement(share(qName));
+		for (int i = 0; i < attributes.getLength(); i++) {
+			element.setAttribute(share(attributes.getQName(i)), share(attributes.getValue(i)));
+		}
+		fCurrent.appendChild(element);
+		fCurrent = element;
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) {
+		// The text of a leaf element is preserved, even if it is white space.
+		flushText();
+		dropWhiteSpace(fCurrent);
+		fCurrent = fCurrent.getParentNode();
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) {
+		fText.append(ch, start, length);
+	}
+
+	@Override
+	public void processingInstruction(String target, String data) {
+		flushText();
+		fCurrent.appendChild(fDocument.createProcessingInstruction(target, data));
+	}
+
+	public void comment(char[] ch, int start, int length) {
+		if (fInDTD)
+			return;
+		flushText();
+		fCurrent.appendChild(fDocument.createComment(new String(ch, start, length)));
+	}
+
+	public void startDTD(String name, String publicId, String systemId) {
+		fInDTD = true;
+	}
+
+	public void endDTD() {
+		fInDTD = false;
+	}
+
+	public void startEntity(String name) {
+	}
+
+	public void endEntity(String name) {
+	}
+
+	public void startCDATA() {
+		flushText();
+	}
+
+	public void endCDATA() {
+		fCurrent.appendChild(fDocument.createCDATASection(fText.toString()));
+		fText.setLength(0);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Intel Corporation and others.
+ * Copyright (c) 2007, 2011 Intel Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -644,7 +644,7 @@ public class XmlProjectDescriptionStorage extends AbstractCProjectDescriptionSto
 				try{
 					stream = getSharedProperty(container, fileName);
 					if(stream != null){
-						doc = builder.parse(stream);
+						doc = XmlDocumentLoader.load(stream, builder);
 
 						// Get the first element in the project file
 						Node rootElement = doc.getFirstChild();
@@ -407,4 +407,40 @@ public interface IIndex {
 	 * @since 5.3
 	 */
 	public IScope[] getInlineNamespaces() throws CoreException;
+
+	/**
+	 * Searches for the classes that directly derive from the given class. In contrast to 
+	 * searching for the references of the class, this makes use of the relationships between
+	 * base and derived classes stored in the index.
+	 * @param classType a class type or a typedef for a class type.
+	 * @return an array of bindings for the derived classes.
+	 * @throws CoreException
+	 * @since 5.4
+	 */
+	public IIndexBinding[] findDerivedClasses(IBinding classType) throws CoreException;
+
+	/**
+	 * Creates a hierarchy of the classes derived from the given class. The levels of the
+	 * hierarchy are computed lazily, when they are requested.
+	 * @param classType a class type or a typedef for a class type.
+	 * @return the hierarchy or <code>null</code> when the binding cannot be found in the index.
+	 * @throws CoreException
+	 * @since 5.4
+	 */
+	public IIndexTypeHierarchy createSubTypeHierarchy(IBinding classType) throws CoreException;
+
+	/**
+	 * Searches for the callers of the given functions, methods or variables. For each callee the
+	 * references made from within a definition are returned together with the enclosing
+	 * definition. The edges of the call graph are stored in the index, such that the query does
+	 * not need to look at the references individually. Querying the callers of multiple bindings
+	 * in one call is cheaper than querying them one by one, which is useful when expanding the
+	 * call graph transitively.
+	 * @param callees the bindings to search the callers for.
+	 * @param flags either 0 or {@link #SEARCH_ACROSS_LANGUAGE_BOUNDARIES}.
+	 * @return an array with one array of call edges per callee.
+	 * @throws CoreException
+	 * @since 5.4
+	 */
+	public IIndexCallEdge[][] findCallers(IBinding[] callees, int flags) throws CoreException;
 }
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.index;
+
+/**
+ * An edge of the call graph stored in the index. It consists of a reference to a function,
+ * method or variable and the definition the reference is made from.
+ * 
+ * @see IIndex#findCallers(org.eclipse.cdt.core.dom.ast.IBinding[], int)
+ * @noextend This interface is not intended to be extended by clients.
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @since 5.4
+ */
+public interface IIndexCallEdge {
+	IIndexCallEdge[] EMPTY_ARRAY = {};
+
+	/**
+	 * Returns the reference to the callee.
+	 */
+	IIndexName getCallSite();
+
+	/**
+	 * Returns the definition that encloses the call site, i.e. the definition of the caller.
+	 */
+	IIndexName getCaller();
+}
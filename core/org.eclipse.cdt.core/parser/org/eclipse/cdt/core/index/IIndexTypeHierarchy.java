@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.core.index;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Provides the classes derived from a class level by level. A level is computed only
+ * when it is requested, such that clients can stop after the levels they are interested in.
+ * Each class is reported once, on the first level it is encountered on.
+ * <p>
+ * Like all objects obtained from an index, the hierarchy may only be used while a read-lock
+ * is held on the index it was created for.
+ * 
+ * @see IIndex#createSubTypeHierarchy(org.eclipse.cdt.core.dom.ast.IBinding)
+ * @noextend This interface is not intended to be extended by clients.
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @since 5.4
+ */
+public interface IIndexTypeHierarchy {
+	/**
+	 * Returns the class the hierarchy was created for.
+	 */
+	IIndexBinding getRoot();
+
+	/**
+	 * Returns the number of levels that have been computed so far, the root is not counted.
+	 */
+	int getLevelCount();
+
+	/**
+	 * Returns whether there may be another level of derived classes. The method may return
+	 * <code>true</code> when the next level turns out to be empty.
+	 */
+	boolean hasNextLevel();
+
+	/**
+	 * Computes the next level of the hierarchy, i.e. the classes directly derived from
+	 * the classes of the previous level. Returns an empty array when there are no more 
+	 * derived classes.
+	 * @throws CoreException
+	 */
+	IIndexBinding[] nextLevel() throws CoreException;
+}
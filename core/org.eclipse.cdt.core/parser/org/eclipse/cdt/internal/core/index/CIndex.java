@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -35,12 +36,14 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPNamespace;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPUsingDeclaration;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexCallEdge;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexFileSet;
 import org.eclipse.cdt.core.index.IIndexInclude;
 import org.eclipse.cdt.core.index.IIndexMacro;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IIndexTypeHierarchy;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.internal.core.dom.Linkage;
 import org.eclipse.cdt.internal.core.index.composite.CompositingNotImplementedError;
@@ -196,6 +199,68 @@ public class CIndex implements IIndex {
 		return result.toArray(new IIndexName[result.size()]);
 	}
 
+	public IIndexBinding[] findDerivedClasses(IBinding binding) throws CoreException {
+		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
+			return fFragments[0].findDerivedClasses(binding);
+		}
+
+		LinkedHashSet<IIndexBinding> result= new LinkedHashSet<IIndexBinding>();
+		for (int i = 0; i < fPrimaryFragmentCount; i++) {
+			final IIndexFragmentBinding[] derived = fFragments[i].findDerivedClasses(binding);
+			for (IIndexFragmentBinding fb : derived) {
+				ICompositesFactory factory= getCompositesFactory(fb.getLinkage().getLinkageID());
+				result.add(factory.getCompositeBinding(fb));
+			}
+		}
+		return result.toArray(new IIndexBinding[result.size()]);
+	}
+
+	public IIndexCallEdge[][] findCallers(IBinding[] callees, int flags) throws CoreException {
+		IIndexCallEdge[][] result= new IIndexCallEdge[callees.length][];
+		for (int i = 0; i < callees.length; i++) {
+			result[i]= findCallers(callees[i], flags);
+		}
+		return result;
+	}
+
+	private IIndexCallEdge[] findCallers(IBinding callee, int flags) throws CoreException {
+		if (SPECIALCASE_SINGLES && fFragments.length == 1) {
+			return fFragments[0].findCallers(callee, flags);
+		}
+
+		LinkedList<IndexCallEdge> result= new LinkedList<IndexCallEdge>();
+		int fragCount= 0;
+		for (int i = 0; i < fPrimaryFragmentCount; i++) {
+			final IndexCallEdge[] edges = fFragments[i].findCallers(callee, flags);
+			if (edges.length > 0) {
+				result.addAll(Arrays.asList(edges));
+				fragCount++;
+			}
+		}
+		// Files can reside in multiple fragments, remove duplicates (see findNames()).
+		if (fragCount > 1 || (flags & IIndex.SEARCH_ACROSS_LANGUAGE_BOUNDARIES) != 0) {
+			HashMap<String, IIndexFile> fileMap= new HashMap<String, IIndexFile>();
+			for (Iterator<IndexCallEdge> iterator = result.iterator(); iterator.hasNext();) {
+				final IIndexFile file= iterator.next().getCallSite().getFile();
+				final String fileKey= file.getLocation().getURI().toString();
+				final IIndexFile otherFile= fileMap.get(fileKey);
+				if (otherFile == null) {
+					fileMap.put(fileKey, file);
+				} else if (!otherFile.equals(file)) { // same file in another fragment
+					iterator.remove();
+				}
+			}
+		}
+		return result.toArray(new IIndexCallEdge[result.size()]);
+	}
+
+	public IIndexTypeHierarchy createSubTypeHierarchy(IBinding binding) throws CoreException {
+		IIndexBinding root= adaptBinding(binding);
+		if (root == null)
+			return null;
+		return new IndexTypeHierarchy(this, root);
+	}
+
 	public IIndexName[] findDeclarations(IBinding binding) throws CoreException {
 		return findNames(binding, FIND_DECLARATIONS_DEFINITIONS);
 	}
@@ -15,6 +15,7 @@
 
 package org.eclipse.cdt.internal.core.index;
 
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.dom.IName;
@@ -22,12 +23,14 @@ import org.eclipse.cdt.core.dom.ast.IBinding;
 import org.eclipse.cdt.core.dom.ast.IScope;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexCallEdge;
 import org.eclipse.cdt.core.index.IIndexFile;
 import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexFileSet;
 import org.eclipse.cdt.core.index.IIndexInclude;
 import org.eclipse.cdt.core.index.IIndexMacro;
 import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IIndexTypeHierarchy;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -54,6 +57,20 @@ final public class EmptyCIndex implements IIndex {
 		return IIndexFragmentName.EMPTY_NAME_ARRAY;
 	}
 
+	public IIndexBinding[] findDerivedClasses(IBinding classType) {
+		return IIndexBinding.EMPTY_INDEX_BINDING_ARRAY;
+	}
+
+	public IIndexTypeHierarchy createSubTypeHierarchy(IBinding classType) {
+		return null;
+	}
+
+	public IIndexCallEdge[][] findCallers(IBinding[] callees, int flags) {
+		IIndexCallEdge[][] result= new IIndexCallEdge[callees.length][];
+		Arrays.fill(result, IIndexCallEdge.EMPTY_ARRAY);
+		return result;
+	}
+
 	public IIndexFile getFile(int linkageID, IIndexFileLocation location) {
 		return null;
 	}
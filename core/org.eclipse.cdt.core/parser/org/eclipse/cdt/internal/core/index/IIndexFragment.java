@@ -188,6 +188,24 @@ public interface IIndexFragment {
 	 */
 	IIndexFragmentName[] findNames(IBinding binding, int flags) throws CoreException;
 
+	/**
+	 * Searches for the classes that have a base-specifier naming the given binding.
+	 * @param binding a class type, or a typedef of a class type.
+	 * @return an array of bindings for the derived classes.
+	 * @throws CoreException
+	 */
+	IIndexFragmentBinding[] findDerivedClasses(IBinding binding) throws CoreException;
+
+	/**
+	 * Searches for the references to the given binding that are made from within a definition,
+	 * the edges returned contain the reference and the enclosing definition.
+	 * @param binding a function, method or variable.
+	 * @param flags either 0 or {@link IIndex#SEARCH_ACROSS_LANGUAGE_BOUNDARIES}.
+	 * @return an array of call edges.
+	 * @throws CoreException
+	 */
+	IndexCallEdge[] findCallers(IBinding binding, int flags) throws CoreException;
+
 	/**
 	 * Acquires a read lock.
 	 * @throws InterruptedException
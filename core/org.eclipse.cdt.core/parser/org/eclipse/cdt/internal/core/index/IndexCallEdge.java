@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+import org.eclipse.cdt.core.index.IIndexCallEdge;
+
+/**
+ * Edge of the call graph as returned by an index fragment.
+ */
+public final class IndexCallEdge implements IIndexCallEdge {
+	public static final IndexCallEdge[] EMPTY_CALL_EDGE_ARRAY = {};
+
+	private final IIndexFragmentName fCallSite;
+	private final IIndexFragmentName fCaller;
+
+	public IndexCallEdge(IIndexFragmentName callSite, IIndexFragmentName caller) {
+		fCallSite= callSite;
+		fCaller= caller;
+	}
+
+	public IIndexFragmentName getCallSite() {
+		return fCallSite;
+	}
+
+	public IIndexFragmentName getCaller() {
+		return fCaller;
+	}
+
+	@Override
+	public String toString() {
+		return fCaller + " -> " + fCallSite; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.internal.core.pdom.PDOM.ChangeEvent;
+
+/**
+ * Cache for the results of high level queries (call hierarchy, type hierarchy, include browser)
+ * that is kept across the read-locks of the index. In contrast to the result cache of
+ * the PDOM, which is cleared whenever the last lock is released, the entries are invalidated
+ * selectively when the index is modified:
+ * <ul>
+ * <li> an entry is discarded when one of the files it depends on is cleared or written,
+ * <li> an entry is discarded when names are added to or removed from the index for one of
+ * the bindings it depends on, the binding is identified by its name,
+ * <li> the entire cache is discarded when an index is cleared or reloaded.
+ * </ul>
+ * The results are keyed by a query identifier and the binding records (or file locations)
+ * of the logical index the query was made for.
+ */
+public final class IndexQueryCache {
+	private static final IndexQueryCache sSharedInstance= new IndexQueryCache();
+	private static final int DEFAULT_MAX_ENTRIES = 2000;
+
+	/**
+	 * Key for a cached result, obtained via {@link IndexQueryCache#createKey(IIndex, Object, IBinding)}
+	 * or {@link IndexQueryCache#createKey(IIndex, Object, IIndexFileLocation)}.
+	 */
+	public static final class Key {
+		private final Object fQuery;
+		private final Object[] fComponents;
+		private final int fHashCode;
+
+		private Key(Object query, Object[] components) {
+			fQuery= query;
+			fComponents= components;
+			fHashCode= 31 * query.hashCode() + Arrays.hashCode(components);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (obj instanceof Key) {
+				Key other= (Key) obj;
+				return fHashCode == other.fHashCode && fQuery.equals(other.fQuery)
+						&& Arrays.equals(fComponents, other.fComponents);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return fHashCode;
+		}
+	}
+
+	/**
+	 * Identifies a binding of a fragment.
+	 */
+	private static final class BindingKey {
+		private final IIndexFragment fFragment;
+		private final long fBindingID;
+
+		BindingKey(IIndexFragment fragment, long bindingID) {
+			fFragment= fragment;
+			fBindingID= bindingID;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof BindingKey) {
+				BindingKey other= (BindingKey) obj;
+				return fFragment == other.fFragment && fBindingID == other.fBindingID;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(fFragment) + (int) (41 * fBindingID);
+		}
+	}
+
+	private static final class Entry {
+		final Object fResult;
+		final Object[] fDependencies;
+
+		Entry(Object result, Object[] dependencies) {
+			fResult= result;
+			fDependencies= dependencies;
+		}
+	}
+
+	private final int fMaxEntries;
+	private final LinkedHashMap<Key, Entry> fEntries;
+	/** Maps file locations and binding names to the keys of the entries depending on them */
+	private final Map<Object, Set<Key>> fDependents= new HashMap<Object, Set<Key>>();
+	private long fHits;
+	private long fMisses;
+	private long fInvalidations;
+
+	public static IndexQueryCache getSharedInstance() {
+		return sSharedInstance;
+	}
+
+	public IndexQueryCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public IndexQueryCache(int maxEntries) {
+		fMaxEntries= maxEntries;
+		fEntries= new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * Creates a key for a query about the given binding in the given index, or returns
+	 * <code>null</code> if the results for the binding cannot be cached.
+	 * @param index the logical index the query is performed on.
+	 * @param query an identifier for the query, must implement equals and hashCode.
+	 * @param binding the binding the query is about.
+	 */
+	public Key createKey(IIndex index, Object query, IBinding binding) {
+		if (!(index instanceof CIndex) || binding == null)
+			return null;
+
+		IIndexFragmentBinding fb= null;
+		if (binding instanceof IIndexFragmentBinding) {
+			fb= (IIndexFragmentBinding) binding;
+		} else {
+			fb= (IIndexFragmentBinding) binding.getAdapter(IIndexFragmentBinding.class);
+		}
+		if (fb == null)
+			return null;
+
+		IIndexFragment[] fragments= ((CIndex) index).getPrimaryFragments();
+		Object[] components= new Object[fragments.length + 1];
+		System.arraycopy(fragments, 0, components, 0, fragments.length);
+		components[fragments.length]= new BindingKey(fb.getFragment(), fb.getBindingID());
+		return new Key(query, components);
+	}
+
+	/**
+	 * Creates a key for a query about the given file in the given index, or returns
+	 * <code>null</code> if the results for the file cannot be cached.
+	 * @param index the logical index the query is performed on.
+	 * @param query an identifier for the query, must implement equals and hashCode.
+	 * @param location the location of the file the query is about.
+	 */
+	public Key createKey(IIndex index, Object query, IIndexFileLocation location) {
+		if (!(index instanceof CIndex) || location == null)
+			return null;
+
+		IIndexFragment[] fragments= ((CIndex) index).getPrimaryFragments();
+		Object[] components= new Object[fragments.length + 1];
+		System.arraycopy(fragments, 0, components, 0, fragments.length);
+		components[fragments.length]= location;
+		return new Key(query, components);
+	}
+
+	/**
+	 * Returns the cached result for the key or <code>null</code> if there is none.
+	 */
+	public synchronized Object get(Key key) {
+		if (key == null)
+			return null;
+
+		Entry entry= fEntries.get(key);
+		if (entry == null) {
+			fMisses++;
+			return null;
+		}
+		fHits++;
+		return entry.fResult;
+	}
+
+	/**
+	 * Stores a result in the cache.
+	 * @param key the key as returned by one of the createKey methods, may be <code>null</code>.
+	 * @param result the result to be cached. It must not be modified after it has been stored.
+	 * @param files the locations of the files the result has been computed from.
+	 * @param bindingNames the names of the bindings the result has been computed from.
+	 */
+	public synchronized void put(Key key, Object result, Collection<IIndexFileLocation> files,
+			Collection<char[]> bindingNames) {
+		if (key == null || result == null)
+			return;
+
+		Object[] dependencies= new Object[files.size() + bindingNames.size()];
+		int i= 0;
+		for (IIndexFileLocation file : files) {
+			dependencies[i++]= file;
+		}
+		for (char[] name : bindingNames) {
+			dependencies[i++]= new String(name);
+		}
+		removeEntry(key);
+		Entry entry= new Entry(result, dependencies);
+		fEntries.put(key, entry);
+		for (Object dep : dependencies) {
+			Set<Key> keys= fDependents.get(dep);
+			if (keys == null) {
+				keys= new HashSet<Key>();
+				fDependents.put(dep, keys);
+			}
+			keys.add(key);
+		}
+		if (fEntries.size() > fMaxEntries) {
+			Iterator<Key> it= fEntries.keySet().iterator();
+			removeEntry(it.next());
+		}
+	}
+
+	/**
+	 * Returns whether there are no cached results, in that case the change events need not
+	 * track the names that are modified.
+	 */
+	public synchronized boolean isEmpty() {
+		return fEntries.isEmpty();
+	}
+
+	/**
+	 * Removes all the entries affected by the given change. Must be called while the write lock
+	 * of the fragment that was modified is still held.
+	 */
+	public synchronized void invalidate(ChangeEvent event) {
+		if (fEntries.isEmpty())
+			return;
+
+		if (event.isCleared() || event.isReloaded() || event.hasTooManyChangedNames()) {
+			clear();
+			return;
+		}
+		invalidateDependents(event.fClearedFiles);
+		invalidateDependents(event.fFilesWritten);
+		invalidateDependents(event.getChangedIncludeTargets());
+		invalidateDependents(event.getChangedNames());
+	}
+
+	private void invalidateDependents(Collection<?> changes) {
+		for (Object change : changes) {
+			Set<Key> keys= fDependents.get(change);
+			if (keys != null) {
+				for (Key key : keys.toArray(new Key[keys.size()])) {
+					removeEntry(key);
+					fInvalidations++;
+				}
+			}
+		}
+	}
+
+	private void removeEntry(Key key) {
+		Entry entry= fEntries.remove(key);
+		if (entry != null) {
+			for (Object dep : entry.fDependencies) {
+				Set<Key> keys= fDependents.get(dep);
+				if (keys != null) {
+					keys.remove(key);
+					if (keys.isEmpty()) {
+						fDependents.remove(dep);
+					}
+				}
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		fEntries.clear();
+		fDependents.clear();
+	}
+
+	public synchronized int size() {
+		return fEntries.size();
+	}
+
+	public synchronized long getCacheHits() {
+		return fHits;
+	}
+
+	public synchronized long getCacheMisses() {
+		return fMisses;
+	}
+
+	/**
+	 * Returns the number of entries that have been discarded because of modifications of the index.
+	 */
+	public synchronized long getInvalidations() {
+		return fInvalidations;
+	}
+
+	public synchronized void resetCacheCounters() {
+		fHits= fMisses= fInvalidations= 0;
+	}
+
+	@SuppressWarnings("nls")
+	@Override
+	public synchronized String toString() {
+		return "IndexQueryCache: " + fEntries.size() + " entries, " + fHits + " hits, " + fMisses
+				+ " misses, " + fInvalidations + " invalidations";
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.index;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexTypeHierarchy;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Breadth first traversal of the classes derived from a class, the next level is 
+ * computed on request, only.
+ */
+public class IndexTypeHierarchy implements IIndexTypeHierarchy {
+	private static final IIndexBinding[] NO_BINDINGS = new IIndexBinding[0];
+
+	private final IIndex fIndex;
+	private final IIndexBinding fRoot;
+	private final Set<IIndexBinding> fHandled= new HashSet<IIndexBinding>();
+	private IIndexBinding[] fCurrentLevel;
+	private int fLevelCount;
+
+	public IndexTypeHierarchy(IIndex index, IIndexBinding root) {
+		fIndex= index;
+		fRoot= root;
+		fCurrentLevel= new IIndexBinding[] {root};
+		fHandled.add(root);
+	}
+
+	public IIndexBinding getRoot() {
+		return fRoot;
+	}
+
+	public int getLevelCount() {
+		return fLevelCount;
+	}
+
+	public boolean hasNextLevel() {
+		return fCurrentLevel.length > 0;
+	}
+
+	public IIndexBinding[] nextLevel() throws CoreException {
+		if (fCurrentLevel.length == 0)
+			return NO_BINDINGS;
+
+		List<IIndexBinding> next= new ArrayList<IIndexBinding>();
+		for (IIndexBinding binding : fCurrentLevel) {
+			for (IIndexBinding derived : fIndex.findDerivedClasses(binding)) {
+				if (fHandled.add(derived)) {
+					next.add(derived);
+				}
+			}
+		}
+		fCurrentLevel= next.toArray(new IIndexBinding[next.size()]);
+		if (fCurrentLevel.length > 0) {
+			fLevelCount++;
+		}
+		return fCurrentLevel;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2006, 2011 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,10 +18,10 @@ import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.IPDOMIndexer;
 import org.eclipse.cdt.core.dom.IPDOMManager;
 import org.eclipse.cdt.core.model.ElementChangedEvent;
+import org.eclipse.cdt.core.model.IBatchedElementChangedListener;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ICElementDelta;
 import org.eclipse.cdt.core.model.ICProject;
-import org.eclipse.cdt.core.model.IElementChangedListener;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.internal.core.pdom.indexer.DeltaAnalyzer;
 import org.eclipse.core.resources.IResourceChangeEvent;
@@ -29,10 +29,11 @@ import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.runtime.CoreException;
 
 /**
- * CModel listener used for the PDOMManager.
+ * CModel listener used for the PDOMManager. The changes are received in batches, such that
+ * the changes of an operation touching many files result in a single update per project.
  * @since 4.0
  */
-public class CModelListener implements IElementChangedListener, IResourceChangeListener {
+public class CModelListener implements IBatchedElementChangedListener, IResourceChangeListener {
 	private static final int UPDATE_LR_CHANGED_FILES_COUNT = 5;
 
 	// For testing purposes, only.
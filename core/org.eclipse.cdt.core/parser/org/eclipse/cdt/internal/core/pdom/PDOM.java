@@ -58,6 +58,7 @@ import org.eclipse.cdt.core.index.IIndexMacroContainer;
 import org.eclipse.cdt.core.index.IndexFilter;
 import org.eclipse.cdt.core.parser.util.ArrayUtil;
 import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+import org.eclipse.cdt.core.parser.util.IContentAssistMatcher;
 import org.eclipse.cdt.internal.core.dom.Linkage;
 import org.eclipse.cdt.internal.core.index.IIndexCBindingConstants;
 import org.eclipse.cdt.internal.core.index.IIndexFragment;
@@ -67,17 +68,22 @@ import org.eclipse.cdt.internal.core.index.IIndexFragmentFileSet;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentInclude;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentName;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
+import org.eclipse.cdt.internal.core.index.IndexCallEdge;
+import org.eclipse.cdt.internal.core.index.IndexQueryCache;
+import org.eclipse.cdt.internal.core.parser.util.ContentAssistMatcherFactory;
 import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
 import org.eclipse.cdt.internal.core.pdom.db.DBProperties;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
 import org.eclipse.cdt.internal.core.pdom.dom.BindingCollector;
+import org.eclipse.cdt.internal.core.pdom.dom.BindingSegmentIndex;
 import org.eclipse.cdt.internal.core.pdom.dom.FindBinding;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMLinkageFactory;
 import org.eclipse.cdt.internal.core.pdom.dom.MacroContainerCollector;
 import org.eclipse.cdt.internal.core.pdom.dom.MacroContainerPatternCollector;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMCallEdges;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMFile;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMInclude;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMLinkage;
@@ -206,10 +212,13 @@ public class PDOM extends PlatformObject implements IPDOM {
 	 *  113.0 - Changed marshaling of values, bug 327878
 	 *  114.0 - Partial specializations for class template specializations, bug 332884.
 	 *  115.0 - Corrected signatures for function templates, bug 335062.
+	 *  116.0 - List of derived classes stored with class types.
+	 *  117.0 - Call edges stored with callees and files.
+	 *  118.0 - Index of name segments for content assist.
 	 */
-	private static final int MIN_SUPPORTED_VERSION= version(114, 0);
-	private static final int MAX_SUPPORTED_VERSION= version(114, Short.MAX_VALUE);
-	private static final int DEFAULT_VERSION = version(114, 0);
+	private static final int MIN_SUPPORTED_VERSION= version(118, 0);
+	private static final int MAX_SUPPORTED_VERSION= version(118, Short.MAX_VALUE);
+	private static final int DEFAULT_VERSION = version(118, 0);
 
 	private static int version(int major, int minor) {
 		return (major << 16) + minor;
@@ -246,11 +255,20 @@ public class PDOM extends PlatformObject implements IPDOM {
 	}
 
 	public static class ChangeEvent {
+		/**
+		 * Maximum number of names tracked for the invalidation of the {@link IndexQueryCache}, 
+		 * beyond that all of the cached results are discarded.
+		 */
+		private static final int MAX_CHANGED_NAMES = 10000;
+
 		public Set<IIndexFileLocation> fClearedFiles= new HashSet<IIndexFileLocation>();
 		public Set<IIndexFileLocation> fFilesWritten= new HashSet<IIndexFileLocation>();
+		private Set<String> fChangedNames= new HashSet<String>();
+		private Set<IIndexFileLocation> fChangedIncludeTargets= new HashSet<IIndexFileLocation>();
 		private boolean fCleared= false;
 		private boolean fReloaded= false;
 		private boolean fNewFiles= false;
+		private boolean fTooManyChangedNames= false;
 
 		private void setCleared() {
 			fCleared= true;
@@ -259,6 +277,46 @@ public class PDOM extends PlatformObject implements IPDOM {
 
 			fClearedFiles.clear();
 			fFilesWritten.clear();
+			fChangedNames.clear();
+			fChangedIncludeTargets.clear();
+		}
+
+		/**
+		 * Records the name of a binding for which names have been added or removed.
+		 */
+		public void addChangedName(char[] name) {
+			if (!fTooManyChangedNames) {
+				fChangedNames.add(new String(name));
+				if (fChangedNames.size() > MAX_CHANGED_NAMES) {
+					fTooManyChangedNames= true;
+					fChangedNames.clear();
+				}
+			}
+		}
+
+		/**
+		 * Returns the names of the bindings for which names have been added or removed.
+		 * Only valid when {@link #hasTooManyChangedNames()} returns <code>false</code>.
+		 */
+		public Set<String> getChangedNames() {
+			return fChangedNames;
+		}
+
+		public boolean hasTooManyChangedNames() {
+			return fTooManyChangedNames;
+		}
+
+		/**
+		 * Records the target of an include directive that has been added or removed.
+		 */
+		public void addChangedIncludeTarget(IIndexFileLocation location) {
+			if (location != null) {
+				fChangedIncludeTargets.add(location);
+			}
+		}
+
+		public Set<IIndexFileLocation> getChangedIncludeTargets() {
+			return fChangedIncludeTargets;
 		}
 
 		public boolean isCleared() {
@@ -897,6 +955,9 @@ public class PDOM extends PlatformObject implements IPDOM {
 		if (establishReadLocks == 0) {
 			clearResultCache();
 		}
+		// Results of queries that outlive the locks need to be invalidated before anyone
+		// can read the modified index. 
+		IndexQueryCache.getSharedInstance().invalidate(fEvent);
 		try {
 			db.giveUpExclusiveLock(flush);
 		} catch (CoreException e) {
@@ -997,6 +1058,72 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return names.toArray(new IIndexFragmentName[names.size()]);
 	}
 
+	public IIndexFragmentBinding[] findDerivedClasses(IBinding binding) throws CoreException {
+		IIndexFragmentBinding myBinding= adaptBinding(binding);
+		if (!(myBinding instanceof PDOMBinding)) 
+			return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+		
+		final PDOMBinding pdomBinding = (PDOMBinding) myBinding;
+		PDOMBinding[] result= pdomBinding.getLinkage().findDerivedClasses(pdomBinding);
+		if (result != null)
+			return result;
+		
+		// Search the base-specifiers among the references.
+		List<PDOMBinding> list= new ArrayList<PDOMBinding>();
+		Set<Long> handled= new HashSet<Long>();
+		for (PDOMName name= pdomBinding.getFirstReference(); name != null; name= name.getNextInBinding()) {
+			if (name.isBaseSpecifier()) {
+				PDOMName derivedName= (PDOMName) name.getEnclosingDefinition();
+				if (derivedName != null) {
+					PDOMBinding derived= derivedName.getBinding();
+					if (derived != null && handled.add(derived.getRecord())) {
+						list.add(derived);
+					}
+				}
+			}
+		}
+		return list.toArray(new IIndexFragmentBinding[list.size()]);
+	}
+
+	public IndexCallEdge[] findCallers(IBinding binding, int options) throws CoreException {
+		IIndexFragmentBinding myBinding= adaptBinding(binding);
+		if (!(myBinding instanceof PDOMBinding)) 
+			return IndexCallEdge.EMPTY_CALL_EDGE_ARRAY;
+
+		final PDOMBinding pdomBinding = (PDOMBinding) myBinding;
+		ArrayList<IndexCallEdge> edges= new ArrayList<IndexCallEdge>();
+		findCallersForMyBinding(pdomBinding, edges);
+		if ((options & SEARCH_ACROSS_LANGUAGE_BOUNDARIES) != 0) {
+			PDOMBinding[] xlangBindings= getCrossLanguageBindings(binding);
+			for (PDOMBinding xlangBinding : xlangBindings) {
+				findCallersForMyBinding(xlangBinding, edges);
+			}
+		}
+		return edges.toArray(new IndexCallEdge[edges.size()]);
+	}
+
+	private void findCallersForMyBinding(PDOMBinding pdomBinding, ArrayList<IndexCallEdge> edges)
+			throws CoreException {
+		if (PDOMCallEdges.isRecordedFor(pdomBinding)) {
+			for (PDOMCallEdges block= PDOMCallEdges.getFirst(pdomBinding); block != null; block= block.getNextInCallee()) {
+				if (isCommitted(block)) {
+					block.collectEdges(edges);
+				}
+			}
+			return;
+		}
+
+		// The edges are not stored for this kind of binding, use the references.
+		for (PDOMName name = pdomBinding.getFirstReference(); name != null; name= name.getNextInBinding()) {
+			if (isCommitted(name)) {
+				PDOMName caller= (PDOMName) name.getEnclosingDefinition();
+				if (caller != null) {
+					edges.add(new IndexCallEdge(name, caller));
+				}
+			}
+		}
+	}
+
 	private void findNamesForMyBinding(PDOMBinding pdomBinding, int options, ArrayList<IIndexFragmentName> names)
 			throws CoreException {
 		PDOMName name;
@@ -1054,6 +1181,10 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return true;
 	}
 
+	protected boolean isCommitted(PDOMCallEdges edges) throws CoreException {
+		return true;
+	}
+
 	public IIndexFragmentInclude[] findIncludedBy(IIndexFragmentFile file) throws CoreException {
 		PDOMFile pdomFile= adaptFile(file);
 		if (pdomFile != null) {
@@ -1093,6 +1224,16 @@ public class PDOM extends PlatformObject implements IPDOM {
 	}
 
 	private IIndexFragmentBinding[] findBindingsForPrefixOrContentAssist(char[] prefix, boolean filescope, boolean isContentAssist, boolean caseSensitive, IndexFilter filter, IProgressMonitor monitor) throws CoreException {
+		if (isContentAssist) {
+			IContentAssistMatcher matcher= ContentAssistMatcherFactory.getInstance().createMatcher(prefix);
+			if (matcher.matchRequiredAfterBinarySearch()) {
+				char[] probe= BindingSegmentIndex.getProbeSegment(prefix);
+				if (probe != null) {
+					return findBindingsForSegmentMatch(prefix, probe, matcher, filescope, caseSensitive, filter,
+							monitor);
+				}
+			}
+		}
 		ArrayList<IIndexFragmentBinding> result= new ArrayList<IIndexFragmentBinding>();
 		for (PDOMLinkage linkage : getLinkageList()) {
 			if (filter.acceptLinkage(linkage)) {
@@ -1118,6 +1259,40 @@ public class PDOM extends PlatformObject implements IPDOM {
 		return result.toArray(new IIndexFragmentBinding[result.size()]);
 	}
 
+	/**
+	 * Content assist with a pattern consisting of multiple segments: The bindings starting with
+	 * the pattern are searched via the index of the linkage, the ones matching the segments
+	 * are searched via the segment index. 
+	 */
+	private IIndexFragmentBinding[] findBindingsForSegmentMatch(char[] pattern, char[] probe,
+			IContentAssistMatcher matcher, boolean filescope, boolean caseSensitive, IndexFilter filter,
+			IProgressMonitor monitor) throws CoreException {
+		ArrayList<IIndexFragmentBinding> result= new ArrayList<IIndexFragmentBinding>();
+		for (PDOMLinkage linkage : getLinkageList()) {
+			if (filter.acceptLinkage(linkage)) {
+				BindingCollector visitor = new BindingCollector(linkage, pattern, filter, true, false, caseSensitive);
+				visitor.setMonitor(monitor);
+				List<PDOMBinding> bindings= new ArrayList<PDOMBinding>();
+				try {
+					linkage.accept(visitor);
+					if (!filescope) {
+						visitor.setSkipGlobalEnumerators(true);
+						linkage.getNestedBindingsIndex().accept(visitor);
+					}
+				} catch (OperationCanceledException e) {
+				}
+				bindings.addAll(Arrays.asList(visitor.getBindings()));
+				try {
+					linkage.getSegmentIndex().collectBindings(linkage, probe, !filescope, caseSensitive, matcher,
+							filter, bindings, monitor);
+				} catch (OperationCanceledException e) {
+				}
+				result.addAll(bindings);
+			}
+		}
+		return result.toArray(new IIndexFragmentBinding[result.size()]);
+	}
+
 	public IIndexFragmentBinding[] findBindings(char[] name, boolean filescope, IndexFilter filter, IProgressMonitor monitor) throws CoreException {
 		return findBindings(name, filescope, true, filter, monitor);
 	}
@@ -1225,6 +1400,16 @@ public class PDOM extends PlatformObject implements IPDOM {
 		clearResultCache();
 	}
 
+	/**
+	 * Returns the change event for recording the names and includes that are added or removed
+	 * while the write lock is held, or <code>null</code> if there are no cached query results
+	 * that would need to be invalidated.
+	 * @see IndexQueryCache
+	 */
+	public ChangeEvent getChangeEventForQueryCache() {
+		return IndexQueryCache.getSharedInstance().isEmpty() ? null : fEvent;
+	}
+
 	public void clearResultCache() {
 		synchronized (fResultCache) {
 			fResultCache.clear();
@@ -68,6 +68,7 @@ import org.eclipse.cdt.internal.core.index.IndexChangeEvent;
 import org.eclipse.cdt.internal.core.index.IndexFactory;
 import org.eclipse.cdt.internal.core.index.IndexerStateEvent;
 import org.eclipse.cdt.internal.core.index.provider.IndexProviderManager;
+import org.eclipse.cdt.internal.core.model.CModelManager;
 import org.eclipse.cdt.internal.core.pdom.PDOM.IListener;
 import org.eclipse.cdt.internal.core.pdom.db.ChunkCache;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMLinkageFactory;
@@ -727,7 +728,8 @@ public class PDOMManager implements IWritableIndexManager, IListener {
     }
         
     public boolean isIndexerIdle() {
-    	return Job.getJobManager().find(this).length == 0;
+    	return Job.getJobManager().find(this).length == 0
+    			&& Job.getJobManager().find(CModelManager.BATCHED_DELTAS_JOB_FAMILY).length == 0;
     }
 
 	void addProject(final ICProject cproject) {
@@ -1099,12 +1101,14 @@ public class PDOMManager implements IWritableIndexManager, IListener {
 		}
 		try {
 			try {
+				// Changes may still be on their way to the indexer.
+				Job.getJobManager().join(CModelManager.BATCHED_DELTAS_JOB_FAMILY, monitor);
 				Job.getJobManager().join(this, monitor);
 				return true;
 			} catch (OperationCanceledException e) {
 			} catch (InterruptedException e) {
 			}
-			return Job.getJobManager().find(this).length == 0;
+			return isIndexerIdle();
 		} finally {
 			if (th != null) {
 				th.interrupt();
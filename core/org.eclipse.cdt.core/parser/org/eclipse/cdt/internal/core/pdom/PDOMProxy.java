@@ -30,6 +30,7 @@ import org.eclipse.cdt.internal.core.index.IIndexFragmentFileSet;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentInclude;
 import org.eclipse.cdt.internal.core.index.IIndexFragmentName;
 import org.eclipse.cdt.internal.core.index.IIndexScope;
+import org.eclipse.cdt.internal.core.index.IndexCallEdge;
 import org.eclipse.cdt.internal.core.pdom.PDOM.ChangeEvent;
 import org.eclipse.cdt.internal.core.pdom.PDOM.DebugLockInfo;
 import org.eclipse.cdt.internal.core.pdom.PDOM.IListener;
@@ -138,6 +139,20 @@ public class PDOMProxy implements IPDOM {
 		return IIndexFragmentName.EMPTY_NAME_ARRAY;
 	}
 
+	public synchronized IIndexFragmentBinding[] findDerivedClasses(IBinding binding) throws CoreException {
+		if (fDelegate != null)
+			return fDelegate.findDerivedClasses(binding);
+
+		return IIndexFragmentBinding.EMPTY_INDEX_BINDING_ARRAY;
+	}
+
+	public synchronized IndexCallEdge[] findCallers(IBinding binding, int flags) throws CoreException {
+		if (fDelegate != null)
+			return fDelegate.findCallers(binding, flags);
+
+		return IndexCallEdge.EMPTY_CALL_EDGE_ARRAY;
+	}
+
 	public synchronized long getCacheHits() {
 		if (fDelegate != null)
 			return fDelegate.getCacheHits();
@@ -32,6 +32,7 @@ import org.eclipse.cdt.internal.core.pdom.db.DBProperties;
 import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMLinkageFactory;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMCallEdges;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMFile;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMLinkage;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMMacro;
@@ -270,6 +271,11 @@ public class WritablePDOM extends PDOM implements IWritableIndexFragment {
 				uncommittedFile.getRecord() != name.getFileRecord();
 	}
 
+	@Override
+	protected boolean isCommitted(PDOMCallEdges edges) throws CoreException {
+		return uncommittedFile == null || uncommittedFile.getRecord() != edges.getFileRecord();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.cdt.internal.core.index.IWritableIndexFragment#getDatabaseSizeBytes()
 	 */
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.dom;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.cdt.core.dom.ast.IBinding;
+import org.eclipse.cdt.core.index.IndexFilter;
+import org.eclipse.cdt.core.parser.util.CharArrayUtils;
+import org.eclipse.cdt.core.parser.util.IContentAssistMatcher;
+import org.eclipse.cdt.internal.core.pdom.db.BTree;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeComparator;
+import org.eclipse.cdt.internal.core.pdom.db.IBTreeVisitor;
+import org.eclipse.cdt.internal.core.pdom.db.ShortString;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Index of the segments of the names of the bindings of a linkage. A segment starts at an
+ * upper case character or after an underscore (e.g. <code>getTypeName</code> has the segments
+ * <code>Type</code> and <code>Name</code>, the first segment is not stored). The index allows
+ * to find candidates for a segment match in content assist (e.g. <code>gTN</code>) without
+ * visiting all the bindings that start with the first segment of the pattern.
+ * <p>
+ * The entries are sorted case-insensitively by the part of the name starting with the segment.
+ * The entries of a binding are removed together with the binding, see
+ * {@link PDOMLinkage#beforeRemoveBinding(PDOMBinding)}.
+ */
+public final class BindingSegmentIndex {
+	private static final int BINDING = 0;
+	private static final int OFFSET	 = 4;	// short
+	private static final int FLAGS	 = 6;	// byte
+	private static final int RECORD_SIZE = 7;
+
+	private static final int FLAG_NESTED = 0x01;
+
+	private static final class Comparator implements IBTreeComparator {
+		private final Database fDatabase;
+
+		Comparator(Database db) {
+			fDatabase= db;
+		}
+
+		public int compare(long record1, long record2) throws CoreException {
+			final long binding1= fDatabase.getRecPtr(record1 + BINDING);
+			final long binding2= fDatabase.getRecPtr(record2 + BINDING);
+			char[] name1= PDOMNamedNode.getDBName(fDatabase, binding1).getChars();
+			char[] name2= PDOMNamedNode.getDBName(fDatabase, binding2).getChars();
+			return compareEntries(binding1, name1, fDatabase.getShort(record1 + OFFSET),
+					binding2, name2, fDatabase.getShort(record2 + OFFSET));
+		}
+	}
+
+	/**
+	 * Compares two entries by the part of the name starting with the segment, by the binding
+	 * and by the offset of the segment.
+	 */
+	private static int compareEntries(long binding1, char[] name1, int offset1, long binding2, char[] name2,
+			int offset2) {
+		int cmp= compareIgnoreCase(name1, offset1, name2, offset2, Integer.MAX_VALUE);
+		if (cmp == 0) {
+			cmp= binding1 < binding2 ? -1 : (binding1 > binding2 ? 1 : 0);
+			if (cmp == 0) {
+				cmp= offset1 - offset2;
+			}
+		}
+		return cmp;
+	}
+
+	private final Database fDatabase;
+	private final BTree fBTree;
+
+	public BindingSegmentIndex(Database db, long rootPointer) {
+		fDatabase= db;
+		fBTree= new BTree(db, rootPointer, new Comparator(db));
+	}
+
+	/**
+	 * Adds the segments of the name of the binding to the index.
+	 * @param nested whether the binding is a nested binding (rather than a global one).
+	 */
+	public void add(PDOMBinding binding, boolean nested) throws CoreException {
+		final char[] name= binding.getNameCharArray();
+		final int[] offsets= getSegmentOffsets(name);
+		for (int offset : offsets) {
+			long rec= fDatabase.malloc(RECORD_SIZE);
+			fDatabase.putRecPtr(rec + BINDING, binding.getRecord());
+			fDatabase.putShort(rec + OFFSET, (short) offset);
+			fDatabase.putByte(rec + FLAGS, (byte) (nested ? FLAG_NESTED : 0));
+			fBTree.insert(rec);
+		}
+	}
+
+	/**
+	 * Removes the segments of the name of the binding from the index.
+	 */
+	public void remove(PDOMBinding binding) throws CoreException {
+		final long bindingRec= binding.getRecord();
+		final char[] name= binding.getNameCharArray();
+		for (final int offset : getSegmentOffsets(name)) {
+			final long[] found= {0};
+			fBTree.accept(new IBTreeVisitor() {
+				public int compare(long record) throws CoreException {
+					final long otherRec= fDatabase.getRecPtr(record + BINDING);
+					char[] otherName= PDOMNamedNode.getDBName(fDatabase, otherRec).getChars();
+					return compareEntries(otherRec, otherName, fDatabase.getShort(record + OFFSET), bindingRec, name,
+							offset);
+				}
+
+				public boolean visit(long record) throws CoreException {
+					found[0]= record;
+					return false;
+				}
+			});
+			if (found[0] != 0) {
+				fBTree.delete(found[0]);
+				fDatabase.free(found[0]);
+			}
+		}
+	}
+
+	/**
+	 * Adds the bindings that have a segment starting with the given probe and are accepted by
+	 * the matcher and the filter to the result. Bindings that are already part of the result
+	 * are not added a second time.
+	 * @param probe a segment of the pattern as computed by {@link #getProbeSegment(char[])}.
+	 * @param includeNested whether to consider nested bindings, also.
+	 * @param caseSensitive whether the names need to start with the first segment of the
+	 * pattern in the same case.
+	 */
+	public void collectBindings(final PDOMLinkage linkage, final char[] probe, final boolean includeNested,
+			final boolean caseSensitive, final IContentAssistMatcher matcher, final IndexFilter filter,
+			final List<PDOMBinding> result, final IProgressMonitor monitor) throws CoreException {
+		final char[] prefix= matcher.getPrefixForBinarySearch();
+		final Set<Long> handled= new HashSet<Long>();
+		for (PDOMBinding binding : result) {
+			handled.add(binding.getRecord());
+		}
+		fBTree.accept(new IBTreeVisitor() {
+			private int fCounter;
+
+			public int compare(long record) throws CoreException {
+				checkCancelled();
+				final long binding= fDatabase.getRecPtr(record + BINDING);
+				final int offset= fDatabase.getShort(record + OFFSET);
+				char[] name= PDOMNamedNode.getDBName(fDatabase, binding).getChars();
+				return compareIgnoreCase(name, offset, probe, 0, probe.length);
+			}
+
+			public boolean visit(long record) throws CoreException {
+				checkCancelled();
+				if (!includeNested && (fDatabase.getByte(record + FLAGS) & FLAG_NESTED) != 0)
+					return true;
+
+				final long bindingRec= fDatabase.getRecPtr(record + BINDING);
+				if (handled.add(bindingRec)) {
+					PDOMBinding binding= linkage.getBinding(bindingRec);
+					if (binding != null) {
+						char[] name= binding.getNameCharArray();
+						if ((!caseSensitive || CharArrayUtils.equals(name, 0, prefix.length, prefix, false))
+								&& matcher.match(name)
+								&& (filter == null || filter.acceptBinding((IBinding) binding))) {
+							result.add(binding);
+						}
+					}
+				}
+				return true;
+			}
+
+			private void checkCancelled() {
+				if (monitor != null && ++fCounter % 0x1000 == 0 && monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Compares the suffixes of two names case-insensitively, considering at most the given
+	 * number of characters.
+	 */
+	private static int compareIgnoreCase(char[] name1, int offset1, char[] name2, int offset2, int maxLength) {
+		final int length1= Math.min(name1.length - offset1, maxLength);
+		final int length2= Math.min(name2.length - offset2, maxLength);
+		final int length= Math.min(length1, length2);
+		for (int i = 0; i < length; i++) {
+			int cmp= ShortString.compareChars(name1[offset1 + i], name2[offset2 + i], false);
+			if (cmp != 0)
+				return cmp;
+		}
+		return length1 - length2;
+	}
+
+	/**
+	 * Returns the offsets of the segments of a name, except for the first one. A segment starts
+	 * with an upper case character or with the character following an underscore.
+	 */
+	public static int[] getSegmentOffsets(char[] name) {
+		int count= 0;
+		final int length= Math.min(name.length, Short.MAX_VALUE);
+		int[] offsets= new int[length];
+		for (int i = 1; i < length; i++) {
+			final char c= name[i];
+			if (Character.isUpperCase(c) || (name[i - 1] == '_' && c != '_')) {
+				offsets[count++]= i;
+			}
+		}
+		int[] result= new int[count];
+		System.arraycopy(offsets, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Computes the segment of a content assist pattern that shall be used to search the
+	 * segment index. This is the longest segment other than the first one, that is not a
+	 * number and that is not preceded by a separator other than the underscore. If there
+	 * are several candidates the last one is chosen. <code>null</code> is returned when
+	 * the pattern consists of one segment, only, or when the probe would be shorter than
+	 * the first segment, because then searching for the first segment is more selective.
+	 */
+	public static char[] getProbeSegment(char[] pattern) {
+		int i= 0;
+		int segmentCount= 0;
+		int firstSegmentLength= 0;
+		int bestStart= -1;
+		int bestLength= 0;
+		while (i < pattern.length) {
+			final int separatorStart= i;
+			while (i < pattern.length && !Character.isLetterOrDigit(pattern[i])) {
+				i++;
+			}
+			if (i >= pattern.length)
+				break;
+
+			final int separatorLength= i - separatorStart;
+			final int start= i;
+			final boolean isNumber= Character.isDigit(pattern[i]);
+			if (isNumber) {
+				while (++i < pattern.length && Character.isDigit(pattern[i])) {
+				}
+			} else {
+				while (++i < pattern.length && Character.isLetter(pattern[i]) && !Character.isUpperCase(pattern[i])) {
+				}
+			}
+			if (segmentCount == 0) {
+				firstSegmentLength= i;
+			} else if (!isNumber && i - start >= bestLength) {
+				if (separatorLength == 0 || (separatorLength == 1 && pattern[separatorStart] == '_')) {
+					bestStart= start;
+					bestLength= i - start;
+				}
+			}
+			segmentCount++;
+		}
+		if (bestStart < 0 || bestLength < firstSegmentLength)
+			return null;
+
+		return CharArrayUtils.extract(pattern, bestStart, bestLength);
+	}
+}
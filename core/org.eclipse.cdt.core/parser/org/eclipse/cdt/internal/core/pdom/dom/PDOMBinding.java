@@ -47,9 +47,10 @@ public abstract class PDOMBinding extends PDOMNamedNode implements IPDOMBinding
 	private static final int FIRST_DEF_OFFSET    = PDOMNamedNode.RECORD_SIZE + 4; // size 4
 	private static final int FIRST_REF_OFFSET    = PDOMNamedNode.RECORD_SIZE + 8; // size 4
 	private static final int LOCAL_TO_FILE		 = PDOMNamedNode.RECORD_SIZE + 12; // size 4
+	private static final int FIRST_CALL_EDGES    = PDOMNamedNode.RECORD_SIZE + 16; // size 4
 	
 	@SuppressWarnings("hiding")
-	protected static final int RECORD_SIZE = PDOMNamedNode.RECORD_SIZE + 16;
+	protected static final int RECORD_SIZE = PDOMNamedNode.RECORD_SIZE + 20;
 	private byte hasDeclaration= -1;
 	
 	protected PDOMBinding(PDOMLinkage linkage, PDOMNode parent, char[] name) throws CoreException {
@@ -173,6 +174,18 @@ public abstract class PDOMBinding extends PDOMNamedNode implements IPDOMBinding
 		getDB().putRecPtr(record + LOCAL_TO_FILE, rec);
 	}
 
+	/**
+	 * Returns the record of the first block of call edges of the binding with the given record.
+	 * @see PDOMCallEdges
+	 */
+	static long getFirstCallEdgesRec(Database db, long record) throws CoreException {
+		return db.getRecPtr(record + FIRST_CALL_EDGES);
+	}
+
+	static void setFirstCallEdgesRec(Database db, long record, long edgesRec) throws CoreException {
+		db.putRecPtr(record + FIRST_CALL_EDGES, edgesRec);
+	}
+
 	public String getName() {
 		try {
 			return super.getDBName().getString();
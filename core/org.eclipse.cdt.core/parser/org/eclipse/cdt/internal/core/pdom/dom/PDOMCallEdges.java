@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.dom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.cdt.core.dom.ast.IEnumerator;
+import org.eclipse.cdt.core.dom.ast.IFunction;
+import org.eclipse.cdt.core.dom.ast.IVariable;
+import org.eclipse.cdt.internal.core.index.IndexCallEdge;
+import org.eclipse.cdt.internal.core.pdom.db.Database;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * A block of call edges, i.e. pairs of a reference to a callee and the definition enclosing the
+ * reference. A block stores the edges of one file to one callee, it is linked into the list of
+ * blocks of the callee and into the list of blocks of the file. Storing the edges in compact
+ * blocks allows to compute the callers of a function without visiting each of the references
+ * and their enclosing definitions.
+ */
+public final class PDOMCallEdges {
+	private static final int FILE 				= 0;
+	private static final int NEXT_IN_FILE 		= 4;
+	private static final int PREV_IN_CALLEE 	= 8;
+	private static final int NEXT_IN_CALLEE 	= 12;
+	private static final int CALLEE 			= 16;
+	private static final int COUNT 				= 20;
+	private static final int EDGES 				= 24;
+
+	private static final int CALLER_OFFSET 		= 0;
+	private static final int CALL_SITE_OFFSET 	= 4;
+	private static final int EDGE_SIZE 			= 8;
+
+	// Limit the size of a block to a quarter of a chunk, larger blocks waste space in the chunks.
+	private static final int MAX_EDGES_PER_BLOCK = (Database.MAX_MALLOC_SIZE / 4 - EDGES) / EDGE_SIZE;
+
+	private static final Comparator<long[]> CALLEE_COMPARATOR = new Comparator<long[]>() {
+		public int compare(long[] o1, long[] o2) {
+			return o1[0] < o2[0] ? -1 : (o1[0] > o2[0] ? 1 : 0);
+		}
+	};
+
+	private final PDOMLinkage fLinkage;
+	private final long fRecord;
+
+	public PDOMCallEdges(PDOMLinkage linkage, long record) {
+		fLinkage= linkage;
+		fRecord= record;
+	}
+
+	/**
+	 * Returns whether the call edges are recorded for references to the given binding. For other
+	 * bindings the callers have to be computed from the references.
+	 */
+	public static boolean isRecordedFor(PDOMBinding callee) {
+		return callee instanceof IFunction || callee instanceof IVariable || callee instanceof IEnumerator;
+	}
+
+	/**
+	 * Returns the first block of edges for the given callee, or <code>null</code>.
+	 */
+	public static PDOMCallEdges getFirst(PDOMBinding callee) throws CoreException {
+		final PDOMLinkage linkage= callee.getLinkage();
+		long rec= PDOMBinding.getFirstCallEdgesRec(linkage.getDB(), callee.getRecord());
+		return rec != 0 ? new PDOMCallEdges(linkage, rec) : null;
+	}
+
+	/**
+	 * Creates the blocks of edges for a file and returns the record of the first block.
+	 * @param edges triples consisting of the records of the callee, the caller and the call site,
+	 * the array will be sorted by the records of the callees.
+	 */
+	static long createBlocks(PDOMLinkage linkage, PDOMFile file, List<long[]> edges) throws CoreException {
+		if (edges.isEmpty())
+			return 0;
+
+		final Database db= linkage.getDB();
+		final long[][] sorted= edges.toArray(new long[edges.size()][]);
+		Arrays.sort(sorted, CALLEE_COMPARATOR);
+
+		long firstInFile= 0;
+		long prevInFile= 0;
+		for (int i = 0; i < sorted.length;) {
+			final long callee= sorted[i][0];
+			int end= i + 1;
+			while (end < sorted.length && end - i < MAX_EDGES_PER_BLOCK && sorted[end][0] == callee) {
+				end++;
+			}
+			final int count= end - i;
+			final long rec= db.malloc(EDGES + count * EDGE_SIZE);
+			db.putRecPtr(rec + FILE, file.getRecord());
+			db.putRecPtr(rec + CALLEE, callee);
+			db.putInt(rec + COUNT, count);
+			long edgeRec= rec + EDGES;
+			for (int j = i; j < end; j++) {
+				db.putRecPtr(edgeRec + CALLER_OFFSET, sorted[j][1]);
+				db.putRecPtr(edgeRec + CALL_SITE_OFFSET, sorted[j][2]);
+				edgeRec+= EDGE_SIZE;
+			}
+
+			// Link into the list of the callee
+			final long nextInCallee= PDOMBinding.getFirstCallEdgesRec(db, callee);
+			if (nextInCallee != 0) {
+				db.putRecPtr(nextInCallee + PREV_IN_CALLEE, rec);
+				db.putRecPtr(rec + NEXT_IN_CALLEE, nextInCallee);
+			}
+			PDOMBinding.setFirstCallEdgesRec(db, callee, rec);
+
+			// Link into the list of the file
+			if (prevInFile == 0) {
+				firstInFile= rec;
+			} else {
+				db.putRecPtr(prevInFile + NEXT_IN_FILE, rec);
+			}
+			prevInFile= rec;
+			i= end;
+		}
+		return firstInFile;
+	}
+
+	/**
+	 * Deletes the list of blocks of a file starting with the given record.
+	 */
+	static void deleteBlocks(PDOMLinkage linkage, long firstInFile) throws CoreException {
+		final Database db= linkage.getDB();
+		long rec= firstInFile;
+		while (rec != 0) {
+			final long next= db.getRecPtr(rec + NEXT_IN_FILE);
+			final long prevInCallee= db.getRecPtr(rec + PREV_IN_CALLEE);
+			final long nextInCallee= db.getRecPtr(rec + NEXT_IN_CALLEE);
+			if (prevInCallee == 0) {
+				PDOMBinding.setFirstCallEdgesRec(db, db.getRecPtr(rec + CALLEE), nextInCallee);
+			} else {
+				db.putRecPtr(prevInCallee + NEXT_IN_CALLEE, nextInCallee);
+			}
+			if (nextInCallee != 0) {
+				db.putRecPtr(nextInCallee + PREV_IN_CALLEE, prevInCallee);
+			}
+			db.free(rec);
+			rec= next;
+		}
+	}
+
+	/**
+	 * Changes the file for the list of blocks starting with the given record.
+	 */
+	static void setFile(PDOMLinkage linkage, long firstInFile, PDOMFile file) throws CoreException {
+		final Database db= linkage.getDB();
+		for (long rec= firstInFile; rec != 0; rec= db.getRecPtr(rec + NEXT_IN_FILE)) {
+			db.putRecPtr(rec + FILE, file.getRecord());
+		}
+	}
+
+	public long getRecord() {
+		return fRecord;
+	}
+
+	public long getFileRecord() throws CoreException {
+		return fLinkage.getDB().getRecPtr(fRecord + FILE);
+	}
+
+	public PDOMCallEdges getNextInCallee() throws CoreException {
+		long rec= fLinkage.getDB().getRecPtr(fRecord + NEXT_IN_CALLEE);
+		return rec != 0 ? new PDOMCallEdges(fLinkage, rec) : null;
+	}
+
+	/**
+	 * Adds the edges stored in this block to the given list.
+	 */
+	public void collectEdges(ArrayList<IndexCallEdge> result) throws CoreException {
+		final Database db= fLinkage.getDB();
+		final int count= db.getInt(fRecord + COUNT);
+		result.ensureCapacity(result.size() + count);
+		long edgeRec= fRecord + EDGES;
+		for (int i = 0; i < count; i++) {
+			PDOMName caller= new PDOMName(fLinkage, db.getRecPtr(edgeRec + CALLER_OFFSET));
+			PDOMName callSite= new PDOMName(fLinkage, db.getRecPtr(edgeRec + CALL_SITE_OFFSET));
+			result.add(new IndexCallEdge(callSite, caller));
+			edgeRec+= EDGE_SIZE;
+		}
+	}
+}
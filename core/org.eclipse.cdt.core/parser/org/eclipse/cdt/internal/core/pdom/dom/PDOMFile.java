@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 QNX Software Systems and others.
+ * Copyright (c) 2005, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -44,6 +44,7 @@ import org.eclipse.cdt.internal.core.index.IWritableIndex.IncludeInformation;
 import org.eclipse.cdt.internal.core.index.IWritableIndexFragment;
 import org.eclipse.cdt.internal.core.index.IndexFileLocation;
 import org.eclipse.cdt.internal.core.pdom.PDOM;
+import org.eclipse.cdt.internal.core.pdom.PDOM.ChangeEvent;
 import org.eclipse.cdt.internal.core.pdom.YieldableIndexLock;
 import org.eclipse.cdt.internal.core.pdom.db.BTree;
 import org.eclipse.cdt.internal.core.pdom.db.Database;
@@ -76,8 +77,9 @@ public class PDOMFile implements IIndexFragmentFile {
 	private static final int ENCODING_HASH= 44;
 	private static final int LAST_USING_DIRECTIVE= 48;
 	private static final int FIRST_MACRO_REFERENCE= 52;
+	private static final int FIRST_CALL_EDGES= 56;
 
-	private static final int RECORD_SIZE= 56;
+	private static final int RECORD_SIZE= 60;
 
 	public static class Comparator implements IBTreeComparator {
 		private Database db;
@@ -160,6 +162,7 @@ public class PDOMFile implements IIndexFragmentFile {
 			PDOMInclude nextInclude = include.getNextInIncludes();
 			IIndexFile includedBy = include.getIncludedBy();
 			if (this.equals(includedBy)) {
+				recordChangedIncludeTarget(include.getIncludesLocation());
 				include.delete();
 			}
 			include = nextInclude;
@@ -207,12 +210,19 @@ public class PDOMFile implements IIndexFragmentFile {
 			mref.setFile(this);
 		}
 
+		// Replace the call edges, they need to be removed before the names.
+		PDOMCallEdges.deleteBlocks(linkage, getFirstCallEdgesRec());
+		final long edgesRec= sourceFile.getFirstCallEdgesRec();
+		setFirstCallEdgesRec(edgesRec);
+		PDOMCallEdges.setFile(linkage, edgesRec, this);
+
 		// Replace all the names in this file
 		ArrayList<PDOMName> names= new ArrayList<PDOMName>();
 		PDOMName name = getFirstName();
 		for (; name != null; name= name.getNextInFile()) {
 			names.add(name);
 			linkage.onDeleteName(name);
+			recordChangedName(name.getSimpleID());
 		}
 		for (Iterator<PDOMName> iterator = names.iterator(); iterator.hasNext();) {
 			name = iterator.next();
@@ -326,6 +336,14 @@ public class PDOMFile implements IIndexFragmentFile {
 		fLinkage.getDB().putRecPtr(record + FIRST_MACRO_REFERENCE, namerec);
 	}
 
+	private long getFirstCallEdgesRec() throws CoreException {
+		return fLinkage.getDB().getRecPtr(record + FIRST_CALL_EDGES);
+	}
+
+	private void setFirstCallEdgesRec(long rec) throws CoreException {
+		fLinkage.getDB().putRecPtr(record + FIRST_CALL_EDGES, rec);
+	}
+
 	public PDOMInclude getFirstInclude() throws CoreException {
 		long increc = fLinkage.getDB().getRecPtr(record + FIRST_INCLUDE);
 		return increc != 0 ? new PDOMInclude(fLinkage, increc) : null;
@@ -394,8 +412,10 @@ public class PDOMFile implements IIndexFragmentFile {
 	public void addNames(IASTName[][] names, YieldableIndexLock lock) throws CoreException, InterruptedException {
 		assert getFirstName() == null;
 		assert getFirstMacroReference() == null;
+		assert getFirstCallEdgesRec() == 0;
 		final PDOMLinkage linkage= getLinkage();
 		HashMap<IASTName, PDOMName> nameCache= new HashMap<IASTName, PDOMName>();
+		ArrayList<long[]> callEdges= new ArrayList<long[]>();
 		PDOMName lastName= null;
 		PDOMMacroReferenceName lastMacroName= null;
 		for (IASTName[] name : names) {
@@ -404,7 +424,7 @@ public class PDOMFile implements IIndexFragmentFile {
 					lock.yield();
 				}
 				PDOMName caller= nameCache.get(name[1]);
-				IIndexFragmentName fname= createPDOMName(linkage, name[0], caller);
+				IIndexFragmentName fname= createPDOMName(linkage, name[0], caller, callEdges);
 				if (fname instanceof PDOMName) {
 					PDOMName pdomName = (PDOMName) fname;
 					nameCache.put(name[0], pdomName);
@@ -425,9 +445,11 @@ public class PDOMFile implements IIndexFragmentFile {
 				}
 			}
 		}
+		setFirstCallEdgesRec(PDOMCallEdges.createBlocks(linkage, this, callEdges));
 	}
 
-	private IIndexFragmentName createPDOMName(PDOMLinkage linkage, IASTName name, PDOMName caller) throws CoreException {
+	private IIndexFragmentName createPDOMName(PDOMLinkage linkage, IASTName name, PDOMName caller,
+			List<long[]> callEdges) throws CoreException {
 		final IBinding binding = name.getBinding();
 		if (binding instanceof IParameter) {
 			return null;
@@ -441,6 +463,10 @@ public class PDOMFile implements IIndexFragmentFile {
 			if (pdomBinding != null) {
 				final PDOMName result= new PDOMName(fLinkage, name, this, pdomBinding, caller);
 				linkage.onCreateName(this, name, result);
+				if (caller != null && result.isReference() && PDOMCallEdges.isRecordedFor(pdomBinding)) {
+					callEdges.add(new long[] {pdomBinding.getRecord(), caller.getRecord(), result.getRecord()});
+				}
+				recordChangedName(pdomBinding.getNameCharArray());
 				return result;
 			}
 		} catch (CoreException e) {
@@ -475,6 +501,7 @@ public class PDOMFile implements IIndexFragmentFile {
 			if (contextsRemoved != null && include.getPrevInIncludedByRecord() == 0) {
 				contextsRemoved.add(include.getIncludesLocation());
 			}
+			recordChangedIncludeTarget(include.getIncludesLocation());
 			include.delete();
 			include = nextInclude;
 		}
@@ -490,12 +517,17 @@ public class PDOMFile implements IIndexFragmentFile {
 		}
 		setFirstMacro(null);
 
+		// Delete the call edges, they refer to the names of this file.
+		PDOMCallEdges.deleteBlocks(linkage, getFirstCallEdgesRec());
+		setFirstCallEdgesRec(0);
+
 		// Delete all the names in this file
 		ArrayList<PDOMName> names= new ArrayList<PDOMName>();
 		PDOMName name = getFirstName();
 		while (name != null) {
 			names.add(name);
 			linkage.onDeleteName(name);
+			recordChangedName(name.getSimpleID());
 			name= name.getNextInFile();
 		}
 		for (Iterator<PDOMName> iterator = names.iterator(); iterator.hasNext();) {
@@ -519,6 +551,28 @@ public class PDOMFile implements IIndexFragmentFile {
 		setTimestamp(-1);
 	}
 
+	/**
+	 * Records a binding whose names were added or removed, for the invalidation of the cached
+	 * query results. The event is fetched for every change because yielding the write lock
+	 * replaces it.
+	 */
+	private void recordChangedName(char[] name) {
+		ChangeEvent event= fLinkage.getPDOM().getChangeEventForQueryCache();
+		if (event != null) {
+			event.addChangedName(name);
+		}
+	}
+
+	/**
+	 * Records a file whose includes were added or removed, see {@link #recordChangedName(char[])}.
+	 */
+	private void recordChangedIncludeTarget(IIndexFileLocation location) {
+		ChangeEvent event= fLinkage.getPDOM().getChangeEventForQueryCache();
+		if (event != null) {
+			event.addChangedIncludeTarget(location);
+		}
+	}
+
 	/**
 	 * Deletes this file from PDOM. Only uncommitted files can be safely deleted.
 	 *
@@ -539,6 +593,7 @@ public class PDOMFile implements IIndexFragmentFile {
 		PDOMInclude lastInclude= null;
 		for (final IncludeInformation info : includeInfos) {
 			final PDOMFile targetFile= (PDOMFile) info.fTargetFile;
+			recordChangedIncludeTarget(info.fLocation);
 			
 			PDOMInclude pdomInclude = new PDOMInclude(fLinkage, info.fStatement, this, targetFile);
 			assert targetFile == null || targetFile.getIndexFragment() instanceof IWritableIndexFragment;
@@ -62,9 +62,10 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 	private static final int INDEX_OFFSET = PDOMNamedNode.RECORD_SIZE + 8;
 	private static final int NESTED_BINDINGS_INDEX = PDOMNamedNode.RECORD_SIZE + 12;
 	private static final int MACRO_BTREE = PDOMNamedNode.RECORD_SIZE + 16;
+	private static final int SEGMENT_INDEX = PDOMNamedNode.RECORD_SIZE + 20;
 
 	@SuppressWarnings("hiding")
-	protected static final int RECORD_SIZE = PDOMNamedNode.RECORD_SIZE + 20;
+	protected static final int RECORD_SIZE = PDOMNamedNode.RECORD_SIZE + 24;
 	protected static final long[] FILE_LOCAL_REC_DUMMY = new long[]{0};
 
 	// node types
@@ -141,6 +142,14 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		return new BTree(fDatabase, record + NESTED_BINDINGS_INDEX, getNestedBindingsComparator());
 	}
 
+	/**
+	 * Returns the index of the segments of the names of global and nested bindings.
+	 * @throws CoreException
+	 */
+	public BindingSegmentIndex getSegmentIndex() throws CoreException {
+		return new BindingSegmentIndex(fDatabase, record + SEGMENT_INDEX);
+	}
+
 	@Override
 	public void accept(final IPDOMVisitor visitor) throws CoreException {
 		if (visitor instanceof IBTreeVisitor) {
@@ -167,6 +176,9 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 	@Override
 	public void addChild(PDOMNode child) throws CoreException {
 		getIndex().insert(child.getRecord());
+		if (child instanceof PDOMBinding) {
+			getSegmentIndex().add((PDOMBinding) child, false);
+		}
 	}
 	
 	public final PDOMBinding getBinding(long record) throws CoreException {
@@ -299,6 +311,17 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 	public void onDeleteName(PDOMName name) throws CoreException {
 	}
 
+	/**
+	 * Returns the classes derived from the given binding, in case the linkage maintains the 
+	 * inheritance relationships for it. Otherwise <code>null</code> is returned and the
+	 * derived classes need to be searched for via the base-specifiers naming the binding.
+	 * @param binding a binding of this linkage
+	 * @throws CoreException 
+	 */
+	public PDOMBinding[] findDerivedClasses(PDOMBinding binding) throws CoreException {
+		return null;
+	}
+
 	/**
 	 * Callback informing the linkage that a binding has been added. Used to index nested bindings.
 	 * @param pdomBinding
@@ -308,6 +331,7 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 	protected final void insertIntoNestedBindingsIndex(PDOMBinding pdomBinding) throws CoreException {
 		if (pdomBinding.getParentNodeRec() != record) {
 			getNestedBindingsIndex().insert(pdomBinding.getRecord());
+			getSegmentIndex().add(pdomBinding, true);
 		}
 	}
 
@@ -321,6 +345,7 @@ public abstract class PDOMLinkage extends PDOMNamedNode implements IIndexLinkage
 		if (pdomBinding.getParentNodeRec() != record) {
 			getNestedBindingsIndex().delete(pdomBinding.getRecord());
 		}
+		getSegmentIndex().remove(pdomBinding);
 	}
 
 	public ICPPUsingDirective[] getUsingDirectives(PDOMFile file) throws CoreException {
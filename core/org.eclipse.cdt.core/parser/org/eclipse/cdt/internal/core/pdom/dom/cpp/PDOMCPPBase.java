@@ -29,8 +29,13 @@ class PDOMCPPBase implements ICPPBase, ICPPInternalBase {
 	private static final int BASECLASS_SPECIFIER = 0;
 	private static final int NEXTBASE = 4;
 	private static final int FLAGS = 8;
+	// Links for the list of derived classes maintained by the base class.
+	private static final int DERIVED_CLASS = 9;
+	private static final int BASE_CLASS = 13;
+	private static final int PREV_DERIVED = 17;
+	private static final int NEXT_DERIVED = 21;
 	
-	protected static final int RECORD_SIZE = 9;
+	protected static final int RECORD_SIZE = 25;
 	
 	private final PDOMLinkage linkage;
 	private final long record;
@@ -42,8 +47,8 @@ class PDOMCPPBase implements ICPPBase, ICPPInternalBase {
 		this.record = record;
 	}
 	
-	public PDOMCPPBase(PDOMLinkage linkage, PDOMName baseClassSpec, boolean isVirtual, int visibility)
-			throws CoreException {
+	public PDOMCPPBase(PDOMLinkage linkage, PDOMName baseClassSpec, PDOMBinding derivedClass,
+			boolean isVirtual, int visibility) throws CoreException {
 		this.linkage = linkage;
 		Database db = getDB();
 		this.record = db.malloc(RECORD_SIZE);
@@ -53,6 +58,14 @@ class PDOMCPPBase implements ICPPBase, ICPPInternalBase {
 		
 		byte flags = (byte)(visibility | (isVirtual ? 4 : 0));
 		db.putByte(record + FLAGS, flags);
+
+		db.putRecPtr(record + DERIVED_CLASS, derivedClass.getRecord());
+		if (baseClassSpec != null) {
+			PDOMBinding baseClass= baseClassSpec.getBinding();
+			if (baseClass instanceof PDOMCPPClassType) {
+				((PDOMCPPClassType) baseClass).addDerived(this);
+			}
+		}
 	}
 
 	private Database getDB() {
@@ -73,6 +86,57 @@ class PDOMCPPBase implements ICPPBase, ICPPInternalBase {
 		return rec != 0 ? new PDOMCPPBase(linkage, rec) : null;
 	}
 	
+	/**
+	 * Returns the class this base belongs to.
+	 */
+	public PDOMBinding getDerivedClass() throws CoreException {
+		long rec = getDB().getRecPtr(record + DERIVED_CLASS);
+		return rec != 0 ? linkage.getBinding(rec) : null;
+	}
+
+	/**
+	 * Returns the next base in the list of derived classes of the base class, 
+	 * see {@link PDOMCPPClassType#getDerivedClasses()}.
+	 */
+	public PDOMCPPBase getNextDerived() throws CoreException {
+		long rec = getDB().getRecPtr(record + NEXT_DERIVED);
+		return rec != 0 ? new PDOMCPPBase(linkage, rec) : null;
+	}
+
+	/**
+	 * Inserts this base at the beginning of the list of derived classes of the given class.
+	 */
+	void linkToDerivedList(PDOMCPPClassType baseClass, long firstDerived) throws CoreException {
+		final Database db= getDB();
+		db.putRecPtr(record + BASE_CLASS, baseClass.getRecord());
+		db.putRecPtr(record + PREV_DERIVED, 0);
+		db.putRecPtr(record + NEXT_DERIVED, firstDerived);
+		if (firstDerived != 0) {
+			db.putRecPtr(firstDerived + PREV_DERIVED, record);
+		}
+	}
+
+	private void unlinkFromDerivedList() throws CoreException {
+		final Database db= getDB();
+		final long baseClassRec= db.getRecPtr(record + BASE_CLASS);
+		if (baseClassRec == 0)
+			return;
+
+		final long prev= db.getRecPtr(record + PREV_DERIVED);
+		final long next= db.getRecPtr(record + NEXT_DERIVED);
+		if (prev != 0) {
+			db.putRecPtr(prev + NEXT_DERIVED, next);
+		} else {
+			PDOMBinding baseClass= linkage.getBinding(baseClassRec);
+			if (baseClass instanceof PDOMCPPClassType) {
+				((PDOMCPPClassType) baseClass).setFirstDerivedRec(next);
+			}
+		}
+		if (next != 0) {
+			db.putRecPtr(next + PREV_DERIVED, prev);
+		}
+	}
+
 	private int getFlags() throws CoreException {
 		return getDB().getByte(record + FLAGS);
 	}
@@ -128,6 +192,7 @@ class PDOMCPPBase implements ICPPBase, ICPPInternalBase {
 	}
 
 	public void delete() throws CoreException {
+		unlinkFromDerivedList();
 		getDB().free(record);
 	}
 	
@@ -16,7 +16,9 @@ package org.eclipse.cdt.internal.core.pdom.dom.cpp;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.dom.IPDOMVisitor;
@@ -38,6 +40,7 @@ import org.eclipse.cdt.internal.core.dom.parser.cpp.semantics.SemanticUtil;
 import org.eclipse.cdt.internal.core.index.IIndexCPPBindingConstants;
 import org.eclipse.cdt.internal.core.pdom.db.PDOMNodeLinkedList;
 import org.eclipse.cdt.internal.core.pdom.dom.IPDOMMemberOwner;
+import org.eclipse.cdt.internal.core.pdom.dom.PDOMBinding;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMLinkage;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMName;
 import org.eclipse.cdt.internal.core.pdom.dom.PDOMNode;
@@ -57,9 +60,10 @@ class PDOMCPPClassType extends PDOMCPPBinding implements IPDOMCPPClassType, IPDO
 	
 	private static final int KEY = PDOMCPPBinding.RECORD_SIZE + 12; // byte
 	private static final int ANONYMOUS= PDOMCPPBinding.RECORD_SIZE + 13; // byte
+	private static final int FIRST_DERIVED = PDOMCPPBinding.RECORD_SIZE + 14;
 	
 	@SuppressWarnings("hiding")
-	protected static final int RECORD_SIZE = PDOMCPPBinding.RECORD_SIZE + 14;
+	protected static final int RECORD_SIZE = PDOMCPPBinding.RECORD_SIZE + 18;
 
 	private PDOMCPPClassScope fScope; // No need for volatile, all fields of PDOMCPPClassScope are final.
 
@@ -171,6 +175,42 @@ class PDOMCPPClassType extends PDOMCPPBinding implements IPDOMCPPClassType, IPDO
 		}
 	}
 	
+	/**
+	 * Adds a base-specifier of another class that names this class to the list of derived classes.
+	 */
+	void addDerived(PDOMCPPBase base) throws CoreException {
+		base.linkToDerivedList(this, getFirstDerivedRec());
+		setFirstDerivedRec(base.getRecord());
+	}
+
+	private long getFirstDerivedRec() throws CoreException {
+		return getDB().getRecPtr(record + FIRST_DERIVED);
+	}
+
+	void setFirstDerivedRec(long rec) throws CoreException {
+		getDB().putRecPtr(record + FIRST_DERIVED, rec);
+	}
+
+	/**
+	 * Returns the classes that have a base-specifier naming this class. The list of derived
+	 * classes is maintained when the base-specifiers are stored, such that it can be obtained 
+	 * without searching for the references of this class.
+	 */
+	public PDOMBinding[] getDerivedClasses() throws CoreException {
+		List<PDOMBinding> result= new ArrayList<PDOMBinding>();
+		Set<Long> handled= new HashSet<Long>();
+		long rec= getFirstDerivedRec();
+		if (rec != 0) {
+			for (PDOMCPPBase base= new PDOMCPPBase(getLinkage(), rec); base != null; base= base.getNextDerived()) {
+				PDOMBinding derived= base.getDerivedClass();
+				if (derived != null && handled.add(derived.getRecord())) {
+					result.add(derived);
+				}
+			}
+		}
+		return result.toArray(new PDOMBinding[result.size()]);
+	}
+
 	public void addFriend(PDOMCPPFriend friend) throws CoreException {
 		PDOMCPPFriend firstFriend = getFirstFriend();
 		friend.setNextFriend(firstFriend);
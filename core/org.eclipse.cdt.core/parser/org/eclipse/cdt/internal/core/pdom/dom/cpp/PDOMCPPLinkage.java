@@ -822,6 +822,14 @@ class PDOMCPPLinkage extends PDOMLinkage implements IIndexCPPBindingConstants {
 		return null;
 	}
 
+	@Override
+	public PDOMBinding[] findDerivedClasses(PDOMBinding binding) throws CoreException {
+		if (binding instanceof PDOMCPPClassType) {
+			return ((PDOMCPPClassType) binding).getDerivedClasses();
+		}
+		return null;
+	}
+
 	@Override
 	public IBTreeComparator getIndexComparator() {
 		return new CPPFindBinding.CPPBindingBTreeComparator(this);
@@ -844,13 +852,13 @@ class PDOMCPPLinkage extends PDOMLinkage implements IIndexCPPBindingConstants {
 				PDOMBinding derivedClassBinding= derivedClassName.getBinding();
 				if (derivedClassBinding instanceof PDOMCPPClassType) {
 					PDOMCPPClassType ownerClass = (PDOMCPPClassType) derivedClassBinding;
-					PDOMCPPBase pdomBase = new PDOMCPPBase(this, pdomName, baseNode.isVirtual(),
+					PDOMCPPBase pdomBase = new PDOMCPPBase(this, pdomName, ownerClass, baseNode.isVirtual(),
 							baseNode.getVisibility());
 					ownerClass.addBase(pdomBase);
 					pdomName.setIsBaseSpecifier();
 				} else if (derivedClassBinding instanceof PDOMCPPClassSpecialization) {
 					PDOMCPPClassSpecialization ownerClass = (PDOMCPPClassSpecialization) derivedClassBinding;
-					PDOMCPPBase pdomBase = new PDOMCPPBase(this, pdomName, baseNode.isVirtual(),
+					PDOMCPPBase pdomBase = new PDOMCPPBase(this, pdomName, ownerClass, baseNode.isVirtual(),
 							baseNode.getVisibility());
 					ownerClass.addBase(pdomBase);
 					pdomName.setIsBaseSpecifier();
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.internal.core.pdom.indexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.model.ICModelMarker;
+import org.eclipse.cdt.internal.core.pdom.indexer.TodoTaskParser.Task;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Extracts the tasks from the comments of indexed files and updates their task markers in a
+ * system job, such that the indexer does not wait for the markers (bug 210730).
+ * <p>
+ * Requests for the same file are coalesced. The markers of a file are compared with its tasks,
+ * unchanged markers are kept, and the markers of several files are updated in a single
+ * workspace operation.
+ */
+final class TodoTaskMarkerJob extends Job {
+	private static final int FILES_PER_OPERATION = 100;
+	private static final String SOURCE_ID = "CDT"; //$NON-NLS-1$
+	private static final String[] TASK_MARKER_ATTRIBUTE_NAMES = {
+		IMarker.MESSAGE,
+		IMarker.PRIORITY,
+		IMarker.CHAR_START,
+		IMarker.CHAR_END,
+		IMarker.LINE_NUMBER,
+		IMarker.USER_EDITABLE,
+		IMarker.SOURCE_ID,
+	};
+
+	/**
+	 * A comment copied from the AST, such that the AST does not need to be kept.
+	 */
+	static final class Comment {
+		final char[] fComment;
+		final String fFileName;
+		final int fOffset;
+		final int fLineNumber;
+
+		Comment(char[] comment, String fileName, int offset, int lineNumber) {
+			fComment = comment;
+			fFileName = fileName;
+			fOffset = offset;
+			fLineNumber = lineNumber;
+		}
+	}
+
+	/**
+	 * Updates the task markers of a file, or removes all task markers of a resource if there
+	 * is no parser.
+	 */
+	private static final class Request {
+		final IResource fResource;
+		final TodoTaskParser fParser;
+		final List<Comment> fComments;
+
+		Request(IResource resource, TodoTaskParser parser, List<Comment> comments) {
+			fResource = resource;
+			fParser = parser;
+			fComments = comments;
+		}
+	}
+
+	private static TodoTaskMarkerJob sInstance;
+
+	private final Map<IResource, Request> fPending = new LinkedHashMap<IResource, Request>();
+
+	private TodoTaskMarkerJob() {
+		super(Messages.TodoTaskUpdater_UpdateJob);
+		setSystem(true);
+	}
+
+	static synchronized TodoTaskMarkerJob getInstance() {
+		if (sInstance == null) {
+			sInstance = new TodoTaskMarkerJob();
+		}
+		return sInstance;
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == TodoTaskUpdater.JOB_FAMILY;
+	}
+
+	/**
+	 * Replaces the task markers of the file with the tasks found in the given comments.
+	 */
+	void updateTasks(IFile file, TodoTaskParser parser, List<Comment> comments) {
+		add(new Request(file, parser, comments));
+	}
+
+	/**
+	 * Removes the task markers of the resource and of its members.
+	 */
+	void removeTasks(IResource resource) {
+		synchronized (fPending) {
+			// Pending updates of the members are obsolete
+			for (Iterator<IResource> it = fPending.keySet().iterator(); it.hasNext();) {
+				if (resource.getFullPath().isPrefixOf(it.next().getFullPath())) {
+					it.remove();
+				}
+			}
+		}
+		add(new Request(resource, null, null));
+	}
+
+	private void add(Request request) {
+		synchronized (fPending) {
+			// Move the request to the end of the queue
+			fPending.remove(request.fResource);
+			fPending.put(request.fResource, request);
+		}
+		schedule();
+	}
+
+	private List<Request> takeBatch() {
+		synchronized (fPending) {
+			List<Request> batch = new ArrayList<Request>(Math.min(fPending.size(), FILES_PER_OPERATION));
+			for (Iterator<Request> it = fPending.values().iterator(); it.hasNext() && batch.size() < FILES_PER_OPERATION;) {
+				batch.add(it.next());
+				it.remove();
+			}
+			return batch;
+		}
+	}
+
+	/**
+	 * Puts the requests of a batch back in front of the queue, unless they have been replaced
+	 * in the meantime.
+	 */
+	private void putBack(List<Request> batch) {
+		synchronized (fPending) {
+			Map<IResource, Request> pending = new LinkedHashMap<IResource, Request>();
+			for (Request request : batch) {
+				if (!fPending.containsKey(request.fResource)) {
+					pending.put(request.fResource, request);
+				}
+			}
+			pending.putAll(fPending);
+			fPending.clear();
+			fPending.putAll(pending);
+		}
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		final MultiStatus status = new MultiStatus(CCorePlugin.PLUGIN_ID, 0, Messages.TodoTaskUpdater_UpdateJob, null);
+		while (true) {
+			final List<Request> batch = takeBatch();
+			if (batch.isEmpty())
+				break;
+			if (monitor.isCanceled()) {
+				putBack(batch);
+				return Status.CANCEL_STATUS;
+			}
+
+			IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+				public void run(IProgressMonitor pm) {
+					for (Request request : batch) {
+						try {
+							if (request.fParser == null) {
+								removeMarkers(request.fResource);
+							} else {
+								updateMarkers((IFile) request.fResource, request.fParser, request.fComments);
+							}
+						} catch (CoreException e) {
+							if (request.fResource.exists()) {
+								status.add(e.getStatus());
+							}
+						}
+					}
+				}
+			};
+			try {
+				workspace.run(runnable, getRule(workspace, batch), IWorkspace.AVOID_UPDATE, null);
+			} catch (CoreException e) {
+				status.add(e.getStatus());
+			}
+		}
+		return status;
+	}
+
+	private static ISchedulingRule getRule(IWorkspace workspace, List<Request> batch) {
+		IResourceRuleFactory ruleFactory = workspace.getRuleFactory();
+		ISchedulingRule rule = null;
+		for (Request request : batch) {
+			rule = MultiRule.combine(rule, ruleFactory.markerRule(request.fResource));
+		}
+		return rule;
+	}
+
+	private static void removeMarkers(IResource resource) throws CoreException {
+		if (resource.exists()) {
+			resource.deleteMarkers(ICModelMarker.TASK_MARKER, false, IResource.DEPTH_INFINITE);
+		}
+	}
+
+	private static void updateMarkers(IFile file, TodoTaskParser parser, List<Comment> comments) throws CoreException {
+		if (!file.exists())
+			return;
+
+		List<Task> tasks = new ArrayList<Task>();
+		for (Comment comment : comments) {
+			parser.parse(comment.fComment, comment.fFileName, comment.fOffset, comment.fLineNumber, tasks);
+		}
+
+		// Keep the markers that are equal to a task
+		IMarker[] markers = file.findMarkers(ICModelMarker.TASK_MARKER, false, IResource.DEPTH_ZERO);
+		Map<List<Object>, List<IMarker>> existing = new HashMap<List<Object>, List<IMarker>>();
+		for (IMarker marker : markers) {
+			List<Object> key = Arrays.asList(marker.getAttributes(TASK_MARKER_ATTRIBUTE_NAMES));
+			List<IMarker> list = existing.get(key);
+			if (list == null) {
+				list = new ArrayList<IMarker>(1);
+				existing.put(key, list);
+			}
+			list.add(marker);
+		}
+		List<Object[]> toCreate = new ArrayList<Object[]>();
+		for (Task task : tasks) {
+			Object[] attributes = getAttributes(task);
+			List<IMarker> list = existing.get(Arrays.asList(attributes));
+			if (list != null && !list.isEmpty()) {
+				list.remove(list.size() - 1);
+			} else {
+				toCreate.add(attributes);
+			}
+		}
+
+		List<IMarker> toDelete = new ArrayList<IMarker>();
+		for (List<IMarker> list : existing.values()) {
+			toDelete.addAll(list);
+		}
+		if (!toDelete.isEmpty()) {
+			file.getWorkspace().deleteMarkers(toDelete.toArray(new IMarker[toDelete.size()]));
+		}
+		for (Object[] attributes : toCreate) {
+			IMarker marker = file.createMarker(ICModelMarker.TASK_MARKER);
+			marker.setAttributes(TASK_MARKER_ATTRIBUTE_NAMES, attributes);
+		}
+	}
+
+	private static Object[] getAttributes(Task task) {
+		String description = NLS.bind(Messages.TodoTaskUpdater_taskFormat, task.getTag(), task.getMessage());
+		return new Object[] {
+			description,
+			new Integer(task.getPriority()),
+			new Integer(task.getStart()),
+			new Integer(task.getEnd()),
+			new Integer(task.getLineNumber()),
+			Boolean.FALSE,
+			SOURCE_ID
+		};
+	}
+}
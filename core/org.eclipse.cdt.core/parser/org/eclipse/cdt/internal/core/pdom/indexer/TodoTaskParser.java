@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 Google, Inc and others.
+ * Copyright (c) 2007, 2011 Google, Inc and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -75,7 +75,7 @@ public class TodoTaskParser {
 		return tasks.toArray(new Task[tasks.size()]);
 	}
 	
-    private void parse(char[] comment, String filename, int offset, int lineNumber,
+    void parse(char[] comment, String filename, int offset, int lineNumber,
     		List<Task> tasks) {
         int commentLength = comment.length;
 
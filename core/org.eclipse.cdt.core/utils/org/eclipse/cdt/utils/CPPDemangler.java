@@ -0,0 +1,2721 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Demangler for symbol names that are mangled according to the Itanium C++ ABI, which is
+ * used by gcc 3.x and later. The result is formatted like the output of the c++filt tool
+ * of the GNU binutils, such that the demangler can be used instead of piping the symbols
+ * through an external process.
+ * <p>
+ * The demangled names are kept in a bounded cache, the default instance is shared by all
+ * binaries. Names that cannot be demangled (e.g. because they use constructs that are not
+ * supported) are reported as <code>null</code>, the caller may fall back to {@link CPPFilt}
+ * for those.
+ *
+ * @noextend This class is not intended to be subclassed by clients.
+ * @since 5.4
+ */
+public class CPPDemangler {
+	private static final int DEFAULT_CACHE_SIZE = 20000;
+	private static final CPPDemangler defaultInstance = new CPPDemangler(DEFAULT_CACHE_SIZE);
+
+	/** Marks names in the cache that cannot be demangled */
+	private static final String NOT_DEMANGLED = new String("<not demangled>"); //$NON-NLS-1$
+
+	private final Map<String, String> cache;
+
+	/**
+	 * Returns the shared instance of the demangler.
+	 */
+	public static CPPDemangler getDefault() {
+		return defaultInstance;
+	}
+
+	/**
+	 * Creates a demangler with its own cache.
+	 * @param cacheSize the maximum number of names kept in the cache.
+	 */
+	@SuppressWarnings("serial")
+	public CPPDemangler(final int cacheSize) {
+		cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns whether the symbol is a mangled name that is handled by this demangler.
+	 */
+	public static boolean isMangledName(String symbol) {
+		return symbol.startsWith("_Z") || isGlobalCtorDtorName(symbol); //$NON-NLS-1$
+	}
+
+	/**
+	 * Demangles a single symbol.
+	 * @return the demangled name or <code>null</code> if the symbol is not a mangled name or
+	 * cannot be demangled.
+	 */
+	public String demangle(String symbol) {
+		if (!isMangledName(symbol))
+			return null;
+
+		String result;
+		synchronized (cache) {
+			result = cache.get(symbol);
+		}
+		if (result == null) {
+			result = demangleName(symbol);
+			if (result == null) {
+				result = NOT_DEMANGLED;
+			}
+			synchronized (cache) {
+				cache.put(symbol, result);
+			}
+		}
+		return result == NOT_DEMANGLED ? null : result;
+	}
+
+	/**
+	 * Demangles a batch of symbols, e.g. the symbols of a binary.
+	 * @return an array with the demangled name of each of the symbols, or <code>null</code> for
+	 * the symbols that are not mangled names or cannot be demangled.
+	 */
+	public String[] demangle(String[] symbols) {
+		final String[] result = new String[symbols.length];
+		boolean missing = false;
+		synchronized (cache) {
+			for (int i = 0; i < symbols.length; i++) {
+				if (isMangledName(symbols[i])) {
+					result[i] = cache.get(symbols[i]);
+					missing |= result[i] == null;
+				}
+			}
+		}
+		if (missing) {
+			for (int i = 0; i < symbols.length; i++) {
+				if (result[i] == null && isMangledName(symbols[i])) {
+					String name = demangleName(symbols[i]);
+					result[i] = name != null ? name : NOT_DEMANGLED;
+				}
+			}
+			synchronized (cache) {
+				for (int i = 0; i < symbols.length; i++) {
+					if (result[i] != null) {
+						cache.put(symbols[i], result[i]);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < result.length; i++) {
+			if (result[i] == NOT_DEMANGLED) {
+				result[i] = null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all names from the cache.
+	 */
+	public void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private static boolean isGlobalCtorDtorName(String symbol) {
+		// _GLOBAL_[._$][DI]_<name>, as generated by old versions of gcc
+		return symbol.length() > 11 && symbol.startsWith("_GLOBAL_") //$NON-NLS-1$
+				&& "._$".indexOf(symbol.charAt(8)) >= 0  //$NON-NLS-1$
+				&& (symbol.charAt(9) == 'D' || symbol.charAt(9) == 'I') && symbol.charAt(10) == '_';
+	}
+
+	/**
+	 * Demangles a name without using the cache.
+	 * @return the demangled name or <code>null</code>.
+	 */
+	@SuppressWarnings("nls")
+	static String demangleName(String symbol) {
+		try {
+			if (isGlobalCtorDtorName(symbol)) {
+				String prefix= symbol.charAt(9) == 'I' ? "global constructors keyed to " : "global destructors keyed to ";
+				String name= symbol.substring(11);
+				if (name.startsWith("_Z")) {
+					name= demangleName(name);
+					if (name == null)
+						return null;
+				}
+				return prefix + name;
+			}
+			Parser parser= new Parser(symbol, 2);
+			Node node= parser.parseEncoding();
+			if (node == null)
+				return null;
+			while (parser.look() == '.' && isCloneSuffixStart(parser.look(1))) {
+				node= new CloneSuffix(node, parser.parseCloneSuffix());
+			}
+			if (!parser.atEnd())
+				return null;
+
+			Printer printer= new Printer(symbol.length() * 2);
+			node.print(printer);
+			return printer.toString();
+		} catch (AbortException e) {
+			return null;
+		} catch (StackOverflowError e) {
+			return null;
+		}
+	}
+
+	private static boolean isCloneSuffixStart(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * Thrown when the printed name gets unreasonably long or recursive.
+	 */
+	@SuppressWarnings("serial")
+	private static final class AbortException extends RuntimeException {
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+	private static final AbortException ABORT = new AbortException();
+
+	private static final int CV_CONST    = 0x1;
+	private static final int CV_VOLATILE = 0x2;
+	private static final int CV_RESTRICT = 0x4;
+
+	private static final int REF_NONE   = 0;
+	private static final int REF_LVALUE = 1;
+	private static final int REF_RVALUE = 2;
+
+	private static final Node[] NO_NODES = {};
+
+	/**
+	 * Accumulates the demangled name.
+	 */
+	private static final class Printer {
+		private static final int MAX_LENGTH = 0x10000;
+
+		final StringBuilder out;
+		/** Index of the element of a parameter pack that is currently printed, or -1 */
+		int packIndex = -1;
+		/** Number of elements of the parameter pack that is currently printed, or -1 */
+		int packMax = -1;
+
+		Printer(int capacity) {
+			out = new StringBuilder(capacity);
+		}
+
+		void append(String str) {
+			out.append(str);
+			if (out.length() > MAX_LENGTH)
+				throw ABORT;
+		}
+
+		void append(char c) {
+			out.append(c);
+		}
+
+		char last() {
+			final int length = out.length();
+			return length > 0 ? out.charAt(length - 1) : 0;
+		}
+
+		int length() {
+			return out.length();
+		}
+
+		void setLength(int length) {
+			out.setLength(length);
+		}
+
+		@Override
+		public String toString() {
+			return out.toString();
+		}
+
+		void printWithComma(Node[] nodes) {
+			boolean first = true;
+			for (Node node : nodes) {
+				final int beforeComma = out.length();
+				if (!first) {
+					append(", "); //$NON-NLS-1$
+				}
+				final int afterComma = out.length();
+				node.print(this);
+				if (out.length() == afterComma) {
+					// Empty parameter pack, remove the comma
+					out.setLength(beforeComma);
+				} else {
+					first = false;
+				}
+			}
+		}
+
+		void printQualifiers(int cv) {
+			if ((cv & CV_CONST) != 0)
+				append(" const"); //$NON-NLS-1$
+			if ((cv & CV_VOLATILE) != 0)
+				append(" volatile"); //$NON-NLS-1$
+			if ((cv & CV_RESTRICT) != 0)
+				append(" restrict"); //$NON-NLS-1$
+		}
+
+		void printRefQualifier(int ref) {
+			if (ref == REF_LVALUE) {
+				append(" &"); //$NON-NLS-1$
+			} else if (ref == REF_RVALUE) {
+				append(" &&"); //$NON-NLS-1$
+			}
+		}
+
+		/**
+		 * Prints an operand of an expression, with parenthesis unless it is a name.
+		 */
+		void printSubExpression(Node node) {
+			if (node.isSimpleExpression()) {
+				node.print(this);
+			} else {
+				append('(');
+				node.print(this);
+				append(')');
+			}
+		}
+	}
+
+	/**
+	 * A node of the syntax tree of a mangled name. Types are printed in two parts, the part
+	 * left of the declarator and the one to the right of it (e.g. <code>void (*</code> and
+	 * <code>)(int)</code> for a pointer to a function).
+	 */
+	private static abstract class Node {
+		abstract void printLeft(Printer p);
+
+		void printRight(Printer p) {
+		}
+
+		final void print(Printer p) {
+			printLeft(p);
+			printRight(p);
+		}
+
+		boolean hasRHSComponent(Printer p) {
+			return false;
+		}
+
+		boolean hasArray(Printer p) {
+			return false;
+		}
+
+		boolean hasFunction(Printer p) {
+			return false;
+		}
+
+		/**
+		 * Returns the node that is printed in place of this one, used for reference collapsing.
+		 */
+		Node getSyntaxNode(Printer p) {
+			return this;
+		}
+
+		/**
+		 * Returns the unqualified name of a class without template arguments, as needed for
+		 * constructors and destructors.
+		 */
+		String getBaseName() {
+			return null;
+		}
+
+		/**
+		 * Whether the node is printed without parenthesis when used as an operand.
+		 */
+		boolean isSimpleExpression() {
+			return false;
+		}
+	}
+
+	private static class NameNode extends Node {
+		final String name;
+
+		NameNode(String name) {
+			this.name = name;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.append(name);
+		}
+
+		@Override
+		String getBaseName() {
+			return name;
+		}
+
+		@Override
+		boolean isSimpleExpression() {
+			return true;
+		}
+	}
+
+	private static final class NestedName extends Node {
+		final Node qualifier;
+		final Node name;
+
+		NestedName(Node qualifier, Node name) {
+			this.qualifier = qualifier;
+			this.name = name;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			qualifier.print(p);
+			p.append("::"); //$NON-NLS-1$
+			name.print(p);
+		}
+
+		@Override
+		String getBaseName() {
+			// Constructors of unnamed types are named after the enclosing class
+			final String baseName = name.getBaseName();
+			return baseName != null ? baseName : qualifier.getBaseName();
+		}
+
+		@Override
+		boolean isSimpleExpression() {
+			return true;
+		}
+	}
+
+	private static final class UnnamedTypeName extends NameNode {
+		UnnamedTypeName(String name) {
+			super(name);
+		}
+
+		@Override
+		String getBaseName() {
+			return null;
+		}
+	}
+
+	private static final class LocalName extends Node {
+		final Node encoding;
+		final Node entity;
+
+		LocalName(Node encoding, Node entity) {
+			this.encoding = encoding;
+			this.entity = entity;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			encoding.print(p);
+			p.append("::"); //$NON-NLS-1$
+			entity.print(p);
+		}
+
+		@Override
+		String getBaseName() {
+			return entity.getBaseName();
+		}
+	}
+
+	private static final class NameWithTemplateArgs extends Node {
+		final Node name;
+		final Node args;
+
+		NameWithTemplateArgs(Node name, Node args) {
+			this.name = name;
+			this.args = args;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			name.print(p);
+			args.print(p);
+		}
+
+		@Override
+		String getBaseName() {
+			return name.getBaseName();
+		}
+	}
+
+	private static final class TemplateArgs extends Node {
+		final Node[] args;
+
+		TemplateArgs(Node[] args) {
+			this.args = args;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			// Avoid 'operator<<' and '>>'
+			if (p.last() == '<') {
+				p.append(' ');
+			}
+			p.append('<');
+			p.printWithComma(args);
+			if (p.last() == '>') {
+				p.append(' ');
+			}
+			p.append('>');
+		}
+	}
+
+	/**
+	 * One of the abbreviations for the standard library, c++filt always prints the expansion.
+	 */
+	private static final class SpecialSubstitution extends NameNode {
+		final String baseName;
+
+		SpecialSubstitution(String expansion, String baseName) {
+			super(expansion);
+			this.baseName = baseName;
+		}
+
+		@Override
+		String getBaseName() {
+			return baseName;
+		}
+	}
+
+	private static final class CtorDtorName extends Node {
+		final String baseName;
+		final boolean isDestructor;
+
+		CtorDtorName(String baseName, boolean isDestructor) {
+			this.baseName = baseName;
+			this.isDestructor = isDestructor;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			if (isDestructor) {
+				p.append('~');
+			}
+			p.append(baseName);
+		}
+
+		@Override
+		String getBaseName() {
+			return baseName;
+		}
+	}
+
+	private static final class ConversionOperator extends Node {
+		final Node type;
+
+		ConversionOperator(Node type) {
+			this.type = type;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.append("operator "); //$NON-NLS-1$
+			type.print(p);
+		}
+	}
+
+	private static final class SpecialName extends Node {
+		final String prefix;
+		final Node child;
+
+		SpecialName(String prefix, Node child) {
+			this.prefix = prefix;
+			this.child = child;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.append(prefix);
+			child.print(p);
+		}
+	}
+
+	private static final class CtorVtableName extends Node {
+		final Node type;
+		final Node base;
+
+		CtorVtableName(Node type, Node base) {
+			this.type = type;
+			this.base = base;
+		}
+
+		@SuppressWarnings("nls")
+		@Override
+		void printLeft(Printer p) {
+			p.append("construction vtable for ");
+			type.print(p);
+			p.append("-in-");
+			base.print(p);
+		}
+	}
+
+	private static final class ClosureTypeName extends Node {
+		final Node[] params;
+		final String count;
+
+		ClosureTypeName(Node[] params, String count) {
+			this.params = params;
+			this.count = count;
+		}
+
+		@SuppressWarnings("nls")
+		@Override
+		void printLeft(Printer p) {
+			p.append("{lambda(");
+			p.printWithComma(params);
+			p.append(")#");
+			p.append(count);
+			p.append('}');
+		}
+	}
+
+	private static final class AbiTagName extends Node {
+		final Node base;
+		final String tag;
+
+		AbiTagName(Node base, String tag) {
+			this.base = base;
+			this.tag = tag;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			base.printLeft(p);
+			p.append("[abi:"); //$NON-NLS-1$
+			p.append(tag);
+			p.append(']');
+		}
+
+		@Override
+		String getBaseName() {
+			return base.getBaseName();
+		}
+	}
+
+	private static final class CloneSuffix extends Node {
+		final Node encoding;
+		final String suffix;
+
+		CloneSuffix(Node encoding, String suffix) {
+			this.encoding = encoding;
+			this.suffix = suffix;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			encoding.print(p);
+			p.append(" [clone "); //$NON-NLS-1$
+			p.append(suffix);
+			p.append(']');
+		}
+	}
+
+	private static final class QualifiedType extends Node {
+		final Node child;
+		final int cv;
+
+		QualifiedType(Node child, int cv) {
+			this.child = child;
+			this.cv = cv;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			child.printLeft(p);
+			p.printQualifiers(cv);
+		}
+
+		@Override
+		void printRight(Printer p) {
+			child.printRight(p);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return child.hasRHSComponent(p);
+		}
+
+		@Override
+		boolean hasArray(Printer p) {
+			return child.hasArray(p);
+		}
+
+		@Override
+		boolean hasFunction(Printer p) {
+			return child.hasFunction(p);
+		}
+	}
+
+	/**
+	 * A type followed by a keyword, e.g. <code>double _Complex</code> or <code>int __vector(4)</code>.
+	 */
+	private static final class PostfixType extends Node {
+		final Node child;
+		final String postfix;
+
+		PostfixType(Node child, String postfix) {
+			this.child = child;
+			this.postfix = postfix;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			child.print(p);
+			p.append(postfix);
+		}
+	}
+
+	private static final class PointerType extends Node {
+		final Node pointee;
+
+		PointerType(Node pointee) {
+			this.pointee = pointee;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			pointee.printLeft(p);
+			if (pointee.hasArray(p)) {
+				p.append(' ');
+			}
+			if (pointee.hasArray(p) || pointee.hasFunction(p)) {
+				p.append('(');
+			}
+			p.append('*');
+		}
+
+		@Override
+		void printRight(Printer p) {
+			if (pointee.hasArray(p) || pointee.hasFunction(p)) {
+				p.append(')');
+			}
+			pointee.printRight(p);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return pointee.hasRHSComponent(p);
+		}
+	}
+
+	private static final class ReferenceType extends Node {
+		final Node pointee;
+		final int kind;
+
+		ReferenceType(Node pointee, int kind) {
+			this.pointee = pointee;
+			this.kind = kind;
+		}
+
+		/**
+		 * Collapses references to references (e.g. when substituting template arguments),
+		 * <code>&</code> wins over <code>&&</code>. Returns the referenced node and stores the
+		 * kind of the reference in the array.
+		 */
+		private Node collapse(Printer p, int[] kindHolder) {
+			int k = kind;
+			Node node = pointee;
+			for (int i = 0; i < 64; i++) {
+				Node syntax = node.getSyntaxNode(p);
+				if (!(syntax instanceof ReferenceType))
+					break;
+				ReferenceType ref = (ReferenceType) syntax;
+				node = ref.pointee;
+				k = Math.min(k, ref.kind);
+			}
+			kindHolder[0] = k;
+			return node;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			int[] k = new int[1];
+			Node node = collapse(p, k);
+			node.printLeft(p);
+			if (node.hasArray(p)) {
+				p.append(' ');
+			}
+			if (node.hasArray(p) || node.hasFunction(p)) {
+				p.append('(');
+			}
+			p.append(k[0] == REF_LVALUE ? "&" : "&&"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		@Override
+		void printRight(Printer p) {
+			Node node = collapse(p, new int[1]);
+			if (node.hasArray(p) || node.hasFunction(p)) {
+				p.append(')');
+			}
+			node.printRight(p);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return pointee.hasRHSComponent(p);
+		}
+	}
+
+	private static final class PointerToMemberType extends Node {
+		final Node classType;
+		final Node memberType;
+
+		PointerToMemberType(Node classType, Node memberType) {
+			this.classType = classType;
+			this.memberType = memberType;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			memberType.printLeft(p);
+			if (memberType.hasArray(p) || memberType.hasFunction(p)) {
+				p.append('(');
+			} else {
+				p.append(' ');
+			}
+			classType.print(p);
+			p.append("::*"); //$NON-NLS-1$
+		}
+
+		@Override
+		void printRight(Printer p) {
+			if (memberType.hasArray(p) || memberType.hasFunction(p)) {
+				p.append(')');
+			}
+			memberType.printRight(p);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return memberType.hasRHSComponent(p);
+		}
+	}
+
+	private static final class ArrayType extends Node {
+		final Node base;
+		final Node dimension;
+
+		ArrayType(Node base, Node dimension) {
+			this.base = base;
+			this.dimension = dimension;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			base.printLeft(p);
+		}
+
+		@Override
+		void printRight(Printer p) {
+			if (p.last() != ']') {
+				p.append(' ');
+			}
+			p.append('[');
+			if (dimension != null) {
+				dimension.print(p);
+			}
+			p.append(']');
+			base.printRight(p);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return true;
+		}
+
+		@Override
+		boolean hasArray(Printer p) {
+			return true;
+		}
+	}
+
+	private static final class FunctionType extends Node {
+		final Node returnType;
+		final Node[] params;
+		final int cv;
+		final int ref;
+
+		FunctionType(Node returnType, Node[] params, int cv, int ref) {
+			this.returnType = returnType;
+			this.params = params;
+			this.cv = cv;
+			this.ref = ref;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			returnType.printLeft(p);
+			if (!returnType.hasRHSComponent(p)) {
+				p.append(' ');
+			}
+		}
+
+		@Override
+		void printRight(Printer p) {
+			p.append('(');
+			p.printWithComma(params);
+			p.append(')');
+			returnType.printRight(p);
+			p.printQualifiers(cv);
+			p.printRefQualifier(ref);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return true;
+		}
+
+		@Override
+		boolean hasFunction(Printer p) {
+			return true;
+		}
+	}
+
+	private static final class FunctionEncoding extends Node {
+		final Node returnType;
+		final Node name;
+		final Node[] params;
+		final int cv;
+		final int ref;
+
+		FunctionEncoding(Node returnType, Node name, Node[] params, int cv, int ref) {
+			this.returnType = returnType;
+			this.name = name;
+			this.params = params;
+			this.cv = cv;
+			this.ref = ref;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			if (returnType != null) {
+				returnType.printLeft(p);
+				if (!returnType.hasRHSComponent(p)) {
+					p.append(' ');
+				}
+			}
+			name.print(p);
+		}
+
+		@Override
+		void printRight(Printer p) {
+			p.append('(');
+			p.printWithComma(params);
+			p.append(')');
+			if (returnType != null) {
+				returnType.printRight(p);
+			}
+			p.printQualifiers(cv);
+			p.printRefQualifier(ref);
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			return true;
+		}
+
+		@Override
+		boolean hasFunction(Printer p) {
+			return true;
+		}
+	}
+
+	private static final class DecltypeType extends Node {
+		final Node expression;
+
+		DecltypeType(Node expression) {
+			this.expression = expression;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.append("decltype ("); //$NON-NLS-1$
+			expression.print(p);
+			p.append(')');
+		}
+	}
+
+	/**
+	 * A template argument pack as it appears in the template arguments of a name.
+	 */
+	private static final class TemplateArgumentPack extends Node {
+		final Node[] elements;
+
+		TemplateArgumentPack(Node[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.printWithComma(elements);
+		}
+	}
+
+	/**
+	 * A reference to a template argument pack, prints the element selected by the enclosing
+	 * pack expansion.
+	 */
+	private static final class ParameterPack extends Node {
+		final Node[] elements;
+
+		ParameterPack(Node[] elements) {
+			this.elements = elements;
+		}
+
+		private Node current(Printer p) {
+			if (p.packMax == -1) {
+				p.packMax = elements.length;
+				p.packIndex = 0;
+			}
+			return p.packIndex >= 0 && p.packIndex < elements.length ? elements[p.packIndex] : null;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			Node node = current(p);
+			if (node != null) {
+				node.printLeft(p);
+			}
+		}
+
+		@Override
+		void printRight(Printer p) {
+			Node node = current(p);
+			if (node != null) {
+				node.printRight(p);
+			}
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			Node node = current(p);
+			return node != null && node.hasRHSComponent(p);
+		}
+
+		@Override
+		boolean hasArray(Printer p) {
+			Node node = current(p);
+			return node != null && node.hasArray(p);
+		}
+
+		@Override
+		boolean hasFunction(Printer p) {
+			Node node = current(p);
+			return node != null && node.hasFunction(p);
+		}
+
+		@Override
+		Node getSyntaxNode(Printer p) {
+			Node node = current(p);
+			return node != null ? node.getSyntaxNode(p) : this;
+		}
+	}
+
+	private static final class PackExpansion extends Node {
+		final Node child;
+
+		PackExpansion(Node child) {
+			this.child = child;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			final int savedIndex = p.packIndex;
+			final int savedMax = p.packMax;
+			try {
+				p.packIndex = -1;
+				p.packMax = -1;
+				final int start = p.length();
+				child.print(p);
+				if (p.packMax == -1) {
+					// The pattern does not refer to a template argument pack.
+					p.setLength(start);
+					p.printSubExpression(child);
+					p.append("..."); //$NON-NLS-1$
+				} else if (p.packMax == 0) {
+					p.setLength(start);
+				} else {
+					for (int i = 1; i < p.packMax; i++) {
+						p.append(", "); //$NON-NLS-1$
+						p.packIndex = i;
+						child.print(p);
+					}
+				}
+			} finally {
+				p.packIndex = savedIndex;
+				p.packMax = savedMax;
+			}
+		}
+	}
+
+	/**
+	 * Template parameter of a conversion operator that refers to template arguments that
+	 * follow in the mangled name.
+	 */
+	private static final class ForwardTemplateReference extends Node {
+		final int index;
+		Node ref;
+		private boolean printing;
+
+		ForwardTemplateReference(int index) {
+			this.index = index;
+		}
+
+		private Node enter() {
+			if (printing || ref == null)
+				throw ABORT;
+			printing = true;
+			return ref;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			Node node = enter();
+			try {
+				node.printLeft(p);
+			} finally {
+				printing = false;
+			}
+		}
+
+		@Override
+		void printRight(Printer p) {
+			Node node = enter();
+			try {
+				node.printRight(p);
+			} finally {
+				printing = false;
+			}
+		}
+
+		@Override
+		boolean hasRHSComponent(Printer p) {
+			Node node = enter();
+			try {
+				return node.hasRHSComponent(p);
+			} finally {
+				printing = false;
+			}
+		}
+
+		@Override
+		boolean hasArray(Printer p) {
+			Node node = enter();
+			try {
+				return node.hasArray(p);
+			} finally {
+				printing = false;
+			}
+		}
+
+		@Override
+		boolean hasFunction(Printer p) {
+			Node node = enter();
+			try {
+				return node.hasFunction(p);
+			} finally {
+				printing = false;
+			}
+		}
+
+		@Override
+		Node getSyntaxNode(Printer p) {
+			Node node = enter();
+			try {
+				return node.getSyntaxNode(p);
+			} finally {
+				printing = false;
+			}
+		}
+	}
+
+	/**
+	 * A template parameter used in an expression, it is printed as the template argument.
+	 */
+	private static final class TemplateParamExpression extends Node {
+		final Node arg;
+
+		TemplateParamExpression(Node arg) {
+			this.arg = arg;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			arg.print(p);
+		}
+	}
+
+	private static final class FunctionParam extends Node {
+		final String number;
+
+		FunctionParam(String number) {
+			this.number = number;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.append("{parm#"); //$NON-NLS-1$
+			p.append(number);
+			p.append('}');
+		}
+
+		@Override
+		boolean isSimpleExpression() {
+			return true;
+		}
+	}
+
+	private static final class Literal extends Node {
+		final Node type;
+		final String value;
+		final boolean negative;
+
+		Literal(Node type, String value, boolean negative) {
+			this.type = type;
+			this.value = value;
+			this.negative = negative;
+		}
+
+		@SuppressWarnings("nls")
+		@Override
+		void printLeft(Printer p) {
+			if (type instanceof BuiltinType) {
+				final char code = ((BuiltinType) type).code;
+				final String suffix = BuiltinType.getLiteralSuffix(code);
+				if (suffix != null) {
+					if (negative) {
+						p.append('-');
+					}
+					p.append(value);
+					p.append(suffix);
+					return;
+				}
+				if (code == 'b' && !negative) {
+					if (value.equals("0")) {
+						p.append("false");
+						return;
+					}
+					if (value.equals("1")) {
+						p.append("true");
+						return;
+					}
+				}
+			}
+			p.append('(');
+			type.print(p);
+			p.append(')');
+			if (negative) {
+				p.append('-');
+			}
+			final boolean isFloat = type instanceof BuiltinType && BuiltinType.isFloat(((BuiltinType) type).code);
+			if (isFloat) {
+				p.append('[');
+			}
+			p.append(value);
+			if (isFloat) {
+				p.append(']');
+			}
+		}
+	}
+
+	private static final class BinaryExpression extends Node {
+		final Node left;
+		final String operator;
+		final Node right;
+
+		BinaryExpression(Node left, String operator, Node right) {
+			this.left = left;
+			this.operator = operator;
+			this.right = right;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			// Avoid confusion with the end of template arguments
+			final boolean isGreater = operator.equals(">"); //$NON-NLS-1$
+			if (isGreater) {
+				p.append('(');
+			}
+			p.printSubExpression(left);
+			if (operator.equals("[]")) { //$NON-NLS-1$
+				p.append('[');
+				right.print(p);
+				p.append(']');
+			} else {
+				p.append(operator);
+				p.printSubExpression(right);
+			}
+			if (isGreater) {
+				p.append(')');
+			}
+		}
+	}
+
+	private static final class PrefixExpression extends Node {
+		final String operator;
+		final Node operand;
+		final boolean isType;
+
+		PrefixExpression(String operator, Node operand, boolean isType) {
+			this.operator = operator;
+			this.operand = operand;
+			this.isType = isType;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.append(operator);
+			if (isType) {
+				p.append('(');
+				operand.print(p);
+				p.append(')');
+			} else {
+				p.printSubExpression(operand);
+			}
+		}
+	}
+
+	private static final class ConditionalExpression extends Node {
+		final Node condition;
+		final Node positive;
+		final Node negative;
+
+		ConditionalExpression(Node condition, Node positive, Node negative) {
+			this.condition = condition;
+			this.positive = positive;
+			this.negative = negative;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.printSubExpression(condition);
+			p.append('?');
+			p.printSubExpression(positive);
+			p.append(" : "); //$NON-NLS-1$
+			p.printSubExpression(negative);
+		}
+	}
+
+	private static final class CallExpression extends Node {
+		final Node callee;
+		final Node[] args;
+
+		CallExpression(Node callee, Node[] args) {
+			this.callee = callee;
+			this.args = args;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			p.printSubExpression(callee);
+			p.append('(');
+			p.printWithComma(args);
+			p.append(')');
+		}
+	}
+
+	private static final class CastExpression extends Node {
+		/** The name of the cast, or <code>null</code> for a C-style cast */
+		final String cast;
+		final Node type;
+		final Node operand;
+
+		CastExpression(String cast, Node type, Node operand) {
+			this.cast = cast;
+			this.type = type;
+			this.operand = operand;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			if (cast == null) {
+				p.append('(');
+				type.print(p);
+				p.append(')');
+				p.printSubExpression(operand);
+			} else {
+				p.append(cast);
+				p.append('<');
+				type.print(p);
+				p.append(">("); //$NON-NLS-1$
+				operand.print(p);
+				p.append(')');
+			}
+		}
+	}
+
+	private static final class BuiltinType extends NameNode {
+		final char code;
+
+		BuiltinType(char code, String name) {
+			super(name);
+			this.code = code;
+		}
+
+		@Override
+		boolean isSimpleExpression() {
+			return false;
+		}
+
+		@SuppressWarnings("nls")
+		static String getLiteralSuffix(char code) {
+			switch (code) {
+			case 'i': return "";
+			case 'j': return "u";
+			case 'l': return "l";
+			case 'm': return "ul";
+			case 'x': return "ll";
+			case 'y': return "ull";
+			}
+			return null;
+		}
+
+		static boolean isFloat(char code) {
+			return code == 'f' || code == 'd' || code == 'e' || code == 'g';
+		}
+	}
+
+	private static final BuiltinType[] BUILTIN_TYPES = new BuiltinType[26];
+	private static final BuiltinType[] BUILTIN_D_TYPES = new BuiltinType[26];
+	@SuppressWarnings("nls")
+	private static final String[] BUILTIN_TYPE_NAMES = {
+		"v", "void", "w", "wchar_t", "b", "bool", "c", "char", "a", "signed char",
+		"h", "unsigned char", "s", "short", "t", "unsigned short", "i", "int", "j", "unsigned int",
+		"l", "long", "m", "unsigned long", "x", "long long", "y", "unsigned long long",
+		"n", "__int128", "o", "unsigned __int128", "f", "float", "d", "double", "e", "long double",
+		"g", "__float128", "z", "...",
+	};
+	@SuppressWarnings("nls")
+	private static final String[] BUILTIN_D_TYPE_NAMES = {
+		"d", "decimal64", "e", "decimal128", "f", "decimal32", "h", "half", "i", "char32_t",
+		"s", "char16_t", "u", "char8_t", "a", "auto", "c", "decltype(auto)", "n", "decltype(nullptr)",
+	};
+	static {
+		for (int i = 0; i < BUILTIN_TYPE_NAMES.length; i+= 2) {
+			char c = BUILTIN_TYPE_NAMES[i].charAt(0);
+			BUILTIN_TYPES[c - 'a'] = new BuiltinType(c, BUILTIN_TYPE_NAMES[i + 1]);
+		}
+		for (int i = 0; i < BUILTIN_D_TYPE_NAMES.length; i+= 2) {
+			char c = BUILTIN_D_TYPE_NAMES[i].charAt(0);
+			BUILTIN_D_TYPES[c - 'a'] = new BuiltinType((char) 0, BUILTIN_D_TYPE_NAMES[i + 1]);
+		}
+	}
+
+	@SuppressWarnings("nls")
+	private static final SpecialSubstitution[] SPECIAL_SUBSTITUTIONS = {
+		new SpecialSubstitution("std::allocator", "allocator"),
+		new SpecialSubstitution("std::basic_string", "basic_string"),
+		new SpecialSubstitution("std::basic_string<char, std::char_traits<char>, std::allocator<char> >", "basic_string"),
+		new SpecialSubstitution("std::basic_istream<char, std::char_traits<char> >", "basic_istream"),
+		new SpecialSubstitution("std::basic_ostream<char, std::char_traits<char> >", "basic_ostream"),
+		new SpecialSubstitution("std::basic_iostream<char, std::char_traits<char> >", "basic_iostream"),
+	};
+	private static final String SPECIAL_SUBSTITUTION_CODES = "absiod"; //$NON-NLS-1$
+
+	private static final NameNode STD = new NameNode("std"); //$NON-NLS-1$
+
+	private static final class Operator {
+		final String name;
+		final int arity;
+
+		Operator(String name, int arity) {
+			this.name = name;
+			this.arity = arity;
+		}
+	}
+
+	private static final Map<String, Operator> OPERATORS = new HashMap<String, Operator>();
+	@SuppressWarnings("nls")
+	private static final String[] OPERATOR_TABLE = {
+		"aN", "&=", "2",  "aS", "=", "2",  "aa", "&&", "2",  "ad", "&", "1",  "an", "&", "2",
+		"at", "alignof ", "1",  "az", "alignof ", "1",  "cc", "const_cast", "2",
+		"cl", "()", "2",  "cm", ",", "2",  "co", "~", "1",  "dV", "/=", "2",
+		"da", "delete[] ", "1",  "dc", "dynamic_cast", "2",  "de", "*", "1",  "dl", "delete ", "1",
+		"ds", ".*", "2",  "dt", ".", "2",  "dv", "/", "2",  "eO", "^=", "2",  "eo", "^", "2",
+		"eq", "==", "2",  "ge", ">=", "2",  "gt", ">", "2",  "ix", "[]", "2",  "lS", "<<=", "2",
+		"le", "<=", "2",  "ls", "<<", "2",  "lt", "<", "2",  "mI", "-=", "2",  "mL", "*=", "2",
+		"mi", "-", "2",  "ml", "*", "2",  "mm", "--", "1",  "na", "new[]", "3",  "ne", "!=", "2",
+		"ng", "-", "1",  "nt", "!", "1",  "nw", "new", "3",  "oR", "|=", "2",  "oo", "||", "2",
+		"or", "|", "2",  "pL", "+=", "2",  "pl", "+", "2",  "pm", "->*", "2",  "pp", "++", "1",
+		"ps", "+", "1",  "pt", "->", "2",  "qu", "?", "3",  "rM", "%=", "2",  "rS", ">>=", "2",
+		"rc", "reinterpret_cast", "2",  "rm", "%", "2",  "rs", ">>", "2",  "sc", "static_cast", "2",
+		"ss", "<=>", "2",  "st", "sizeof ", "1",  "sz", "sizeof ", "1",
+	};
+	static {
+		for (int i = 0; i < OPERATOR_TABLE.length; i+= 3) {
+			OPERATORS.put(OPERATOR_TABLE[i], new Operator(OPERATOR_TABLE[i + 1], OPERATOR_TABLE[i + 2].charAt(0) - '0'));
+		}
+	}
+
+	/**
+	 * Information about the name of an encoding that is needed to parse the rest of it.
+	 */
+	private static final class NameState {
+		int cv;
+		int ref;
+		boolean endsWithTemplateArgs;
+		boolean isCtorDtorConversion;
+		final int forwardRefsBegin;
+
+		NameState(int forwardRefsBegin) {
+			this.forwardRefsBegin = forwardRefsBegin;
+		}
+	}
+
+	/**
+	 * Recursive descent parser for the grammar of the Itanium C++ ABI, creates the tree of
+	 * nodes for a mangled name.
+	 */
+	private static final class Parser {
+		private static final int MAX_DEPTH = 256;
+
+		private final String str;
+		private final int end;
+		private int pos;
+		private int depth;
+
+		private final ArrayList<Node> substitutions = new ArrayList<Node>();
+		private ArrayList<Node> templateParams = new ArrayList<Node>();
+		private final ArrayList<ForwardTemplateReference> forwardRefs = new ArrayList<ForwardTemplateReference>();
+		private boolean permitForwardRefs;
+		private boolean tryToParseTemplateArgs = true;
+		private boolean parsingLambdaParams;
+		/**
+		 * Substitutions from this index on may contain the template parameters of a generic lambda,
+		 * which are printed differently outside of the lambda. References to them are not supported.
+		 */
+		private int lambdaAutoSubstitutions = Integer.MAX_VALUE;
+
+		Parser(String str, int pos) {
+			this.str = str;
+			this.end = str.length();
+			this.pos = pos;
+		}
+
+		char look() {
+			return pos < end ? str.charAt(pos) : 0;
+		}
+
+		char look(int offset) {
+			return pos + offset < end ? str.charAt(pos + offset) : 0;
+		}
+
+		boolean atEnd() {
+			return pos >= end;
+		}
+
+		private boolean consume(char c) {
+			if (pos < end && str.charAt(pos) == c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private boolean consume(String prefix) {
+			if (str.startsWith(prefix, pos)) {
+				pos+= prefix.length();
+				return true;
+			}
+			return false;
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+
+		/**
+		 * Parses a non-negative decimal number, returns -1 if there is none.
+		 */
+		private int parseNumber() {
+			if (!isDigit(look()))
+				return -1;
+			int value = 0;
+			while (isDigit(look())) {
+				value = value * 10 + (str.charAt(pos++) - '0');
+				if (value > 0xffffff)
+					return -1;
+			}
+			return value;
+		}
+
+		/**
+		 * Parses a decimal number with an optional 'n' for negative numbers, returns the digits
+		 * (without the sign) or <code>null</code>.
+		 */
+		private String parseNumberString(boolean allowNegative) {
+			if (allowNegative) {
+				consume('n');
+			}
+			final int start = pos;
+			while (isDigit(look())) {
+				pos++;
+			}
+			return pos > start ? str.substring(start, pos) : null;
+		}
+
+		/**
+		 * Parses an optional number used for numbering entities, where the first one has no number
+		 * and the second one has number 0. Returns the ordinal of the entity starting with 1, or
+		 * <code>null</code> if the number is too large.
+		 */
+		private String parseOrdinal() {
+			if (!isDigit(look()))
+				return "1"; //$NON-NLS-1$
+			final int number = parseNumber();
+			return number >= 0 ? String.valueOf(number + 2) : null;
+		}
+
+		/**
+		 * Parses a base 36 sequence id followed by an underscore, as used for substitutions.
+		 * Returns -1 if there is none.
+		 */
+		private int parseSequenceID() {
+			int value = 0;
+			final int start = pos;
+			while (true) {
+				char c = look();
+				if (isDigit(c)) {
+					value = value * 36 + (c - '0');
+				} else if (c >= 'A' && c <= 'Z') {
+					value = value * 36 + (c - 'A' + 10);
+				} else {
+					break;
+				}
+				if (value > 0xffffff)
+					return -1;
+				pos++;
+			}
+			return pos > start ? value : -1;
+		}
+
+		private int parseCVQualifiers() {
+			int cv = 0;
+			if (consume('r'))
+				cv |= CV_RESTRICT;
+			if (consume('V'))
+				cv |= CV_VOLATILE;
+			if (consume('K'))
+				cv |= CV_CONST;
+			return cv;
+		}
+
+		private void parseDiscriminator() {
+			if (look() == '_') {
+				if (isDigit(look(1))) {
+					pos+= 2;
+				} else if (look(1) == '_') {
+					int p = pos + 2;
+					while (p < end && isDigit(str.charAt(p))) {
+						p++;
+					}
+					if (p < end && str.charAt(p) == '_') {
+						pos = p + 1;
+					}
+				}
+			}
+		}
+
+		String parseCloneSuffix() {
+			final int start = pos;
+			pos++;
+			while (isCloneSuffixStart(look())) {
+				pos++;
+			}
+			while (look() == '.' && isDigit(look(1))) {
+				pos+= 2;
+				while (isDigit(look())) {
+					pos++;
+				}
+			}
+			return str.substring(start, pos);
+		}
+
+		/*
+		 * <encoding> ::= <name> <bare-function-type>
+		 *            ::= <name>
+		 *            ::= <special-name>
+		 */
+		Node parseEncoding() {
+			if (++depth > MAX_DEPTH)
+				return null;
+			try {
+				final char c = look();
+				if (c == 'G' || (c == 'T' && look(1) != '_' && !isDigit(look(1))))
+					return parseSpecialName();
+
+				NameState state = new NameState(forwardRefs.size());
+				Node name = parseName(state);
+				if (name == null || !resolveForwardReferences(state))
+					return null;
+
+				final char next = look();
+				if (next == 0 || next == 'E' || next == '.')
+					return name;
+
+				Node returnType = null;
+				if (!state.isCtorDtorConversion && state.endsWithTemplateArgs) {
+					returnType = parseType();
+					if (returnType == null)
+						return null;
+				}
+				Node[] params = NO_NODES;
+				if (!consume('v')) {
+					ArrayList<Node> list = new ArrayList<Node>();
+					do {
+						Node param = parseType();
+						if (param == null)
+							return null;
+						list.add(param);
+					} while (look() != 0 && look() != 'E' && look() != '.');
+					params = list.toArray(new Node[list.size()]);
+				}
+				return new FunctionEncoding(returnType, name, params, state.cv, state.ref);
+			} finally {
+				depth--;
+			}
+		}
+
+		private boolean resolveForwardReferences(NameState state) {
+			for (int i = state.forwardRefsBegin; i < forwardRefs.size(); i++) {
+				ForwardTemplateReference ref = forwardRefs.get(i);
+				if (ref.index >= templateParams.size())
+					return false;
+				ref.ref = templateParams.get(ref.index);
+			}
+			while (forwardRefs.size() > state.forwardRefsBegin) {
+				forwardRefs.remove(forwardRefs.size() - 1);
+			}
+			return true;
+		}
+
+		/*
+		 * <special-name> ::= TV <type> | TT <type> | TI <type> | TS <type>
+		 *                ::= Th <call-offset> <encoding> | Tv <call-offset> <encoding>
+		 *                ::= Tc <call-offset> <call-offset> <encoding>
+		 *                ::= TC <type> <number> _ <type>
+		 *                ::= TW <name> | TH <name>
+		 *                ::= GV <name> | GR <name> [<number>]
+		 *                ::= GA <encoding> | GTt <encoding> | GTn <encoding>
+		 */
+		@SuppressWarnings("nls")
+		private Node parseSpecialName() {
+			final char c = look(1);
+			if (consume('T')) {
+				pos++;
+				switch (c) {
+				case 'V':
+					return specialName("vtable for ", parseType());
+				case 'T':
+					return specialName("VTT for ", parseType());
+				case 'I':
+					return specialName("typeinfo for ", parseType());
+				case 'S':
+					return specialName("typeinfo name for ", parseType());
+				case 'h':
+					if (!parseCallOffset('h'))
+						return null;
+					return specialName("non-virtual thunk to ", parseEncoding());
+				case 'v':
+					if (!parseCallOffset('v'))
+						return null;
+					return specialName("virtual thunk to ", parseEncoding());
+				case 'c':
+					if (!parseCallOffset() || !parseCallOffset())
+						return null;
+					return specialName("covariant return thunk to ", parseEncoding());
+				case 'C': {
+					Node base = parseType();
+					if (base == null || parseNumberString(true) == null || !consume('_'))
+						return null;
+					Node type = parseType();
+					if (type == null)
+						return null;
+					return new CtorVtableName(type, base);
+				}
+				case 'W':
+					return specialName("TLS wrapper function for ", parseName(null));
+				case 'H':
+					return specialName("TLS init function for ", parseName(null));
+				}
+				return null;
+			}
+			if (consume('G')) {
+				pos++;
+				switch (c) {
+				case 'V':
+					return specialName("guard variable for ", parseName(null));
+				case 'R': {
+					Node name = parseName(null);
+					if (name == null)
+						return null;
+					String number = parseNumberString(true);
+					return specialName("reference temporary #" + (number != null ? number : "0") + " for ", name);
+				}
+				case 'A':
+					return specialName("hidden alias for ", parseEncoding());
+				case 'T':
+					if (consume('t'))
+						return specialName("transaction clone for ", parseEncoding());
+					if (consume('n'))
+						return specialName("non-transaction clone for ", parseEncoding());
+					return null;
+				}
+			}
+			return null;
+		}
+
+		private static Node specialName(String prefix, Node child) {
+			return child != null ? new SpecialName(prefix, child) : null;
+		}
+
+		/*
+		 * <call-offset> ::= h <nv-offset> _
+		 *               ::= v <v-offset> _
+		 */
+		private boolean parseCallOffset() {
+			final char c = look();
+			if (c != 'h' && c != 'v')
+				return false;
+			pos++;
+			return parseCallOffset(c);
+		}
+
+		private boolean parseCallOffset(char kind) {
+			if (parseNumberString(true) == null || !consume('_'))
+				return false;
+			if (kind == 'v') {
+				return parseNumberString(true) != null && consume('_');
+			}
+			return true;
+		}
+
+		/*
+		 * <name> ::= <nested-name>
+		 *        ::= <local-name>
+		 *        ::= <unscoped-template-name> <template-args>
+		 *        ::= <unscoped-name>
+		 */
+		private Node parseName(NameState state) {
+			final char c = look();
+			if (c == 'N')
+				return parseNestedName(state);
+			if (c == 'Z')
+				return parseLocalName(state);
+
+			boolean isSubstitution = false;
+			Node result;
+			if (c == 'S' && look(1) != 't') {
+				result = parseSubstitution();
+				isSubstitution = true;
+			} else {
+				result = parseUnscopedName(state);
+			}
+			if (result == null)
+				return null;
+
+			if (look() == 'I') {
+				if (!isSubstitution) {
+					substitutions.add(result);
+				}
+				Node args = parseTemplateArgs(state != null);
+				if (args == null)
+					return null;
+				if (state != null) {
+					state.endsWithTemplateArgs = true;
+				}
+				return new NameWithTemplateArgs(result, args);
+			}
+			if (isSubstitution)
+				return null;
+			return result;
+		}
+
+		/*
+		 * <unscoped-name> ::= <unqualified-name>
+		 *                 ::= St <unqualified-name>   # ::std::
+		 */
+		private Node parseUnscopedName(NameState state) {
+			Node scope = null;
+			if (consume("St")) { //$NON-NLS-1$
+				scope = STD;
+			}
+			return parseUnqualifiedName(state, scope);
+		}
+
+		/*
+		 * <nested-name> ::= N [<CV-qualifiers>] [<ref-qualifier>] <prefix> <unqualified-name> E
+		 *               ::= N [<CV-qualifiers>] [<ref-qualifier>] <template-prefix> <template-args> E
+		 */
+		private Node parseNestedName(NameState state) {
+			if (!consume('N'))
+				return null;
+			final int cv = parseCVQualifiers();
+			int ref = REF_NONE;
+			if (consume('O')) {
+				ref = REF_RVALUE;
+			} else if (consume('R')) {
+				ref = REF_LVALUE;
+			}
+			if (state != null) {
+				state.cv = cv;
+				state.ref = ref;
+			}
+
+			Node soFar = null;
+			while (!consume('E')) {
+				if (state != null) {
+					state.endsWithTemplateArgs = false;
+				}
+				final char c = look();
+				if (c == 'T') {
+					if (soFar != null)
+						return null;
+					soFar = parseTemplateParam();
+				} else if (c == 'I') {
+					if (soFar == null || soFar instanceof NameWithTemplateArgs)
+						return null;
+					Node args = parseTemplateArgs(state != null);
+					if (args == null)
+						return null;
+					soFar = new NameWithTemplateArgs(soFar, args);
+					if (state != null) {
+						state.endsWithTemplateArgs = true;
+					}
+				} else if (c == 'D' && (look(1) == 't' || look(1) == 'T')) {
+					if (soFar != null)
+						return null;
+					soFar = parseDecltype();
+				} else if (c == 'S') {
+					Node substitution;
+					if (look(1) == 't') {
+						pos+= 2;
+						substitution = STD;
+					} else {
+						substitution = parseSubstitution();
+					}
+					if (substitution == null || soFar != null)
+						return null;
+					soFar = substitution;
+					continue;
+				} else if (c == 0) {
+					return null;
+				} else {
+					soFar = parseUnqualifiedName(state, soFar);
+				}
+				if (soFar == null)
+					return null;
+				substitutions.add(soFar);
+				consume('M');
+			}
+			if (soFar == null || substitutions.isEmpty())
+				return null;
+			// The complete name is not a substitution candidate
+			substitutions.remove(substitutions.size() - 1);
+			return soFar;
+		}
+
+		/*
+		 * <local-name> ::= Z <function encoding> E <entity name> [<discriminator>]
+		 *              ::= Z <function encoding> E s [<discriminator>]
+		 *              ::= Z <function encoding> E d [<parameter number>] _ <entity name>
+		 */
+		@SuppressWarnings("nls")
+		private Node parseLocalName(NameState state) {
+			if (!consume('Z'))
+				return null;
+			Node encoding = parseEncoding();
+			if (encoding == null || !consume('E'))
+				return null;
+			if (encoding instanceof FunctionEncoding) {
+				// c++filt omits the return type of the enclosing function
+				FunctionEncoding function = (FunctionEncoding) encoding;
+				encoding = new FunctionEncoding(null, function.name, function.params, function.cv, function.ref);
+			}
+
+			if (consume('s')) {
+				parseDiscriminator();
+				return new LocalName(encoding, new NameNode("string literal"));
+			}
+			if (consume('d')) {
+				String number = parseOrdinal();
+				if (number == null || !consume('_'))
+					return null;
+				Node entity = parseName(state);
+				if (entity == null)
+					return null;
+				return new LocalName(encoding, new NestedName(new NameNode("{default arg#" + number + "}"), entity));
+			}
+			Node entity = parseName(state);
+			if (entity == null)
+				return null;
+			parseDiscriminator();
+			return new LocalName(encoding, entity);
+		}
+
+		/*
+		 * <unqualified-name> ::= <operator-name> [<abi-tags>]
+		 *                    ::= <ctor-dtor-name>
+		 *                    ::= <source-name> [<abi-tags>]
+		 *                    ::= <unnamed-type-name>
+		 *                    ::= L <source-name> [<discriminator>]
+		 */
+		private Node parseUnqualifiedName(NameState state, Node scope) {
+			Node result;
+			final char c = look();
+			if (isDigit(c)) {
+				result = parseSourceName();
+			} else if (c == 'U') {
+				result = parseUnnamedTypeName();
+			} else if (c == 'C' || (c == 'D' && isDigit(look(1)))) {
+				if (scope == null)
+					return null;
+				result = parseCtorDtorName(state, scope);
+			} else if (c == 'L') {
+				pos++;
+				result = parseSourceName();
+				if (result != null) {
+					parseDiscriminator();
+				}
+			} else if (c >= 'a' && c <= 'z') {
+				result = parseOperatorName(state);
+			} else {
+				return null;
+			}
+			if (result == null)
+				return null;
+
+			while (consume('B')) {
+				String tag = parseSourceNameString();
+				if (tag == null)
+					return null;
+				result = new AbiTagName(result, tag);
+			}
+			return scope != null ? new NestedName(scope, result) : result;
+		}
+
+		private String parseSourceNameString() {
+			final int length = parseNumber();
+			if (length <= 0 || pos + length > end)
+				return null;
+			final String name = str.substring(pos, pos + length);
+			pos+= length;
+			return name;
+		}
+
+		/*
+		 * <source-name> ::= <positive length number> <identifier>
+		 */
+		@SuppressWarnings("nls")
+		private Node parseSourceName() {
+			final String name = parseSourceNameString();
+			if (name == null)
+				return null;
+			// _GLOBAL_[._$]N is used for anonymous namespaces
+			if (name.length() >= 10 && name.startsWith("_GLOBAL_") && "._$".indexOf(name.charAt(8)) >= 0
+					&& name.charAt(9) == 'N') {
+				return new NameNode("(anonymous namespace)");
+			}
+			return new NameNode(name);
+		}
+
+		/*
+		 * <ctor-dtor-name> ::= C1 | C2 | C3 | C4 | C5
+		 *                  ::= D0 | D1 | D2 | D4 | D5
+		 */
+		private Node parseCtorDtorName(NameState state, Node scope) {
+			final boolean isDestructor = look() == 'D';
+			final char kind = look(1);
+			if (kind < '0' || kind > '5' || (kind == '0' && !isDestructor) || (kind == '3' && isDestructor))
+				return null;
+			pos+= 2;
+			final String baseName = scope.getBaseName();
+			if (baseName == null)
+				return null;
+			if (state != null) {
+				state.isCtorDtorConversion = true;
+			}
+			return new CtorDtorName(baseName, isDestructor);
+		}
+
+		/*
+		 * <unnamed-type-name> ::= Ut [<nonnegative number>] _
+		 *                     ::= Ul <lambda-sig> E [<nonnegative number>] _
+		 */
+		@SuppressWarnings("nls")
+		private Node parseUnnamedTypeName() {
+			if (consume("Ut")) {
+				String number = parseOrdinal();
+				if (number == null || !consume('_'))
+					return null;
+				return new UnnamedTypeName("{unnamed type#" + number + "}");
+			}
+			if (!consume("Ul"))
+				return null;
+
+			// The template parameters of a generic lambda are printed as 'auto'.
+			final ArrayList<Node> savedParams = templateParams;
+			final boolean savedParsingLambdaParams = parsingLambdaParams;
+			templateParams = new ArrayList<Node>();
+			parsingLambdaParams = true;
+			final Node[] params;
+			try {
+				if (consume('v')) {
+					params = NO_NODES;
+				} else {
+					ArrayList<Node> list = new ArrayList<Node>();
+					while (look() != 'E') {
+						Node param = parseType();
+						if (param == null)
+							return null;
+						list.add(param);
+					}
+					params = list.toArray(new Node[list.size()]);
+				}
+			} finally {
+				templateParams = savedParams;
+				parsingLambdaParams = savedParsingLambdaParams;
+			}
+			if (!consume('E'))
+				return null;
+			String number = parseOrdinal();
+			if (number == null || !consume('_'))
+				return null;
+			return new ClosureTypeName(params, number);
+		}
+
+		/*
+		 * <operator-name> ::= <two character code>
+		 *                 ::= cv <type>         # conversion operator
+		 *                 ::= li <source-name>  # literal operator
+		 */
+		@SuppressWarnings("nls")
+		private Node parseOperatorName(NameState state) {
+			if (consume("cv")) {
+				final boolean savedTryToParseTemplateArgs = tryToParseTemplateArgs;
+				final boolean savedPermitForwardRefs = permitForwardRefs;
+				tryToParseTemplateArgs = false;
+				permitForwardRefs = permitForwardRefs || state != null;
+				Node type;
+				try {
+					type = parseType();
+				} finally {
+					tryToParseTemplateArgs = savedTryToParseTemplateArgs;
+					permitForwardRefs = savedPermitForwardRefs;
+				}
+				if (type == null)
+					return null;
+				if (state != null) {
+					state.isCtorDtorConversion = true;
+				}
+				return new ConversionOperator(type);
+			}
+			if (consume("li")) {
+				String name = parseSourceNameString();
+				return name != null ? new NameNode("operator\"\" " + name) : null;
+			}
+			if (pos + 2 > end)
+				return null;
+			Operator op = OPERATORS.get(str.substring(pos, pos + 2));
+			if (op == null)
+				return null;
+			pos+= 2;
+			String name = op.name.trim();
+			return new NameNode(Character.isLowerCase(name.charAt(0)) ? "operator " + name : "operator" + name);
+		}
+
+		/*
+		 * <substitution> ::= S_ | S <seq-id> _
+		 *                ::= Sa | Sb | Ss | Si | So | Sd
+		 */
+		private Node parseSubstitution() {
+			if (!consume('S'))
+				return null;
+			final char c = look();
+			if (c >= 'a' && c <= 'z') {
+				int kind = SPECIAL_SUBSTITUTION_CODES.indexOf(c);
+				if (kind < 0)
+					return null;
+				pos++;
+				return SPECIAL_SUBSTITUTIONS[kind];
+			}
+			int index = 0;
+			if (!consume('_')) {
+				int id = parseSequenceID();
+				if (id < 0 || !consume('_'))
+					return null;
+				index = id + 1;
+			}
+			if (index >= substitutions.size() || index >= lambdaAutoSubstitutions)
+				return null;
+			return substitutions.get(index);
+		}
+
+		/*
+		 * <template-param> ::= T_ | T <parameter-2 non-negative number> _
+		 */
+		@SuppressWarnings("nls")
+		private Node parseTemplateParam() {
+			if (!consume('T'))
+				return null;
+			int index = 0;
+			if (!consume('_')) {
+				int number = parseNumber();
+				if (number < 0 || !consume('_'))
+					return null;
+				index = number + 1;
+			}
+			if (parsingLambdaParams && index >= templateParams.size()) {
+				lambdaAutoSubstitutions = Math.min(lambdaAutoSubstitutions, substitutions.size());
+				return new NameNode("auto:" + (index + 1));
+			}
+			if (permitForwardRefs) {
+				ForwardTemplateReference ref = new ForwardTemplateReference(index);
+				forwardRefs.add(ref);
+				return ref;
+			}
+			if (index >= templateParams.size())
+				return null;
+			return templateParams.get(index);
+		}
+
+		/*
+		 * <template-args> ::= I <template-arg>+ E
+		 */
+		private Node parseTemplateArgs(boolean tagTemplates) {
+			if (!consume('I'))
+				return null;
+
+			// Template parameters refer to the innermost template arguments of the encoding
+			ArrayList<Node> table = null;
+			if (tagTemplates) {
+				table = new ArrayList<Node>();
+				templateParams = table;
+			}
+			// Inside of template arguments a template parameter may be followed by its arguments
+			final boolean savedTryToParseTemplateArgs = tryToParseTemplateArgs;
+			tryToParseTemplateArgs = true;
+			try {
+				return parseTemplateArgs(tagTemplates, table);
+			} finally {
+				tryToParseTemplateArgs = savedTryToParseTemplateArgs;
+			}
+		}
+
+		private Node parseTemplateArgs(boolean tagTemplates, ArrayList<Node> table) {
+			ArrayList<Node> args = new ArrayList<Node>();
+			while (!consume('E')) {
+				Node arg;
+				if (tagTemplates) {
+					templateParams = new ArrayList<Node>();
+					arg = parseTemplateArg();
+					templateParams = table;
+					if (arg == null)
+						return null;
+					if (arg instanceof TemplateArgumentPack) {
+						table.add(new ParameterPack(((TemplateArgumentPack) arg).elements));
+					} else {
+						table.add(arg);
+					}
+				} else {
+					arg = parseTemplateArg();
+					if (arg == null)
+						return null;
+				}
+				args.add(arg);
+			}
+			return new TemplateArgs(args.toArray(new Node[args.size()]));
+		}
+
+		/*
+		 * <template-arg> ::= <type>
+		 *                ::= X <expression> E
+		 *                ::= <expr-primary>
+		 *                ::= J <template-arg>* E  # argument pack
+		 */
+		private Node parseTemplateArg() {
+			switch (look()) {
+			case 'X': {
+				pos++;
+				Node expr = parseExpression();
+				if (expr == null || !consume('E'))
+					return null;
+				return expr;
+			}
+			case 'J': {
+				pos++;
+				ArrayList<Node> args = new ArrayList<Node>();
+				while (!consume('E')) {
+					Node arg = parseTemplateArg();
+					if (arg == null)
+						return null;
+					args.add(arg);
+				}
+				return new TemplateArgumentPack(args.toArray(new Node[args.size()]));
+			}
+			case 'L':
+				return parseExprPrimary();
+			case 0:
+				return null;
+			}
+			return parseType();
+		}
+
+		/*
+		 * <type> ::= <builtin-type> | <qualified-type> | <function-type> | <class-enum-type>
+		 *        ::= <array-type> | <pointer-to-member-type> | <template-param>
+		 *        ::= <template-template-param> <template-args> | <decltype> | <substitution>
+		 *        ::= P <type> | R <type> | O <type> | C <type> | G <type> | Dp <type>
+		 */
+		private Node parseType() {
+			if (++depth > MAX_DEPTH)
+				return null;
+			try {
+				final boolean isBuiltin = isBuiltinType();
+				Node result = parseTypeNoSubstitution();
+				if (result != null && !isBuiltin && !(result instanceof SubstitutionResult)) {
+					substitutions.add(result);
+				}
+				return result instanceof SubstitutionResult ? ((SubstitutionResult) result).node : result;
+			} finally {
+				depth--;
+			}
+		}
+
+		/**
+		 * Whether the type at the current position is a builtin type, these are not candidates
+		 * for substitutions.
+		 */
+		private boolean isBuiltinType() {
+			final char c = look();
+			if (c >= 'a' && c <= 'z')
+				return BUILTIN_TYPES[c - 'a'] != null;
+			if (c == 'D') {
+				final char d = look(1);
+				return d >= 'a' && d <= 'z' && BUILTIN_D_TYPES[d - 'a'] != null;
+			}
+			return false;
+		}
+
+		@SuppressWarnings("nls")
+		private Node parseTypeNoSubstitution() {
+			final char c = look();
+			switch (c) {
+			case 'r':
+			case 'V':
+			case 'K': {
+				int p = pos;
+				while (p < end && "rVK".indexOf(str.charAt(p)) >= 0) {
+					p++;
+				}
+				final boolean isFunction = p < end && str.charAt(p) == 'F';
+				final int cv = parseCVQualifiers();
+				if (isFunction)
+					return parseFunctionType(cv);
+				Node child = parseType();
+				return child != null ? new QualifiedType(child, cv) : null;
+			}
+			case 'F':
+				return parseFunctionType(0);
+			case 'A':
+				return parseArrayType();
+			case 'M': {
+				pos++;
+				Node classType = parseType();
+				if (classType == null)
+					return null;
+				Node memberType = parseType();
+				return memberType != null ? new PointerToMemberType(classType, memberType) : null;
+			}
+			case 'T': {
+				if (look(1) == 's' || look(1) == 'u' || look(1) == 'e')
+					return null;
+				Node param = parseTemplateParam();
+				if (param == null)
+					return null;
+				if (tryToParseTemplateArgs && look() == 'I') {
+					substitutions.add(param);
+					Node args = parseTemplateArgs(false);
+					if (args == null)
+						return null;
+					return new NameWithTemplateArgs(param, args);
+				}
+				return param;
+			}
+			case 'P': {
+				pos++;
+				Node pointee = parseType();
+				return pointee != null ? new PointerType(pointee) : null;
+			}
+			case 'R': {
+				pos++;
+				Node pointee = parseType();
+				return pointee != null ? new ReferenceType(pointee, REF_LVALUE) : null;
+			}
+			case 'O': {
+				pos++;
+				Node pointee = parseType();
+				return pointee != null ? new ReferenceType(pointee, REF_RVALUE) : null;
+			}
+			case 'C': {
+				pos++;
+				Node child = parseType();
+				return child != null ? new PostfixType(child, " _Complex") : null;
+			}
+			case 'G': {
+				pos++;
+				Node child = parseType();
+				return child != null ? new PostfixType(child, " _Imaginary") : null;
+			}
+			case 'S': {
+				if (look(1) == 't')
+					return parseName(null);
+				final boolean isAbbreviation = look(1) >= 'a' && look(1) <= 'z';
+				Node substitution = parseSubstitution();
+				if (substitution == null)
+					return null;
+				if ((tryToParseTemplateArgs || isAbbreviation) && look() == 'I') {
+					Node args = parseTemplateArgs(false);
+					if (args == null)
+						return null;
+					return new NameWithTemplateArgs(substitution, args);
+				}
+				// A substitution is not a candidate again
+				return new SubstitutionResult(substitution);
+			}
+			case 'D': {
+				final char d = look(1);
+				switch (d) {
+				case 'p': {
+					pos+= 2;
+					Node child = parseType();
+					return child != null ? new PackExpansion(child) : null;
+				}
+				case 't':
+				case 'T':
+					return parseDecltype();
+				case 'v': {
+					pos+= 2;
+					String dimension = parseNumberString(false);
+					if (dimension == null || !consume('_'))
+						return null;
+					Node element = parseType();
+					return element != null ? new PostfixType(element, " __vector(" + dimension + ")") : null;
+				}
+				}
+				if (d >= 'a' && d <= 'z' && BUILTIN_D_TYPES[d - 'a'] != null) {
+					pos+= 2;
+					return BUILTIN_D_TYPES[d - 'a'];
+				}
+				return null;
+			}
+			case 'u': {
+				pos++;
+				return parseSourceName();
+			}
+			case 'N':
+			case 'Z':
+				return parseName(null);
+			}
+			if (isDigit(c))
+				return parseName(null);
+			if (c >= 'a' && c <= 'z' && BUILTIN_TYPES[c - 'a'] != null) {
+				pos++;
+				return BUILTIN_TYPES[c - 'a'];
+			}
+			return null;
+		}
+
+		/*
+		 * <function-type> ::= [<CV-qualifiers>] F [Y] <bare-function-type> [<ref-qualifier>] E
+		 */
+		private Node parseFunctionType(int cv) {
+			if (!consume('F'))
+				return null;
+			consume('Y');
+			Node returnType = parseType();
+			if (returnType == null)
+				return null;
+			ArrayList<Node> params = new ArrayList<Node>();
+			int ref = REF_NONE;
+			while (true) {
+				if (consume('E'))
+					break;
+				if (consume('v'))
+					continue;
+				if (consume("RE")) { //$NON-NLS-1$
+					ref = REF_LVALUE;
+					break;
+				}
+				if (consume("OE")) { //$NON-NLS-1$
+					ref = REF_RVALUE;
+					break;
+				}
+				Node param = parseType();
+				if (param == null)
+					return null;
+				params.add(param);
+			}
+			return new FunctionType(returnType, params.toArray(new Node[params.size()]), cv, ref);
+		}
+
+		/*
+		 * <array-type> ::= A <positive dimension number> _ <element type>
+		 *              ::= A [<dimension expression>] _ <element type>
+		 */
+		private Node parseArrayType() {
+			if (!consume('A'))
+				return null;
+			Node dimension = null;
+			if (isDigit(look())) {
+				dimension = new NameNode(parseNumberString(false));
+				if (!consume('_'))
+					return null;
+			} else if (!consume('_')) {
+				dimension = parseExpression();
+				if (dimension == null || !consume('_'))
+					return null;
+			}
+			Node element = parseType();
+			return element != null ? new ArrayType(element, dimension) : null;
+		}
+
+		/*
+		 * <decltype> ::= Dt <expression> E
+		 *            ::= DT <expression> E
+		 */
+		private Node parseDecltype() {
+			if (!consume('D') || !(consume('t') || consume('T')))
+				return null;
+			Node expr = parseExpression();
+			if (expr == null || !consume('E'))
+				return null;
+			return new DecltypeType(expr);
+		}
+
+		/*
+		 * <expr-primary> ::= L <type> <value number> E
+		 *                ::= L <type> <value float> E
+		 *                ::= L <mangled-name> E
+		 */
+		private Node parseExprPrimary() {
+			if (!consume('L'))
+				return null;
+			if (look() == '_' || look() == 'Z') {
+				consume('_');
+				if (!consume('Z'))
+					return null;
+				Node encoding = parseEncoding();
+				if (encoding == null || !consume('E'))
+					return null;
+				// Like c++filt, refer to an external function by its name only
+				if (encoding instanceof FunctionEncoding)
+					return ((FunctionEncoding) encoding).name;
+				return encoding;
+			}
+			Node type = parseType();
+			if (type == null)
+				return null;
+			final boolean negative = consume('n');
+			final int start = pos;
+			while (look() != 'E') {
+				if (atEnd())
+					return null;
+				pos++;
+			}
+			final String value = str.substring(start, pos);
+			pos++;
+			return new Literal(type, value, negative);
+		}
+
+		/*
+		 * <expression> ::= <unary operator-name> <expression>
+		 *              ::= <binary operator-name> <expression> <expression>
+		 *              ::= <ternary operator-name> <expression> <expression> <expression>
+		 *              ::= cl <expression>+ E
+		 *              ::= cv <type> <expression>
+		 *              ::= dc|sc|cc|rc <type> <expression>
+		 *              ::= st <type> | at <type>
+		 *              ::= dt|pt <expression> <unresolved-name>
+		 *              ::= sr <type> <unqualified-name> [<template-args>]
+		 *              ::= <template-param> | <function-param> | <expr-primary>
+		 *              ::= <source-name> [<template-args>]
+		 * Other kinds of expressions are not supported.
+		 */
+		@SuppressWarnings("nls")
+		private Node parseExpression() {
+			if (++depth > MAX_DEPTH)
+				return null;
+			try {
+				final char c = look();
+				if (c == 'L')
+					return parseExprPrimary();
+				if (c == 'T') {
+					Node param = parseTemplateParam();
+					return param != null ? new TemplateParamExpression(param) : null;
+				}
+				if (isDigit(c)) {
+					Node name = parseSourceName();
+					if (name != null && look() == 'I') {
+						Node args = parseTemplateArgs(false);
+						return args != null ? new NameWithTemplateArgs(name, args) : null;
+					}
+					return name;
+				}
+				if (pos + 2 > end)
+					return null;
+				final String code = str.substring(pos, pos + 2);
+				pos+= 2;
+				if (code.equals("fp")) {
+					if (consume('T'))
+						return new NameNode("this");
+					parseCVQualifiers();
+					String number = parseOrdinal();
+					if (number == null || !consume('_'))
+						return null;
+					return new FunctionParam(number);
+				}
+				if (code.equals("sr")) {
+					if (look() == 'N')
+						return null;
+					Node type = parseType();
+					if (type == null)
+						return null;
+					Node name = parseUnqualifiedName(null, null);
+					if (name == null)
+						return null;
+					Node result = new NestedName(type, name);
+					if (look() == 'I') {
+						Node args = parseTemplateArgs(false);
+						return args != null ? new NameWithTemplateArgs(result, args) : null;
+					}
+					return result;
+				}
+				if (code.equals("cl")) {
+					Node callee = parseExpression();
+					if (callee == null)
+						return null;
+					ArrayList<Node> args = new ArrayList<Node>();
+					while (!consume('E')) {
+						Node arg = parseExpression();
+						if (arg == null)
+							return null;
+						args.add(arg);
+					}
+					return new CallExpression(callee, args.toArray(new Node[args.size()]));
+				}
+				if (code.equals("cv")) {
+					Node type = parseType();
+					if (type == null || look() == '_')
+						return null;
+					Node operand = parseExpression();
+					return operand != null ? new CastExpression(null, type, operand) : null;
+				}
+				if (code.equals("st") || code.equals("at")) {
+					Node type = parseType();
+					return type != null ? new PrefixExpression(OPERATORS.get(code).name, type, true) : null;
+				}
+				if (code.equals("dc") || code.equals("sc") || code.equals("cc") || code.equals("rc")) {
+					Node type = parseType();
+					if (type == null)
+						return null;
+					Node operand = parseExpression();
+					return operand != null ? new CastExpression(OPERATORS.get(code).name, type, operand) : null;
+				}
+				if (code.equals("dt") || code.equals("pt")) {
+					Node object = parseExpression();
+					if (object == null)
+						return null;
+					Node member = parseMemberName();
+					return member != null ? new BinaryExpression(object, OPERATORS.get(code).name, member) : null;
+				}
+				if (code.equals("nw") || code.equals("na") || code.equals("dl") || code.equals("da")
+						|| code.equals("pp") || code.equals("mm"))
+					return null;
+
+				Operator op = OPERATORS.get(code);
+				if (op == null)
+					return null;
+				switch (op.arity) {
+				case 1: {
+					Node operand = parseExpression();
+					return operand != null ? new PrefixExpression(op.name, operand, false) : null;
+				}
+				case 2: {
+					Node left = parseExpression();
+					if (left == null)
+						return null;
+					Node right = parseExpression();
+					return right != null ? new BinaryExpression(left, op.name, right) : null;
+				}
+				case 3: {
+					Node condition = parseExpression();
+					if (condition == null)
+						return null;
+					Node positive = parseExpression();
+					if (positive == null)
+						return null;
+					Node negative = parseExpression();
+					return negative != null ? new ConditionalExpression(condition, positive, negative) : null;
+				}
+				}
+				return null;
+			} finally {
+				depth--;
+			}
+		}
+
+		/**
+		 * Parses the name of a member in a member access expression.
+		 */
+		private Node parseMemberName() {
+			if (!isDigit(look()))
+				return null;
+			Node name = parseSourceName();
+			if (name != null && look() == 'I') {
+				Node args = parseTemplateArgs(false);
+				return args != null ? new NameWithTemplateArgs(name, args) : null;
+			}
+			return name;
+		}
+	}
+
+	/**
+	 * Wraps the result of a substitution in a type, such that it is not added as a candidate
+	 * for substitutions a second time.
+	 */
+	private static final class SubstitutionResult extends Node {
+		final Node node;
+
+		SubstitutionResult(Node node) {
+			this.node = node;
+		}
+
+		@Override
+		void printLeft(Printer p) {
+			node.printLeft(p);
+		}
+	}
+}
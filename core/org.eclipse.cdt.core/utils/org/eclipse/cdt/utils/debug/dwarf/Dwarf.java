@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.cdt.utils.debug.dwarf;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -40,6 +41,7 @@ public class Dwarf {
 	final static String DWARF_EH_FRAME = ".eh_frame"; //$NON-NLS-1$
 	final static String DWARF_DEBUG_LOC = ".debug_loc"; //$NON-NLS-1$
 	final static String DWARF_DEBUG_PUBNAMES = ".debug_pubnames"; //$NON-NLS-1$
+	final static String DWARF_DEBUG_PUBTYPES = ".debug_pubtypes"; //$NON-NLS-1$
 	final static String DWARF_DEBUG_STR = ".debug_str"; //$NON-NLS-1$
 	final static String DWARF_DEBUG_FUNCNAMES = ".debug_funcnames"; //$NON-NLS-1$
 	final static String DWARF_DEBUG_TYPENAMES = ".debug_typenames"; //$NON-NLS-1$
@@ -56,6 +58,7 @@ public class Dwarf {
 			DWARF_EH_FRAME,
 			DWARF_DEBUG_LOC,
 			DWARF_DEBUG_PUBNAMES,
+			DWARF_DEBUG_PUBTYPES,
 			DWARF_DEBUG_STR,
 			DWARF_DEBUG_FUNCNAMES,
 			DWARF_DEBUG_TYPENAMES,
@@ -63,11 +66,15 @@ public class Dwarf {
 			DWARF_DEBUG_WEAKNAMES,
 			DWARF_DEBUG_MACINFO };
 
+	static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
 	class CompilationUnitHeader {
 		int length;
 		short version;
 		int abbreviationOffset;
 		byte addressSize;
+		/** The size of section offsets, 8 for the 64-bit DWARF format */
+		int offsetSize = 4;
 		@Override
 		public String toString() {
 			StringBuffer sb = new StringBuffer();
@@ -169,6 +176,9 @@ public class Dwarf {
 	CompileUnit currentCU;
 
 	boolean printEnabled = true;
+
+	private DwarfLineTable lineTable;
+	private DwarfIndex index;
 	
 	public Dwarf(String file) throws IOException {
 		Elf exe = new Elf(file);
@@ -273,28 +283,49 @@ public class Dwarf {
 		}
 	}
 
-	// FIXME:This is wrong, for unsigned.
 	long read_8_bytes(byte[] bytes) throws IndexOutOfBoundsException {
 
 		if (isLE) {
-			return (((bytes[7] & 0xff) << 56)
-				| ((bytes[6] & 0xff) << 48)
-				| ((bytes[5] & 0xff) << 40)
-				| ((bytes[4] & 0xff) << 32)
-				| ((bytes[3] & 0xff) << 24)
-				| ((bytes[2] & 0xff) << 16)
-				| ((bytes[1] & 0xff) << 8)
-				| (bytes[0] & 0xff));
+			return (((bytes[7] & 0xffL) << 56)
+				| ((bytes[6] & 0xffL) << 48)
+				| ((bytes[5] & 0xffL) << 40)
+				| ((bytes[4] & 0xffL) << 32)
+				| ((bytes[3] & 0xffL) << 24)
+				| ((bytes[2] & 0xffL) << 16)
+				| ((bytes[1] & 0xffL) << 8)
+				| (bytes[0] & 0xffL));
 		}
 
-		return (((bytes[0] & 0xff) << 56)
-			| ((bytes[1] & 0xff) << 48)
-			| ((bytes[2] & 0xff) << 40)
-			| ((bytes[3] & 0xff) << 32)
-			| ((bytes[4] & 0xff) << 24)
-			| ((bytes[5] & 0xff) << 16)
-			| ((bytes[6] & 0xff) << 8)
-			| (bytes[7] & 0xff));
+		return (((bytes[0] & 0xffL) << 56)
+			| ((bytes[1] & 0xffL) << 48)
+			| ((bytes[2] & 0xffL) << 40)
+			| ((bytes[3] & 0xffL) << 32)
+			| ((bytes[4] & 0xffL) << 24)
+			| ((bytes[5] & 0xffL) << 16)
+			| ((bytes[6] & 0xffL) << 8)
+			| (bytes[7] & 0xffL));
+	}
+
+	/**
+	 * Reads an offset into another section, its size depends on the DWARF format of the
+	 * compilation unit.
+	 */
+	long readOffset(ByteBuffer in, CompilationUnitHeader header) throws IOException {
+		return header.offsetSize == 8 ? read_8_bytes(in) : read_4_bytes(in) & 0xffffffffL;
+	}
+
+	/**
+	 * Reads a null terminated string at the position of the buffer, decoding it as UTF-8.
+	 */
+	String readString(ByteBuffer in) {
+		int end = in.position();
+		while (end < in.limit() && in.get(end) != 0) {
+			end++;
+		}
+		ByteBuffer bytes = in.duplicate();
+		bytes.limit(end);
+		in.position(Math.min(end + 1, in.limit()));
+		return UTF_8.decode(bytes).toString();
 	}
 
 	short read_2_bytes(ByteBuffer in) throws IOException {
@@ -396,6 +427,100 @@ public class Dwarf {
 		}
 	}
 
+	/**
+	 * Returns the table mapping addresses to source lines, it is decoded from the
+	 * <code>.debug_line</code> and <code>.debug_aranges</code> sections on the first call.
+	 * @since 5.4
+	 */
+	public synchronized DwarfLineTable getLineTable() throws IOException {
+		if (lineTable == null) {
+			lineTable = DwarfLineTable.decode(this);
+		}
+		return lineTable;
+	}
+
+	/**
+	 * Returns the index for looking up the debugging information entries by name or address,
+	 * it is created on the first call. Other than the line table, the index references the
+	 * sections of the binary.
+	 * @noreference This method is not intended to be referenced by clients.
+	 * @since 5.4
+	 */
+	public synchronized DwarfIndex getIndex() throws IOException {
+		if (index == null) {
+			index = DwarfIndex.create(this);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the compilation unit entries of the .debug_info section without parsing their
+	 * children. Only the name, the compilation directory and the offset of the line table
+	 * are read.
+	 * @return the compilation units by their offset in the .debug_info section.
+	 */
+	Map<Integer, CompileUnit> readCompileUnits() throws IOException {
+		Map<Integer, CompileUnit> result = new HashMap<Integer, CompileUnit>();
+		ByteBuffer data = dwarfSections.get(DWARF_DEBUG_INFO);
+		if (data == null)
+			return result;
+
+		// Don't disturb the position of the section buffer used by parse().
+		ByteBuffer in = data.duplicate();
+		in.position(0);
+		while (in.remaining() > 11) {
+			int offset = in.position();
+			CompilationUnitHeader header = new CompilationUnitHeader();
+			long length = read_4_bytes(in) & 0xffffffffL;
+			if (length == 0xffffffffL) {
+				// 64-bit DWARF format
+				length = read_8_bytes(in);
+				header.offsetSize = 8;
+			}
+			long next = in.position() + length;
+			if (length <= 0 || next > in.limit())
+				break;
+			header.length = (int) length;
+			header.version = read_2_bytes(in);
+			if (header.version < 2 || header.version > 4) {
+				// The header of other versions has a different layout, skip the unit.
+				in.position((int) next);
+				continue;
+			}
+			header.abbreviationOffset = (int) readOffset(in, header);
+			header.addressSize = in.get();
+
+			Map<Long, AbbreviationEntry> abbrevs = parseDebugAbbreviation(header);
+			AbbreviationEntry entry = abbrevs.get(new Long(read_unsigned_leb128(in)));
+			if (entry != null && entry.tag == DwarfConstants.DW_TAG_compile_unit) {
+				CompileUnit cu = new CompileUnit();
+				cu.stmtList = -1;
+				for (Attribute attr : entry.attributes) {
+					Object value = readAttribute((int) attr.form, in, header);
+					switch ((int) attr.name) {
+						case DwarfConstants.DW_AT_name:
+							if (value instanceof String)
+								cu.name = (String) value;
+							break;
+						case DwarfConstants.DW_AT_comp_dir:
+							if (value instanceof String)
+								cu.compDir = (String) value;
+							break;
+						case DwarfConstants.DW_AT_stmt_list:
+							if (value instanceof Number)
+								cu.stmtList = ((Number) value).intValue();
+							break;
+						default:
+							break;
+					}
+				}
+				result.put(offset, cu);
+			}
+			in.position((int) next);
+		}
+		return result;
+	}
+
 	Map<Long, AbbreviationEntry> parseDebugAbbreviation(CompilationUnitHeader header) throws IOException {
 		Integer key = new Integer(header.abbreviationOffset);
 		Map<Long, AbbreviationEntry> abbrevs = abbreviationMaps.get(key);
@@ -460,10 +585,14 @@ public class Dwarf {
 		Object obj = null;
 		switch (form) {
 			case DwarfConstants.DW_FORM_addr :
-			case DwarfConstants.DW_FORM_ref_addr :
 				obj = readAddress(in, header);
 				break;
 
+			case DwarfConstants.DW_FORM_ref_addr :
+				// Since DWARF 3 the reference has the size of a section offset.
+				obj = header.version >= 3 ? new Long(readOffset(in, header)) : readAddress(in, header);
+				break;
+
 			case DwarfConstants.DW_FORM_block :
 				{
 					int size = (int) read_unsigned_leb128(in);
@@ -525,17 +654,7 @@ public class Dwarf {
 				break;
 
 			case DwarfConstants.DW_FORM_string :
-				{
-					int c;
-					StringBuffer sb = new StringBuffer();
-					while ((c = in.get()) != -1) {
-						if (c == 0) {
-							break;
-						}
-						sb.append((char) c);
-					}
-					obj = sb.toString();
-				}
+				obj = readString(in);
 				break;
 
 			case DwarfConstants.DW_FORM_flag :
@@ -544,23 +663,15 @@ public class Dwarf {
 
 			case DwarfConstants.DW_FORM_strp :
 				{
-					int offset = read_4_bytes(in);
+					long offset = readOffset(in, header);
 					ByteBuffer data = dwarfSections.get(DWARF_DEBUG_STR);
 					if (data == null) {
 						obj = new String();
 					} else if (offset < 0 || offset > data.capacity()) {
 						obj = new String();
 					} else {
-						StringBuffer sb = new StringBuffer();
-						data.position(offset);
-						while (data.hasRemaining()) {
-							byte c = data.get();
-							if (c == 0) {
-								break;
-							}
-							sb.append((char) c);
-						}
-						obj = sb.toString();
+						data.position((int) offset);
+						obj = readString(data);
 					}
 				}
 				break;
@@ -591,6 +702,27 @@ public class Dwarf {
 					return readAttribute(f, in, header);
 				}
 
+			case DwarfConstants.DW_FORM_sec_offset :
+				obj = new Long(readOffset(in, header));
+				break;
+
+			case DwarfConstants.DW_FORM_exprloc :
+				{
+					int size = (int) read_unsigned_leb128(in);
+					byte[] bytes = new byte[size];
+					in.get(bytes);
+					obj = bytes;
+				}
+				break;
+
+			case DwarfConstants.DW_FORM_flag_present :
+				obj = new Byte((byte) 1);
+				break;
+
+			case DwarfConstants.DW_FORM_ref_sig8 :
+				obj = new Long(read_8_bytes(in));
+				break;
+
 			default :
 				break;
 		}
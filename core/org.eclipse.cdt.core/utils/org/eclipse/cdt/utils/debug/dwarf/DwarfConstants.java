@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -65,6 +65,8 @@ public class DwarfConstants {
 	public final static int DW_TAG_variant_part = 0x33;
 	public final static int DW_TAG_variable = 0x34;
 	public final static int DW_TAG_volatile_type = 0x35;
+	/** @since 5.4 */
+	public final static int DW_TAG_namespace = 0x39;
 	public final static int DW_TAG_lo_user = 0x4080;
 	public final static int DW_TAG_MIPS_loop = 0x4081;
 	public final static int DW_TAG_format_label = 0x4101;
@@ -187,6 +189,14 @@ public class DwarfConstants {
 	public final static int DW_FORM_ref8 = 0x14;
 	public final static int DW_FORM_ref_udata = 0x15;
 	public final static int DW_FORM_indirect = 0x16;
+	/** @since 5.4 */
+	public final static int DW_FORM_sec_offset = 0x17;
+	/** @since 5.4 */
+	public final static int DW_FORM_exprloc = 0x18;
+	/** @since 5.4 */
+	public final static int DW_FORM_flag_present = 0x19;
+	/** @since 5.4 */
+	public final static int DW_FORM_ref_sig8 = 0x20;
 
 	/* DWARF location operation encodings. */
 	public final static int DW_OP_addr = 0x03; /* Constant address. */
@@ -430,6 +440,8 @@ public class DwarfConstants {
 	public final static int DW_LNS_fixed_advance_pc = 9;
 	public final static int DW_LNS_set_prologue_end = 10;
 	public final static int DW_LNS_set_epilog_begin = 11;
+	/** @since 5.4 */
+	public final static int DW_LNS_set_isa = 12;
 
 	/* DWARF extended opcide encodings. */
 	public final static int DW_LNE_end_sequence = 1;
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils.debug.dwarf;
+
+/**
+ * A debugging information entry of the <code>.debug_info</code> section, obtained from a
+ * {@link DwarfIndex}. The attributes are read from the section on request.
+ * <p>
+ * Attribute values are returned as follows: addresses, constants, references and section offsets
+ * as {@link Long}, where references are converted to offsets in the <code>.debug_info</code>
+ * section; flags as {@link Boolean}; strings as {@link String}; blocks and expressions as byte
+ * arrays.
+ *
+ * @noreference This class is not intended to be referenced by clients.
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ * @since 5.4
+ */
+public final class DwarfEntry {
+	private static final DwarfEntry[] NO_CHILDREN = {};
+
+	private final DwarfIndex index;
+	private final DwarfIndex.Unit unit;
+	private final int entry;
+
+	DwarfEntry(DwarfIndex index, DwarfIndex.Unit unit, int entry) {
+		this.index = index;
+		this.unit = unit;
+		this.entry = entry;
+	}
+
+	/**
+	 * Returns the offset of the entry in the .debug_info section.
+	 */
+	public long getOffset() {
+		return unit.offsets[entry];
+	}
+
+	/**
+	 * Returns the tag of the entry, one of the <code>DW_TAG_*</code> constants of
+	 * {@link DwarfConstants}.
+	 */
+	public int getTag() {
+		DwarfIndex.AbbreviationTable table = index.getAbbreviations(unit);
+		return table.tags[unit.abbreviations[entry]];
+	}
+
+	/**
+	 * Returns whether the entry has the given attribute.
+	 * @param attribute one of the <code>DW_AT_*</code> constants of {@link DwarfConstants}.
+	 */
+	public boolean hasAttribute(int attribute) {
+		return index.findAttribute(unit, entry, attribute) >= 0;
+	}
+
+	/**
+	 * Returns the value of the given attribute, or <code>null</code> if the entry does not have
+	 * the attribute.
+	 * @param attribute one of the <code>DW_AT_*</code> constants of {@link DwarfConstants}.
+	 */
+	public Object getAttribute(int attribute) {
+		return index.readAttribute(unit, entry, attribute);
+	}
+
+	/**
+	 * Returns the value of a constant, address or reference attribute, or the given default
+	 * value if the entry does not have such an attribute.
+	 */
+	public long getLongAttribute(int attribute, long defaultValue) {
+		Object value = getAttribute(attribute);
+		return value instanceof Long ? ((Long) value).longValue() : defaultValue;
+	}
+
+	/**
+	 * Returns the entry referenced by the given attribute (e.g. <code>DW_AT_type</code>), or
+	 * <code>null</code>.
+	 */
+	public DwarfEntry getReferencedEntry(int attribute) {
+		final int form = index.getForm(unit, entry, attribute);
+		switch (form) {
+		case DwarfConstants.DW_FORM_ref1:
+		case DwarfConstants.DW_FORM_ref2:
+		case DwarfConstants.DW_FORM_ref4:
+		case DwarfConstants.DW_FORM_ref8:
+		case DwarfConstants.DW_FORM_ref_udata:
+		case DwarfConstants.DW_FORM_ref_addr:
+			final long offset = getLongAttribute(attribute, -1);
+			return offset >= 0 ? index.getEntry(offset) : null;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the value of <code>DW_AT_name</code>, or <code>null</code>.
+	 */
+	public String getName() {
+		Object value = getAttribute(DwarfConstants.DW_AT_name);
+		return value instanceof String ? (String) value : null;
+	}
+
+	/**
+	 * Returns the value of <code>DW_AT_low_pc</code>, or <code>0</code>.
+	 */
+	public long getLowPC() {
+		return getLongAttribute(DwarfConstants.DW_AT_low_pc, 0);
+	}
+
+	/**
+	 * Returns the address after the code of the entry, or <code>0</code>. A
+	 * <code>DW_AT_high_pc</code> given as constant is an offset to the low pc.
+	 */
+	public long getHighPC() {
+		final long highPC = getLongAttribute(DwarfConstants.DW_AT_high_pc, 0);
+		if (DwarfIndex.isConstantForm(index.getForm(unit, entry, DwarfConstants.DW_AT_high_pc))) {
+			return getLowPC() + highPC;
+		}
+		return highPC;
+	}
+
+	/**
+	 * Returns whether the given address lies within the low and high pc of the entry.
+	 */
+	public boolean containsAddress(long address) {
+		if (!hasAttribute(DwarfConstants.DW_AT_low_pc) || !hasAttribute(DwarfConstants.DW_AT_high_pc))
+			return false;
+		return DwarfLineTable.compareUnsigned(getLowPC(), address) <= 0
+				&& DwarfLineTable.compareUnsigned(address, getHighPC()) < 0;
+	}
+
+	/**
+	 * Returns the parent of the entry, or <code>null</code> for a compilation unit.
+	 */
+	public DwarfEntry getParent() {
+		final int parent = unit.parents[entry];
+		return parent >= 0 ? new DwarfEntry(index, unit, parent) : null;
+	}
+
+	/**
+	 * Returns the compilation unit the entry belongs to.
+	 */
+	public DwarfEntry getCompileUnit() {
+		return entry == 0 ? this : new DwarfEntry(index, unit, 0);
+	}
+
+	/**
+	 * Returns whether the entry has children.
+	 */
+	public boolean hasChildren() {
+		return unit.ends[entry] > entry + 1;
+	}
+
+	/**
+	 * Returns the children of the entry.
+	 */
+	public DwarfEntry[] getChildren() {
+		final int end = unit.ends[entry];
+		if (end <= entry + 1)
+			return NO_CHILDREN;
+		int count = 0;
+		for (int child = entry + 1; child < end; child = unit.ends[child]) {
+			count++;
+		}
+		DwarfEntry[] result = new DwarfEntry[count];
+		count = 0;
+		for (int child = entry + 1; child < end; child = unit.ends[child]) {
+			result[count++] = new DwarfEntry(index, unit, child);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof DwarfEntry) {
+			DwarfEntry other = (DwarfEntry) obj;
+			return other.index == index && other.getOffset() == getOffset();
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return unit.offsets[entry];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<0x").append(Long.toHexString(getOffset())).append("> tag 0x"); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append(Integer.toHexString(getTag()));
+		String name = getName();
+		if (name != null) {
+			sb.append(' ').append(name);
+		}
+		return sb.toString();
+	}
+}
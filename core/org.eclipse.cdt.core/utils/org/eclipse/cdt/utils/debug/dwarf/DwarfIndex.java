@@ -0,0 +1,1340 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils.debug.dwarf;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the debugging information entries of the <code>.debug_info</code> section, allowing
+ * to look up functions, variables and types by name or by address without decoding the entire
+ * section.
+ * <p>
+ * Creating the index reads the headers of the compilation units and builds a table of names.
+ * The names are taken from the <code>.debug_pubnames</code> and <code>.debug_pubtypes</code>
+ * sections, compilation units that are not covered by both of these sections are pre-scanned
+ * for the names of the functions, variables and types in the global and namespace scopes. The
+ * entries of a compilation unit are decoded when a query touches the unit for the first time,
+ * decoded units are held via soft references. The attributes of an entry are read from the
+ * section when they are requested.
+ * <p>
+ * The index is obtained via {@link Dwarf#getIndex()}, it references the sections of the binary.
+ * DWARF versions 2 to 4 are supported. The methods of the index are thread safe.
+ * <p>
+ * The index has no clients in CDT yet, it is not API until it has one.
+ *
+ * @noreference This class is not intended to be referenced by clients.
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ * @noextend This class is not intended to be subclassed by clients.
+ * @since 5.4
+ */
+public class DwarfIndex {
+	private static final DwarfEntry[] NO_ENTRIES = {};
+	private static final Charset UTF_8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	/**
+	 * Abbreviation table of one or more compilation units, stored in arrays.
+	 */
+	static final class AbbreviationTable {
+		/** Codes of the abbreviations in ascending order */
+		final long[] codes;
+		final int[] tags;
+		final boolean[] hasChildren;
+		/** Start of the attributes of the abbreviations, with an additional element for the end */
+		final int[] attributeStarts;
+		final int[] attributeNames;
+		final int[] attributeForms;
+
+		AbbreviationTable(long[] codes, int[] tags, boolean[] hasChildren, int[] attributeStarts,
+				int[] attributeNames, int[] attributeForms) {
+			this.codes = codes;
+			this.tags = tags;
+			this.hasChildren = hasChildren;
+			this.attributeStarts = attributeStarts;
+			this.attributeNames = attributeNames;
+			this.attributeForms = attributeForms;
+		}
+
+		/**
+		 * Returns the index of the abbreviation with the given code, or <code>-1</code>.
+		 */
+		int find(long code) {
+			// Producers usually number the abbreviations starting with one.
+			if (code > 0 && code <= codes.length && codes[(int) code - 1] == code)
+				return (int) code - 1;
+			int low = 0;
+			int high = codes.length - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				if (codes[mid] < code) {
+					low = mid + 1;
+				} else if (codes[mid] > code) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * The decoded entries of a compilation unit, in the order of the section.
+	 */
+	static final class Unit {
+		final int index;
+		final int count;
+		final int[] offsets;
+		final int[] abbreviations;
+		final int[] parents;
+		/** Index after the last descendant of an entry */
+		final int[] ends;
+
+		Unit(int index, int count, int[] offsets, int[] abbreviations, int[] parents, int[] ends) {
+			this.index = index;
+			this.count = count;
+			this.offsets = offsets;
+			this.abbreviations = abbreviations;
+			this.parents = parents;
+			this.ends = ends;
+		}
+
+		int find(int offset) {
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				if (offsets[mid] < offset) {
+					low = mid + 1;
+				} else if (offsets[mid] > offset) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Cursor for reading a section, it uses absolute accesses such that the section buffer can
+	 * be shared among threads.
+	 */
+	private static final class Reader {
+		final ByteBuffer data;
+		int pos;
+
+		Reader(ByteBuffer data, int pos) {
+			this.data = data;
+			this.pos = pos;
+		}
+
+		int u1() {
+			return data.get(pos++) & 0xff;
+		}
+
+		int u2() {
+			int result = data.getShort(pos) & 0xffff;
+			pos += 2;
+			return result;
+		}
+
+		long u4() {
+			long result = data.getInt(pos) & 0xffffffffL;
+			pos += 4;
+			return result;
+		}
+
+		long u8() {
+			long result = data.getLong(pos);
+			pos += 8;
+			return result;
+		}
+
+		long offset(int size) {
+			return size == 8 ? u8() : u4();
+		}
+
+		long address(int size) {
+			switch (size) {
+			case 1:
+				return u1();
+			case 2:
+				return u2();
+			case 4:
+				return u4();
+			case 8:
+				return u8();
+			default:
+				pos += size;
+				return 0;
+			}
+		}
+
+		long uleb() {
+			long result = 0;
+			int shift = 0;
+			while (true) {
+				byte b = data.get(pos++);
+				result |= ((long) (b & 0x7f)) << shift;
+				if ((b & 0x80) == 0)
+					return result;
+				shift += 7;
+			}
+		}
+
+		long sleb() {
+			long result = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data.get(pos++);
+				result |= ((long) (b & 0x7f)) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			if (shift < 64 && (b & 0x40) != 0) {
+				result |= -1L << shift;
+			}
+			return result;
+		}
+
+		/**
+		 * Reads a null terminated string, decoding it as UTF-8.
+		 */
+		String string() {
+			int end = pos;
+			while (data.get(end) != 0) {
+				end++;
+			}
+			ByteBuffer bytes = data.duplicate();
+			bytes.limit(end).position(pos);
+			pos = end + 1;
+			return UTF_8.decode(bytes).toString();
+		}
+
+		void skipString() {
+			while (data.get(pos++) != 0) {
+			}
+		}
+	}
+
+	private static final class NameRef implements Comparable<NameRef> {
+		final String name;
+		final int offset;
+
+		NameRef(String name, int offset) {
+			this.name = name;
+			this.offset = offset;
+		}
+
+		public int compareTo(NameRef other) {
+			int result = name.compareTo(other.name);
+			if (result == 0) {
+				result = offset < other.offset ? -1 : (offset > other.offset ? 1 : 0);
+			}
+			return result;
+		}
+	}
+
+	private final ByteBuffer info;
+	private final ByteBuffer strings;
+
+	// The compilation units, sorted by offset.
+	private final int unitCount;
+	private final int[] unitOffsets;
+	private final int[] unitEnds;
+	private final int[] unitEntryOffsets;
+	private final byte[] unitVersions;
+	private final byte[] unitAddressSizes;
+	private final byte[] unitOffsetSizes;
+	private final AbbreviationTable[] unitAbbreviations;
+	private final SoftReference<?>[] decodedUnits;
+
+	// The names, sorted.
+	private String[] names;
+	private int[] nameOffsets;
+
+	// The address ranges of the compilation units, sorted by start address.
+	private long[] rangeStarts;
+	private long[] rangeEnds;
+	private int[] rangeUnits;
+
+	private DwarfIndex(Dwarf dwarf) {
+		ByteOrder order = dwarf.isLE ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		info = getSection(dwarf, Dwarf.DWARF_DEBUG_INFO, order);
+		strings = getSection(dwarf, Dwarf.DWARF_DEBUG_STR, order);
+
+		int capacity = 16;
+		int[] offsets = new int[capacity];
+		int[] ends = new int[capacity];
+		int[] entryOffsets = new int[capacity];
+		byte[] versions = new byte[capacity];
+		byte[] addressSizes = new byte[capacity];
+		byte[] offsetSizes = new byte[capacity];
+		AbbreviationTable[] abbreviations = new AbbreviationTable[capacity];
+		int count = 0;
+
+		ByteBuffer abbrev = getSection(dwarf, Dwarf.DWARF_DEBUG_ABBREV, order);
+		if (info != null && abbrev != null) {
+			Map<Long, AbbreviationTable> tables = new HashMap<Long, AbbreviationTable>();
+			Reader in = new Reader(info, 0);
+			try {
+				while (in.pos + 11 <= info.limit()) {
+					final int offset = in.pos;
+					long length = in.u4();
+					int offsetSize = 4;
+					if (length == 0xffffffffL) {
+						length = in.u8();
+						offsetSize = 8;
+					} else if (length >= 0xfffffff0L) {
+						break;
+					}
+					final long end = in.pos + length;
+					if (length == 0 || end > info.limit())
+						break;
+					final int version = in.u2();
+					final long abbrevOffset = in.offset(offsetSize);
+					final int addressSize = in.u1();
+					if (version >= 2 && version <= 4) {
+						AbbreviationTable table = tables.get(abbrevOffset);
+						if (table == null) {
+							table = readAbbreviations(abbrev, abbrevOffset);
+							tables.put(abbrevOffset, table);
+						}
+						if (count == capacity) {
+							capacity *= 2;
+							offsets = grow(offsets, capacity);
+							ends = grow(ends, capacity);
+							entryOffsets = grow(entryOffsets, capacity);
+							versions = grow(versions, capacity);
+							addressSizes = grow(addressSizes, capacity);
+							offsetSizes = grow(offsetSizes, capacity);
+							AbbreviationTable[] a = new AbbreviationTable[capacity];
+							System.arraycopy(abbreviations, 0, a, 0, count);
+							abbreviations = a;
+						}
+						offsets[count] = offset;
+						ends[count] = (int) end;
+						entryOffsets[count] = in.pos;
+						versions[count] = (byte) version;
+						addressSizes[count] = (byte) addressSize;
+						offsetSizes[count] = (byte) offsetSize;
+						abbreviations[count] = table;
+						count++;
+					}
+					in.pos = (int) end;
+				}
+			} catch (IndexOutOfBoundsException e) {
+				// Truncated section, use the units read so far.
+			}
+		}
+		unitCount = count;
+		unitOffsets = offsets;
+		unitEnds = ends;
+		unitEntryOffsets = entryOffsets;
+		unitVersions = versions;
+		unitAddressSizes = addressSizes;
+		unitOffsetSizes = offsetSizes;
+		unitAbbreviations = abbreviations;
+		decodedUnits = new SoftReference<?>[count];
+
+		createNameIndex(dwarf, order);
+		createAddressIndex(dwarf, order);
+	}
+
+	/**
+	 * Creates the index for the given debug information.
+	 */
+	static DwarfIndex create(Dwarf dwarf) throws IOException {
+		return new DwarfIndex(dwarf);
+	}
+
+	private static ByteBuffer getSection(Dwarf dwarf, String name, ByteOrder order) {
+		ByteBuffer section = dwarf.dwarfSections.get(name);
+		return section != null ? section.duplicate().order(order) : null;
+	}
+
+	private static AbbreviationTable readAbbreviations(ByteBuffer data, long offset) {
+		int capacity = 64;
+		long[] codes = new long[capacity];
+		int[] tags = new int[capacity];
+		boolean[] hasChildren = new boolean[capacity];
+		int[] attributeStarts = new int[capacity + 1];
+		int attributeCapacity = 256;
+		int[] attributeNames = new int[attributeCapacity];
+		int[] attributeForms = new int[attributeCapacity];
+		int count = 0;
+		int attributeCount = 0;
+		boolean sorted = true;
+
+		Reader in = new Reader(data, (int) offset);
+		try {
+			while (in.pos < data.limit()) {
+				final long code = in.uleb();
+				if (code == 0)
+					break;
+				if (count == capacity) {
+					capacity *= 2;
+					codes = grow(codes, capacity);
+					tags = grow(tags, capacity);
+					hasChildren = grow(hasChildren, capacity);
+					attributeStarts = grow(attributeStarts, capacity + 1);
+				}
+				if (count > 0 && codes[count - 1] >= code) {
+					sorted = false;
+				}
+				codes[count] = code;
+				tags[count] = (int) in.uleb();
+				hasChildren[count] = in.u1() == DwarfConstants.DW_CHILDREN_yes;
+				attributeStarts[count] = attributeCount;
+				while (true) {
+					final int name = (int) in.uleb();
+					final int form = (int) in.uleb();
+					if (name == 0 && form == 0)
+						break;
+					if (attributeCount == attributeCapacity) {
+						attributeCapacity *= 2;
+						attributeNames = grow(attributeNames, attributeCapacity);
+						attributeForms = grow(attributeForms, attributeCapacity);
+					}
+					attributeNames[attributeCount] = name;
+					attributeForms[attributeCount] = form;
+					attributeCount++;
+				}
+				count++;
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// Truncated section, use the abbreviations read so far.
+		}
+		attributeStarts[count] = attributeCount;
+
+		if (!sorted) {
+			// Reorder the abbreviations by code, the attributes stay in place.
+			long[] c = new long[count];
+			int[] t = new int[count];
+			boolean[] h = new boolean[count];
+			int[] s = new int[count + 1];
+			int[] order = sortByCode(codes, count);
+			int[] n = new int[attributeCount];
+			int[] f = new int[attributeCount];
+			int a = 0;
+			for (int i = 0; i < count; i++) {
+				final int j = order[i];
+				c[i] = codes[j];
+				t[i] = tags[j];
+				h[i] = hasChildren[j];
+				s[i] = a;
+				for (int k = attributeStarts[j]; k < attributeStarts[j + 1]; k++) {
+					n[a] = attributeNames[k];
+					f[a] = attributeForms[k];
+					a++;
+				}
+			}
+			s[count] = a;
+			return new AbbreviationTable(c, t, h, s, n, f);
+		}
+		return new AbbreviationTable(trim(codes, count), trim(tags, count), trim(hasChildren, count),
+				trim(attributeStarts, count + 1), trim(attributeNames, attributeCount), trim(attributeForms, attributeCount));
+	}
+
+	private static int[] sortByCode(long[] codes, int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		// Insertion sort, the tables are almost sorted.
+		for (int i = 1; i < count; i++) {
+			final int o = order[i];
+			int j = i;
+			while (j > 0 && codes[order[j - 1]] > codes[o]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = o;
+		}
+		return order;
+	}
+
+	/**
+	 * Builds the table of names from the public names and types, or from a pre-scan of the
+	 * compilation units that are not covered by them.
+	 */
+	private void createNameIndex(Dwarf dwarf, ByteOrder order) {
+		List<NameRef> refs = new ArrayList<NameRef>();
+		Map<Integer, List<NameRef>> pubNames = readPublicNames(getSection(dwarf, Dwarf.DWARF_DEBUG_PUBNAMES, order));
+		Map<Integer, List<NameRef>> pubTypes = readPublicNames(getSection(dwarf, Dwarf.DWARF_DEBUG_PUBTYPES, order));
+		for (int i = 0; i < unitCount; i++) {
+			final Integer unitOffset = unitOffsets[i];
+			List<NameRef> unitNames = pubNames.get(unitOffset);
+			List<NameRef> unitTypes = pubTypes.get(unitOffset);
+			if (unitNames != null && unitTypes != null) {
+				refs.addAll(unitNames);
+				refs.addAll(unitTypes);
+			} else {
+				scanNames(i, refs);
+			}
+		}
+		NameRef[] sorted = refs.toArray(new NameRef[refs.size()]);
+		Arrays.sort(sorted);
+		names = new String[sorted.length];
+		nameOffsets = new int[sorted.length];
+		int count = 0;
+		for (NameRef ref : sorted) {
+			String name = ref.name;
+			if (count > 0 && names[count - 1].equals(name)) {
+				// The public names may list an entry more than once.
+				if (nameOffsets[count - 1] == ref.offset)
+					continue;
+				// Share the strings of equal names.
+				name = names[count - 1];
+			}
+			names[count] = name;
+			nameOffsets[count] = ref.offset;
+			count++;
+		}
+		if (count < sorted.length) {
+			names = grow(names, count);
+			nameOffsets = grow(nameOffsets, count);
+		}
+	}
+
+	/**
+	 * Reads a .debug_pubnames or .debug_pubtypes section.
+	 * @return the names by the offset of their compilation unit.
+	 */
+	private static Map<Integer, List<NameRef>> readPublicNames(ByteBuffer data) {
+		Map<Integer, List<NameRef>> result = new HashMap<Integer, List<NameRef>>();
+		if (data == null)
+			return result;
+		Reader in = new Reader(data, 0);
+		try {
+			while (in.pos + 14 <= data.limit()) {
+				long length = in.u4();
+				int offsetSize = 4;
+				if (length == 0xffffffffL) {
+					length = in.u8();
+					offsetSize = 8;
+				}
+				final long end = in.pos + length;
+				if (length == 0 || end > data.limit())
+					break;
+				in.u2(); // version
+				final int unitOffset = (int) in.offset(offsetSize);
+				in.offset(offsetSize); // length of the unit
+				List<NameRef> names = result.get(unitOffset);
+				if (names == null) {
+					names = new ArrayList<NameRef>();
+					result.put(unitOffset, names);
+				}
+				while (in.pos < end) {
+					final long entryOffset = in.offset(offsetSize);
+					if (entryOffset == 0)
+						break;
+					names.add(new NameRef(in.string(), (int) (unitOffset + entryOffset)));
+				}
+				in.pos = (int) end;
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// Truncated section, use the names read so far.
+		}
+		return result;
+	}
+
+	/**
+	 * Collects the names of the namespaces, functions, variables and types in the global and
+	 * namespace scopes of a compilation unit, the way they appear in the public names. Functions
+	 * and variables defined outside of their declaring scope are named via their specification or
+	 * abstract origin. Only the
+	 * attributes needed for that are read, the children of other entries are skipped by means of
+	 * their sibling attribute where possible.
+	 */
+	private void scanNames(int unit, List<NameRef> refs) {
+		final AbbreviationTable table = unitAbbreviations[unit];
+		final int end = unitEnds[unit];
+		// The qualified names of functions and variables, for the entries referring to them.
+		final Map<Integer, String> qualifiedNames = new HashMap<Integer, String>();
+		// The prefix for the names in a scope, or null if the names are not collected.
+		String[] scopes = new String[16];
+		boolean[] classScopes = new boolean[16];
+		int depth = 0;
+		Reader in = new Reader(info, unitEntryOffsets[unit]);
+		try {
+			while (in.pos < end) {
+				final int offset = in.pos;
+				final long code = in.uleb();
+				if (code == 0) {
+					if (depth > 0) {
+						depth--;
+					}
+					continue;
+				}
+				final int abbrev = table.find(code);
+				if (abbrev < 0)
+					break;
+				final String scope = depth > 0 ? scopes[depth - 1] : null;
+				final boolean inClass = depth > 0 && classScopes[depth - 1];
+				final int tag = table.tags[abbrev];
+				final boolean named = scope != null
+						&& (isIndexedTag(tag) || (inClass && tag == DwarfConstants.DW_TAG_member));
+				String name = null;
+				boolean declaration = false;
+				long specification = -1;
+				long origin = -1;
+				long sibling = -1;
+				for (int a = table.attributeStarts[abbrev]; a < table.attributeStarts[abbrev + 1]; a++) {
+					final int form = table.attributeForms[a];
+					Object value;
+					switch (table.attributeNames[a]) {
+					case DwarfConstants.DW_AT_name:
+						if (named) {
+							name = readString(in, form, unit);
+						} else {
+							skip(in, form, unit);
+						}
+						break;
+					case DwarfConstants.DW_AT_declaration:
+						value = read(in, form, unit);
+						declaration = value instanceof Boolean && ((Boolean) value).booleanValue();
+						break;
+					case DwarfConstants.DW_AT_specification:
+						value = read(in, form, unit);
+						if (value instanceof Long) {
+							specification = ((Long) value).longValue();
+						}
+						break;
+					case DwarfConstants.DW_AT_abstract_origin:
+						value = read(in, form, unit);
+						if (value instanceof Long) {
+							origin = ((Long) value).longValue();
+						}
+						break;
+					case DwarfConstants.DW_AT_sibling:
+						value = read(in, form, unit);
+						if (value instanceof Long) {
+							sibling = ((Long) value).longValue();
+						}
+						break;
+					default:
+						skip(in, form, unit);
+						break;
+					}
+				}
+				String qualifiedName = null;
+				if (named) {
+					if (name != null) {
+						qualifiedName = scope + name;
+					} else if (specification >= 0) {
+						qualifiedName = qualifiedNames.get((int) specification);
+					} else if (origin >= 0) {
+						qualifiedName = qualifiedNames.get((int) origin);
+					} else if (tag == DwarfConstants.DW_TAG_namespace) {
+						qualifiedName = scope + "(anonymous namespace)"; //$NON-NLS-1$
+					}
+				}
+				if (qualifiedName != null) {
+					final boolean isType = tag != DwarfConstants.DW_TAG_subprogram && tag != DwarfConstants.DW_TAG_variable
+							&& tag != DwarfConstants.DW_TAG_member && tag != DwarfConstants.DW_TAG_namespace;
+					if (!isType && (tag != DwarfConstants.DW_TAG_member || declaration)) {
+						qualifiedNames.put(offset, qualifiedName);
+					}
+					// Like the public names, members are only listed by their definition.
+					if (tag != DwarfConstants.DW_TAG_member && !(declaration && (isType || inClass))) {
+						refs.add(new NameRef(qualifiedName, offset));
+					}
+				}
+				if (table.hasChildren[abbrev]) {
+					String childScope = null;
+					boolean isClass = false;
+					if (depth == 0) {
+						childScope = ""; //$NON-NLS-1$
+					} else if (qualifiedName != null && isScopeTag(tag)) {
+						childScope = qualifiedName + "::"; //$NON-NLS-1$
+						isClass = tag != DwarfConstants.DW_TAG_namespace;
+					}
+					if (childScope == null && sibling > offset && sibling <= end) {
+						in.pos = (int) sibling;
+					} else {
+						if (depth == scopes.length) {
+							scopes = grow(scopes, 2 * depth);
+							classScopes = grow(classScopes, 2 * depth);
+						}
+						scopes[depth] = childScope;
+						classScopes[depth] = isClass;
+						depth++;
+					}
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// Truncated unit, use the names found so far.
+		} catch (IOException e) {
+			// Unsupported form, use the names found so far.
+		}
+	}
+
+	private static boolean isScopeTag(int tag) {
+		switch (tag) {
+		case DwarfConstants.DW_TAG_namespace:
+		case DwarfConstants.DW_TAG_class_type:
+		case DwarfConstants.DW_TAG_structure_type:
+		case DwarfConstants.DW_TAG_union_type:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isIndexedTag(int tag) {
+		switch (tag) {
+		case DwarfConstants.DW_TAG_subprogram:
+		case DwarfConstants.DW_TAG_variable:
+		case DwarfConstants.DW_TAG_base_type:
+		case DwarfConstants.DW_TAG_class_type:
+		case DwarfConstants.DW_TAG_structure_type:
+		case DwarfConstants.DW_TAG_union_type:
+		case DwarfConstants.DW_TAG_enumeration_type:
+		case DwarfConstants.DW_TAG_typedef:
+		case DwarfConstants.DW_TAG_namespace:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Builds the table of address ranges from the .debug_aranges section. For compilation units
+	 * not covered by that section the range of the compilation unit entry is used.
+	 */
+	private void createAddressIndex(Dwarf dwarf, ByteOrder order) {
+		List<long[]> ranges = new ArrayList<long[]>();
+		Set<Integer> covered = new HashSet<Integer>();
+		ByteBuffer data = getSection(dwarf, Dwarf.DWARF_DEBUG_ARANGES, order);
+		if (data != null) {
+			Reader in = new Reader(data, 0);
+			try {
+				while (in.pos + 16 <= data.limit()) {
+					final int start = in.pos;
+					long length = in.u4();
+					int offsetSize = 4;
+					if (length == 0xffffffffL) {
+						length = in.u8();
+						offsetSize = 8;
+					}
+					final long end = in.pos + length;
+					if (length == 0 || end > data.limit())
+						break;
+					in.u2(); // version
+					final int unitOffset = (int) in.offset(offsetSize);
+					final int addressSize = in.u1();
+					in.u1(); // segment size
+					final int unit = findUnit(unitOffset);
+					if (addressSize != 4 && addressSize != 8)
+						break;
+					// The tuples are aligned to twice the address size.
+					final int tupleSize = 2 * addressSize;
+					in.pos = start + (in.pos - start + tupleSize - 1) / tupleSize * tupleSize;
+					while (in.pos + tupleSize <= end) {
+						final long address = in.address(addressSize);
+						final long size = in.address(addressSize);
+						if (address == 0 && size == 0)
+							break;
+						if (unit >= 0 && size != 0) {
+							ranges.add(new long[] { address, address + size, unit });
+						}
+					}
+					if (unit >= 0) {
+						covered.add(unitOffset);
+					}
+					in.pos = (int) end;
+				}
+			} catch (IndexOutOfBoundsException e) {
+				// Truncated section, use the ranges read so far.
+			}
+		}
+		for (int i = 0; i < unitCount; i++) {
+			if (!covered.contains(unitOffsets[i])) {
+				long[] range = readUnitRange(i);
+				if (range != null) {
+					ranges.add(range);
+				}
+			}
+		}
+		long[][] sorted = ranges.toArray(new long[ranges.size()][]);
+		Arrays.sort(sorted, new Comparator<long[]>() {
+			public int compare(long[] r1, long[] r2) {
+				return DwarfLineTable.compareUnsigned(r1[0], r2[0]);
+			}
+		});
+		rangeStarts = new long[sorted.length];
+		rangeEnds = new long[sorted.length];
+		rangeUnits = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			rangeStarts[i] = sorted[i][0];
+			rangeEnds[i] = sorted[i][1];
+			rangeUnits[i] = (int) sorted[i][2];
+		}
+	}
+
+	/**
+	 * Reads the low and high pc of the compilation unit entry.
+	 */
+	private long[] readUnitRange(int unit) {
+		final AbbreviationTable table = unitAbbreviations[unit];
+		Reader in = new Reader(info, unitEntryOffsets[unit]);
+		try {
+			final int abbrev = table.find(in.uleb());
+			if (abbrev < 0)
+				return null;
+			long low = 0;
+			Object high = null;
+			int highForm = 0;
+			boolean hasLow = false;
+			for (int a = table.attributeStarts[abbrev]; a < table.attributeStarts[abbrev + 1]; a++) {
+				final int form = table.attributeForms[a];
+				switch (table.attributeNames[a]) {
+				case DwarfConstants.DW_AT_low_pc:
+					Object value = read(in, form, unit);
+					if (value instanceof Long) {
+						low = ((Long) value).longValue();
+						hasLow = true;
+					}
+					break;
+				case DwarfConstants.DW_AT_high_pc:
+					highForm = form;
+					high = read(in, form, unit);
+					break;
+				default:
+					skip(in, form, unit);
+					break;
+				}
+			}
+			if (!hasLow || !(high instanceof Long))
+				return null;
+			long highPC = ((Long) high).longValue();
+			if (isConstantForm(highForm)) {
+				highPC += low;
+			}
+			if (DwarfLineTable.compareUnsigned(low, highPC) >= 0)
+				return null;
+			return new long[] { low, highPC, unit };
+		} catch (IndexOutOfBoundsException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of compilation units.
+	 */
+	public int getCompileUnitCount() {
+		return unitCount;
+	}
+
+	/**
+	 * Returns the entry of the compilation unit with the given index, the entries of the
+	 * compilation unit are decoded if necessary.
+	 */
+	public DwarfEntry getCompileUnit(int index) {
+		Unit unit = getUnit(index);
+		return unit.count > 0 ? new DwarfEntry(this, unit, 0) : null;
+	}
+
+	/**
+	 * Returns the entry of the compilation unit with code at the given address, or
+	 * <code>null</code>.
+	 */
+	public DwarfEntry findCompileUnit(long address) {
+		final int unit = findUnitForAddress(address);
+		return unit >= 0 ? getCompileUnit(unit) : null;
+	}
+
+	/**
+	 * Returns the innermost function (<code>DW_TAG_subprogram</code>) whose code contains the
+	 * given address, or <code>null</code>. Only the compilation unit containing the address
+	 * is decoded.
+	 */
+	public DwarfEntry findFunction(long address) {
+		final int unitIndex = findUnitForAddress(address);
+		if (unitIndex < 0)
+			return null;
+		final Unit unit = getUnit(unitIndex);
+		final AbbreviationTable table = unitAbbreviations[unitIndex];
+		DwarfEntry result = null;
+		for (int i = 0; i < unit.count; i++) {
+			if (table.tags[unit.abbreviations[i]] == DwarfConstants.DW_TAG_subprogram) {
+				DwarfEntry entry = new DwarfEntry(this, unit, i);
+				if (entry.containsAddress(address)) {
+					// Nested functions follow their parent.
+					result = entry;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the entries with the given name. For entries in namespaces the name is qualified
+	 * with the names of the namespaces separated by <code>::</code>. Only the compilation units
+	 * containing the entries are decoded.
+	 */
+	public DwarfEntry[] findEntries(String name) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (names[mid].compareTo(name) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		List<DwarfEntry> result = null;
+		for (int i = low; i < names.length && names[i].equals(name); i++) {
+			DwarfEntry entry = getEntry(nameOffsets[i]);
+			if (entry != null) {
+				if (result == null) {
+					result = new ArrayList<DwarfEntry>();
+				}
+				result.add(entry);
+			}
+		}
+		return result != null ? result.toArray(new DwarfEntry[result.size()]) : NO_ENTRIES;
+	}
+
+	/**
+	 * Returns all names that can be looked up via {@link #findEntries(String)}, in ascending
+	 * order.
+	 */
+	public String[] getNames() {
+		List<String> result = new ArrayList<String>();
+		String previous = null;
+		for (String name : names) {
+			if (name != previous) {
+				result.add(name);
+				previous = name;
+			}
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	/**
+	 * Returns the entry at the given offset of the .debug_info section, or <code>null</code>.
+	 */
+	public DwarfEntry getEntry(long offset) {
+		if (offset < 0 || offset > Integer.MAX_VALUE)
+			return null;
+		final int unitIndex = findUnit((int) offset);
+		if (unitIndex < 0)
+			return null;
+		final Unit unit = getUnit(unitIndex);
+		final int entry = unit.find((int) offset);
+		return entry >= 0 ? new DwarfEntry(this, unit, entry) : null;
+	}
+
+	/**
+	 * Returns the index of the compilation unit containing the given offset, or <code>-1</code>.
+	 */
+	private int findUnit(int offset) {
+		int low = 0;
+		int high = unitCount - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (unitOffsets[mid] <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		final int unit = low - 1;
+		return unit >= 0 && offset < unitEnds[unit] ? unit : -1;
+	}
+
+	private int findUnitForAddress(long address) {
+		int low = 0;
+		int high = rangeStarts.length - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (DwarfLineTable.compareUnsigned(rangeStarts[mid], address) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		final int range = low - 1;
+		if (range >= 0 && DwarfLineTable.compareUnsigned(address, rangeEnds[range]) < 0)
+			return rangeUnits[range];
+		return -1;
+	}
+
+	/**
+	 * Returns the decoded entries of a compilation unit.
+	 */
+	Unit getUnit(int index) {
+		synchronized (decodedUnits) {
+			SoftReference<?> ref = decodedUnits[index];
+			Unit unit = ref != null ? (Unit) ref.get() : null;
+			if (unit != null)
+				return unit;
+		}
+		Unit unit = decodeUnit(index);
+		synchronized (decodedUnits) {
+			decodedUnits[index] = new SoftReference<Unit>(unit);
+		}
+		return unit;
+	}
+
+	private Unit decodeUnit(int unit) {
+		final AbbreviationTable table = unitAbbreviations[unit];
+		final int end = unitEnds[unit];
+		int capacity = 256;
+		int[] offsets = new int[capacity];
+		int[] abbreviations = new int[capacity];
+		int[] parents = new int[capacity];
+		int[] ends = new int[capacity];
+		int count = 0;
+		int parent = -1;
+		Reader in = new Reader(info, unitEntryOffsets[unit]);
+		try {
+			while (in.pos < end) {
+				final int offset = in.pos;
+				final long code = in.uleb();
+				if (code == 0) {
+					if (parent >= 0) {
+						ends[parent] = count;
+						parent = parents[parent];
+					}
+					continue;
+				}
+				final int abbrev = table.find(code);
+				if (abbrev < 0)
+					break;
+				for (int a = table.attributeStarts[abbrev]; a < table.attributeStarts[abbrev + 1]; a++) {
+					skip(in, table.attributeForms[a], unit);
+				}
+				if (count == capacity) {
+					capacity *= 2;
+					offsets = grow(offsets, capacity);
+					abbreviations = grow(abbreviations, capacity);
+					parents = grow(parents, capacity);
+					ends = grow(ends, capacity);
+				}
+				offsets[count] = offset;
+				abbreviations[count] = abbrev;
+				parents[count] = parent;
+				ends[count] = count + 1;
+				if (table.hasChildren[abbrev]) {
+					parent = count;
+				}
+				count++;
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// Truncated unit, keep the entries decoded so far.
+		} catch (IOException e) {
+			// Unsupported form, keep the entries decoded so far.
+		}
+		while (parent >= 0) {
+			ends[parent] = count;
+			parent = parents[parent];
+		}
+		return new Unit(unit, count, trim(offsets, count), trim(abbreviations, count), trim(parents, count),
+				trim(ends, count));
+	}
+
+	AbbreviationTable getAbbreviations(Unit unit) {
+		return unitAbbreviations[unit.index];
+	}
+
+	/**
+	 * Returns the index of the given attribute in the abbreviation of an entry, or
+	 * <code>-1</code>.
+	 */
+	int findAttribute(Unit unit, int entry, int attribute) {
+		final AbbreviationTable table = unitAbbreviations[unit.index];
+		final int abbrev = unit.abbreviations[entry];
+		for (int a = table.attributeStarts[abbrev]; a < table.attributeStarts[abbrev + 1]; a++) {
+			if (table.attributeNames[a] == attribute)
+				return a;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the form of the given attribute of an entry, or <code>0</code> if the entry
+	 * does not have the attribute. Indirect forms are resolved.
+	 */
+	int getForm(Unit unit, int entry, int attribute) {
+		final int a = findAttribute(unit, entry, attribute);
+		if (a < 0)
+			return 0;
+		final int form = unitAbbreviations[unit.index].attributeForms[a];
+		if (form != DwarfConstants.DW_FORM_indirect)
+			return form;
+		try {
+			Reader in = seekAttribute(unit, entry, a);
+			return in != null ? (int) in.uleb() : 0;
+		} catch (IndexOutOfBoundsException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the value of the given attribute of an entry.
+	 * @return the value or <code>null</code> if the entry does not have the attribute.
+	 */
+	Object readAttribute(Unit unit, int entry, int attribute) {
+		final int a = findAttribute(unit, entry, attribute);
+		if (a < 0)
+			return null;
+		try {
+			Reader in = seekAttribute(unit, entry, a);
+			return in != null ? read(in, unitAbbreviations[unit.index].attributeForms[a], unit.index) : null;
+		} catch (IndexOutOfBoundsException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private Reader seekAttribute(Unit unit, int entry, int attribute) {
+		final AbbreviationTable table = unitAbbreviations[unit.index];
+		Reader in = new Reader(info, unit.offsets[entry]);
+		in.uleb(); // abbreviation code
+		try {
+			for (int a = table.attributeStarts[unit.abbreviations[entry]]; a < attribute; a++) {
+				skip(in, table.attributeForms[a], unit.index);
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return in;
+	}
+
+	static boolean isConstantForm(int form) {
+		switch (form) {
+		case DwarfConstants.DW_FORM_data1:
+		case DwarfConstants.DW_FORM_data2:
+		case DwarfConstants.DW_FORM_data4:
+		case DwarfConstants.DW_FORM_data8:
+		case DwarfConstants.DW_FORM_sdata:
+		case DwarfConstants.DW_FORM_udata:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Reads an attribute value. Addresses, constants, references and section offsets are
+	 * returned as {@link Long}, references are converted to offsets in the .debug_info
+	 * section. Flags are returned as {@link Boolean}, strings as {@link String} and blocks as
+	 * byte arrays.
+	 */
+	private Object read(Reader in, int form, int unit) throws IOException {
+		switch (form) {
+		case DwarfConstants.DW_FORM_addr:
+			return in.address(unitAddressSizes[unit]);
+		case DwarfConstants.DW_FORM_ref_addr:
+			return in.offset(unitVersions[unit] == 2 ? unitAddressSizes[unit] : unitOffsetSizes[unit]);
+		case DwarfConstants.DW_FORM_block1:
+			return readBlock(in, in.u1());
+		case DwarfConstants.DW_FORM_block2:
+			return readBlock(in, in.u2());
+		case DwarfConstants.DW_FORM_block4:
+			return readBlock(in, in.u4());
+		case DwarfConstants.DW_FORM_block:
+		case DwarfConstants.DW_FORM_exprloc:
+			return readBlock(in, in.uleb());
+		case DwarfConstants.DW_FORM_data1:
+			return (long) in.u1();
+		case DwarfConstants.DW_FORM_data2:
+			return (long) in.u2();
+		case DwarfConstants.DW_FORM_data4:
+			return in.u4();
+		case DwarfConstants.DW_FORM_data8:
+		case DwarfConstants.DW_FORM_ref_sig8:
+			return in.u8();
+		case DwarfConstants.DW_FORM_sdata:
+			return in.sleb();
+		case DwarfConstants.DW_FORM_udata:
+			return in.uleb();
+		case DwarfConstants.DW_FORM_sec_offset:
+			return in.offset(unitOffsetSizes[unit]);
+		case DwarfConstants.DW_FORM_flag:
+			return in.u1() != 0;
+		case DwarfConstants.DW_FORM_flag_present:
+			return Boolean.TRUE;
+		case DwarfConstants.DW_FORM_string:
+		case DwarfConstants.DW_FORM_strp:
+			return readString(in, form, unit);
+		case DwarfConstants.DW_FORM_ref1:
+			return unitOffsets[unit] + (long) in.u1();
+		case DwarfConstants.DW_FORM_ref2:
+			return unitOffsets[unit] + (long) in.u2();
+		case DwarfConstants.DW_FORM_ref4:
+			return unitOffsets[unit] + in.u4();
+		case DwarfConstants.DW_FORM_ref8:
+			return unitOffsets[unit] + in.u8();
+		case DwarfConstants.DW_FORM_ref_udata:
+			return unitOffsets[unit] + in.uleb();
+		case DwarfConstants.DW_FORM_indirect:
+			return read(in, (int) in.uleb(), unit);
+		default:
+			throw new IOException("Unsupported attribute form: " + form); //$NON-NLS-1$
+		}
+	}
+
+	private static byte[] readBlock(Reader in, long size) {
+		byte[] bytes = new byte[(int) size];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = in.data.get(in.pos++);
+		}
+		return bytes;
+	}
+
+	private static void skipBlock(Reader in, long size) {
+		// The size has to be read before the position is updated.
+		in.pos += (int) size;
+	}
+
+	private String readString(Reader in, int form, int unit) throws IOException {
+		switch (form) {
+		case DwarfConstants.DW_FORM_string:
+			return in.string();
+		case DwarfConstants.DW_FORM_strp:
+			final long offset = in.offset(unitOffsetSizes[unit]);
+			if (strings == null || offset < 0 || offset >= strings.limit())
+				return ""; //$NON-NLS-1$
+			return new Reader(strings, (int) offset).string();
+		case DwarfConstants.DW_FORM_indirect:
+			return readString(in, (int) in.uleb(), unit);
+		default:
+			skip(in, form, unit);
+			return null;
+		}
+	}
+
+	/**
+	 * Skips an attribute value.
+	 */
+	private void skip(Reader in, int form, int unit) throws IOException {
+		switch (form) {
+		case DwarfConstants.DW_FORM_flag_present:
+			break;
+		case DwarfConstants.DW_FORM_data1:
+		case DwarfConstants.DW_FORM_ref1:
+		case DwarfConstants.DW_FORM_flag:
+			in.pos += 1;
+			break;
+		case DwarfConstants.DW_FORM_data2:
+		case DwarfConstants.DW_FORM_ref2:
+			in.pos += 2;
+			break;
+		case DwarfConstants.DW_FORM_data4:
+		case DwarfConstants.DW_FORM_ref4:
+			in.pos += 4;
+			break;
+		case DwarfConstants.DW_FORM_data8:
+		case DwarfConstants.DW_FORM_ref8:
+		case DwarfConstants.DW_FORM_ref_sig8:
+			in.pos += 8;
+			break;
+		case DwarfConstants.DW_FORM_addr:
+			in.pos += unitAddressSizes[unit];
+			break;
+		case DwarfConstants.DW_FORM_ref_addr:
+			in.pos += unitVersions[unit] == 2 ? unitAddressSizes[unit] : unitOffsetSizes[unit];
+			break;
+		case DwarfConstants.DW_FORM_strp:
+		case DwarfConstants.DW_FORM_sec_offset:
+			in.pos += unitOffsetSizes[unit];
+			break;
+		case DwarfConstants.DW_FORM_sdata:
+		case DwarfConstants.DW_FORM_udata:
+		case DwarfConstants.DW_FORM_ref_udata:
+			in.uleb();
+			break;
+		case DwarfConstants.DW_FORM_string:
+			in.skipString();
+			break;
+		case DwarfConstants.DW_FORM_block1:
+			skipBlock(in, in.u1());
+			break;
+		case DwarfConstants.DW_FORM_block2:
+			skipBlock(in, in.u2());
+			break;
+		case DwarfConstants.DW_FORM_block4:
+			skipBlock(in, in.u4());
+			break;
+		case DwarfConstants.DW_FORM_block:
+		case DwarfConstants.DW_FORM_exprloc:
+			skipBlock(in, in.uleb());
+			break;
+		case DwarfConstants.DW_FORM_indirect:
+			skip(in, (int) in.uleb(), unit);
+			break;
+		default:
+			throw new IOException("Unsupported attribute form: " + form); //$NON-NLS-1$
+		}
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] result = new int[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+
+	private static long[] grow(long[] array, int length) {
+		long[] result = new long[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+
+	private static byte[] grow(byte[] array, int length) {
+		byte[] result = new byte[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+
+	private static boolean[] grow(boolean[] array, int length) {
+		boolean[] result = new boolean[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+
+	private static String[] grow(String[] array, int length) {
+		String[] result = new String[length];
+		System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+		return result;
+	}
+
+	private static int[] trim(int[] array, int length) {
+		return array.length == length ? array : grow(array, length);
+	}
+
+	private static long[] trim(long[] array, int length) {
+		return array.length == length ? array : grow(array, length);
+	}
+
+	private static boolean[] trim(boolean[] array, int length) {
+		return array.length == length ? array : grow(array, length);
+	}
+}
@@ -0,0 +1,576 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils.debug.dwarf;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Table mapping addresses to source lines, decoded from the line number programs in
+ * the <code>.debug_line</code> section. The rows of all sequences are kept in arrays sorted
+ * by address, such that a lookup is a binary search. When the <code>.debug_aranges</code>
+ * section is present, sequences that do not lie within the address ranges of their compilation
+ * unit (e.g. the code of discarded sections) are left out.
+ * <p>
+ * The table is obtained via {@link Dwarf#getLineTable()}, it does not reference the sections
+ * it has been decoded from.
+ *
+ * @since 5.4
+ */
+public class DwarfLineTable {
+	/** Marks the row ending a sequence */
+	private static final int END_OF_SEQUENCE = -1;
+	private static final int UNKNOWN_FILE = -2;
+
+	private final long[] addresses;
+	private final int[] lines;
+	private final int[] files;
+	private final String[] fileNames;
+
+	private DwarfLineTable(long[] addresses, int[] lines, int[] files, String[] fileNames) {
+		this.addresses = addresses;
+		this.lines = lines;
+		this.files = files;
+		this.fileNames = fileNames;
+	}
+
+	/**
+	 * Returns whether the table does not contain any line information.
+	 */
+	public boolean isEmpty() {
+		return addresses.length == 0;
+	}
+
+	/**
+	 * Returns the number of rows of the table, including the rows marking the ends of
+	 * sequences.
+	 */
+	public int getRowCount() {
+		return addresses.length;
+	}
+
+	/**
+	 * Returns the line number for the given address, or <code>-1</code> if there is no line
+	 * information for the address.
+	 */
+	public int getLineNumber(long address) {
+		int row = findRow(address);
+		return row < 0 ? -1 : lines[row];
+	}
+
+	/**
+	 * Returns the line numbers for each of the given addresses, <code>-1</code> for the
+	 * addresses without line information.
+	 */
+	public int[] getLineNumbers(long[] addresses) {
+		int[] result = new int[addresses.length];
+		for (int i = 0; i < addresses.length; i++) {
+			result[i] = getLineNumber(addresses[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the path of the source file for the given address, or <code>null</code> if there is
+	 * no line information for the address.
+	 */
+	public String getFileName(long address) {
+		int row = findRow(address);
+		if (row < 0 || files[row] == UNKNOWN_FILE)
+			return null;
+		return fileNames[files[row]];
+	}
+
+	/**
+	 * Finds the row for an address, rows with line number zero are skipped in favor of the
+	 * next row of the same sequence.
+	 */
+	private int findRow(long address) {
+		// Binary search for the last row with an address not greater than the given one.
+		int low = 0;
+		int high = addresses.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareUnsigned(addresses[mid], address) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int row = low - 1;
+		if (row < 0)
+			return -1;
+		while (files[row] != END_OF_SEQUENCE) {
+			if (lines[row] != 0)
+				return row;
+			row++;
+		}
+		return -1;
+	}
+
+	static int compareUnsigned(long a, long b) {
+		a ^= Long.MIN_VALUE;
+		b ^= Long.MIN_VALUE;
+		return a < b ? -1 : (a > b ? 1 : 0);
+	}
+
+	/**
+	 * Decodes the line number programs of the given debug information.
+	 */
+	static DwarfLineTable decode(Dwarf dwarf) throws IOException {
+		Decoder decoder = new Decoder(dwarf);
+		return decoder.decode();
+	}
+
+	private static final class Sequence {
+		final long start;
+		final int firstRow;
+		final int rowCount;
+
+		Sequence(long start, int firstRow, int rowCount) {
+			this.start = start;
+			this.firstRow = firstRow;
+			this.rowCount = rowCount;
+		}
+	}
+
+	private static final class Decoder {
+		private final Dwarf dwarf;
+		private final ByteOrder order;
+
+		private long[] rowAddresses = new long[1024];
+		private int[] rowLines = new int[1024];
+		private int[] rowFiles = new int[1024];
+		private int rowCount;
+		private final List<Sequence> sequences = new ArrayList<Sequence>();
+
+		private final Map<String, Integer> fileIndexes = new HashMap<String, Integer>();
+		private final List<String> fileNames = new ArrayList<String>();
+
+		Decoder(Dwarf dwarf) {
+			this.dwarf = dwarf;
+			this.order = dwarf.isLE ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		}
+
+		DwarfLineTable decode() throws IOException {
+			ByteBuffer section = dwarf.dwarfSections.get(Dwarf.DWARF_DEBUG_LINE);
+			if (section != null) {
+				Map<Integer, Dwarf.CompileUnit> units = dwarf.readCompileUnits();
+				Map<Integer, long[]> unitRanges = readAddressRanges();
+				Map<Integer, Integer> unitsByStmtList = new HashMap<Integer, Integer>();
+				for (Map.Entry<Integer, Dwarf.CompileUnit> entry : units.entrySet()) {
+					unitsByStmtList.put(entry.getValue().stmtList, entry.getKey());
+				}
+
+				ByteBuffer data = section.duplicate().order(order);
+				int offset = 0;
+				while (offset < data.limit() - 4) {
+					String compDir = null;
+					long[] ranges = null;
+					Integer unitOffset = unitsByStmtList.get(offset);
+					if (unitOffset != null) {
+						compDir = units.get(unitOffset).compDir;
+						ranges = unitRanges.get(unitOffset);
+					}
+					int next;
+					try {
+						next = decodeProgram(data, offset, compDir, ranges);
+					} catch (BufferUnderflowException e) {
+						// Truncated program, keep the sequences decoded so far.
+						break;
+					}
+					if (next <= offset)
+						break;
+					offset = next;
+				}
+			}
+			return createTable();
+		}
+
+		/**
+		 * Reads the address ranges of the compilation units from the .debug_aranges section.
+		 * @return the sorted pairs of start and end addresses by the offset of the compilation
+		 * units in .debug_info.
+		 */
+		private Map<Integer, long[]> readAddressRanges() {
+			Map<Integer, long[]> result = new HashMap<Integer, long[]>();
+			ByteBuffer section = dwarf.dwarfSections.get(Dwarf.DWARF_DEBUG_ARANGES);
+			if (section == null)
+				return result;
+
+			ByteBuffer data = section.duplicate().order(order);
+			data.position(0);
+			try {
+				while (data.remaining() >= 16) {
+					final int start = data.position();
+					long length = data.getInt() & 0xffffffffL;
+					int offsetSize = 4;
+					if (length == 0xffffffffL) {
+						// 64-bit DWARF format
+						length = data.getLong();
+						offsetSize = 8;
+					}
+					if (length < 0 || data.position() + length > data.limit())
+						break;
+					final int next = (int) (data.position() + length);
+					data.getShort(); // version
+					final int unitOffset = (int) (offsetSize == 8 ? data.getLong() : data.getInt() & 0xffffffffL);
+					final int addressSize = data.get() & 0xff;
+					data.get(); // segment size
+					if (addressSize != 4 && addressSize != 8)
+						break;
+					// The tuples are aligned to twice the address size.
+					final int tupleSize = 2 * addressSize;
+					int pos = data.position() - start;
+					data.position(start + (pos + tupleSize - 1) / tupleSize * tupleSize);
+
+					List<long[]> ranges = new ArrayList<long[]>();
+					while (data.position() + tupleSize <= next) {
+						long address = readAddress(data, addressSize);
+						long size = readAddress(data, addressSize);
+						if (address == 0 && size == 0)
+							break;
+						ranges.add(new long[] {address, address + size});
+					}
+					long[] merged = mergeRanges(result.get(unitOffset), ranges);
+					if (merged != null) {
+						result.put(unitOffset, merged);
+					}
+					data.position(next);
+				}
+			} catch (BufferUnderflowException e) {
+				// Truncated section, use the ranges read so far.
+			}
+			return result;
+		}
+
+		private long[] mergeRanges(long[] existing, List<long[]> ranges) {
+			if (existing != null) {
+				for (int i = 0; i < existing.length; i += 2) {
+					ranges.add(new long[] {existing[i], existing[i + 1]});
+				}
+			}
+			if (ranges.isEmpty())
+				return null;
+
+			Collections.sort(ranges, new Comparator<long[]>() {
+				public int compare(long[] r1, long[] r2) {
+					return compareUnsigned(r1[0], r2[0]);
+				}
+			});
+			// Merge overlapping ranges.
+			long[] result = new long[2 * ranges.size()];
+			int count = 0;
+			for (long[] range : ranges) {
+				if (count > 0 && compareUnsigned(range[0], result[count - 1]) <= 0) {
+					if (compareUnsigned(range[1], result[count - 1]) > 0) {
+						result[count - 1] = range[1];
+					}
+				} else {
+					result[count++] = range[0];
+					result[count++] = range[1];
+				}
+			}
+			if (count < result.length) {
+				long[] trimmed = new long[count];
+				System.arraycopy(result, 0, trimmed, 0, count);
+				result = trimmed;
+			}
+			return result;
+		}
+
+		/**
+		 * Decodes the line number program starting at the given offset.
+		 * @return the offset of the next program.
+		 */
+		private int decodeProgram(ByteBuffer data, int offset, String compDir, long[] ranges) {
+			data.position(offset);
+			long unitLength = data.getInt() & 0xffffffffL;
+			int offsetSize = 4;
+			if (unitLength == 0xffffffffL) {
+				unitLength = data.getLong();
+				offsetSize = 8;
+			}
+			final long end = data.position() + unitLength;
+			if (unitLength <= 0 || end > data.limit())
+				return -1;
+
+			final int version = data.getShort() & 0xffff;
+			if (version < 2 || version > 4) {
+				// Unsupported format, skip the program.
+				return (int) end;
+			}
+			final long headerLength = offsetSize == 8 ? data.getLong() : data.getInt() & 0xffffffffL;
+			final int programStart = (int) (data.position() + headerLength);
+			final int minInstructionLength = data.get() & 0xff;
+			if (version >= 4) {
+				data.get(); // maximum_operations_per_instruction, relevant for VLIW, only
+			}
+			data.get(); // default_is_stmt
+			final int lineBase = data.get();
+			final int lineRange = data.get() & 0xff;
+			final int opcodeBase = data.get() & 0xff;
+			if (lineRange == 0 || opcodeBase == 0)
+				return (int) end;
+
+			final int[] opcodeLengths = new int[opcodeBase];
+			for (int i = 1; i < opcodeBase; i++) {
+				opcodeLengths[i] = data.get() & 0xff;
+			}
+
+			// Directory 0 is the compilation directory.
+			List<String> dirs = new ArrayList<String>();
+			dirs.add(compDir);
+			while (true) {
+				String dir = dwarf.readString(data);
+				if (dir.length() == 0)
+					break;
+				dirs.add(compDir != null ? append(compDir, dir) : dir);
+			}
+
+			// Files are numbered starting with 1.
+			List<Integer> files = new ArrayList<Integer>();
+			files.add(UNKNOWN_FILE);
+			while (true) {
+				String name = dwarf.readString(data);
+				if (name.length() == 0)
+					break;
+				int dir = (int) readUnsignedLeb128(data);
+				readUnsignedLeb128(data); // modification time
+				readUnsignedLeb128(data); // length
+				files.add(addFile(dirs, dir, name));
+			}
+
+			data.position(programStart);
+			long address = 0;
+			int file = 1;
+			int line = 1;
+			int sequenceStart = rowCount;
+			while (data.position() < end) {
+				final int opcode = data.get() & 0xff;
+				if (opcode >= opcodeBase) {
+					// special opcode
+					final int adjusted = opcode - opcodeBase;
+					address += (adjusted / lineRange) * minInstructionLength;
+					line += lineBase + adjusted % lineRange;
+					addRow(address, getFile(files, file), line);
+				} else if (opcode == 0) {
+					// extended opcode
+					final int length = (int) readUnsignedLeb128(data);
+					final int next = data.position() + length;
+					if (length == 0)
+						continue;
+					switch (data.get() & 0xff) {
+					case DwarfConstants.DW_LNE_end_sequence:
+						addRow(address, END_OF_SEQUENCE, 0);
+						endSequence(sequenceStart, ranges);
+						sequenceStart = rowCount;
+						address = 0;
+						file = 1;
+						line = 1;
+						break;
+					case DwarfConstants.DW_LNE_set_address:
+						address = readAddress(data, length - 1);
+						break;
+					case DwarfConstants.DW_LNE_define_file:
+						String name = dwarf.readString(data);
+						int dir = (int) readUnsignedLeb128(data);
+						files.add(addFile(dirs, dir, name));
+						break;
+					default:
+						break;
+					}
+					data.position(next);
+				} else {
+					switch (opcode) {
+					case DwarfConstants.DW_LNS_copy:
+						addRow(address, getFile(files, file), line);
+						break;
+					case DwarfConstants.DW_LNS_advance_pc:
+						address += readUnsignedLeb128(data) * minInstructionLength;
+						break;
+					case DwarfConstants.DW_LNS_advance_line:
+						line += (int) readSignedLeb128(data);
+						break;
+					case DwarfConstants.DW_LNS_set_file:
+						file = (int) readUnsignedLeb128(data);
+						break;
+					case DwarfConstants.DW_LNS_const_add_pc:
+						address += ((255 - opcodeBase) / lineRange) * minInstructionLength;
+						break;
+					case DwarfConstants.DW_LNS_fixed_advance_pc:
+						address += data.getShort() & 0xffff;
+						break;
+					case DwarfConstants.DW_LNS_negate_stmt:
+					case DwarfConstants.DW_LNS_set_basic_block:
+					case DwarfConstants.DW_LNS_set_prologue_end:
+					case DwarfConstants.DW_LNS_set_epilog_begin:
+						break;
+					default:
+						// DW_LNS_set_column, DW_LNS_set_isa and unknown opcodes
+						for (int i = 0; i < opcodeLengths[opcode]; i++) {
+							readUnsignedLeb128(data);
+						}
+						break;
+					}
+				}
+			}
+			// Drop the rows of an unterminated sequence.
+			rowCount = sequenceStart;
+			return (int) end;
+		}
+
+		private void addRow(long address, int file, int line) {
+			if (rowCount == rowAddresses.length) {
+				int newLength = 2 * rowCount;
+				long[] newAddresses = new long[newLength];
+				int[] newLines = new int[newLength];
+				int[] newFiles = new int[newLength];
+				System.arraycopy(rowAddresses, 0, newAddresses, 0, rowCount);
+				System.arraycopy(rowLines, 0, newLines, 0, rowCount);
+				System.arraycopy(rowFiles, 0, newFiles, 0, rowCount);
+				rowAddresses = newAddresses;
+				rowLines = newLines;
+				rowFiles = newFiles;
+			}
+			rowAddresses[rowCount] = address;
+			rowLines[rowCount] = line;
+			rowFiles[rowCount] = file;
+			rowCount++;
+		}
+
+		private void endSequence(int sequenceStart, long[] ranges) {
+			final int count = rowCount - sequenceStart;
+			final long start = rowAddresses[sequenceStart];
+			if (count < 2 || (ranges != null && !isCovered(ranges, start))) {
+				rowCount = sequenceStart;
+			} else {
+				sequences.add(new Sequence(start, sequenceStart, count));
+			}
+		}
+
+		private static boolean isCovered(long[] ranges, long address) {
+			int low = 0;
+			int high = ranges.length / 2;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (compareUnsigned(ranges[2 * mid], address) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low > 0 && compareUnsigned(address, ranges[2 * low - 1]) < 0;
+		}
+
+		private DwarfLineTable createTable() {
+			Collections.sort(sequences, new Comparator<Sequence>() {
+				public int compare(Sequence s1, Sequence s2) {
+					return compareUnsigned(s1.start, s2.start);
+				}
+			});
+			int count = 0;
+			for (Sequence sequence : sequences) {
+				count += sequence.rowCount;
+			}
+			long[] addresses = new long[count];
+			int[] lines = new int[count];
+			int[] files = new int[count];
+			int pos = 0;
+			for (Sequence sequence : sequences) {
+				System.arraycopy(rowAddresses, sequence.firstRow, addresses, pos, sequence.rowCount);
+				System.arraycopy(rowLines, sequence.firstRow, lines, pos, sequence.rowCount);
+				System.arraycopy(rowFiles, sequence.firstRow, files, pos, sequence.rowCount);
+				pos += sequence.rowCount;
+			}
+			return new DwarfLineTable(addresses, lines, files, fileNames.toArray(new String[fileNames.size()]));
+		}
+
+		private int getFile(List<Integer> files, int file) {
+			if (file > 0 && file < files.size())
+				return files.get(file);
+			return UNKNOWN_FILE;
+		}
+
+		private int addFile(List<String> dirs, int dir, String name) {
+			String path = name;
+			if (dir >= 0 && dir < dirs.size() && dirs.get(dir) != null) {
+				path = append(dirs.get(dir), name);
+			}
+			Integer index = fileIndexes.get(path);
+			if (index == null) {
+				index = fileNames.size();
+				fileNames.add(path);
+				fileIndexes.put(path, index);
+			}
+			return index;
+		}
+
+		private static String append(String dir, String name) {
+			IPath path = new Path(name);
+			if (path.isAbsolute() || dir.length() == 0)
+				return name;
+			return new Path(dir).append(path).toString();
+		}
+
+		private static long readAddress(ByteBuffer data, int size) {
+			switch (size) {
+			case 2:
+				return data.getShort() & 0xffffL;
+			case 4:
+				return data.getInt() & 0xffffffffL;
+			case 8:
+				return data.getLong();
+			default:
+				data.position(data.position() + size);
+				return 0;
+			}
+		}
+
+		private static long readUnsignedLeb128(ByteBuffer data) {
+			long result = 0;
+			int shift = 0;
+			while (true) {
+				byte b = data.get();
+				result |= ((long) (b & 0x7f)) << shift;
+				if ((b & 0x80) == 0)
+					return result;
+				shift += 7;
+			}
+		}
+
+		private static long readSignedLeb128(ByteBuffer data) {
+			long result = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data.get();
+				result |= ((long) (b & 0x7f)) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			if (shift < 64 && (b & 0x40) != 0) {
+				result |= -1L << shift;
+			}
+			return result;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Nokia and others.
+ * Copyright (c) 2007, 2011 Nokia and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -410,27 +410,6 @@ public class DwarfReader extends Dwarf implements ISymbolReader {
 			m_fileCollection.add(fullName);					
 	}
 	
-	/**
-	 * Read a null-ended string from the given "data" stream.
-	 * data	:  IN, byte buffer
-	 */
-	String readString(ByteBuffer data)
-	{
-		String str;
-		
-		StringBuffer sb = new StringBuffer();
-		while (data.hasRemaining()) {
-			byte c = data.get();
-			if (c == 0) {
-				break;
-			}
-			sb.append((char) c);
-		}
-
-		str = sb.toString();
-		return str;
-	}
-
 	// Override parent: only handle TAG_Compile_Unit.
 	@Override
 	void processDebugInfoEntry(IDebugEntryRequestor requestor, AbbreviationEntry entry, List<Dwarf.AttributeValue> list) {
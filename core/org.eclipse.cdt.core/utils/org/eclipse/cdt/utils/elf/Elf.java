@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,6 +14,7 @@ package org.eclipse.cdt.utils.elf;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,6 +50,9 @@ public class Elf {
 	private Section symtab_sym;
 	private Symbol[] dynsym_symbols;
 	private Section dynsym_sym;
+	private ElfSymbolTable symtab_table;
+	private ElfSymbolTable dynsym_table;
+	private long file_offset;
 	private boolean sections_mapped; // Have sections been mapped? Used to clean up properly in Elf.Dispose.
 
 	protected String EMPTY_STRING = ""; //$NON-NLS-1$
@@ -445,7 +449,7 @@ public class Elf {
 		public short st_other;
 		public short st_shndx;
 
-		private String name = null;
+		String name = null;
 
 		private final Section sym_section;
 
@@ -685,6 +689,7 @@ public class Elf {
 		try {
 			efile = new ERandomAccessFile(file, "r"); //$NON-NLS-1$
 			efile.setFileOffset(offset);
+			file_offset = offset;
 			ehdr = new ELFhdr();
 			this.file = file;
 		} finally {
@@ -968,6 +973,8 @@ public class Elf {
 			if (efile != null) {
 				efile.close();
 				efile = null;
+				symtab_table = null;
+				dynsym_table = null;
 				
 				// ensure the mappings get cleaned up
 				if (sections_mapped)
@@ -1074,73 +1081,81 @@ public class Elf {
 		return sections;
 	}
 
-	private Symbol[] loadSymbolsBySection(Section section) throws IOException {
-		int numSyms = 1;
-		if (section.sh_entsize != 0) {
-			numSyms = (int)section.sh_size / (int)section.sh_entsize;
+	private ElfSymbolTable createSymbolTable(int type) throws IOException {
+		Section[] section = getSections(type);
+		if (section.length == 0)
+			return new ElfSymbolTable(this, null, null, null, false);
+
+		final boolean is64;
+		switch (ehdr.e_ident[ELFhdr.EI_CLASS]) {
+			case ELFhdr.ELFCLASS32 :
+				is64 = false;
+				break;
+			case ELFhdr.ELFCLASS64 :
+				is64 = true;
+				break;
+			case ELFhdr.ELFCLASSNONE :
+			default :
+				throw new IOException("Unknown ELF class " + ehdr.e_ident[ELFhdr.EI_CLASS]); //$NON-NLS-1$
 		}
-		ArrayList<Symbol> symList = new ArrayList<Symbol>(numSyms);
-		long offset = section.sh_offset;
-		for (int c = 0; c < numSyms; offset += section.sh_entsize, c++) {
-			efile.seek(offset);
-			Symbol symbol = new Symbol(section);
-			switch (ehdr.e_ident[ELFhdr.EI_CLASS]) {
-				case ELFhdr.ELFCLASS32 : {
-					byte[] addrArray = new byte[ELF32_ADDR_SIZE];
+		ByteBuffer data = getSectionBuffer(section[0]);
+		ByteBuffer strings = null;
+		final Section[] all = getSections();
+		if (section[0].sh_link > 0 && section[0].sh_link < all.length) {
+			strings = getSectionBuffer(all[(int) section[0].sh_link]);
+		}
+		return new ElfSymbolTable(this, section[0], data, strings, is64);
+	}
 
-					symbol.st_name = efile.readIntE();
-					efile.readFullyE(addrArray);
-					symbol.st_value = new Addr32(addrArray);
-					symbol.st_size = efile.readIntE();
-					symbol.st_info = efile.readByte();
-					symbol.st_other = efile.readByte();
-					symbol.st_shndx = efile.readShortE();
-				}
-					break;
-				case ELFhdr.ELFCLASS64 : {
-					byte[] addrArray = new byte[ELF64_ADDR_SIZE];
+	/**
+	 * Maps the contents of a section into memory, members of archives are read instead.
+	 */
+	private ByteBuffer getSectionBuffer(Section section) throws IOException {
+		ByteBuffer buffer;
+		if (file_offset == 0) {
+			buffer = section.mapSectionData();
+		} else {
+			buffer = ByteBuffer.wrap(section.loadSectionData());
+		}
+		buffer.order(ehdr.e_ident[ELFhdr.EI_DATA] == ELFhdr.ELFDATA2LSB ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		return buffer;
+	}
 
-					symbol.st_name = efile.readIntE();
-					symbol.st_info = efile.readByte();
-					symbol.st_other = efile.readByte();
-					symbol.st_shndx = efile.readShortE();
-					efile.readFullyE(addrArray);
-					symbol.st_value = new Addr64(addrArray);
-					symbol.st_size = readUnsignedLong(efile);
-				}
-					break;
-				case ELFhdr.ELFCLASSNONE :
-				default :
-					throw new IOException("Unknown ELF class " + ehdr.e_ident[ELFhdr.EI_CLASS]); //$NON-NLS-1$
-			}
-			if (symbol.st_info == 0)
-				continue;
-			symList.add(symbol);
+	/**
+	 * Returns the table of the symbols of the <code>.symtab</code> section. The symbols are
+	 * decoded on demand, such that the table can be used without loading all of the symbols.
+	 * The table is empty if the binary has no such section.
+	 * @since 5.4
+	 */
+	public ElfSymbolTable getSymtabSymbolTable() throws IOException {
+		if (symtab_table == null) {
+			symtab_table = createSymbolTable(Section.SHT_SYMTAB);
+		}
+		return symtab_table;
+	}
+
+	/**
+	 * Returns the table of the symbols of the <code>.dynsym</code> section. The symbols are
+	 * decoded on demand, such that the table can be used without loading all of the symbols.
+	 * The table is empty if the binary has no such section.
+	 * @since 5.4
+	 */
+	public ElfSymbolTable getDynamicSymbolTable() throws IOException {
+		if (dynsym_table == null) {
+			dynsym_table = createSymbolTable(Section.SHT_DYNSYM);
 		}
-		Symbol[] results = symList.toArray(new Symbol[0]);
-		Arrays.sort(results);
-		return results;
+		return dynsym_table;
 	}
 
 	public void loadSymbols() throws IOException {
 		if (symbols == null) {
-			Section section[] = getSections(Section.SHT_SYMTAB);
-			if (section.length > 0) {
-				symtab_sym = section[0];
-				symtab_symbols = loadSymbolsBySection(section[0]);
-			} else {
-				symtab_sym = null;
-				symtab_symbols = new Symbol[0];
-			}
+			ElfSymbolTable table = getSymtabSymbolTable();
+			symtab_sym = table.getSection();
+			symtab_symbols = table.getSymbols();
 
-			section = getSections(Section.SHT_DYNSYM);
-			if (section.length > 0) {
-				dynsym_sym = section[0];
-				dynsym_symbols = loadSymbolsBySection(section[0]);
-			} else {
-				dynsym_sym = null;
-				dynsym_symbols = new Symbol[0];
-			}
+			table = getDynamicSymbolTable();
+			dynsym_sym = table.getSection();
+			dynsym_symbols = table.getSymbols();
 
 			if (symtab_sym != null) {
 				// sym = symtab_sym;
@@ -1167,7 +1182,16 @@ public class Elf {
 	/* return the address of the function that address is in */
 	public Symbol getSymbol(IAddress vma) {
 		if (symbols == null) {
-			return null;
+			// Look up the symbol without loading all of them
+			try {
+				ElfSymbolTable table = getSymtabSymbolTable();
+				if (table.getSymbolCount() == 0) {
+					table = getDynamicSymbolTable();
+				}
+				return table.getSymbol(vma);
+			} catch (IOException e) {
+				return null;
+			}
 		}
 
 		//@@@ If this works, move it to a single instance in this class.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,8 +26,8 @@ import org.eclipse.cdt.utils.elf.Elf.Symbol;
 public class ElfHelper {
 
 	private Elf elf;
-	private Elf.Symbol[] dynsyms;
-	private Elf.Symbol[] symbols;
+	private ElfSymbolTable dynsyms;
+	private ElfSymbolTable symbols;
 	private Elf.Section[] sections;
 	private Elf.Dynamic[] dynamics;
 
@@ -54,13 +54,13 @@ public class ElfHelper {
 
 	private void loadSymbols() throws IOException {
 		if (symbols == null) {
-			elf.loadSymbols();
-			symbols = elf.getSymtabSymbols();
-			dynsyms = elf.getDynamicSymbols();
+			// The symbol objects are created only for the symbols that are returned.
+			symbols = elf.getSymtabSymbolTable();
+			dynsyms = elf.getDynamicSymbolTable();
 
-			if (symbols.length <= 0)
+			if (symbols.getSymbolCount() <= 0)
 				symbols = dynsyms;
-			if (dynsyms.length <= 0)
+			if (dynsyms.getSymbolCount() <= 0)
 				dynsyms = symbols;
 		}
 	}
@@ -132,15 +132,15 @@ public class ElfHelper {
 		loadSymbols();
 		loadSections();
 
-		for (int i = 0; i < dynsyms.length; i++) {
-			if (dynsyms[i].st_bind() == Elf.Symbol.STB_GLOBAL && dynsyms[i].st_type() == Elf.Symbol.STT_FUNC) {
-				int idx = dynsyms[i].st_shndx;
+		for (int i = 0; i < dynsyms.getSymbolCount(); i++) {
+			if (dynsyms.getBind(i) == Elf.Symbol.STB_GLOBAL && dynsyms.getType(i) == Elf.Symbol.STT_FUNC) {
+				int idx = dynsyms.getSectionIndex(i);
 				if (idx < Elf.Symbol.SHN_HIPROC && idx > Elf.Symbol.SHN_LOPROC) {
-					String name = dynsyms[i].toString();
+					String name = dynsyms.getName(i);
 					if (name != null && name.trim().length() > 0)
-						v.add(dynsyms[i]);
+						v.add(dynsyms.getSymbol(i));
 				} else if (idx >= 0 && sections[idx].sh_type == Elf.Section.SHT_NULL) {
-					v.add(dynsyms[i]);
+					v.add(dynsyms.getSymbol(i));
 				}
 			}
 		}
@@ -155,15 +155,15 @@ public class ElfHelper {
 		loadSymbols();
 		loadSections();
 
-		for (int i = 0; i < dynsyms.length; i++) {
-			if (dynsyms[i].st_bind() == Elf.Symbol.STB_GLOBAL && dynsyms[i].st_type() == Elf.Symbol.STT_OBJECT) {
-				int idx = dynsyms[i].st_shndx;
+		for (int i = 0; i < dynsyms.getSymbolCount(); i++) {
+			if (dynsyms.getBind(i) == Elf.Symbol.STB_GLOBAL && dynsyms.getType(i) == Elf.Symbol.STT_OBJECT) {
+				int idx = dynsyms.getSectionIndex(i);
 				if (idx < Elf.Symbol.SHN_HIPROC && idx > Elf.Symbol.SHN_LOPROC) {
-					String name = dynsyms[i].toString();
+					String name = dynsyms.getName(i);
 					if (name != null && name.trim().length() > 0)
-						v.add(dynsyms[i]);
+						v.add(dynsyms.getSymbol(i));
 				} else if (idx >= 0 && sections[idx].sh_type == Elf.Section.SHT_NULL) {
-					v.add(dynsyms[i]);
+					v.add(dynsyms.getSymbol(i));
 				}
 			}
 		}
@@ -177,9 +177,9 @@ public class ElfHelper {
 
 		loadSymbols();
 
-		for (int i = 0; i < dynsyms.length; i++) {
-			if (dynsyms[i].st_shndx == Elf.Symbol.SHN_UNDEF)
-				v.add(dynsyms[i]);
+		for (int i = 0; i < dynsyms.getSymbolCount(); i++) {
+			if (dynsyms.getSectionIndex(i) == Elf.Symbol.SHN_UNDEF)
+				v.add(dynsyms.getSymbol(i));
 		}
 
 		Elf.Symbol[] ret = v.toArray(new Elf.Symbol[v.size()]);
@@ -192,15 +192,15 @@ public class ElfHelper {
 		loadSymbols();
 		loadSections();
 
-		for (int i = 0; i < symbols.length; i++) {
-			if ( symbols[i].st_type() == Elf.Symbol.STT_FUNC) {
-				int idx = symbols[i].st_shndx;
+		for (int i = 0; i < symbols.getSymbolCount(); i++) {
+			if ( symbols.getType(i) == Elf.Symbol.STT_FUNC) {
+				int idx = symbols.getSectionIndex(i);
 				if (idx < Elf.Symbol.SHN_HIPROC && idx > Elf.Symbol.SHN_LOPROC) {
-					String name = symbols[i].toString();
+					String name = symbols.getName(i);
 					if (name != null && name.trim().length() > 0)
-						v.add(symbols[i]);
+						v.add(symbols.getSymbol(i));
 				} else if (idx >= 0 && sections[idx].sh_type != Elf.Section.SHT_NULL) {
-					v.add(symbols[i]);
+					v.add(symbols.getSymbol(i));
 				}
 			}
 		}
@@ -215,15 +215,15 @@ public class ElfHelper {
 		loadSymbols();
 		loadSections();
 
-		for (int i = 0; i < symbols.length; i++) {
-			if ( symbols[i].st_type() == Elf.Symbol.STT_OBJECT) {
-				int idx = symbols[i].st_shndx;
+		for (int i = 0; i < symbols.getSymbolCount(); i++) {
+			if ( symbols.getType(i) == Elf.Symbol.STT_OBJECT) {
+				int idx = symbols.getSectionIndex(i);
 				if (idx < Elf.Symbol.SHN_HIPROC && idx > Elf.Symbol.SHN_LOPROC) {
-					String name = symbols[i].toString();
+					String name = symbols.getName(i);
 					if (name != null && name.trim().length() > 0)
-						v.add(symbols[i]);
+						v.add(symbols.getSymbol(i));
 				} else if (idx >= 0 && sections[idx].sh_type != Elf.Section.SHT_NULL) {
-					v.add(symbols[i]);
+					v.add(symbols.getSymbol(i));
 				}
 			}
 		}
@@ -238,11 +238,11 @@ public class ElfHelper {
 		loadSymbols();
 		loadSections();
 
-		for (int i = 0; i < symbols.length; i++) {
-			if (symbols[i].st_bind() == Elf.Symbol.STB_GLOBAL && symbols[i].st_type() == Elf.Symbol.STT_OBJECT) {
-				int idx = symbols[i].st_shndx;
+		for (int i = 0; i < symbols.getSymbolCount(); i++) {
+			if (symbols.getBind(i) == Elf.Symbol.STB_GLOBAL && symbols.getType(i) == Elf.Symbol.STT_OBJECT) {
+				int idx = symbols.getSectionIndex(i);
 				if (idx == Elf.Symbol.SHN_COMMON) {
-					v.add(symbols[i]);
+					v.add(symbols.getSymbol(i));
 				}
 			}
 		}
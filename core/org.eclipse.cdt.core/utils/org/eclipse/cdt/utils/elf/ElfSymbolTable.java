@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.utils.elf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.eclipse.cdt.core.IAddress;
+import org.eclipse.cdt.utils.Addr32;
+import org.eclipse.cdt.utils.Addr64;
+
+/**
+ * Read-only view of a symbol table section (<code>.symtab</code> or <code>.dynsym</code>) of
+ * an ELF file. The entries are decoded from the section data on demand, the table itself
+ * only keeps the indices of the entries sorted by address. {@link Elf.Symbol} objects are
+ * created when they are requested and are reused afterwards.
+ * <p>
+ * Entries with <code>st_info == 0</code> (e.g. the null symbol) are not part of the table.
+ * Symbols are numbered by ascending address, symbols with the same address keep the order
+ * of the section.
+ *
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ * @since 5.4
+ */
+public final class ElfSymbolTable {
+	private static final int ELF32_SYM_SIZE = 16;
+	private static final int ELF64_SYM_SIZE = 24;
+
+	private final Elf elf;
+	private final Elf.Section section;
+	private final ByteBuffer data;
+	private final ByteBuffer strings;
+	private final boolean is64;
+	private final int entrySize;
+
+	/** Offsets of the entries in the section data, sorted by address */
+	private final int[] entryOffsets;
+	/** Addresses of the entries, parallel to {@link #entryOffsets} */
+	private final long[] addresses;
+	private Elf.Symbol[] symbols;
+
+	/**
+	 * Creates the view on a symbol table.
+	 * @param section the symbol table section, or <code>null</code> for an empty table.
+	 * @param data the contents of the symbol table section.
+	 * @param strings the contents of the linked string table, or <code>null</code>.
+	 * @throws IOException if the size of a 64-bit symbol exceeds the range of a
+	 * <code>long</code>, like it does when the symbols are read from the file.
+	 */
+	ElfSymbolTable(Elf elf, Elf.Section section, ByteBuffer data, ByteBuffer strings, boolean is64) throws IOException {
+		this.elf = elf;
+		this.section = section;
+		this.data = data;
+		this.strings = strings;
+		this.is64 = is64;
+		if (section != null && section.sh_entsize > 0) {
+			entrySize = (int) section.sh_entsize;
+		} else {
+			entrySize = is64 ? ELF64_SYM_SIZE : ELF32_SYM_SIZE;
+		}
+
+		final int entryCount = data != null ? data.limit() / entrySize : 0;
+		int[] offsets = new int[entryCount];
+		long[] values = new long[entryCount];
+		int count = 0;
+		for (int i = 0; i < entryCount; i++) {
+			final int offset = i * entrySize;
+			if (getInfoAt(offset) != 0) {
+				final long size = getSizeAt(offset);
+				if (size < 0) {
+					throw new IOException("Maximal file offset is " + Long.toHexString(Long.MAX_VALUE) + //$NON-NLS-1$
+							" given offset is " + Long.toHexString(size)); //$NON-NLS-1$
+				}
+				offsets[count] = offset;
+				values[count] = getValue(offset);
+				count++;
+			}
+		}
+		if (count < entryCount) {
+			int[] o = new int[count];
+			System.arraycopy(offsets, 0, o, 0, count);
+			offsets = o;
+			long[] v = new long[count];
+			System.arraycopy(values, 0, v, 0, count);
+			values = v;
+		}
+		sort(offsets, values);
+		entryOffsets = offsets;
+		addresses = values;
+	}
+
+	/**
+	 * Returns the section of the symbol table, or <code>null</code> for an empty table.
+	 */
+	public Elf.Section getSection() {
+		return section;
+	}
+
+	/**
+	 * Returns the number of symbols in the table.
+	 */
+	public int getSymbolCount() {
+		return entryOffsets.length;
+	}
+
+	/**
+	 * Returns the address (<code>st_value</code>) of the symbol with the given index.
+	 */
+	public long getAddress(int index) {
+		return addresses[index];
+	}
+
+	/**
+	 * Returns the size (<code>st_size</code>) of the symbol with the given index.
+	 */
+	public long getSize(int index) {
+		return getSizeAt(entryOffsets[index]);
+	}
+
+	private long getSizeAt(int offset) {
+		if (is64)
+			return data.getLong(offset + 16);
+		return data.getInt(offset + 8) & 0xffffffffL;
+	}
+
+	/**
+	 * Returns <code>st_info</code> of the symbol with the given index.
+	 */
+	public short getInfo(int index) {
+		return getInfoAt(entryOffsets[index]);
+	}
+
+	/**
+	 * Returns the type of the symbol with the given index, see {@link Elf.Symbol#st_type()}.
+	 */
+	public int getType(int index) {
+		return getInfo(index) & 0xf;
+	}
+
+	/**
+	 * Returns the binding of the symbol with the given index, see {@link Elf.Symbol#st_bind()}.
+	 */
+	public int getBind(int index) {
+		return (getInfo(index) >> 4) & 0xf;
+	}
+
+	/**
+	 * Returns the section index (<code>st_shndx</code>) of the symbol with the given index.
+	 */
+	public short getSectionIndex(int index) {
+		return data.getShort(entryOffsets[index] + (is64 ? 6 : 14));
+	}
+
+	/**
+	 * Returns the name of the symbol with the given index.
+	 */
+	public String getName(int index) {
+		return getString(getNameOffset(entryOffsets[index]));
+	}
+
+	/**
+	 * Returns the index of the symbol with the highest address that is less or equal to the
+	 * given one, or <code>-1</code> if there is no such symbol. Among several symbols with the
+	 * same address the last one is returned.
+	 */
+	public int findSymbol(long address) {
+		int low = 0;
+		int high = addresses.length - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (compareUnsigned(addresses[mid], address) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Returns the symbol object for the given index, it is created on the first request.
+	 */
+	public synchronized Elf.Symbol getSymbol(int index) {
+		if (symbols == null) {
+			symbols = new Elf.Symbol[entryOffsets.length];
+		}
+		Elf.Symbol symbol = symbols[index];
+		if (symbol == null) {
+			symbol = createSymbol(index);
+			symbols[index] = symbol;
+		}
+		return symbol;
+	}
+
+	/**
+	 * Returns the symbol that contains the given address according to {@link #findSymbol(long)},
+	 * or <code>null</code>.
+	 */
+	public Elf.Symbol getSymbol(IAddress address) {
+		final int index = findSymbol(address.getValue().longValue());
+		return index >= 0 ? getSymbol(index) : null;
+	}
+
+	/**
+	 * Returns the symbol objects for all of the symbols sorted by address.
+	 */
+	public Elf.Symbol[] getSymbols() {
+		Elf.Symbol[] result = new Elf.Symbol[entryOffsets.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = getSymbol(i);
+		}
+		return result;
+	}
+
+	private Elf.Symbol createSymbol(int index) {
+		final int offset = entryOffsets[index];
+		Elf.Symbol symbol = elf.new Symbol(section);
+		symbol.st_name = getNameOffset(offset);
+		symbol.st_value = createAddress(addresses[index]);
+		symbol.st_size = getSize(index);
+		symbol.st_info = getInfoAt(offset);
+		symbol.st_other = data.get(offset + (is64 ? 5 : 13));
+		symbol.st_shndx = getSectionIndex(index);
+		if (strings != null) {
+			symbol.name = getString(symbol.st_name);
+		}
+		return symbol;
+	}
+
+	private IAddress createAddress(long value) {
+		if (!is64)
+			return new Addr32(value);
+		byte[] bytes = new byte[8];
+		for (int i = 7; i >= 0; i--) {
+			bytes[i] = (byte) value;
+			value >>>= 8;
+		}
+		return new Addr64(bytes);
+	}
+
+	private short getInfoAt(int offset) {
+		return data.get(offset + (is64 ? 4 : 12));
+	}
+
+	private long getNameOffset(int offset) {
+		return data.getInt(offset) & 0xffffffffL;
+	}
+
+	private long getValue(int offset) {
+		if (is64)
+			return data.getLong(offset + 8);
+		return data.getInt(offset + 4) & 0xffffffffL;
+	}
+
+	private String getString(long offset) {
+		if (strings == null || offset < 0 || offset >= strings.limit())
+			return ""; //$NON-NLS-1$
+		final int start = (int) offset;
+		int end = start;
+		final int limit = strings.limit();
+		while (end < limit && strings.get(end) != 0) {
+			end++;
+		}
+		// Symbol names are ASCII, the same conversion is used when reading them from the file.
+		char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) strings.get(start + i);
+		}
+		return new String(chars);
+	}
+
+	private static int compareUnsigned(long a, long b) {
+		a += Long.MIN_VALUE;
+		b += Long.MIN_VALUE;
+		return a < b ? -1 : (a > b ? 1 : 0);
+	}
+
+	/**
+	 * Stable sort of the entries by their address.
+	 */
+	private static void sort(int[] offsets, long[] values) {
+		if (offsets.length < 2)
+			return;
+		boolean sorted = true;
+		for (int i = 1; i < values.length; i++) {
+			if (compareUnsigned(values[i - 1], values[i]) > 0) {
+				sorted = false;
+				break;
+			}
+		}
+		if (!sorted) {
+			mergeSort(offsets.clone(), values.clone(), offsets, values, 0, offsets.length);
+		}
+	}
+
+	private static void mergeSort(int[] srcOffsets, long[] srcValues, int[] dstOffsets, long[] dstValues,
+			int low, int high) {
+		final int length = high - low;
+		if (length < 8) {
+			// Insertion sort on the destination, which holds the same elements as the source.
+			for (int i = low + 1; i < high; i++) {
+				for (int j = i; j > low && compareUnsigned(dstValues[j - 1], dstValues[j]) > 0; j--) {
+					final long v = dstValues[j];
+					dstValues[j] = dstValues[j - 1];
+					dstValues[j - 1] = v;
+					final int o = dstOffsets[j];
+					dstOffsets[j] = dstOffsets[j - 1];
+					dstOffsets[j - 1] = o;
+				}
+			}
+			return;
+		}
+		final int mid = (low + high) >>> 1;
+		mergeSort(dstOffsets, dstValues, srcOffsets, srcValues, low, mid);
+		mergeSort(dstOffsets, dstValues, srcOffsets, srcValues, mid, high);
+
+		for (int i = low, p = low, q = mid; i < high; i++) {
+			if (q >= high || (p < mid && compareUnsigned(srcValues[p], srcValues[q]) <= 0)) {
+				dstOffsets[i] = srcOffsets[p];
+				dstValues[i] = srcValues[p++];
+			} else {
+				dstOffsets[i] = srcOffsets[q];
+				dstValues[i] = srcValues[q++];
+			}
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,16 +13,20 @@ package org.eclipse.cdt.utils.elf.parser;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.util.List;
 
 import org.eclipse.cdt.core.IAddress;
 import org.eclipse.cdt.core.IBinaryParser;
 import org.eclipse.cdt.utils.Addr2line;
+import org.eclipse.cdt.utils.CPPDemangler;
 import org.eclipse.cdt.utils.CPPFilt;
 import org.eclipse.cdt.utils.IGnuToolFactory;
 import org.eclipse.cdt.utils.Objdump;
 import org.eclipse.cdt.utils.Symbol;
 import org.eclipse.cdt.utils.AR.ARHeader;
+import org.eclipse.cdt.utils.debug.dwarf.Dwarf;
+import org.eclipse.cdt.utils.debug.dwarf.DwarfLineTable;
 import org.eclipse.cdt.utils.elf.Elf;
 import org.eclipse.cdt.utils.elf.ElfHelper;
 import org.eclipse.core.runtime.IPath;
@@ -36,6 +40,12 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 	private Addr2line autoDisposeAddr2line;
 	private Addr2line symbolLoadingAddr2line;
 	private CPPFilt symbolLoadingCPPFilt;
+	private boolean symbolLoadingCPPFiltCreated;
+	private DwarfLineTable symbolLoadingLineTable;
+	private SoftReference<DwarfLineTable> lineTableRef;
+	private boolean lineTableFailed;
+	private long lineTableTimestamp;
+	private final boolean isArchiveMember;
 	long starttime;
 	
 	/**
@@ -45,6 +55,7 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 	 */
 	public GNUElfBinaryObject(IBinaryParser parser, IPath path, ARHeader header) {
 		super(parser, path, header);
+		isArchiveMember = header != null;
 	}
 
 	/**
@@ -54,6 +65,7 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 	 */
 	public GNUElfBinaryObject(IBinaryParser parser, IPath path, int type) {
 		super(parser, path, type);
+		isArchiveMember = false;
 	}
 
 	public Addr2line getAddr2line(boolean autodisposing) {
@@ -103,6 +115,63 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 		return null;
 	}
  
+	/**
+	 * Returns the table mapping addresses to source lines decoded from the DWARF information of
+	 * the binary, or <code>null</code> if the binary does not contain line information. The
+	 * table is held via a soft reference, it is decoded again when it has been collected or when
+	 * the binary has changed.
+	 * @since 5.4
+	 */
+	public DwarfLineTable getLineTable() {
+		if (isArchiveMember) {
+			// Objects within archives are handled by addr2line.
+			return null;
+		}
+		return getLineTable(null);
+	}
+
+	/**
+	 * Returns the line table decoded before, or decodes it from the given helper. If the helper
+	 * is <code>null</code> the binary is opened only when needed. A failure to read the binary
+	 * is remembered like a table, such that it is not read again until it changes.
+	 */
+	private DwarfLineTable getLineTable(ElfHelper helper) {
+		final long timestamp = getPath().toFile().lastModified();
+		synchronized (this) {
+			if (timestamp == lineTableTimestamp) {
+				if (lineTableFailed) {
+					return null;
+				}
+				DwarfLineTable table = lineTableRef != null ? lineTableRef.get() : null;
+				if (table != null) {
+					return table.isEmpty() ? null : table;
+				}
+			}
+		}
+		DwarfLineTable table = null;
+		ElfHelper ownHelper = null;
+		try {
+			if (helper == null) {
+				ownHelper = getElfHelper();
+			}
+			table = new Dwarf((helper != null ? helper : ownHelper).getElf()).getLineTable();
+		} catch (IOException e) {
+			// The failure is remembered below.
+		} catch (RuntimeException e) {
+			// Malformed or unsupported debug information, remembered like a missing table.
+		} finally {
+			if (ownHelper != null) {
+				ownHelper.dispose();
+			}
+		}
+		synchronized (this) {
+			lineTableTimestamp = timestamp;
+			lineTableFailed = table == null;
+			lineTableRef = table != null ? new SoftReference<DwarfLineTable>(table) : null;
+		}
+		return table != null && !table.isEmpty() ? table : null;
+	}
+
 	protected CPPFilt getCPPFilt() {
 		IGnuToolFactory factory = (IGnuToolFactory)getBinaryParser().getAdapter(IGnuToolFactory.class);
 		if (factory != null) {
@@ -148,9 +217,15 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 	 */
 	@Override
 	protected void loadSymbols(ElfHelper helper) throws IOException {
-		symbolLoadingAddr2line = getAddr2line(false);
-		symbolLoadingCPPFilt = getCPPFilt();
+		// Prefer the line information of the binary over the addr2line process.
+		if (!isArchiveMember) {
+			symbolLoadingLineTable = getLineTable(helper);
+		}
+		if (symbolLoadingLineTable == null) {
+			symbolLoadingAddr2line = getAddr2line(false);
+		}
 		super.loadSymbols(helper);
+		symbolLoadingLineTable = null;
 		if (symbolLoadingAddr2line != null) {
 			symbolLoadingAddr2line.dispose();
 			symbolLoadingAddr2line = null;
@@ -159,6 +234,7 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 			symbolLoadingCPPFilt.dispose();
 			symbolLoadingCPPFilt =  null;
 		}
+		symbolLoadingCPPFiltCreated = false;
 	}
 	
 	/*
@@ -169,19 +245,31 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 	 */
 	@Override
 	protected void addSymbols(Elf.Symbol[] array, int type, List<Symbol> list) {
-		for (org.eclipse.cdt.utils.elf.Elf.Symbol element : array) {
-			String name = element.toString();
-			if (symbolLoadingCPPFilt != null) {
-				try {
-					name = symbolLoadingCPPFilt.getFunction(name);
-				} catch (IOException e1) {
-					symbolLoadingCPPFilt.dispose();
-					symbolLoadingCPPFilt = null;
+		String[] names = new String[array.length];
+		for (int i = 0; i < array.length; i++) {
+			names[i] = array[i].toString();
+		}
+		String[] demangled = CPPDemangler.getDefault().demangle(names);
+		for (int i = 0; i < array.length; i++) {
+			Elf.Symbol element = array[i];
+			String name = demangled[i];
+			if (name == null) {
+				name = names[i];
+				// Names the demangler does not support are passed to c++filt
+				if (CPPDemangler.isMangledName(name)) {
+					name = demangleWithCPPFilt(name);
 				}
 			}
 			IAddress addr = element.st_value;
 			long size = element.st_size;
-			if (symbolLoadingAddr2line != null) {
+			if (symbolLoadingLineTable != null) {
+				long address = addr.getValue().longValue();
+				String filename = symbolLoadingLineTable.getFileName(address);
+				IPath file = filename != null ? new Path(filename) : Path.EMPTY;
+				int startLine = symbolLoadingLineTable.getLineNumber(address);
+				int endLine = symbolLoadingLineTable.getLineNumber(address + Math.max(size - 1, 0));
+				list.add(new GNUSymbol(this, name, type, addr, size, file, startLine, endLine));
+			} else if (symbolLoadingAddr2line != null) {
 				try {
 					String filename = symbolLoadingAddr2line.getFileName(addr);
 					// Addr2line returns the funny "??" when it can not find
@@ -202,6 +290,22 @@ public class GNUElfBinaryObject extends ElfBinaryObject {
 		}
 	}
 
+	private String demangleWithCPPFilt(String name) {
+		if (!symbolLoadingCPPFiltCreated) {
+			symbolLoadingCPPFiltCreated = true;
+			symbolLoadingCPPFilt = getCPPFilt();
+		}
+		if (symbolLoadingCPPFilt != null) {
+			try {
+				return symbolLoadingCPPFilt.getFunction(name);
+			} catch (IOException e) {
+				symbolLoadingCPPFilt.dispose();
+				symbolLoadingCPPFilt = null;
+			}
+		}
+		return name;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
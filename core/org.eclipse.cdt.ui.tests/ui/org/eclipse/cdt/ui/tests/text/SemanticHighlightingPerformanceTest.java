@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.ui.tests.text;
+
+import junit.framework.Test;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.SourceViewer;
+
+import org.eclipse.cdt.core.dom.IPDOMManager;
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.core.testplugin.CProjectHelper;
+import org.eclipse.cdt.core.testplugin.util.TestSourceReader;
+import org.eclipse.cdt.ui.CUIPlugin;
+import org.eclipse.cdt.ui.PreferenceConstants;
+import org.eclipse.cdt.ui.testplugin.Accessor;
+import org.eclipse.cdt.ui.testplugin.EditorTestHelper;
+import org.eclipse.cdt.ui.tests.BaseUITestCase;
+
+import org.eclipse.cdt.internal.ui.editor.CEditor;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlighting;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingManager;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingPresenter;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightingReconciler;
+import org.eclipse.cdt.internal.ui.editor.SemanticHighlightings;
+
+/**
+ * Replays a typing session on a large file with all semantic highlightings enabled and
+ * checks that the incrementally computed positions match the ones of a full reconcile.
+ */
+public class SemanticHighlightingPerformanceTest extends BaseUITestCase {
+	private static final boolean PRINT_TIMING= false;
+
+	/** Number of classes in the generated file, each of them contributes 15 lines */
+	private static final int CLASS_COUNT= 1000;
+
+	/**
+	 * The recorded typing session. Each step consists of the index of the class whose method
+	 * is edited, the text typed after the first statement of the method body and the number of
+	 * characters deleted after the typed text.
+	 */
+	private static final Object[][] SESSION= {
+		{100, " int added= local + field;", 0},
+		{100, "\n\tif (added > ", 0},
+		{100, "param) {", 0},
+		{100, " global= added; }", 0},
+		{500, "\n\tmethod(", 0},
+		{500, "local);", 0},
+		{500, "", 16},
+		{999, "\n\tstaticField= MAX(param", 0},
+		{999, ", local);", 0},
+		{2, "\n\tfunction(global);", 0},
+		{2, "", 19},
+	};
+
+	private ICProject fCProject;
+	private CEditor fEditor;
+	private SourceViewer fSourceViewer;
+	private IDocument fDocument;
+
+	public static Test suite() {
+		return suite(SemanticHighlightingPerformanceTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		IPreferenceStore store= CUIPlugin.getDefault().getPreferenceStore();
+		store.setValue(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_ENABLED, true);
+		for (SemanticHighlighting semanticHighlighting : SemanticHighlightings.getSemanticHighlightings()) {
+			store.setValue(SemanticHighlightings.getEnabledPreferenceKey(semanticHighlighting), true);
+		}
+		fCProject= CProjectHelper.createCCProject(getName() + System.currentTimeMillis(), "bin", IPDOMManager.ID_NO_INDEXER);
+		IFile file= TestSourceReader.createFile(fCProject.getProject(), new Path("large.cpp"), createLargeFile());
+		fEditor= (CEditor) EditorTestHelper.openInEditor(file, true);
+		fSourceViewer= EditorTestHelper.getSourceViewer(fEditor);
+		fDocument= fSourceViewer.getDocument();
+		assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 500, 20000, 100));
+		EditorTestHelper.runEventQueue(500);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		EditorTestHelper.closeEditor(fEditor);
+		IPreferenceStore store= CUIPlugin.getDefault().getPreferenceStore();
+		store.setToDefault(PreferenceConstants.EDITOR_SEMANTIC_HIGHLIGHTING_ENABLED);
+		for (SemanticHighlighting semanticHighlighting : SemanticHighlightings.getSemanticHighlightings()) {
+			store.setToDefault(SemanticHighlightings.getEnabledPreferenceKey(semanticHighlighting));
+		}
+		if (fCProject != null)
+			CProjectHelper.delete(fCProject);
+		super.tearDown();
+	}
+
+	private static String createLargeFile() {
+		StringBuilder buf= new StringBuilder();
+		buf.append("#define MAX(a, b) ((a) > (b) ? (a) : (b))\n");
+		buf.append("int global;\n");
+		buf.append("void function(int p);\n");
+		buf.append("namespace ns {\n");
+		for (int i= 0; i < CLASS_COUNT; i++) {
+			buf.append("class Class").append(i).append(" {\n");
+			buf.append("public:\n");
+			buf.append("\tint field;\n");
+			buf.append("\tstatic int staticField;\n");
+			buf.append("\tvoid method(int param);\n");
+			buf.append("};\n");
+			buf.append("enum Enum").append(i).append(" { e").append(i).append(" };\n");
+			buf.append("void Class").append(i).append("::method(int param) {\n");
+			buf.append("\tint local= param + field;\n");
+			buf.append("\tglobal= MAX(local, staticField);\n");
+			buf.append("\tEnum").append(i).append(" e= e").append(i).append(";\n");
+			buf.append("\tfunction(e);\n");
+			buf.append("\tClass").append(i).append(" other;\n");
+			buf.append("\tother.method(local);\n");
+			buf.append("}\n");
+		}
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	public void testTypingSession() throws Exception {
+		long reconcileTime= 0;
+		for (Object[] step : SESSION) {
+			int offset= getInsertionOffset((Integer) step[0]);
+			String text= (String) step[1];
+			int deleteCount= (Integer) step[2];
+			for (int i= 0; i < text.length(); i++) {
+				fDocument.replace(offset++, 0, text.substring(i, i + 1));
+				EditorTestHelper.runEventQueue();
+			}
+			for (int i= 0; i < deleteCount; i++) {
+				fDocument.replace(offset, 1, "");
+				EditorTestHelper.runEventQueue();
+			}
+			long start= System.currentTimeMillis();
+			assertTrue(EditorTestHelper.joinReconciler(fSourceViewer, 0, 20000, 10));
+			EditorTestHelper.runEventQueue();
+			reconcileTime+= System.currentTimeMillis() - start;
+		}
+		EditorTestHelper.runEventQueue(500);
+		Position[] incremental= getSemanticHighlightingPositions();
+
+		long start= System.currentTimeMillis();
+		getReconciler().refresh();
+		EditorTestHelper.joinBackgroundActivities();
+		EditorTestHelper.runEventQueue(500);
+		long refreshTime= System.currentTimeMillis() - start;
+		Position[] full= getSemanticHighlightingPositions();
+
+		if (PRINT_TIMING) {
+			System.out.println("typing session: " + SESSION.length + " reconciles in " + reconcileTime + "ms");
+			System.out.println("full reconcile: " + refreshTime + "ms");
+		}
+		assertEquals(full.length, incremental.length);
+		for (int i= 0; i < full.length; i++) {
+			assertEquals(full[i].getOffset(), incremental[i].getOffset());
+			assertEquals(full[i].getLength(), incremental[i].getLength());
+		}
+	}
+
+	private int getInsertionOffset(int classIndex) {
+		String content= fDocument.get();
+		int offset= content.indexOf("void Class" + classIndex + "::method");
+		assertTrue(offset >= 0);
+		offset= content.indexOf(';', offset);
+		return offset + 1;
+	}
+
+	private SemanticHighlightingReconciler getReconciler() {
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, CEditor.class).get("fSemanticManager");
+		return (SemanticHighlightingReconciler) new Accessor(manager, manager.getClass()).get("fReconciler");
+	}
+
+	private Position[] getSemanticHighlightingPositions() throws Exception {
+		SemanticHighlightingManager manager= (SemanticHighlightingManager) new Accessor(fEditor, CEditor.class).get("fSemanticManager");
+		SemanticHighlightingPresenter presenter= (SemanticHighlightingPresenter) new Accessor(manager, manager.getClass()).get("fPresenter");
+		String positionCategory= (String) new Accessor(presenter, presenter.getClass()).invoke("getPositionCategory", new Object[0]);
+		return fDocument.getPositions(positionCategory);
+	}
+}
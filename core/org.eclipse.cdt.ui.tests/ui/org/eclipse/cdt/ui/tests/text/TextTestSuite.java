@@ -51,6 +51,7 @@ public class TextTestSuite extends TestSuite {
 
 		// highlighting tests
 		addTest(SemanticHighlightingTest.suite());
+		addTest(SemanticHighlightingPerformanceTest.suite());
 		addTest(InactiveCodeHighlightingTest.suite());
 		addTest(CHeaderRuleTest.suite());
 		addTest(NumberRuleTest.suite());
@@ -12,6 +12,8 @@ package org.eclipse.cdt.internal.ui.callhierarchy;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
@@ -24,6 +26,8 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPMethod;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPSpecialization;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.cdt.core.index.IIndexCallEdge;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.index.IIndexName;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.core.model.ICProject;
@@ -31,6 +35,7 @@ import org.eclipse.cdt.core.model.ISourceReference;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 
 import org.eclipse.cdt.internal.core.dom.parser.cpp.ClassTypeHelper;
+import org.eclipse.cdt.internal.core.index.IndexQueryCache;
 import org.eclipse.cdt.internal.core.model.ext.ICElementHandle;
 
 import org.eclipse.cdt.internal.ui.viewsupport.IndexUI;
@@ -41,6 +46,8 @@ import org.eclipse.cdt.internal.ui.viewsupport.IndexUI;
  */
 public class CHQueries {
 	private static final CHNode[] EMPTY_NODES= new CHNode[0];
+	private static final String QUERY_CALLED_BY = "CHQueries.calledBy/"; //$NON-NLS-1$
+	private static final String QUERY_CALLED_BY_POLYMORPHIC = "CHQueries.polymorphicCalledBy/"; //$NON-NLS-1$
 	
     private CHQueries() {}
     
@@ -92,27 +99,64 @@ public class CHQueries {
 
 	private static void findCalledBy1(IIndex index, IBinding callee, boolean includeOrdinaryCalls,
 			ICProject project, CalledByResult result) throws CoreException {
-		findCalledBy2(index, callee, includeOrdinaryCalls, project, result);
-		List<? extends IBinding> specializations = IndexUI.findSpecializations(callee);
-		for (IBinding spec : specializations) {
-			findCalledBy2(index, spec, includeOrdinaryCalls, project, result);
+		List<IBinding> callees= new ArrayList<IBinding>();
+		callees.add(callee);
+		callees.addAll(IndexUI.findSpecializations(callee));
+
+		final IndexQueryCache cache= IndexQueryCache.getSharedInstance();
+		final String query= (includeOrdinaryCalls ? QUERY_CALLED_BY : QUERY_CALLED_BY_POLYMORPHIC) 
+				+ (project != null ? project.getElementName() : ""); //$NON-NLS-1$
+		final int count= callees.size();
+		IndexQueryCache.Key[] keys= new IndexQueryCache.Key[count];
+		Object[][] callers= new Object[count][];
+		List<IBinding> uncached= new ArrayList<IBinding>();
+		for (int i = 0; i < count; i++) {
+			keys[i]= cache.createKey(index, query, callees.get(i));
+			callers[i]= (Object[]) cache.get(keys[i]);
+			if (callers[i] == null) {
+				uncached.add(callees.get(i));
+			}
+		}
+
+		// Query the call edges for all the bindings that are not cached at once.
+		if (!uncached.isEmpty()) {
+			IIndexCallEdge[][] edges= index.findCallers(uncached.toArray(new IBinding[uncached.size()]),
+					IIndex.SEARCH_ACROSS_LANGUAGE_BOUNDARIES);
+			for (int i = 0, j = 0; i < count; i++) {
+				if (callers[i] == null) {
+					callers[i]= findCalledBy2(index, edges[j++], includeOrdinaryCalls, project, cache, keys[i],
+							callees.get(i));
+				}
+			}
+		}
+		for (Object[] c : callers) {
+			for (int i = 0; i < c.length; i+= 2) {
+				result.add((ICElement) c[i], (IIndexName) c[i + 1]);
+			}
 		}
 	}
 
-	private static void findCalledBy2(IIndex index, IBinding callee, boolean includeOrdinaryCalls,
-			ICProject project, CalledByResult result) throws CoreException {
-		IIndexName[] names= index.findNames(callee, IIndex.FIND_REFERENCES | IIndex.SEARCH_ACROSS_LANGUAGE_BOUNDARIES);
-		for (IIndexName rname : names) {
+	private static Object[] findCalledBy2(IIndex index, IIndexCallEdge[] edges, boolean includeOrdinaryCalls,
+			ICProject project, IndexQueryCache cache, IndexQueryCache.Key key, IBinding callee)
+			throws CoreException {
+		ArrayList<Object> list= new ArrayList<Object>();
+		HashSet<IIndexFileLocation> files= new HashSet<IIndexFileLocation>();
+		for (IIndexCallEdge edge : edges) {
+			final IIndexName rname= edge.getCallSite();
+			if (key != null) {
+				files.add(rname.getFile().getLocation());
+			}
 			if (includeOrdinaryCalls || rname.couldBePolymorphicMethodCall()) {
-				IIndexName caller= rname.getEnclosingDefinition();
-				if (caller != null) {
-					ICElement elem= IndexUI.getCElementForName(project, index, caller);
-					if (elem != null) {
-						result.add(elem, rname);
-					} 
-				}
+				ICElement elem= IndexUI.getCElementForName(project, index, edge.getCaller());
+				if (elem != null) {
+					list.add(elem);
+					list.add(rname);
+				} 
 			}
 		}
+		Object[] callers= list.toArray();
+		cache.put(key, callers, files, Collections.singleton(callee.getNameCharArray()));
+		return callers;
 	}
 
 	/**
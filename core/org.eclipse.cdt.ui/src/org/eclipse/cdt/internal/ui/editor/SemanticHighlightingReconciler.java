@@ -9,10 +9,12 @@
  *     IBM Corporation - initial API and implementation
  *     Anton Leherbauer (Wind River Systems) - Adapted for CDT
  *     Markus Schorn (Wind River Systems)
+ *     Wind River Systems - incremental reconciling
  *******************************************************************************/
 package org.eclipse.cdt.internal.ui.editor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -31,6 +33,8 @@ import org.eclipse.ui.IWorkbenchPartSite;
 import org.eclipse.cdt.core.dom.ast.ASTVisitor;
 import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
+import org.eclipse.cdt.core.dom.ast.IASTFunctionDefinition;
 import org.eclipse.cdt.core.dom.ast.IASTImageLocation;
 import org.eclipse.cdt.core.dom.ast.IASTMacroExpansionLocation;
 import org.eclipse.cdt.core.dom.ast.IASTName;
@@ -38,6 +42,7 @@ import org.eclipse.cdt.core.dom.ast.IASTNode;
 import org.eclipse.cdt.core.dom.ast.IASTNodeLocation;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroDefinition;
 import org.eclipse.cdt.core.dom.ast.IASTPreprocessorMacroExpansion;
+import org.eclipse.cdt.core.dom.ast.IASTPreprocessorStatement;
 import org.eclipse.cdt.core.dom.ast.IASTStatement;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTNamespaceDefinition;
@@ -55,6 +60,12 @@ import org.eclipse.cdt.internal.ui.text.ICReconcilingListener;
 /**
  * Semantic highlighting reconciler - Background thread implementation.
  * Cloned from JDT.
+ * <p>
+ * The positions are computed per top-level declaration (the declarations of namespaces are
+ * treated like top-level declarations) and cached. As long as the declarations outside of function
+ * bodies and the preprocessor directives do not change, only the function definitions whose text
+ * has changed are visited again. The update of the presentation in the UI thread is coalesced,
+ * a pending update is superseded by the update of the next reconcile.
  * 
  * @since 4.0
  */
@@ -68,6 +79,8 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		/** The semantic token */
 		private SemanticToken fToken= new SemanticToken();
 		private int fMinLocation;
+		/** Receives the positions of the unit being visited, or <code>null</code> */
+		private UnitPositions fUnitPositions;
 		
 		public PositionCollector(boolean visitImplicitNames) {
 			fMinLocation= -1;
@@ -87,7 +100,16 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		 */
 		@Override
 		public int visit(IASTTranslationUnit tu) {
-			
+			visitMacros(tu);
+
+			// visit ordinary code
+			return super.visit(tu);
+		}
+
+		/**
+		 * Visits the macro definitions and macro expansions of the translation unit.
+		 */
+		public void visitMacros(IASTTranslationUnit tu) {
 			// visit macro definitions
 			IASTPreprocessorMacroDefinition[] macroDefs= tu.getMacroDefinitions();
 			for (IASTPreprocessorMacroDefinition macroDef : macroDefs) {
@@ -110,9 +132,33 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 				}
 			}
 			fMinLocation= -1;
+		}
 
-			// visit ordinary code
-			return super.visit(tu);
+		/**
+		 * Visits a top-level declaration or the name of a namespace and returns the positions
+		 * found relative to the offset of the node, or <code>null</code> if they cannot be cached.
+		 */
+		public UnitPositions visitUnit(IASTNode unit, String text) {
+			UnitPositions positions= new UnitPositions(text);
+			fUnitPositions= positions;
+			try {
+				unit.accept(this);
+			} finally {
+				fUnitPositions= null;
+			}
+			return positions.makeRelative(unit.getFileLocation()) ? positions : null;
+		}
+
+		/**
+		 * Adds the cached positions of a top-level declaration or the name of a namespace.
+		 */
+		public void addUnitPositions(UnitPositions positions, int unitOffset) {
+			for (int i= 0; i < positions.fCount; i++) {
+				int offset= unitOffset + positions.fOffsets[i];
+				int length= positions.fLengths[i];
+				fMinLocation= Math.max(fMinLocation, offset + length);
+				addPosition(offset, length, positions.fStyles[i]);
+			}
 		}
 
 		/*
@@ -262,15 +308,18 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		 * @param highlighting The highlighting
 		 */
 		private void addPosition(int offset, int length, HighlightingStyle highlighting) {
+			if (fUnitPositions != null)
+				fUnitPositions.add(offset, length, highlighting);
+
 			boolean isExisting= false;
-			// TODO: use binary search
-			for (int i= 0, n= fRemovedPositions.size(); i < n; i++) {
+			// the positions of the presenter are sorted by offset
+			for (int i= findFirstRemovedPosition(offset), n= fRemovedPositions.size(); i < n; i++) {
 				HighlightedPosition position= fRemovedPositions.get(i);
-				if (position == null)
-					continue;
-				if (position.isEqual(offset, length, highlighting)) {
+				if (position.getOffset() != offset)
+					break;
+				if (!fRetainedPositions[i] && position.isEqual(offset, length, highlighting)) {
 					isExisting= true;
-					fRemovedPositions.set(i, null);
+					fRetainedPositions[i]= true;
 					fNOfRemovedPositions--;
 					break;
 				}
@@ -282,8 +331,106 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 			}
 		}
 
+		/**
+		 * Returns the index of the first of the previous positions with an offset not less than
+		 * the given one.
+		 */
+		private int findFirstRemovedPosition(int offset) {
+			int low= 0;
+			int high= fRemovedPositions.size();
+			while (low < high) {
+				int mid= (low + high) >>> 1;
+				if (fRemovedPositions.get(mid).getOffset() < offset) {
+					low= mid + 1;
+				} else {
+					high= mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * The positions of a top-level declaration or of the name of a namespace. The offsets are
+	 * made relative to the offset of the node, such that the positions can be reused when
+	 * the text before the node changes.
+	 */
+	private static class UnitPositions {
+		/** The text of the node the positions have been computed for */
+		final String fText;
+		int fCount;
+		int[] fOffsets= new int[8];
+		int[] fLengths= new int[8];
+		HighlightingStyle[] fStyles= new HighlightingStyle[8];
+
+		UnitPositions(String text) {
+			fText= text;
+		}
+
+		void add(int offset, int length, HighlightingStyle style) {
+			if (fCount == fOffsets.length) {
+				int newLength= 2 * fCount;
+				fOffsets= copyOf(fOffsets, newLength);
+				fLengths= copyOf(fLengths, newLength);
+				HighlightingStyle[] styles= new HighlightingStyle[newLength];
+				System.arraycopy(fStyles, 0, styles, 0, fCount);
+				fStyles= styles;
+			}
+			fOffsets[fCount]= offset;
+			fLengths[fCount]= length;
+			fStyles[fCount]= style;
+			fCount++;
+		}
+
+		/**
+		 * Makes the offsets relative to the given location, returns <code>false</code> if
+		 * a position lies outside of the location.
+		 */
+		boolean makeRelative(IASTFileLocation location) {
+			if (location == null)
+				return false;
+			final int start= location.getNodeOffset();
+			final int end= start + location.getNodeLength();
+			for (int i= 0; i < fCount; i++) {
+				int offset= fOffsets[i];
+				if (offset < start || offset + fLengths[i] > end)
+					return false;
+				fOffsets[i]= offset - start;
+			}
+			return true;
+		}
+
+		private static int[] copyOf(int[] array, int newLength) {
+			int[] result= new int[newLength];
+			System.arraycopy(array, 0, result, 0, Math.min(array.length, newLength));
+			return result;
+		}
+	}
+
+	/**
+	 * Coalesces the updates of the presentation: an update that has not yet been run in the
+	 * UI thread is superseded by the update of a later reconcile.
+	 */
+	private class PresentationUpdate implements Runnable {
+		private final Runnable fUpdate;
+
+		PresentationUpdate(Runnable update) {
+			fUpdate= update;
+		}
+
+		public void run() {
+			synchronized (fUpdateLock) {
+				if (fPendingUpdate != this)
+					return;
+				fPendingUpdate= null;
+				fUpdate.run();
+			}
+		}
 	}
 
+	/** Marks the end of the declarations of a namespace in the list of unit shapes */
+	private static final String END_OF_NAMESPACE= "}"; //$NON-NLS-1$
+
 	/** The C editor this semantic highlighting reconciler is installed on */
 	private CEditor fEditor;
 	/** The semantic highlighting presenter */
@@ -297,9 +444,25 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	private List<HighlightedPosition> fAddedPositions= new ArrayList<HighlightedPosition>();
 	/** Background job's removed highlighted positions */
 	private List<HighlightedPosition> fRemovedPositions= new ArrayList<HighlightedPosition>();
+	/** Flags for the positions in {@link #fRemovedPositions} that are found again */
+	private boolean[] fRetainedPositions= new boolean[0];
 	/** Number of removed positions */
 	private int fNOfRemovedPositions;
 
+	/** Shapes of the top-level declarations and preprocessor statements of the last reconcile */
+	private List<String> fUnitShapes= Collections.emptyList();
+	/** Cached positions of the top-level declarations of the last reconcile, parallel to the units */
+	private UnitPositions[] fUnitCache= new UnitPositions[0];
+	/** Enablement of the highlightings the cached positions have been computed with */
+	private boolean[] fCachedEnablement;
+	/** Set when the cached positions must not be reused by the next reconcile */
+	private volatile boolean fInvalidateCache;
+
+	/** Lock for the pending update of the presentation */
+	private final Object fUpdateLock= new Object();
+	/** The update of the presentation that has not yet been run in the UI thread */
+	private PresentationUpdate fPendingUpdate;
+
 	/** Background job */
 	private Job fJob;
 	/** Background job lock */
@@ -351,6 +514,9 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 			
 			PositionCollector collector= new PositionCollector(requiresImplicitNames());
 
+			if (force)
+				fInvalidateCache= true;
+
 			startReconcilingPositions();
 			
 			if (!fJobPresenter.isCanceled())
@@ -388,8 +554,13 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	 * Start reconciling positions.
 	 */
 	private void startReconcilingPositions() {
-		fJobPresenter.addAllPositions(fRemovedPositions);
+		synchronized (fUpdateLock) {
+			// the update will be superseded by the one computed by this reconcile
+			fPendingUpdate= null;
+			fJobPresenter.addAllPositions(fRemovedPositions);
+		}
 		fNOfRemovedPositions= fRemovedPositions.size();
+		fRetainedPositions= new boolean[fNOfRemovedPositions];
 	}
 
 	/**
@@ -399,13 +570,54 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	 * @param visitor  the AST visitor
 	 */
 	private void reconcilePositions(IASTTranslationUnit ast, PositionCollector visitor) {
-		ast.accept(visitor);
+		visitor.visitMacros(ast);
+
+		List<IASTNode> units= new ArrayList<IASTNode>();
+		List<String> texts= new ArrayList<String>();
+		List<String> shapes= new ArrayList<String>();
+		collectUnits(ast.getDeclarations(), units, texts, shapes);
+		for (IASTPreprocessorStatement stmt : ast.getAllPreprocessorStatements()) {
+			if (stmt.isPartOfTranslationUnitFile()) {
+				shapes.add(stmt.getRawSignature());
+			}
+		}
+
+		// the cached positions can be reused if only the bodies of functions have changed
+		boolean[] enablement= getEnablement();
+		UnitPositions[] cache= fUnitCache;
+		if (fInvalidateCache || !Arrays.equals(enablement, fCachedEnablement) || !shapes.equals(fUnitShapes)) {
+			fInvalidateCache= false;
+			cache= new UnitPositions[0];
+		}
+		UnitPositions[] newCache= new UnitPositions[units.size()];
+		for (int i= 0; i < newCache.length; i++) {
+			IASTNode unit= units.get(i);
+			if (unit == null)
+				continue;
+			String text= texts.get(i);
+			UnitPositions positions= i < cache.length ? cache[i] : null;
+			IASTFileLocation location= unit.getFileLocation();
+			if (positions != null && location != null && positions.fText.equals(text)) {
+				visitor.addUnitPositions(positions, location.getNodeOffset());
+			} else {
+				positions= visitor.visitUnit(unit, text);
+			}
+			newCache[i]= positions;
+			if (fJobPresenter.isCanceled()) {
+				// the positions collected so far are incomplete
+				fInvalidateCache= true;
+				break;
+			}
+		}
+		fUnitCache= newCache;
+		fUnitShapes= shapes;
+		fCachedEnablement= enablement;
+
 		List<HighlightedPosition> oldPositions= fRemovedPositions;
 		List<HighlightedPosition> newPositions= new ArrayList<HighlightedPosition>(fNOfRemovedPositions);
 		for (int i= 0, n= oldPositions.size(); i < n; i ++) {
-			HighlightedPosition current= oldPositions.get(i);
-			if (current != null)
-				newPositions.add(current);
+			if (!fRetainedPositions[i])
+				newPositions.add(oldPositions.get(i));
 		}
 		fRemovedPositions= newPositions;
 		// positions need to be sorted by ascending offset
@@ -415,6 +627,64 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 			}});
 	}
 
+	/**
+	 * Collects the units the positions are cached for. Namespace definitions are flattened, their
+	 * names form units of their own. For each unit its text and its shape is added, the shape
+	 * of a function definition is the text preceding the body.
+	 *
+	 * @param declarations the declarations to collect the units from
+	 * @param units the list receiving the declarations or names, <code>null</code> at the end of a namespace
+	 * @param texts the list receiving the texts of the units
+	 * @param shapes the list receiving the shapes of the units
+	 */
+	private void collectUnits(IASTDeclaration[] declarations, List<IASTNode> units, List<String> texts, List<String> shapes) {
+		for (IASTDeclaration declaration : declarations) {
+			if (!declaration.isPartOfTranslationUnitFile())
+				continue;
+			if (declaration instanceof ICPPASTNamespaceDefinition) {
+				ICPPASTNamespaceDefinition namespace= (ICPPASTNamespaceDefinition) declaration;
+				IASTName name= namespace.getName();
+				String text= name.toString();
+				units.add(name);
+				texts.add(text);
+				shapes.add(namespace.isInline() ? "inline namespace " + text : "namespace " + text); //$NON-NLS-1$ //$NON-NLS-2$
+				collectUnits(namespace.getDeclarations(), units, texts, shapes);
+				units.add(null);
+				texts.add(null);
+				shapes.add(END_OF_NAMESPACE);
+				continue;
+			}
+			String text= declaration.getRawSignature();
+			String shape= text;
+			if (declaration instanceof IASTFunctionDefinition) {
+				IASTStatement body= ((IASTFunctionDefinition) declaration).getBody();
+				IASTFileLocation location= declaration.getFileLocation();
+				IASTFileLocation bodyLocation= body != null ? body.getFileLocation() : null;
+				if (location != null && bodyLocation != null) {
+					int bodyOffset= bodyLocation.getNodeOffset() - location.getNodeOffset();
+					if (bodyOffset >= 0 && bodyOffset <= text.length()) {
+						shape= text.substring(0, bodyOffset);
+					}
+				}
+			}
+			units.add(declaration);
+			texts.add(text);
+			shapes.add(shape);
+		}
+	}
+
+	/**
+	 * @return the enablement of the highlightings and whether implicit names are visited.
+	 */
+	private boolean[] getEnablement() {
+		boolean[] result= new boolean[fJobHighlightings.length + 1];
+		for (int i= 0; i < fJobHighlightings.length; i++) {
+			result[i]= fJobHighlightings[i].isEnabled();
+		}
+		result[fJobHighlightings.length]= requiresImplicitNames();
+		return result;
+	}
+
 	/**
 	 * Update the presentation.
 	 *
@@ -443,7 +713,11 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		if (display == null || display.isDisposed())
 			return;
 
-		display.asyncExec(runnable);
+		PresentationUpdate update= new PresentationUpdate(runnable);
+		synchronized (fUpdateLock) {
+			fPendingUpdate= update;
+		}
+		display.asyncExec(update);
 	}
 
 	/**
@@ -451,6 +725,7 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	 */
 	private void stopReconcilingPositions() {
 		fRemovedPositions.clear();
+		fRetainedPositions= new boolean[0];
 		fNOfRemovedPositions= 0;
 		fAddedPositions.clear();
 	}
@@ -490,6 +765,7 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 		fSemanticHighlightings= null;
 		fHighlightings= null;
 		fPresenter= null;
+		fInvalidateCache= true;
 	}
 
 	/**
@@ -547,6 +823,7 @@ public class SemanticHighlightingReconciler implements ICReconcilingListener {
 	 * Refreshes the highlighting.
 	 */
 	public void refresh() {
+		fInvalidateCache= true;
 		scheduleJob();
 	}
 }
@@ -11,6 +11,7 @@
 package org.eclipse.cdt.internal.ui.includebrowser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 
 import org.eclipse.core.runtime.CoreException;
@@ -28,6 +29,8 @@ import org.eclipse.cdt.core.model.ICProject;
 import org.eclipse.cdt.core.model.ITranslationUnit;
 import org.eclipse.cdt.ui.CUIPlugin;
 
+import org.eclipse.cdt.internal.core.index.IndexQueryCache;
+
 import org.eclipse.cdt.internal.ui.viewsupport.AsyncTreeContentProvider;
 
 /** 
@@ -36,6 +39,8 @@ import org.eclipse.cdt.internal.ui.viewsupport.AsyncTreeContentProvider;
 public class IBContentProvider extends AsyncTreeContentProvider {
 
 	private static final IProgressMonitor NPM = new NullProgressMonitor();
+	private static final String QUERY_INCLUDED_BY = "IBContentProvider.includedBy"; //$NON-NLS-1$
+	private static final String QUERY_INCLUDES = "IBContentProvider.includes"; //$NON-NLS-1$
 	private boolean fComputeIncludedBy = true;
 
 	/**
@@ -155,6 +160,44 @@ public class IBContentProvider extends AsyncTreeContentProvider {
 	
 	
 	private IIndexInclude[] findIncludedBy(IIndex index, IIndexFileLocation ifl, IProgressMonitor pm) {
+		return findCached(index, QUERY_INCLUDED_BY, ifl, pm);
+	}
+
+	public IIndexInclude[] findIncludesTo(IIndex index, IIndexFileLocation ifl, IProgressMonitor pm) {
+		return findCached(index, QUERY_INCLUDES, ifl, pm);
+	}
+
+	/**
+	 * Looks up the result of a query in the {@link IndexQueryCache}, the include directives 
+	 * depend on the files containing them and the file the query is about.
+	 */
+	private IIndexInclude[] findCached(IIndex index, String query, IIndexFileLocation ifl, IProgressMonitor pm) {
+		final IndexQueryCache cache= IndexQueryCache.getSharedInstance();
+		final IndexQueryCache.Key key= cache.createKey(index, query, ifl);
+		IIndexInclude[] result= (IIndexInclude[]) cache.get(key);
+		if (result == null) {
+			if (query == QUERY_INCLUDED_BY) {
+				result= computeIncludedBy(index, ifl, pm);
+			} else {
+				result= computeIncludesTo(index, ifl, pm);
+			}
+			if (key != null) {
+				try {
+					HashSet<IIndexFileLocation> files= new HashSet<IIndexFileLocation>();
+					files.add(ifl);
+					for (IIndexInclude include : result) {
+						files.add(include.getIncludedByLocation());
+					}
+					cache.put(key, result, files, Collections.<char[]>emptySet());
+				} catch (CoreException e) {
+					CUIPlugin.log(e);
+				}
+			}
+		}
+		return result;
+	}
+
+	private IIndexInclude[] computeIncludedBy(IIndex index, IIndexFileLocation ifl, IProgressMonitor pm) {
 		try {
 			if (ifl != null) {
 				IIndexFile[] files= index.getFiles(ifl);
@@ -183,7 +226,7 @@ public class IBContentProvider extends AsyncTreeContentProvider {
 		return new IIndexInclude[0];
 	}
 
-	public IIndexInclude[] findIncludesTo(IIndex index, IIndexFileLocation ifl, IProgressMonitor pm) {
+	private IIndexInclude[] computeIncludesTo(IIndex index, IIndexFileLocation ifl, IProgressMonitor pm) {
 		try {
 			if (ifl != null) {
 				IIndexFile[] files= index.getFiles(ifl);
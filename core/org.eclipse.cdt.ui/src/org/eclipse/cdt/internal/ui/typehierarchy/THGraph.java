@@ -12,6 +12,7 @@ package org.eclipse.cdt.internal.ui.typehierarchy;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -30,16 +31,20 @@ import org.eclipse.cdt.core.dom.ast.cpp.ICPPBase;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPClassType;
 import org.eclipse.cdt.core.index.IIndex;
 import org.eclipse.cdt.core.index.IIndexBinding;
-import org.eclipse.cdt.core.index.IIndexName;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
 import org.eclipse.cdt.core.model.ICElement;
 import org.eclipse.cdt.ui.CUIPlugin;
 
+import org.eclipse.cdt.internal.core.index.IndexQueryCache;
 import org.eclipse.cdt.internal.core.model.ext.ICElementHandle;
 
 import org.eclipse.cdt.internal.ui.viewsupport.IndexUI;
 
 class THGraph {
 	private static final ICElement[] NO_MEMBERS = new ICElement[0];
+	private static final ICElementHandle[] NO_SUB_CLASSES = new ICElementHandle[0];
+	private static final String QUERY_SUB_CLASSES = "THGraph.subClasses"; //$NON-NLS-1$
+	private static final String QUERY_MEMBERS = "THGraph.members"; //$NON-NLS-1$
 	private THGraphNode fInputNode= null;
 	private HashSet<THGraphNode> fRootNodes= new HashSet<THGraphNode>();
 	private HashSet<THGraphNode> fLeaveNodes= new HashSet<THGraphNode>();
@@ -217,26 +222,13 @@ class THGraph {
 			try {
 				IBinding binding = IndexUI.elementToBinding(index, elem);
 				if (binding != null) {
-					IIndexName[] names= index.findNames(binding, IIndex.FIND_REFERENCES | IIndex.FIND_DEFINITIONS);
-					for (IIndexName indexName : names) {
-						if (monitor.isCanceled()) {
-							return;
-						}
-						if (indexName.isBaseSpecifier()) {
-							IIndexName subClassDef= indexName.getEnclosingDefinition();
-							if (subClassDef != null) {
-								IBinding subClass= index.findBinding(subClassDef);
-								ICElementHandle[] subClassElems= IndexUI.findRepresentative(index, subClass);
-								if (subClassElems.length > 0) {
-									ICElementHandle subClassElem= subClassElems[0];
-									THGraphNode subGraphNode= addNode(subClassElem);
-									addMembers(index, subGraphNode, subClass);							
-									addEdge(subGraphNode, graphNode);
-									if (handled.add(subClassElem)) {
-										stack.add(subClassElem);
-									}
-								}
-							}
+					addMembers(index, graphNode, binding);
+					ICElementHandle[] subClassElems= findSubClasses(index, binding, monitor);
+					for (ICElementHandle subClassElem : subClassElems) {
+						THGraphNode subGraphNode= addNode(subClassElem);
+						addEdge(subGraphNode, graphNode);
+						if (handled.add(subClassElem)) {
+							stack.add(subClassElem);
 						}
 					}
 				}
@@ -245,35 +237,77 @@ class THGraph {
 			}
 		}
 	}
+
+	/**
+	 * Returns the direct sub-classes of the given class, the result is kept in the 
+	 * {@link IndexQueryCache}.
+	 */
+	private ICElementHandle[] findSubClasses(IIndex index, IBinding binding, IProgressMonitor monitor)
+			throws CoreException {
+		final IndexQueryCache cache= IndexQueryCache.getSharedInstance();
+		final IndexQueryCache.Key key= cache.createKey(index, QUERY_SUB_CLASSES, binding);
+		ICElementHandle[] result= (ICElementHandle[]) cache.get(key);
+		if (result != null) {
+			return result;
+		}
+
+		ArrayList<ICElementHandle> list= new ArrayList<ICElementHandle>();
+		IIndexBinding[] subClasses= index.findDerivedClasses(binding);
+		for (IIndexBinding subClass : subClasses) {
+			if (monitor.isCanceled()) {
+				return NO_SUB_CLASSES;
+			}
+			ICElementHandle[] subClassElems= IndexUI.findRepresentative(index, subClass);
+			if (subClassElems.length > 0) {
+				list.add(subClassElems[0]);
+			}
+		}
+		result= list.toArray(new ICElementHandle[list.size()]);
+		// The base-specifiers of the sub-classes are references to the binding.
+		cache.put(key, result, Collections.<IIndexFileLocation>emptySet(), 
+				Collections.singleton(binding.getNameCharArray()));
+		return result;
+	}
 	
 	private void addMembers(IIndex index, THGraphNode graphNode, IBinding binding) throws CoreException {
 		if (graphNode.getMembers(false) == null) {
-			ArrayList<ICElement> memberList= new ArrayList<ICElement>();
-			try {
-				if (binding instanceof ICPPClassType) {
-					ICPPClassType ct= (ICPPClassType) binding;
-					IBinding[] members= ct.getDeclaredFields();
-					addMemberElements(index, members, memberList);
-					members= ct.getDeclaredMethods();
-					addMemberElements(index, members, memberList);
-				} else if (binding instanceof ICompositeType) {
-					ICompositeType ct= (ICompositeType) binding;
-					IBinding[] members= ct.getFields();
-					addMemberElements(index, members, memberList);
-				} else if (binding instanceof IEnumeration) {
-					IEnumeration ct= (IEnumeration) binding;
-					IBinding[] members= ct.getEnumerators();
-					addMemberElements(index, members, memberList);
-				}
-			} catch (DOMException e) {
-				// Problem bindings should not be reported to the log.
+			final IndexQueryCache cache= IndexQueryCache.getSharedInstance();
+			final IndexQueryCache.Key key= cache.createKey(index, QUERY_MEMBERS, binding);
+			ICElement[] members= (ICElement[]) cache.get(key);
+			if (members == null) {
+				members= findMembers(index, binding);
+				cache.put(key, members, Collections.<IIndexFileLocation>emptySet(), 
+						Collections.singleton(binding.getNameCharArray()));
 			}
-			if (memberList.isEmpty()) {
-				graphNode.setMembers(NO_MEMBERS);
-			} else {
-				graphNode.setMembers(memberList.toArray(new ICElement[memberList.size()]));
+			graphNode.setMembers(members);
+		}
+	}
+
+	private ICElement[] findMembers(IIndex index, IBinding binding) throws CoreException {
+		ArrayList<ICElement> memberList= new ArrayList<ICElement>();
+		try {
+			if (binding instanceof ICPPClassType) {
+				ICPPClassType ct= (ICPPClassType) binding;
+				IBinding[] members= ct.getDeclaredFields();
+				addMemberElements(index, members, memberList);
+				members= ct.getDeclaredMethods();
+				addMemberElements(index, members, memberList);
+			} else if (binding instanceof ICompositeType) {
+				ICompositeType ct= (ICompositeType) binding;
+				IBinding[] members= ct.getFields();
+				addMemberElements(index, members, memberList);
+			} else if (binding instanceof IEnumeration) {
+				IEnumeration ct= (IEnumeration) binding;
+				IBinding[] members= ct.getEnumerators();
+				addMemberElements(index, members, memberList);
 			}
+		} catch (DOMException e) {
+			// Problem bindings should not be reported to the log.
+		}
+		if (memberList.isEmpty()) {
+			return NO_MEMBERS;
 		}
+		return memberList.toArray(new ICElement[memberList.size()]);
 	}
 	
 	private void addMemberElements(IIndex index, IBinding[] members, List<ICElement> memberList) 
@@ -0,0 +1,615 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.gdb.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.dsf.debug.service.AbstractInstruction;
+import org.eclipse.cdt.dsf.debug.service.IInstruction;
+import org.eclipse.cdt.dsf.debug.service.IInstructionWithSize;
+import org.eclipse.cdt.dsf.debug.service.IMixedInstruction;
+import org.eclipse.cdt.utils.elf.Elf;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * On-disk cache of the disassembly of program binaries.  The disassembly of a
+ * binary is stored in one file per binary, named after its ELF build ID, or after
+ * its path, size and modification time if the binary has no build ID.  Only the
+ * address ranges that lie in the executable segments of binaries linked at a fixed
+ * address are cached, those are the only ranges known without asking GDB where
+ * the binary was loaded.
+ * <p>
+ * The cache is shared by all debug sessions and is thread safe.
+ */
+public class DisassemblyDiskCache {
+
+    private static final int FILE_MAGIC = 0x43444953;
+    private static final int FILE_VERSION = 1;
+
+    /** Maximum number of address ranges kept for one binary. */
+    private static final int MAX_RANGES = 512;
+
+    private static final String FILE_EXTENSION = ".dis"; //$NON-NLS-1$
+    private static final String BUILD_ID_SECTION = ".note.gnu.build-id"; //$NON-NLS-1$
+    private static final int NT_GNU_BUILD_ID = 3;
+
+    private static DisassemblyDiskCache fgInstance;
+
+    /**
+     * Returns the cache stored in the state location of this plug-in, or
+     * <code>null</code> if the plug-in is not running.
+     */
+    public static synchronized DisassemblyDiskCache getInstance() {
+        if (fgInstance == null) {
+            GdbPlugin plugin = GdbPlugin.getDefault();
+            if (plugin == null) {
+                return null;
+            }
+            fgInstance = new DisassemblyDiskCache(plugin.getStateLocation().append("disassembly").toFile()); //$NON-NLS-1$
+        }
+        return fgInstance;
+    }
+
+    private final File fDirectory;
+    private final Map<String, Module> fModules = new HashMap<String, Module>();
+
+    public DisassemblyDiskCache(File directory) {
+        fDirectory = directory;
+    }
+
+    /**
+     * Returns the cache of the given program binary, or <code>null</code> if the
+     * binary cannot be read or has no address range that can be cached.
+     */
+    public synchronized Module getModule(String programPath) {
+        File file = new File(programPath);
+        if (!file.isFile()) {
+            return null;
+        }
+        Elf elf = null;
+        try {
+            elf = new Elf(file.getAbsolutePath());
+            Elf.ELFhdr header = elf.getELFhdr();
+            if (header.e_type != Elf.ELFhdr.ET_EXEC) {
+                // Position independent code, the load address is only known to GDB.
+                return null;
+            }
+            List<BigInteger[]> loadRanges = new ArrayList<BigInteger[]>();
+            for (Elf.PHdr segment : elf.getPHdrs()) {
+                if (segment.p_type == Elf.PHdr.PT_LOAD && (segment.p_flags & Elf.PHdr.PF_X) != 0 && segment.p_memsz > 0) {
+                    BigInteger start = segment.p_vaddr.getValue();
+                    loadRanges.add(new BigInteger[] { start, start.add(BigInteger.valueOf(segment.p_memsz)) });
+                }
+            }
+            if (loadRanges.isEmpty()) {
+                return null;
+            }
+
+            String key = readBuildId(elf, header);
+            if (key == null) {
+                key = fileKey(file);
+            }
+            Module module = fModules.get(key);
+            if (module == null) {
+                module = new Module(new File(fDirectory, key + FILE_EXTENSION), loadRanges);
+                fModules.put(key, module);
+            }
+            return module;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (elf != null) {
+                elf.dispose();
+            }
+        }
+    }
+
+    /**
+     * Writes the modified modules to disk.
+     */
+    public void flush() {
+        List<Module> modules;
+        synchronized (this) {
+            modules = new ArrayList<Module>(fModules.values());
+        }
+        for (Module module : modules) {
+            module.save();
+        }
+    }
+
+    private static String readBuildId(Elf elf, Elf.ELFhdr header) throws IOException {
+        Elf.Section section = elf.getSectionByName(BUILD_ID_SECTION);
+        if (section == null || section.sh_type != Elf.Section.SHT_NOTE) {
+            return null;
+        }
+        ByteBuffer note = ByteBuffer.wrap(section.loadSectionData());
+        note.order(header.e_ident[Elf.ELFhdr.EI_DATA] == Elf.ELFhdr.ELFDATA2LSB ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        if (note.remaining() < 12) {
+            return null;
+        }
+        int nameSize = note.getInt();
+        int descSize = note.getInt();
+        int type = note.getInt();
+        int descStart = note.position() + ((nameSize + 3) & ~3);
+        if (type != NT_GNU_BUILD_ID || descSize <= 0 || descStart + descSize > note.limit()) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(descSize * 2);
+        for (int i = 0; i < descSize; i++) {
+            int b = note.get(descStart + i) & 0xff;
+            key.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static String fileKey(File file) {
+        // Hashing the content of a large binary costs more than what the cache saves,
+        // the size and modification time tell a rebuilt binary apart.
+        String id = file.getAbsolutePath() + '\n' + file.length() + '\n' + file.lastModified();
+        long hash = 1125899906842597L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = 31 * hash + id.charAt(i);
+        }
+        return "p" + Long.toHexString(hash); //$NON-NLS-1$
+    }
+
+    /**
+     * The cached disassembly of one binary.
+     */
+    public static class Module {
+        private final File fFile;
+        private final List<BigInteger[]> fLoadRanges;
+        /** Cached ranges, the most recently used last. */
+        private LinkedList<Range> fRanges;
+        private boolean fDirty;
+
+        Module(File file, List<BigInteger[]> loadRanges) {
+            fFile = file;
+            fLoadRanges = loadRanges;
+        }
+
+        /**
+         * Returns whether the given address range lies in one executable segment of
+         * the binary.
+         */
+        public boolean isCacheable(BigInteger start, BigInteger end) {
+            if (start == null || end == null || start.compareTo(end) >= 0) {
+                return false;
+            }
+            for (BigInteger[] range : fLoadRanges) {
+                if (range[0].compareTo(start) <= 0 && range[1].compareTo(end) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the cached instructions in the given address range, or <code>null</code>
+         * if the range is not cached.
+         */
+        public synchronized IInstruction[] getInstructions(BigInteger start, BigInteger end) {
+            Range range = findRange(start, end, false);
+            return range != null ? filter(range.fInstructions, start, end) : null;
+        }
+
+        /**
+         * Returns the cached mixed instructions in the given address range, or
+         * <code>null</code> if the range is not cached.
+         */
+        public synchronized IMixedInstruction[] getMixedInstructions(BigInteger start, BigInteger end) {
+            Range range = findRange(start, end, true);
+            return range != null ? filter(range.fMixedInstructions, start, end) : null;
+        }
+
+        /**
+         * Stores the instructions of the given address range as GDB returned them.
+         */
+        public synchronized void putInstructions(BigInteger start, BigInteger end, IInstruction[] instructions) {
+            IInstruction[] copy = new IInstruction[instructions.length];
+            for (int i = 0; i < instructions.length; i++) {
+                copy[i] = new CachedInstruction(instructions[i]);
+            }
+            addRange(new Range(start, end, copy, null));
+        }
+
+        /**
+         * Stores the mixed instructions of the given address range as GDB returned them.
+         */
+        public synchronized void putMixedInstructions(BigInteger start, BigInteger end, IMixedInstruction[] mixedInstructions) {
+            IMixedInstruction[] copy = new IMixedInstruction[mixedInstructions.length];
+            for (int i = 0; i < mixedInstructions.length; i++) {
+                IInstruction[] instructions = mixedInstructions[i].getInstructions();
+                IInstruction[] instructionsCopy = new IInstruction[instructions.length];
+                for (int j = 0; j < instructions.length; j++) {
+                    instructionsCopy[j] = new CachedInstruction(instructions[j]);
+                }
+                copy[i] = new CachedMixedInstruction(mixedInstructions[i].getFileName(), mixedInstructions[i].getLineNumber(), instructionsCopy);
+            }
+            addRange(new Range(start, end, null, copy));
+        }
+
+        /**
+         * Stores the instructions that GDB returned for an address range that was answered
+         * from the cache.
+         * @return whether the instructions differ from the cached ones
+         */
+        public synchronized boolean confirmInstructions(BigInteger start, BigInteger end, IInstruction[] instructions) {
+            IInstruction[] cached = getInstructions(start, end);
+            if (cached != null && isSame(cached, filter(instructions, start, end))) {
+                return false;
+            }
+            putInstructions(start, end, instructions);
+            return true;
+        }
+
+        /**
+         * Stores the mixed instructions that GDB returned for an address range that was
+         * answered from the cache.
+         * @return whether the instructions or source lines differ from the cached ones
+         */
+        public synchronized boolean confirmMixedInstructions(BigInteger start, BigInteger end, IMixedInstruction[] mixedInstructions) {
+            IMixedInstruction[] cached = getMixedInstructions(start, end);
+            if (cached != null && isSame(cached, filter(mixedInstructions, start, end))) {
+                return false;
+            }
+            putMixedInstructions(start, end, mixedInstructions);
+            return true;
+        }
+
+        private Range findRange(BigInteger start, BigInteger end, boolean mixed) {
+            load();
+            for (Iterator<Range> itr = fRanges.iterator(); itr.hasNext();) {
+                Range range = itr.next();
+                if (range.isMixed() == mixed && range.fStart.compareTo(start) <= 0 && range.fEnd.compareTo(end) >= 0) {
+                    // Keep the most recently used ranges when the cache is trimmed.
+                    itr.remove();
+                    fRanges.addLast(range);
+                    return range;
+                }
+            }
+            return null;
+        }
+
+        private void addRange(Range newRange) {
+            load();
+            for (Iterator<Range> itr = fRanges.iterator(); itr.hasNext();) {
+                Range range = itr.next();
+                if (range.isMixed() == newRange.isMixed() &&
+                    range.fStart.compareTo(newRange.fEnd) < 0 && range.fEnd.compareTo(newRange.fStart) > 0)
+                {
+                    // An overlapping range may hold instructions that GDB no longer reports.
+                    itr.remove();
+                }
+            }
+            fRanges.addLast(newRange);
+            while (fRanges.size() > MAX_RANGES) {
+                fRanges.removeFirst();
+            }
+            fDirty = true;
+        }
+
+        private static IInstruction[] filter(IInstruction[] instructions, BigInteger start, BigInteger end) {
+            List<IInstruction> result = new ArrayList<IInstruction>(instructions.length);
+            for (IInstruction instruction : instructions) {
+                BigInteger address = instruction.getAdress();
+                if (address != null && address.compareTo(start) >= 0 && address.compareTo(end) < 0) {
+                    result.add(instruction);
+                }
+            }
+            return result.toArray(new IInstruction[result.size()]);
+        }
+
+        /**
+         * Returns the source lines that have instructions in the given address range,
+         * with the lines without instructions found between them.
+         */
+        private static IMixedInstruction[] filter(IMixedInstruction[] mixedInstructions, BigInteger start, BigInteger end) {
+            List<IMixedInstruction> result = new ArrayList<IMixedInstruction>(mixedInstructions.length);
+            int lastNonEmpty = -1;
+            for (IMixedInstruction mixed : mixedInstructions) {
+                IInstruction[] instructions = filter(mixed.getInstructions(), start, end);
+                if (instructions.length > 0) {
+                    lastNonEmpty = result.size();
+                } else if (lastNonEmpty < 0 || mixed.getInstructions().length > 0) {
+                    // Source lines outside of the range.
+                    continue;
+                }
+                result.add(new CachedMixedInstruction(mixed.getFileName(), mixed.getLineNumber(), instructions));
+            }
+            return result.subList(0, lastNonEmpty + 1).toArray(new IMixedInstruction[lastNonEmpty + 1]);
+        }
+
+        /**
+         * Reads the cached ranges from the disk, unless this has been done before.  The
+         * other methods load the cache when needed, this allows to do it in advance.
+         */
+        public synchronized void load() {
+            if (fRanges != null) {
+                return;
+            }
+            fRanges = new LinkedList<Range>();
+            if (!fFile.isFile()) {
+                return;
+            }
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)));
+                if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                    return;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    fRanges.add(Range.read(in));
+                }
+            } catch (IOException e) {
+                // A damaged file is replaced by the next save.
+                fRanges.clear();
+            } finally {
+                close(in);
+            }
+        }
+
+        synchronized void save() {
+            if (!fDirty) {
+                return;
+            }
+            File directory = fFile.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            File tempFile = new File(directory, fFile.getName() + ".tmp"); //$NON-NLS-1$
+            DataOutputStream out = null;
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(fRanges.size());
+                for (Range range : fRanges) {
+                    range.write(out);
+                }
+                out.close();
+                out = null;
+                if (fFile.exists() && !fFile.delete() || !tempFile.renameTo(fFile)) {
+                    tempFile.delete();
+                    return;
+                }
+                fDirty = false;
+            } catch (IOException e) {
+                GdbPlugin.getDefault().getLog().log(new Status(IStatus.WARNING, GdbPlugin.PLUGIN_ID, "Failed to save the disassembly cache " + fFile, e)); //$NON-NLS-1$
+                tempFile.delete();
+            } finally {
+                close(out);
+            }
+        }
+
+        private static void close(Closeable stream) {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
+    private static class Range {
+        final BigInteger fStart;
+        final BigInteger fEnd;
+        final IInstruction[] fInstructions;
+        final IMixedInstruction[] fMixedInstructions;
+
+        Range(BigInteger start, BigInteger end, IInstruction[] instructions, IMixedInstruction[] mixedInstructions) {
+            fStart = start;
+            fEnd = end;
+            fInstructions = instructions;
+            fMixedInstructions = mixedInstructions;
+        }
+
+        boolean isMixed() {
+            return fMixedInstructions != null;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(fStart.toString(16));
+            out.writeUTF(fEnd.toString(16));
+            out.writeBoolean(isMixed());
+            if (isMixed()) {
+                out.writeInt(fMixedInstructions.length);
+                for (IMixedInstruction mixed : fMixedInstructions) {
+                    out.writeUTF(mixed.getFileName());
+                    out.writeInt(mixed.getLineNumber());
+                    writeInstructions(out, mixed.getInstructions());
+                }
+            } else {
+                writeInstructions(out, fInstructions);
+            }
+        }
+
+        static Range read(DataInputStream in) throws IOException {
+            BigInteger start = new BigInteger(in.readUTF(), 16);
+            BigInteger end = new BigInteger(in.readUTF(), 16);
+            if (in.readBoolean()) {
+                IMixedInstruction[] mixedInstructions = new IMixedInstruction[in.readInt()];
+                for (int i = 0; i < mixedInstructions.length; i++) {
+                    String fileName = in.readUTF();
+                    int lineNumber = in.readInt();
+                    mixedInstructions[i] = new CachedMixedInstruction(fileName, lineNumber, readInstructions(in));
+                }
+                return new Range(start, end, null, mixedInstructions);
+            }
+            return new Range(start, end, readInstructions(in), null);
+        }
+
+        private static void writeInstructions(DataOutputStream out, IInstruction[] instructions) throws IOException {
+            out.writeInt(instructions.length);
+            for (IInstruction instruction : instructions) {
+                CachedInstruction cached = (CachedInstruction)instruction;
+                out.writeUTF(cached.fAddress.toString(16));
+                out.writeUTF(cached.fFunction);
+                out.writeLong(cached.fOffset);
+                out.writeUTF(cached.fOpcode);
+                out.writeUTF(cached.fArgs);
+                out.writeInt(cached.fSize != null ? cached.fSize.intValue() : -1);
+            }
+        }
+
+        private static IInstruction[] readInstructions(DataInputStream in) throws IOException {
+            IInstruction[] instructions = new IInstruction[in.readInt()];
+            for (int i = 0; i < instructions.length; i++) {
+                BigInteger address = new BigInteger(in.readUTF(), 16);
+                String function = in.readUTF();
+                long offset = in.readLong();
+                String opcode = in.readUTF();
+                String args = in.readUTF();
+                int size = in.readInt();
+                instructions[i] = new CachedInstruction(address, function, offset, opcode, args, size >= 0 ? Integer.valueOf(size) : null);
+            }
+            return instructions;
+        }
+    }
+
+    private static class CachedInstruction extends AbstractInstruction {
+        final BigInteger fAddress;
+        final String fFunction;
+        final long fOffset;
+        final String fOpcode;
+        final String fArgs;
+        final Integer fSize;
+
+        CachedInstruction(BigInteger address, String function, long offset, String opcode, String args, Integer size) {
+            fAddress = address;
+            fFunction = function;
+            fOffset = offset;
+            fOpcode = opcode;
+            fArgs = args;
+            fSize = size;
+        }
+
+        CachedInstruction(IInstruction instruction) {
+            this(instruction.getAdress() != null ? instruction.getAdress() : BigInteger.ZERO,
+                 nonNull(instruction.getFuntionName()),
+                 instruction.getOffset(),
+                 nonNull(instruction.getOpcode()),
+                 nonNull(instruction.getArgs()),
+                 instruction instanceof IInstructionWithSize ? ((IInstructionWithSize)instruction).getSize() : null);
+        }
+
+        private static String nonNull(String string) {
+            return string != null ? string : ""; //$NON-NLS-1$
+        }
+
+        public BigInteger getAdress() {
+            return fAddress;
+        }
+
+        public String getFuntionName() {
+            return fFunction;
+        }
+
+        public long getOffset() {
+            return fOffset;
+        }
+
+        public String getInstruction() {
+            return fOpcode + " " + fArgs; //$NON-NLS-1$
+        }
+
+        public String getOpcode() {
+            return fOpcode;
+        }
+
+        public String getArgs() {
+            return fArgs;
+        }
+
+        @Override
+        public Integer getSize() {
+            return fSize;
+        }
+    }
+
+    private static class CachedMixedInstruction implements IMixedInstruction {
+        private final String fFileName;
+        private final int fLineNumber;
+        private final IInstruction[] fInstructions;
+
+        CachedMixedInstruction(String fileName, int lineNumber, IInstruction[] instructions) {
+            fFileName = fileName != null ? fileName : ""; //$NON-NLS-1$
+            fLineNumber = lineNumber;
+            fInstructions = instructions;
+        }
+
+        public String getFileName() {
+            return fFileName;
+        }
+
+        public int getLineNumber() {
+            return fLineNumber;
+        }
+
+        public IInstruction[] getInstructions() {
+            return fInstructions;
+        }
+    }
+
+    private static boolean isSame(IInstruction[] a, IInstruction[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (!equal(a[i].getAdress(), b[i].getAdress()) ||
+                !equal(a[i].getFuntionName(), b[i].getFuntionName()) ||
+                !equal(a[i].getInstruction(), b[i].getInstruction()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSame(IMixedInstruction[] a, IMixedInstruction[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (!equal(a[i].getFileName(), b[i].getFileName()) ||
+                a[i].getLineNumber() != b[i].getLineNumber() ||
+                !isSame(a[i].getInstructions(), b[i].getInstructions()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Ericsson and others.
+ * Copyright (c) 2010, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,12 +7,14 @@
  *
  * Contributors:
  *     Ericsson - Initial API and implementation 
+ *     Wind River Systems - Share the breakpoint list between tracepoint insertions
  *******************************************************************************/
 package org.eclipse.cdt.dsf.gdb.service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
@@ -54,6 +56,28 @@ public class GDBBreakpoints_7_0 extends MIBreakpoints
 	private IMIRunControl fRunControl;
 	private CommandFactory fCommandFactory;
 
+	/**
+	 * A tracepoint created by the CLI 'trace' command, waiting for the breakpoint
+	 * list that describes it.
+	 */
+	private static class PendingTracepoint {
+		final int fReference;
+		final Map<String, Object> fAttributes;
+		final DataRequestMonitor<IBreakpointDMContext> fDrm;
+
+		PendingTracepoint(int reference, Map<String, Object> attributes, DataRequestMonitor<IBreakpointDMContext> drm) {
+			fReference = reference;
+			fAttributes = attributes;
+			fDrm = drm;
+		}
+	}
+
+	// The tracepoints of each context waiting for the -break-list command that is queued.
+	// When many tracepoints are inserted at once, one breakpoint list describes them all
+	// instead of listing all the breakpoints again for each of them.
+	private Map<IBreakpointsTargetDMContext, List<PendingTracepoint>> fPendingTracepoints =
+		new HashMap<IBreakpointsTargetDMContext, List<PendingTracepoint>>();
+
 	public GDBBreakpoints_7_0(DsfSession session) {
 		super(session);
 	}
@@ -222,48 +246,88 @@ public class GDBBreakpoints_7_0 extends MIBreakpoints
 						
 						// The simplest way to convert from the CLITraceInfo to a MIBreakInsertInfo
 						// is to list the breakpoints and take the proper output
-						fConnection.queueCommand(
-								fCommandFactory.createMIBreakList(context),
-								new DataRequestMonitor<MIBreakListInfo>(getExecutor(), drm) {
-									@Override
-									protected void handleSuccess() {
-										MIBreakpoint[] breakpoints = getData().getMIBreakpoints();
-										for (MIBreakpoint bp : breakpoints) {
-											if (bp.getNumber() == tpReference) {
-
-												// Create a breakpoint object and store it in the map
-												final MIBreakpointDMData newBreakpoint = new MIBreakpointDMData(bp);
-												int reference = newBreakpoint.getNumber();
-												contextBreakpoints.put(reference, newBreakpoint);
-
-												// Format the return value
-												MIBreakpointDMContext dmc = new MIBreakpointDMContext(GDBBreakpoints_7_0.this, new IDMContext[] { context }, reference);
-												drm.setData(dmc);
-
-												// Flag the event
-												getSession().dispatchEvent(new BreakpointAddedEvent(dmc), getProperties());
-
-												// By default the tracepoint is enabled at creation
-												// If it wasn't supposed to be, then disable it right away
-												// Also, tracepoints are created with no passcount.
-												// We have to set the passcount manually now.
-												// Same for commands.
-												Map<String,Object> delta = new HashMap<String,Object>();
-												delta.put(MIBreakpoints.IS_ENABLED, getProperty(attributes, MIBreakpoints.IS_ENABLED, true));
-												delta.put(MIBreakpoints.PASS_COUNT, getProperty(attributes, MIBreakpoints.PASS_COUNT, 0));
-												delta.put(MIBreakpoints.COMMANDS, getProperty(attributes, MIBreakpoints.COMMANDS, "")); //$NON-NLS-1$
-												modifyBreakpoint(dmc, delta, drm, false);
-												return;
-											}
-										}
-										drm.setStatus(new Status(IStatus.ERROR, GdbPlugin.PLUGIN_ID, REQUEST_FAILED, BREAKPOINT_INSERTION_FAILURE, null));
-										drm.done();
-									}
-								});
+						describeTracepoint(context, tpReference, attributes, drm);
+					}
+				});
+	}
+
+	/**
+	 * Completes the insertion of a tracepoint once the breakpoint list gives its
+	 * description.  The tracepoints whose 'trace' command completes while a list is
+	 * queued share that list: GDB answers the commands in order, so the list covers
+	 * every tracepoint created before its result arrives.
+	 */
+	private void describeTracepoint(final IBreakpointsTargetDMContext context, int tpReference,
+			Map<String, Object> attributes, DataRequestMonitor<IBreakpointDMContext> drm)
+	{
+		List<PendingTracepoint> pending = fPendingTracepoints.get(context);
+		if (pending != null) {
+			pending.add(new PendingTracepoint(tpReference, attributes, drm));
+			return;
+		}
+		pending = new ArrayList<PendingTracepoint>();
+		pending.add(new PendingTracepoint(tpReference, attributes, drm));
+		fPendingTracepoints.put(context, pending);
+
+		fConnection.queueCommand(
+				fCommandFactory.createMIBreakList(context),
+				new DataRequestMonitor<MIBreakListInfo>(getExecutor(), null) {
+					@Override
+					protected void handleCompleted() {
+						List<PendingTracepoint> described = fPendingTracepoints.remove(context);
+						if (!isSuccess()) {
+							for (PendingTracepoint tracepoint : described) {
+								tracepoint.fDrm.setStatus(getStatus());
+								tracepoint.fDrm.done();
+							}
+							return;
+						}
+
+						Map<Integer, MIBreakpoint> breakpoints = new HashMap<Integer, MIBreakpoint>();
+						for (MIBreakpoint bp : getData().getMIBreakpoints()) {
+							breakpoints.put(bp.getNumber(), bp);
+						}
+						for (PendingTracepoint tracepoint : described) {
+							addDescribedTracepoint(context, breakpoints.get(tracepoint.fReference), tracepoint);
+						}
 					}
 				});
 	}
 
+	private void addDescribedTracepoint(IBreakpointsTargetDMContext context, MIBreakpoint bp, PendingTracepoint tracepoint) {
+		DataRequestMonitor<IBreakpointDMContext> drm = tracepoint.fDrm;
+		Map<Integer, MIBreakpointDMData> contextBreakpoints = getBreakpointMap(context);
+		if (bp == null || contextBreakpoints == null) {
+			drm.setStatus(new Status(IStatus.ERROR, GdbPlugin.PLUGIN_ID, REQUEST_FAILED, BREAKPOINT_INSERTION_FAILURE, null));
+			drm.done();
+			return;
+		}
+
+		// Create a breakpoint object and store it in the map
+		MIBreakpointDMData newBreakpoint = new MIBreakpointDMData(bp);
+		int reference = newBreakpoint.getNumber();
+		contextBreakpoints.put(reference, newBreakpoint);
+
+		// Format the return value
+		MIBreakpointDMContext dmc = new MIBreakpointDMContext(this, new IDMContext[] { context }, reference);
+		drm.setData(dmc);
+
+		// Flag the event
+		getSession().dispatchEvent(new BreakpointAddedEvent(dmc), getProperties());
+
+		// By default the tracepoint is enabled at creation
+		// If it wasn't supposed to be, then disable it right away
+		// Also, tracepoints are created with no passcount.
+		// We have to set the passcount manually now.
+		// Same for commands.
+		Map<String, Object> attributes = tracepoint.fAttributes;
+		Map<String,Object> delta = new HashMap<String,Object>();
+		delta.put(MIBreakpoints.IS_ENABLED, getProperty(attributes, MIBreakpoints.IS_ENABLED, true));
+		delta.put(MIBreakpoints.PASS_COUNT, getProperty(attributes, MIBreakpoints.PASS_COUNT, 0));
+		delta.put(MIBreakpoints.COMMANDS, getProperty(attributes, MIBreakpoints.COMMANDS, "")); //$NON-NLS-1$
+		modifyBreakpoint(dmc, delta, drm, false);
+	}
+
 	/**
 	 * @param dmc
 	 * @param properties
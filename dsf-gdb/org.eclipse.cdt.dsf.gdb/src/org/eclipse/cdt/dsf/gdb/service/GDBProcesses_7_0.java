@@ -15,10 +15,13 @@ package org.eclipse.cdt.dsf.gdb.service;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.IProcessInfo;
@@ -432,6 +435,28 @@ public class GDBProcesses_7_0 extends AbstractDsfService
      *  A map of thread id to thread group id.  We use this to find out to which threadGroup a thread belongs.
      */
     private Map<String, String> fThreadToGroupMap = new HashMap<String, String>();
+    /**
+     *  A map of thread group id to the ids of its threads, in the order in which they were created.
+     *  It is the inverse of fThreadToGroupMap, and is maintained along with it from the 
+     *  =thread-created and =thread-exited events.
+     */
+    private Map<String, Set<String>> fGroupToThreadsMap = new HashMap<String, Set<String>>();
+    /**
+     *  The thread groups whose threads GDB listed once.  From then on, fGroupToThreadsMap is
+     *  kept up to date by the events and the threads of these groups don't need to be listed
+     *  again, which matters for processes with thousands of threads.
+     */
+    private Set<String> fListedThreadGroups = new HashSet<String>();
+    /**
+     *  The threads that exited while the threads of their group were being listed, by group id.
+     *  The list of threads may be processed after these events, and must not bring them back.
+     */
+    private Map<String, Set<String>> fThreadsExitedWhileListing = new HashMap<String, Set<String>>();
+    /**
+     *  The threads that were created while the threads of their group were being listed, by 
+     *  group id.  The list of threads may have been produced before these events.
+     */
+    private Map<String, Set<String>> fThreadsCreatedWhileListing = new HashMap<String, Set<String>>();
     /**
      *  A map of thread group id to process id.  We use this to find out to which pid a group refers.
      */
@@ -685,21 +710,17 @@ public class GDBProcesses_7_0 extends AbstractDsfService
     }
     
     public IMIExecutionDMContext[] getExecutionContexts(IMIContainerDMContext containerDmc) {
-    	String groupId = containerDmc.getGroupId();
-    	List<IMIExecutionDMContext> execDmcList = new ArrayList<IMIExecutionDMContext>(); 
-    	Iterator<Map.Entry<String, String>> iterator = getThreadToGroupMap().entrySet().iterator();
-    	while (iterator.hasNext()){
-    		Map.Entry<String, String> entry = iterator.next();
-    		if (entry.getValue().equals(groupId)) {
-    			String threadId = entry.getKey();
-    			IProcessDMContext procDmc = DMContexts.getAncestorOfType(containerDmc, IProcessDMContext.class);
-    			IMIExecutionDMContext execDmc = createExecutionContext(containerDmc, 
-    																   createThreadContext(procDmc, threadId),
-    																   threadId);
-    			execDmcList.add(execDmc);
-    		}
+    	Set<String> threadIds = fGroupToThreadsMap.get(containerDmc.getGroupId());
+    	if (threadIds == null) {
+    		return new IMIExecutionDMContext[0];
     	}
-    	return execDmcList.toArray(new IMIExecutionDMContext[0]);
+    	
+    	IProcessDMContext procDmc = DMContexts.getAncestorOfType(containerDmc, IProcessDMContext.class);
+    	List<IMIExecutionDMContext> execDmcList = new ArrayList<IMIExecutionDMContext>(threadIds.size()); 
+    	for (String threadId : threadIds) {
+    		execDmcList.add(createExecutionContext(containerDmc, createThreadContext(procDmc, threadId), threadId));
+    	}
+    	return execDmcList.toArray(new IMIExecutionDMContext[execDmcList.size()]);
     }
 
 	public void getExecutionData(IThreadDMContext dmc, final DataRequestMonitor<IThreadDMData> rm) {
@@ -999,12 +1020,27 @@ public class GDBProcesses_7_0 extends AbstractDsfService
 		final ICommandControlDMContext controlDmc = DMContexts.getAncestorOfType(dmc, ICommandControlDMContext.class);
 		final IMIContainerDMContext containerDmc = DMContexts.getAncestorOfType(dmc, IMIContainerDMContext.class);
 		if (containerDmc != null) {
+			final String groupId = containerDmc.getGroupId();
+			if (fListedThreadGroups.contains(groupId)) {
+				// The table of threads is up to date, no need to ask GDB
+				Set<String> threadIds = fGroupToThreadsMap.get(groupId);
+				rm.setData(makeExecutionDMCs(containerDmc, threadIds == null ? new String[0] : threadIds.toArray(new String[threadIds.size()])));
+				rm.done();
+				return;
+			}
+			
+			if (!fThreadsExitedWhileListing.containsKey(groupId)) {
+				fThreadsExitedWhileListing.put(groupId, new HashSet<String>());
+				fThreadsCreatedWhileListing.put(groupId, new LinkedHashSet<String>());
+			}
 			fThreadCommandCache.execute(
-					fCommandFactory.createMIListThreadGroups(controlDmc, containerDmc.getGroupId()),
+					fCommandFactory.createMIListThreadGroups(controlDmc, groupId),
 					new DataRequestMonitor<MIListThreadGroupsInfo>(getExecutor(), rm) {
 						@Override
 						protected void handleSuccess() {
-							rm.setData(makeExecutionDMCs(containerDmc, getData().getThreadInfo().getThreadList()));
+							threadsListed(groupId, getData().getThreadInfo().getThreadList());
+							Set<String> threadIds = fGroupToThreadsMap.get(groupId);
+							rm.setData(makeExecutionDMCs(containerDmc, threadIds == null ? new String[0] : threadIds.toArray(new String[threadIds.size()])));
 							rm.done();
 						}
 					});
@@ -1032,10 +1068,46 @@ public class GDBProcesses_7_0 extends AbstractDsfService
 		}
 	}
 
-	private IExecutionDMContext[] makeExecutionDMCs(IContainerDMContext containerDmc, MIThread[] threadInfos) {
+	/**
+	 * Replaces the table of threads of the given group with the threads listed by GDB, 
+	 * updated with the events that GDB reported while the list was pending.
+	 */
+	private void threadsListed(String groupId, MIThread[] threadInfos) {
+		Set<String> exitedThreads = fThreadsExitedWhileListing.remove(groupId);
+		Set<String> createdThreads = fThreadsCreatedWhileListing.remove(groupId);
+		if (fListedThreadGroups.contains(groupId)) {
+			return;
+		}
+
+		Set<String> threadIds = new LinkedHashSet<String>();
+		for (MIThread threadInfo : threadInfos) {
+			String threadId = threadInfo.getThreadId();
+			if (exitedThreads == null || !exitedThreads.contains(threadId)) {
+				threadIds.add(threadId);
+				getThreadToGroupMap().put(threadId, groupId);
+			}
+		}
+		if (createdThreads != null) {
+			threadIds.addAll(createdThreads);
+		}
+
+		// Forget the threads of the previous table which GDB no longer knows about, 
+		// in case we missed their events.
+		Set<String> previousThreadIds = fGroupToThreadsMap.put(groupId, threadIds);
+		if (previousThreadIds != null) {
+			for (String threadId : previousThreadIds) {
+				if (!threadIds.contains(threadId) && groupId.equals(getThreadToGroupMap().get(threadId))) {
+					getThreadToGroupMap().remove(threadId);
+				}
+			}
+		}
+		fListedThreadGroups.add(groupId);
+	}
+
+	private IExecutionDMContext[] makeExecutionDMCs(IContainerDMContext containerDmc, String[] threadIds) {
 		final IProcessDMContext procDmc = DMContexts.getAncestorOfType(containerDmc, IProcessDMContext.class);
 
-		if (threadInfos.length == 0) {
+		if (threadIds.length == 0) {
 			// Main thread always exist even if it is not reported by GDB.
 			// So create thread-id = 0 when no thread is reported.
 			// This hack is necessary to prevent AbstractMIControl from issuing a thread-select
@@ -1044,9 +1116,9 @@ public class GDBProcesses_7_0 extends AbstractDsfService
 					                                                  createThreadContext(procDmc, FAKE_THREAD_ID),
 					                                                  FAKE_THREAD_ID)};
 		} else {
-			IExecutionDMContext[] executionDmcs = new IMIExecutionDMContext[threadInfos.length];
-			for (int i = 0; i < threadInfos.length; i++) {
-				String threadId = threadInfos[i].getThreadId();
+			IExecutionDMContext[] executionDmcs = new IMIExecutionDMContext[threadIds.length];
+			for (int i = 0; i < threadIds.length; i++) {
+				String threadId = threadIds[i];
 				executionDmcs[i] = createExecutionContext(containerDmc, 
 						                                  createThreadContext(procDmc, threadId),
 						                                  threadId);
@@ -1381,6 +1453,10 @@ public class GDBProcesses_7_0 extends AbstractDsfService
 				// and it is the controDMC in this case.
 				ICommandControlDMContext controlDmc = DMContexts.getAncestorOfType(e.getDMContext(), ICommandControlDMContext.class);
 				fThreadCommandCache.reset(controlDmc);
+				
+				// Without the events, our table of threads is not up to date either
+				fGroupToThreadsMap.clear();
+				fListedThreadGroups.clear();
 			}
 		} catch (CoreException exc) {}
     }
@@ -1391,9 +1467,9 @@ public class GDBProcesses_7_0 extends AbstractDsfService
     	if (e instanceof ContainerStartedDMEvent) {
     		fContainerCommandCache.reset();
     		fNumConnected++;
-    	} else {
-    		fThreadCommandCache.reset();
     	}
+    	// The new thread was added to the table of threads of its group, the cached
+    	// information about the other threads is still valid.
 	}
 
     // Event handler when a thread or a threadGroup exits
@@ -1401,6 +1477,7 @@ public class GDBProcesses_7_0 extends AbstractDsfService
     public void eventDispatched(IExitedDMEvent e) {
     	if (e instanceof ContainerExitedDMEvent) {
     		fContainerCommandCache.reset();
+    		fThreadCommandCache.reset();
     		
     		assert fNumConnected > 0;
     		fNumConnected--;
@@ -1418,14 +1495,18 @@ public class GDBProcesses_7_0 extends AbstractDsfService
     			}
     		}
     		fProcRestarting = false;
-    	} else {
-    		fThreadCommandCache.reset();
     	}
+    	// The thread was removed from the table of threads of its group, the cached
+    	// information about the other threads is still valid.
     }
 
 	public void flushCache(IDMContext context) {
 		fContainerCommandCache.reset(context);
 		fThreadCommandCache.reset(context);
+		
+		// Have GDB list the threads again, in case we missed an event.  The table of 
+		// threads of each group is replaced by the new list.
+		fListedThreadGroups.clear();
 	}
 
 	/*
@@ -1459,8 +1540,29 @@ public class GDBProcesses_7_0 extends AbstractDsfService
     		    	if ("thread-created".equals(miEvent)) { //$NON-NLS-1$
     		    		// Update the thread to groupId map with the new groupId
     		    		getThreadToGroupMap().put(threadId, groupId);
+    		    		
+    		    		Set<String> threadIds = fGroupToThreadsMap.get(groupId);
+    		    		if (threadIds == null) {
+    		    			threadIds = new LinkedHashSet<String>();
+    		    			fGroupToThreadsMap.put(groupId, threadIds);
+    		    		}
+    		    		threadIds.add(threadId);
+    		    		Set<String> createdThreads = fThreadsCreatedWhileListing.get(groupId);
+    		    		if (createdThreads != null) {
+    		    			createdThreads.add(threadId);
+    		    		}
     		    	} else {
     		    		getThreadToGroupMap().remove(threadId);
+    		    		
+    		    		Set<String> threadIds = fGroupToThreadsMap.get(groupId);
+    		    		if (threadIds != null) {
+    		    			threadIds.remove(threadId);
+    		    		}
+    		    		Set<String> exitedThreads = fThreadsExitedWhileListing.get(groupId);
+    		    		if (exitedThreads != null) {
+    		    			exitedThreads.add(threadId);
+    		    			fThreadsCreatedWhileListing.get(groupId).remove(threadId);
+    		    		}
     		    	}
     		    	// "thread-group-created" was used before GDB 7.2, while "thread-group-started" is used with GDB 7.2
     			} else if ("thread-group-created".equals(miEvent) || "thread-group-started".equals(miEvent)) {  //$NON-NLS-1$ //$NON-NLS-2$
@@ -1563,6 +1665,10 @@ public class GDBProcesses_7_0 extends AbstractDsfService
     					// Remove any entries for that group from our thread to group map
     					// When detaching from a group, we won't have received any thread-exited event
     					// but we don't want to keep those entries.
+    					fGroupToThreadsMap.remove(groupId);
+    					fListedThreadGroups.remove(groupId);
+    					fThreadsExitedWhileListing.remove(groupId);
+    					fThreadsCreatedWhileListing.remove(groupId);
     					if (getThreadToGroupMap().containsValue(groupId)) {
     						Iterator<Map.Entry<String, String>> iterator = getThreadToGroupMap().entrySet().iterator();
     						while (iterator.hasNext()){
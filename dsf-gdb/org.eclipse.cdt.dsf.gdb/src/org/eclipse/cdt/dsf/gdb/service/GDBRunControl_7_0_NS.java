@@ -285,6 +285,16 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 		String fStateChangeDetails;
 	}
 
+	/**
+	 * The threads of a container and the number of them that are suspended, so that
+	 * the state of a container with thousands of threads is known without going
+	 * through all the threads of the session.
+	 */
+	private static class ContainerRunState {
+		final Set<IMIExecutionDMContext> fThreads = new HashSet<IMIExecutionDMContext>();
+		int fSuspendedCount = 0;
+	}
+
 	/**
 	 * @since 4.0
 	 */
@@ -324,6 +334,9 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 	// ThreadStates indexed by the execution context
 	protected Map<IMIExecutionDMContext, MIThreadRunState> fThreadRunStates = new HashMap<IMIExecutionDMContext, MIThreadRunState>();
 
+	// The threads of each container, maintained along with fThreadRunStates
+	private Map<IContainerDMContext, ContainerRunState> fContainerRunStates = new HashMap<IContainerDMContext, ContainerRunState>();
+
 	private RunToLineActiveOperation fRunToLineActiveOperation = null;
 
 	/** @since 4.0 */
@@ -423,16 +436,12 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 		// Container case.  The container is considered suspended as long
 		// as one of its thread is suspended
 		if (context instanceof IContainerDMContext) {
-			boolean hasThread = false;
-			for (IMIExecutionDMContext threadContext : fThreadRunStates.keySet()) {
-				if (DMContexts.isAncestorOf(threadContext, context)) {
-					hasThread = true;
-					if (isSuspended(threadContext)) return true;
-				}
-			}
+			ContainerRunState containerState = fContainerRunStates.get(context);
 			// If this container does not have any threads, it means it wasn't started
 			// yet or it was terminated, so we can consider it suspended
-			if (hasThread == false) return true;
+			if (containerState == null || containerState.fThreads.isEmpty()) return true;
+			
+			return !fTerminated && containerState.fSuspendedCount > 0;
 		}
 
 		// Default case
@@ -453,15 +462,11 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 			return;
 		}
 
-		// Container case
+		// Container case.  A thread can be suspended if it is not suspended already.
 		if (context instanceof IContainerDMContext) {
-			boolean canSuspend = false;
-			for (IMIExecutionDMContext threadContext : fThreadRunStates.keySet()) {
-				if (DMContexts.isAncestorOf(threadContext, context)) {
-					canSuspend |= doCanSuspend(threadContext);
-				}
-			}
-			rm.setData(canSuspend);
+			ContainerRunState containerState = fContainerRunStates.get(context);
+			rm.setData(!fTerminated && containerState != null && 
+					containerState.fSuspendedCount < containerState.fThreads.size());
 			rm.done();
 			return;
 		}
@@ -536,13 +541,17 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 
 		// Container case
 		if (context instanceof IContainerDMContext) {
-			boolean canSuspend = false;
-			for (IMIExecutionDMContext threadContext : fThreadRunStates.keySet()) {
-				if (DMContexts.isAncestorOf(threadContext, context)) {
-					canSuspend |= doCanResume(threadContext);
+			boolean canResume = false;
+			ContainerRunState containerState = fContainerRunStates.get(context);
+			if (containerState != null && containerState.fSuspendedCount > 0) {
+				for (IMIExecutionDMContext threadContext : containerState.fThreads) {
+					if (doCanResume(threadContext)) {
+						canResume = true;
+						break;
+					}
 				}
 			}
-			rm.setData(canSuspend);
+			rm.setData(canResume);
 			rm.done();
 			return;
 		}
@@ -908,12 +917,8 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 	private void updateThreadState(IMIExecutionDMContext context, ResumedEvent event) {
 		StateChangeReason reason = event.getReason();
 		boolean isStepping = reason.equals(StateChangeReason.STEP);
-		MIThreadRunState threadState = fThreadRunStates.get(context);
-		if (threadState == null) {
-			threadState = new MIThreadRunState();
-			fThreadRunStates.put(context, threadState);
-		}
-		threadState.fSuspended = false;
+		MIThreadRunState threadState = getOrAddThreadState(context);
+		setThreadSuspended(context, threadState, false);
 		threadState.fResumePending = false;
 		threadState.fStateChangeReason = reason;
 		threadState.fStateChangeDetails = null;	// we have no details of interest for a resume
@@ -922,16 +927,56 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 
 	private void updateThreadState(IMIExecutionDMContext context, SuspendedEvent event) {
 		StateChangeReason reason = event.getReason();
+		MIThreadRunState threadState = getOrAddThreadState(context);
+		setThreadSuspended(context, threadState, true);
+		threadState.fResumePending = false;
+		threadState.fStepping = false;
+		threadState.fStateChangeReason = reason;
+		threadState.fStateChangeDetails = event.getDetails();		
+	}
+
+	private MIThreadRunState getOrAddThreadState(IMIExecutionDMContext context) {
 		MIThreadRunState threadState = fThreadRunStates.get(context);
 		if (threadState == null) {
 			threadState = new MIThreadRunState();
 			fThreadRunStates.put(context, threadState);
+			
+			IContainerDMContext containerDmc = DMContexts.getAncestorOfType(context, IContainerDMContext.class);
+			ContainerRunState containerState = fContainerRunStates.get(containerDmc);
+			if (containerState == null) {
+				containerState = new ContainerRunState();
+				fContainerRunStates.put(containerDmc, containerState);
+			}
+			containerState.fThreads.add(context);
+		}
+		return threadState;
+	}
+
+	private void setThreadSuspended(IMIExecutionDMContext context, MIThreadRunState threadState, boolean suspended) {
+		if (threadState.fSuspended != suspended) {
+			ContainerRunState containerState = fContainerRunStates.get(DMContexts.getAncestorOfType(context, IContainerDMContext.class));
+			if (containerState != null) {
+				containerState.fSuspendedCount += suspended ? 1 : -1;
+			}
+		}
+		threadState.fSuspended = suspended;
+	}
+
+	private void removeThreadState(IExecutionDMContext context) {
+		MIThreadRunState threadState = fThreadRunStates.remove(context);
+		if (threadState != null) {
+			IContainerDMContext containerDmc = DMContexts.getAncestorOfType(context, IContainerDMContext.class);
+			ContainerRunState containerState = fContainerRunStates.get(containerDmc);
+			if (containerState != null) {
+				containerState.fThreads.remove(context);
+				if (threadState.fSuspended) {
+					containerState.fSuspendedCount--;
+				}
+				if (containerState.fThreads.isEmpty()) {
+					fContainerRunStates.remove(containerDmc);
+				}
+			}
 		}
-		threadState.fSuspended = true;
-		threadState.fResumePending = false;
-		threadState.fStepping = false;
-		threadState.fStateChangeReason = reason;
-		threadState.fStateChangeDetails = event.getDetails();		
 	}
 
 	/* ******************************************************************************
@@ -1537,9 +1582,7 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
 	public void eventDispatched(StartedDMEvent e) {
 		IExecutionDMContext executionCtx = e.getDMContext();
 		if (executionCtx instanceof IMIExecutionDMContext) {			
-			if (fThreadRunStates.get(executionCtx) == null) {
-				fThreadRunStates.put((IMIExecutionDMContext)executionCtx, new MIThreadRunState());
-			}
+			getOrAddThreadState((IMIExecutionDMContext)executionCtx);
 		}
 	}
 
@@ -1549,7 +1592,7 @@ public class GDBRunControl_7_0_NS extends AbstractDsfService implements IMIRunCo
      */
 	@DsfServiceEventHandler
 	public void eventDispatched(ExitedDMEvent e) {
-		fThreadRunStates.remove(e.getDMContext());
+		removeThreadState(e.getDMContext());
 	}
 	
     /**
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River and others.
+ * Copyright (c) 2007, 2011 Wind River and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,14 @@
  *     Ericsson   - Added breakpoint filter support
  *     Ericsson   - Re-factored the service and put a few comments
  *     Ericsson   - Added Action support
+ *     Wind River - Batch the marker updates of the initial breakpoints
  *******************************************************************************/
 
 package org.eclipse.cdt.dsf.mi.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
@@ -173,6 +176,96 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
     private Map<ICBreakpoint, IMarker> fBreakpointMarkerProblems =
         new HashMap<ICBreakpoint, IMarker>();
 
+    /**
+     * The marker updates of a set of breakpoints installed together.  Updating the
+     * markers of each breakpoint as soon as it is installed costs a workspace
+     * operation and a resource change notification per breakpoint; the updates are
+     * collected instead and applied in a single workspace operation.
+     */
+    private static class MarkerUpdates {
+        final Set<ICBreakpoint> fProblemsRemoved = new HashSet<ICBreakpoint>();
+        final Map<ICBreakpoint, String> fProblemsAdded = new HashMap<ICBreakpoint, String>();
+
+        // The back-end breakpoints installed by this set, and those of them which are
+        // not pending, whose platform breakpoint install count is to be incremented.
+        // Accessed by the job applying the updates as well as the executor, hence the
+        // synchronized methods.
+        private final Set<IBreakpointDMContext> fTargets = new HashSet<IBreakpointDMContext>();
+        private final Map<IBreakpointDMContext, ICBreakpoint> fInstalled = new HashMap<IBreakpointDMContext, ICBreakpoint>();
+        private boolean fApplied;
+        private boolean fClosed;
+
+        synchronized void addTarget(IBreakpointDMContext targetBP) {
+            fTargets.add(targetBP);
+        }
+
+        synchronized void addInstalled(IBreakpointDMContext targetBP, ICBreakpoint breakpoint) {
+            // The back-end breakpoint may have been removed in the meantime
+            if (fTargets.contains(targetBP)) {
+                fInstalled.put(targetBP, breakpoint);
+            }
+        }
+
+        synchronized boolean isEmpty() {
+            return fInstalled.isEmpty() && fProblemsRemoved.isEmpty() && fProblemsAdded.isEmpty();
+        }
+
+        synchronized Set<ICBreakpoint> getBreakpoints() {
+            Set<ICBreakpoint> bps = new HashSet<ICBreakpoint>(fInstalled.values());
+            bps.addAll(fProblemsRemoved);
+            bps.addAll(fProblemsAdded.keySet());
+            return bps;
+        }
+
+        /**
+         * Increments the install counts, unless the set was closed.  The lock is held
+         * until all the counts are incremented, such that a decrement of one of them
+         * cannot come first.
+         */
+        synchronized void incrementInstallCounts() {
+            if (fClosed) {
+                return;
+            }
+            fApplied = true;
+            for (ICBreakpoint breakpoint : fInstalled.values()) {
+                try {
+                    breakpoint.incrementInstallCount();
+                } catch (CoreException e) {
+                }
+            }
+        }
+
+        /**
+         * Cancels the increment of the install count of the given back-end breakpoint
+         * if it is not applied yet, in which case the install count must not be
+         * decremented either.
+         */
+        synchronized boolean cancelInstalled(IBreakpointDMContext targetBP) {
+            if (fApplied || !fTargets.remove(targetBP)) {
+                return false;
+            }
+            fInstalled.remove(targetBP);
+            return true;
+        }
+
+        /**
+         * Drops the increments that are not applied yet, when the session ends.
+         * The back-end breakpoints installed by this set, even later, are then
+         * not counted at all.
+         */
+        synchronized void close() {
+            if (!fApplied) {
+                fClosed = true;
+            }
+        }
+    }
+
+    // The marker updates of the initial breakpoints of each context, see
+    // installInitialBreakpoints().  Their increments of the install counts
+    // can be cancelled until they are applied.
+    private Map<IBreakpointsTargetDMContext, MarkerUpdates> fMarkerUpdates =
+        new HashMap<IBreakpointsTargetDMContext, MarkerUpdates>();
+
     ///////////////////////////////////////////////////////////////////////////
     // String constants
     ///////////////////////////////////////////////////////////////////////////
@@ -412,9 +505,18 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
             rm.done();
         }
 
-        // Install the individual breakpoints on the dispatcher thread
+        // Install the individual breakpoints on the dispatcher thread without
+        // waiting for each other, and update their markers all at once at the end.
         // Requires a counting monitor to know when we are done
-        final CountingRequestMonitor countingRm = new CountingRequestMonitor(getExecutor(), rm);
+        final MarkerUpdates markerUpdates = new MarkerUpdates();
+        fMarkerUpdates.put(dmc, markerUpdates);
+        final CountingRequestMonitor countingRm = new CountingRequestMonitor(getExecutor(), rm) {
+            @Override
+            protected void handleCompleted() {
+                applyMarkerUpdates(markerUpdates);
+                super.handleCompleted();
+            }
+        };
         countingRm.setDoneCount(platformBPs.size());
 
         for (final ICBreakpoint breakpoint : platformBPs.keySet()) {
@@ -428,7 +530,7 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                 	boolean bpEnabled = attributes.get(ICBreakpoint.ENABLED).equals(true) &&
 					                    (breakpoint instanceof ICTracepoint || fBreakpointManager.isEnabled());
                 	if (bpEnabled)
-                		installBreakpoint(dmc, breakpoint, attributes, countingRm);
+                		installBreakpoint(dmc, breakpoint, attributes, markerUpdates, countingRm);
                 	else
                 		countingRm.done();
                 }
@@ -475,6 +577,7 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                 fBreakpointIDs.remove(dmc);
                 fTargetBPs.remove(dmc);
                 fBreakpointThreads.remove(dmc);
+                fMarkerUpdates.remove(dmc);
                 rm.done();
             }
         };
@@ -511,6 +614,16 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
      */
     private void installBreakpoint(IBreakpointsTargetDMContext dmc, final ICBreakpoint breakpoint,
         final Map<String, Object> attributes, final RequestMonitor rm)
+    {
+        installBreakpoint(dmc, breakpoint, attributes, null, rm);
+    }
+
+    /**
+     * Install a platform breakpoint on the back-end, collecting the updates of its
+     * markers in the given set of updates if it is not null.
+     */
+    private void installBreakpoint(IBreakpointsTargetDMContext dmc, final ICBreakpoint breakpoint,
+        final Map<String, Object> attributes, final MarkerUpdates markerUpdates, final RequestMonitor rm)
     {
         // Retrieve the breakpoint maps
         final Map<ICBreakpoint,Map<String,Object>> platformBPs = fPlatformBPs.get(dmc);
@@ -571,7 +684,7 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                         Vector<IBreakpointDMContext> list = breakpointIDs.get(breakpoint);
                         if (list == null)
                             list = new Vector<IBreakpointDMContext>();
-                        IBreakpointDMContext targetBP = getData();
+                        final IBreakpointDMContext targetBP = getData();
                         list.add(targetBP);
                         breakpointIDs.put(breakpoint, list);
 
@@ -589,7 +702,12 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                         attributes.put(ATTR_THREAD_ID, NULL_STRING);
 
                         // Remove breakpoint problem marker (if any)
-                        removeBreakpointProblemMarker(breakpoint);
+                        if (markerUpdates != null) {
+                            markerUpdates.addTarget(targetBP);
+                            markerUpdates.fProblemsRemoved.add(breakpoint);
+                        } else {
+                            removeBreakpointProblemMarker(breakpoint);
+                        }
 
                         // Check for a pending breakpoint before showing that it was properly installed
                         fBreakpoints.getBreakpointDMData(targetBP, new DataRequestMonitor<IBreakpointDMData>(getExecutor(), null) {
@@ -604,9 +722,13 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                         		}
                         		// Finally, update the platform breakpoint to show it was installed, unless we have a pending breakpoint
                         		if (!pending) {
-                        			try {
-                        				breakpoint.incrementInstallCount();
-                        			} catch (CoreException e) {
+                        			if (markerUpdates != null) {
+                        				markerUpdates.addInstalled(targetBP, breakpoint);
+                        			} else {
+                        				try {
+                        					breakpoint.incrementInstallCount();
+                        				} catch (CoreException e) {
+                        				}
                         			}
                         		}
                         		installRM.done();                        		
@@ -617,7 +739,11 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                     @Override
                     protected void handleError() {
                     	String description = MessageFormat.format(Messages.Breakpoint_attribute_problem, new Object[] { Messages.Breakpoint_installation_failed });
-                        addBreakpointProblemMarker(breakpoint, description, IMarker.SEVERITY_WARNING);
+                    	if (markerUpdates != null) {
+                    	    markerUpdates.fProblemsAdded.put(breakpoint, description);
+                    	} else {
+                    	    addBreakpointProblemMarker(breakpoint, description, IMarker.SEVERITY_WARNING);
+                    	}
                         installRM.done();
                     }
                 };
@@ -634,56 +760,89 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
         new Job("Add Breakpoint Problem Marker") { //$NON-NLS-1$
             @Override
             protected IStatus run(IProgressMonitor monitor) {
-                
-                if (breakpoint instanceof ICLineBreakpoint) {
-                	// If we have already have a problem marker on this breakpoint
-                	// we should remove it first.
-                    IMarker marker = fBreakpointMarkerProblems.remove(breakpoint);
-                    if (marker != null) {
-                        try {
-                            marker.delete();
-                        } catch (CoreException e) {
-                        }
-                	}
-
-                    ICLineBreakpoint lineBreakpoint = (ICLineBreakpoint) breakpoint;
-                    try {
-                        // Locate the workspace resource via the breakpoint marker
-                        IMarker breakpoint_marker = lineBreakpoint.getMarker();
-                        IResource resource = breakpoint_marker.getResource();
-
-                        // Add a problem marker to the resource
-                        IMarker problem_marker = resource.createMarker(BreakpointProblems.BREAKPOINT_PROBLEM_MARKER_ID);
-                        int line_number = lineBreakpoint.getLineNumber();
-                        problem_marker.setAttribute(IMarker.LOCATION,    String.valueOf(line_number));
-                        problem_marker.setAttribute(IMarker.MESSAGE,     description);
-                        problem_marker.setAttribute(IMarker.SEVERITY,    severity);
-                        problem_marker.setAttribute(IMarker.LINE_NUMBER, line_number);
-
-                        // And save the baby
-                        fBreakpointMarkerProblems.put(breakpoint, problem_marker);
-                    } catch (CoreException e) {
-                    }
-                }
+                doAddBreakpointProblemMarker(breakpoint, description, severity);
                 return Status.OK_STATUS;
             }
         }.schedule();
     }
 
+    private void doAddBreakpointProblemMarker(ICBreakpoint breakpoint, String description, int severity) {
+        if (breakpoint instanceof ICLineBreakpoint) {
+        	// If we have already have a problem marker on this breakpoint
+        	// we should remove it first.
+            doRemoveBreakpointProblemMarker(breakpoint);
+
+            ICLineBreakpoint lineBreakpoint = (ICLineBreakpoint) breakpoint;
+            try {
+                // Locate the workspace resource via the breakpoint marker
+                IMarker breakpoint_marker = lineBreakpoint.getMarker();
+                IResource resource = breakpoint_marker.getResource();
+
+                // Add a problem marker to the resource
+                IMarker problem_marker = resource.createMarker(BreakpointProblems.BREAKPOINT_PROBLEM_MARKER_ID);
+                int line_number = lineBreakpoint.getLineNumber();
+                problem_marker.setAttribute(IMarker.LOCATION,    String.valueOf(line_number));
+                problem_marker.setAttribute(IMarker.MESSAGE,     description);
+                problem_marker.setAttribute(IMarker.SEVERITY,    severity);
+                problem_marker.setAttribute(IMarker.LINE_NUMBER, line_number);
+
+                // And save the baby
+                fBreakpointMarkerProblems.put(breakpoint, problem_marker);
+            } catch (CoreException e) {
+            }
+        }
+    }
+
     private void removeBreakpointProblemMarker(final ICBreakpoint breakpoint) {
 
         new Job("Remove Breakpoint Problem Marker") { //$NON-NLS-1$
             @Override
             protected IStatus run(IProgressMonitor monitor) {
-                
-                IMarker marker = fBreakpointMarkerProblems.remove(breakpoint);
-                if (marker != null) {
-                    try {
-                        marker.delete();
-                    } catch (CoreException e) {
+                doRemoveBreakpointProblemMarker(breakpoint);
+                return Status.OK_STATUS;
+            }
+        }.schedule();
+    }
+
+    private void doRemoveBreakpointProblemMarker(ICBreakpoint breakpoint) {
+        IMarker marker = fBreakpointMarkerProblems.remove(breakpoint);
+        if (marker != null) {
+            try {
+                marker.delete();
+            } catch (CoreException e) {
+            }
+        }
+    }
+
+    /**
+     * Applies the marker updates collected while installing a set of breakpoints,
+     * in one workspace operation.
+     */
+    private void applyMarkerUpdates(final MarkerUpdates markerUpdates) {
+        if (markerUpdates.isEmpty()) {
+            return;
+        }
+
+        new Job("Update Breakpoint Markers") { //$NON-NLS-1$
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                IWorkspaceRunnable wr = new IWorkspaceRunnable() {
+                    public void run(IProgressMonitor monitor) throws CoreException {
+                        for (ICBreakpoint breakpoint : markerUpdates.fProblemsRemoved) {
+                            doRemoveBreakpointProblemMarker(breakpoint);
+                        }
+                        for (Map.Entry<ICBreakpoint, String> problem : markerUpdates.fProblemsAdded.entrySet()) {
+                            doAddBreakpointProblemMarker(problem.getKey(), problem.getValue(), IMarker.SEVERITY_WARNING);
+                        }
+                        markerUpdates.incrementInstallCounts();
                     }
-                }
+                };
 
+                try {
+                    ResourcesPlugin.getWorkspace().run(wr, getMarkerRule(markerUpdates.getBreakpoints()), 0, null);
+                } catch (CoreException e) {
+                    return e.getStatus();
+                }
                 return Status.OK_STATUS;
             }
         }.schedule();
@@ -765,10 +924,18 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
     }
 
     
-    private void decrementInstallCount(IBreakpointDMContext targetDmc, final ICBreakpoint breakpoint, final RequestMonitor rm) {
+    private void decrementInstallCount(final IBreakpointDMContext targetDmc, final ICBreakpoint breakpoint, final RequestMonitor rm) {
         fBreakpoints.getBreakpointDMData(targetDmc, new DataRequestMonitor<IBreakpointDMData>(getExecutor(), rm) {
         	@Override
         	protected void handleCompleted() {
+        		// If the install count was not incremented yet, cancel the increment instead
+        		MarkerUpdates markerUpdates = fMarkerUpdates.get(
+        				DMContexts.getAncestorOfType(targetDmc, IBreakpointsTargetDMContext.class));
+        		if (markerUpdates != null && markerUpdates.cancelInstalled(targetDmc)) {
+        			rm.done();
+        			return;
+        		}
+
         		boolean pending = false;
         		if (isSuccess()) {
         			IBreakpointDMData data = getData();
@@ -1368,6 +1535,11 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
     }
 
     private void terminated() {
+    	// The install counts of the initial breakpoints may not be incremented yet
+    	for (MarkerUpdates markerUpdates : fMarkerUpdates.values()) {
+    		markerUpdates.close();
+    	}
+
     	// Reset the breakpoint install count
     	for (IBreakpointsTargetDMContext ctx : fPlatformBPs.keySet()) {
     		Map<ICBreakpoint, Map<String, Object>> breakpoints = fPlatformBPs.get(ctx);
@@ -1418,25 +1590,7 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
                 fBreakpointMarkerProblems.clear();
                 
                 // Create the scheduling rule to clear all bp planted.
-                ISchedulingRule rule = null;
-                List<ISchedulingRule> markerRules = new ArrayList<ISchedulingRule>();
-                for (ICBreakpoint bp : bps) {
-                    IMarker marker = bp.getMarker();
-                    if (marker != null) {
-                        ISchedulingRule markerRule =
-                            ResourcesPlugin.getWorkspace().getRuleFactory().markerRule(
-                                    marker.getResource());
-                        if (markerRule == null) {
-                            markerRules = null;
-                            break;
-                        } else {
-                            markerRules.add(markerRule);
-                        }
-                    }
-                }
-                if (markerRules != null) {
-                    rule = MultiRule.combine(markerRules.toArray(new ISchedulingRule[markerRules.size()]));
-                }
+                ISchedulingRule rule = getMarkerRule(Arrays.asList(bps));
 
                 try {
                     ResourcesPlugin.getWorkspace().run(wr, rule, 0, null);
@@ -1448,6 +1602,27 @@ public class MIBreakpointsManager extends AbstractDsfService implements IBreakpo
         }.schedule();
     }
 
+    /**
+     * Returns the scheduling rule to modify the markers of the given breakpoints.
+     */
+    private ISchedulingRule getMarkerRule(Collection<ICBreakpoint> bps) {
+        List<ISchedulingRule> markerRules = new ArrayList<ISchedulingRule>();
+        for (ICBreakpoint bp : bps) {
+            IMarker marker = bp.getMarker();
+            if (marker != null) {
+                ISchedulingRule markerRule =
+                    ResourcesPlugin.getWorkspace().getRuleFactory().markerRule(
+                            marker.getResource());
+                if (markerRule == null) {
+                    return null;
+                } else {
+                    markerRules.add(markerRule);
+                }
+            }
+        }
+        return MultiRule.combine(markerRules.toArray(new ISchedulingRule[markerRules.size()]));
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Support functions
     ///////////////////////////////////////////////////////////////////////////
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Ericsson and others.
+ * Copyright (c) 2008, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,35 +7,75 @@
  * 
  * Contributors:
  *     Ericsson - initial API and implementation
+ *     Wind River Systems - Persistent disassembly cache
  *******************************************************************************/
 
 package org.eclipse.cdt.dsf.mi.service;
 
 import java.math.BigInteger;
 import java.util.Hashtable;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
 import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
 import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.AbstractDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IDisassembly;
+import org.eclipse.cdt.dsf.debug.service.IDisassembly2.IDisassemblyChangedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IInstruction;
 import org.eclipse.cdt.dsf.debug.service.IMixedInstruction;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
 import org.eclipse.cdt.dsf.debug.service.command.ICommandControl;
+import org.eclipse.cdt.dsf.gdb.internal.DisassemblyDiskCache;
 import org.eclipse.cdt.dsf.gdb.internal.GdbPlugin;
+import org.eclipse.cdt.dsf.gdb.service.IGDBBackend;
 import org.eclipse.cdt.dsf.mi.service.command.CommandFactory;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIDataDisassembleInfo;
 import org.eclipse.cdt.dsf.service.AbstractDsfService;
 import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.osgi.framework.BundleContext;
 
 public class MIDisassembly extends AbstractDsfService implements IDisassembly {
 
+    /**
+     * Event sent when GDB disassembled a range differently from the disk cache
+     * that answered the request for it.
+     */
+    private static class DisassemblyChangedEvent extends AbstractDMEvent<IDisassemblyDMContext>
+        implements IDisassemblyChangedDMEvent
+    {
+        private final BigInteger fStartAddress;
+        private final BigInteger fEndAddress;
+
+        DisassemblyChangedEvent(IDisassemblyDMContext context, BigInteger startAddress, BigInteger endAddress) {
+            super(context);
+            fStartAddress = startAddress;
+            fEndAddress = endAddress;
+        }
+
+        public BigInteger getStartAddress() {
+            return fStartAddress;
+        }
+
+        public BigInteger getEndAddress() {
+            return fEndAddress;
+        }
+    }
+
     // Services
     ICommandControl fConnection;
 	private CommandFactory fCommandFactory;
 
+    // Disassembly of the program binary kept across sessions, null if the
+    // program cannot be cached or the cache has not been loaded yet.
+    private DisassemblyDiskCache.Module fDiskCache;
+
     ///////////////////////////////////////////////////////////////////////////
     // AbstractDsfService
     ///////////////////////////////////////////////////////////////////////////
@@ -69,6 +109,7 @@ public class MIDisassembly extends AbstractDsfService implements IDisassembly {
 //        getSession().addServiceEventListener(this, null);
         register(new String[] { IDisassembly.class.getName(), MIDisassembly.class.getName() },
                 new Hashtable<String, String>());
+        loadDiskCache();
         rm.done();
     }
 
@@ -77,6 +118,19 @@ public class MIDisassembly extends AbstractDsfService implements IDisassembly {
      */
     @Override
     public void shutdown(RequestMonitor rm) {
+        if (fDiskCache != null) {
+            new Job("Save Disassembly Cache") { //$NON-NLS-1$
+                {
+                    setSystem(true);
+                }
+
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    DisassemblyDiskCache.getInstance().flush();
+                    return Status.OK_STATUS;
+                }
+            }.schedule();
+        }
         unregister();
 //        getSession().removeServiceEventListener(this);
 		super.shutdown(rm);
@@ -108,14 +162,29 @@ public class MIDisassembly extends AbstractDsfService implements IDisassembly {
             return;
         }
 
+        // Answer from the disk cache and let GDB confirm in the background
+        final DisassemblyDiskCache.Module diskCache = getDiskCache(startAddress, endAddress);
+        if (diskCache != null) {
+            IInstruction[] cached = diskCache.getInstructions(startAddress, endAddress);
+            if (cached != null) {
+                drm.setData(cached);
+                drm.done();
+                confirmDiskCache(context, startAddress, endAddress, false, diskCache);
+                return;
+            }
+        }
+
         // Go for it
-        String start = (startAddress != null) ? startAddress.toString() : "$pc";       //$NON-NLS-1$
-        String end   = (endAddress   != null) ? endAddress.toString()   : "$pc + 100"; //$NON-NLS-1$
-        fConnection.queueCommand(fCommandFactory.createMIDataDisassemble(context, start, end, false),
+        final BigInteger cacheStart = startAddress;
+        final BigInteger cacheEnd = endAddress;
+        fConnection.queueCommand(createDataDisassemble(context, startAddress, endAddress, false),
             new DataRequestMonitor<MIDataDisassembleInfo>(getExecutor(), drm) {
                 @Override
                 protected void handleSuccess() {
                     IInstruction[] result = getData().getMIAssemblyCode();
+                    if (diskCache != null) {
+                        diskCache.putInstructions(cacheStart, cacheEnd, result);
+                    }
                     drm.setData(result);
                     drm.done();
                 }
@@ -161,14 +230,29 @@ public class MIDisassembly extends AbstractDsfService implements IDisassembly {
             return;
         }
 
+        // Answer from the disk cache and let GDB confirm in the background
+        final DisassemblyDiskCache.Module diskCache = getDiskCache(startAddress, endAddress);
+        if (diskCache != null) {
+            IMixedInstruction[] cached = diskCache.getMixedInstructions(startAddress, endAddress);
+            if (cached != null) {
+                drm.setData(cached);
+                drm.done();
+                confirmDiskCache(context, startAddress, endAddress, true, diskCache);
+                return;
+            }
+        }
+
         // Go for it
-        String start = (startAddress != null) ? startAddress.toString() : "$pc";       //$NON-NLS-1$
-        String end   = (endAddress   != null) ? endAddress.toString()   : "$pc + 100"; //$NON-NLS-1$
-        fConnection.queueCommand(fCommandFactory.createMIDataDisassemble(context, start, end, true),
+        final BigInteger cacheStart = startAddress;
+        final BigInteger cacheEnd = endAddress;
+        fConnection.queueCommand(createDataDisassemble(context, startAddress, endAddress, true),
             new DataRequestMonitor<MIDataDisassembleInfo>(getExecutor(), drm) {
                 @Override
                 protected void handleSuccess() {
                     IMixedInstruction[] result = getData().getMIMixedCode();
+                    if (diskCache != null) {
+                        diskCache.putMixedInstructions(cacheStart, cacheEnd, result);
+                    }
                     drm.setData(result);
                     drm.done();
                 }
@@ -201,4 +285,94 @@ public class MIDisassembly extends AbstractDsfService implements IDisassembly {
             });
     }
 
+    private ICommand<MIDataDisassembleInfo> createDataDisassemble(IDisassemblyDMContext context,
+            BigInteger startAddress, BigInteger endAddress, boolean mixed)
+    {
+        String start = (startAddress != null) ? startAddress.toString() : "$pc";       //$NON-NLS-1$
+        String end   = (endAddress   != null) ? endAddress.toString()   : "$pc + 100"; //$NON-NLS-1$
+        return fCommandFactory.createMIDataDisassemble(context, start, end, mixed);
+    }
+
+    /**
+     * Loads the disk cache of the program in a job, reading the binary and the cache
+     * file would hold up the executor.  Requests are sent to GDB until the cache has
+     * been loaded.
+     */
+    private void loadDiskCache() {
+        IGDBBackend backend = getServicesTracker().getService(IGDBBackend.class);
+        final DisassemblyDiskCache diskCache = DisassemblyDiskCache.getInstance();
+        // An attach session may debug processes of other binaries than the program.
+        if (backend == null || diskCache == null || backend.getIsAttachSession() ||
+            backend.getProgramPath() == null || backend.getProgramPath().isEmpty())
+        {
+            return;
+        }
+        final String programPath = backend.getProgramPath().toOSString();
+        new Job("Load Disassembly Cache") { //$NON-NLS-1$
+            {
+                setSystem(true);
+            }
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                final DisassemblyDiskCache.Module module = diskCache.getModule(programPath);
+                if (module != null) {
+                    module.load();
+                    try {
+                        getExecutor().execute(new DsfRunnable() {
+                            public void run() {
+                                fDiskCache = module;
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // The session has ended
+                    }
+                }
+                return Status.OK_STATUS;
+            }
+        }.schedule();
+    }
+
+    /**
+     * Returns the disk cache of the program if the given address range can be
+     * answered from it, <code>null</code> otherwise.
+     */
+    private DisassemblyDiskCache.Module getDiskCache(BigInteger startAddress, BigInteger endAddress) {
+        if (fDiskCache != null && fDiskCache.isCacheable(startAddress, endAddress)) {
+            return fDiskCache;
+        }
+        return null;
+    }
+
+    /**
+     * Disassembles a range answered from the disk cache again, and notifies the
+     * clients if GDB's disassembly differs from the cached one.
+     */
+    private void confirmDiskCache(final IDisassemblyDMContext context, final BigInteger startAddress,
+            final BigInteger endAddress, final boolean mixed, final DisassemblyDiskCache.Module diskCache)
+    {
+        ICommand<MIDataDisassembleInfo> command = createDataDisassemble(context, startAddress, endAddress, mixed);
+        if (command instanceof MICommand<?>) {
+            ((MICommand<?>)command).setPriority(MICommand.PRIORITY_BACKGROUND);
+        }
+        fConnection.queueCommand(command,
+            new DataRequestMonitor<MIDataDisassembleInfo>(getExecutor(), null) {
+                @Override
+                protected void handleSuccess() {
+                    boolean changed = mixed
+                        ? diskCache.confirmMixedInstructions(startAddress, endAddress, getData().getMIMixedCode())
+                        : diskCache.confirmInstructions(startAddress, endAddress, getData().getMIAssemblyCode());
+                    if (changed) {
+                        getSession().dispatchEvent(
+                            new DisassemblyChangedEvent(context, startAddress, endAddress), getProperties());
+                    }
+                }
+
+                @Override
+                protected void handleError() {
+                    // The cached answer stands, the command may have been dropped
+                    // because the target resumed.
+                }
+            });
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems and others.
+ * Copyright (c) 2007, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,11 +14,15 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.cdt.core.IAddress;
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
@@ -435,15 +439,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	    	// is probably a thread but that running thread could have changed any memory within the memory
 	    	// context.
 	    	fCommandCache.reset(memoryDMC);
-	    	if (fMemoryCaches.containsKey(memoryDMC)) {
-	    		// We do not want to use the call to getMemoryCache() here.
-	    		// This is because:
-	    		// 1- if there is not an entry already , we do not want to automatically 
-	    		//    create one, just to call reset() on it.
-	    		// 2- if memoryDMC == null, we do not want to create a cache
-	    		//    entry for which the key is 'null'
-	    		fMemoryCaches.get(memoryDMC).reset();
-	    	}
+	    	resetMemoryCaches(memoryDMC);
    		}
 	}
    
@@ -462,15 +458,7 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
     	// is probably a thread but that thread that ran could have changed any memory within the memory
     	// context.
     	fCommandCache.reset(memoryDMC);
-    	if (fMemoryCaches.containsKey(memoryDMC)) {
-    		// We do not want to use the call to getMemoryCache() here.
-    		// This is because:
-    		// 1- if there is not an entry already , we do not want to automatically 
-    		//    create one, just to call reset() on it.
-    		// 2- if memoryDMC == null, we do not want to create a cache
-    		//    entry for which the key is 'null'
-    		fMemoryCaches.get(memoryDMC).reset();
-    	}
+    	resetMemoryCaches(memoryDMC);
 	}
 
     /**
@@ -508,342 +496,223 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 		}
 	}
 
-	///////////////////////////////////////////////////////////////////////////
-	// SortedLinkedlist
-	///////////////////////////////////////////////////////////////////////////
+    /**
+     * Drops the cached memory changed by another service, so that it is read
+     * again from the target.
+     * 
+     * @nooverride This method is not intended to be re-implemented or extended by clients.
+     * @noreference This method is not intended to be referenced by clients.
+     * @since 4.1
+     */
+    @DsfServiceEventHandler
+	public void eventDispatched(IMemoryChangedEvent e) {
+    	// The caches are already up to date with the changes made by this service
+    	if (e instanceof MemoryChangedEvent) return;
 
-	// This class is really the equivalent of a C struct (old habits die hard...)
-   	// For simplicity, everything is public.
-   	private class MemoryBlock {
-		public IAddress fAddress;
-		public long fLength;
-		public MemoryByte[] fBlock;
-		public MemoryBlock(IAddress address, long length, MemoryByte[] block) {
-			fAddress = address;
-			fLength = length;
-			fBlock = block;
-		}
-	}
+    	IMemoryDMContext memoryDMC = e.getDMContext();
+    	if (memoryDMC == null) return;
 
-   	// Address-ordered data structure to cache the memory blocks.
-   	// Contiguous blocks are merged if possible.
-	@SuppressWarnings("serial")
-	private class SortedMemoryBlockList extends LinkedList<MemoryBlock> {
+    	fCommandCache.reset(memoryDMC);
+    	for (Map.Entry<IMemoryDMContext, MIMemoryCache> entry : fMemoryCaches.entrySet()) {
+    		if (entry.getKey().equals(memoryDMC) || DMContexts.isAncestorOf(entry.getKey(), memoryDMC)) {
+    			entry.getValue().invalidate(e.getAddresses());
+    		}
+    	}
+	}
 
-		public SortedMemoryBlockList() {
-			super();
-		}
+	///////////////////////////////////////////////////////////////////////////
+	// MIMemoryCache
+	///////////////////////////////////////////////////////////////////////////
 
-		// Insert the block in the sorted linked list and merge contiguous
-		// blocks if necessary
-		@Override
-		public boolean add(MemoryBlock block) {
+	// Size, in bytes, of the aligned pages the memory is cached in
+	private static final int PAGE_SIZE = 1024;
 
-			// If the list is empty, just store the block
-			if (isEmpty()) {
-				addFirst(block);
-				return true;
-			}
+	// Maximum number of pages cached for each memory context
+	private static final int MAX_CACHED_PAGES = 2048;
 
-			// Insert the block at the correct location and then
-			// merge the blocks if possible
-			ListIterator<MemoryBlock> it = listIterator();
-			while (it.hasNext()) {
-				int index = it.nextIndex();
-				MemoryBlock item = it.next();
-				if (block.fAddress.compareTo(item.fAddress) < 0) {
-					add(index, block);
-					compact(index);
-					return true;
-				}
-			}
+	// Maximum number of pages read ahead of a sequential access
+	private static final int MAX_READ_AHEAD_PAGES = 64;
 
-			// Put at the end of the list and merge if necessary 
-			addLast(block);
-			compact(size() - 1);
-			return true;
-		}
+	private static final BigInteger BIG_PAGE_SIZE = BigInteger.valueOf(PAGE_SIZE);
 
-		// Merge this block with its contiguous neighbors (if any)
-		// Note: Merge is not performed if resulting block size would exceed MAXINT
-		private void compact(int index) {
-
-			MemoryBlock newBlock = get(index); 
-
-			// Case where the block is to be merged with the previous block
-			if (index > 0) {
-				MemoryBlock prevBlock = get(index - 1);
-				IAddress endOfPreviousBlock = prevBlock.fAddress.add(prevBlock.fLength);
-				if (endOfPreviousBlock.distanceTo(newBlock.fAddress).longValue() == 0) {
-					long newLength = prevBlock.fLength + newBlock.fLength;
-					if (newLength <= Integer.MAX_VALUE) {
-						MemoryByte[] block = new MemoryByte[(int) newLength] ;
-						System.arraycopy(prevBlock.fBlock, 0, block, 0, (int) prevBlock.fLength);
-						System.arraycopy(newBlock.fBlock, 0, block, (int) prevBlock.fLength, (int) newBlock.fLength);
-						newBlock = new MemoryBlock(prevBlock.fAddress, newLength, block);
-						remove(index);
-						index -= 1;
-						set(index, newBlock);
-					}
-				}
-			}
+	// A cached page of memory.  The values and the flags of the bytes are stored
+	// in arrays instead of MemoryByte objects to keep the footprint low.
+	private static class MemoryPage {
+		public final byte[] fValues = new byte[PAGE_SIZE];
+		public final byte[] fFlags = new byte[PAGE_SIZE];
+	}
 
-			// Case where the block is to be merged with the following block
-			int lastIndex = size() - 1;
-			if (index < lastIndex) {
-				MemoryBlock nextBlock = get(index + 1);
-				IAddress endOfNewBlock = newBlock.fAddress.add(newBlock.fLength);
-				if (endOfNewBlock.distanceTo(nextBlock.fAddress).longValue() == 0) {
-					long newLength = newBlock.fLength + nextBlock.fLength;
-					if (newLength <= Integer.MAX_VALUE) {
-						MemoryByte[] block = new MemoryByte[(int) newLength] ;
-						System.arraycopy(newBlock.fBlock, 0, block, 0, (int) newBlock.fLength);
-						System.arraycopy(nextBlock.fBlock, 0, block, (int) newBlock.fLength, (int) nextBlock.fLength);
-						newBlock = new MemoryBlock(newBlock.fAddress, newLength, block);
-						set(index, newBlock);
-						remove(index + 1);
-					}
-				}
-			}
+	// A range of pages to read from the target
+	private static class PageRun {
+		public final BigInteger fStart;
+		public int fPageCount;
+		public PageRun(BigInteger start) {
+			fStart = start;
+			fPageCount = 1;
 		}
 	}
 
-	///////////////////////////////////////////////////////////////////////////
-	// MIMemoryCache
-	///////////////////////////////////////////////////////////////////////////
-
 	private class MIMemoryCache {
-		// The memory cache data structure
-		private SortedMemoryBlockList fMemoryBlockList;
+		// The cached pages, by the address of their first byte, least recently used first
+		@SuppressWarnings("serial")
+		private final Map<BigInteger, MemoryPage> fPages = 
+			new LinkedHashMap<BigInteger, MemoryPage>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<BigInteger, MemoryPage> eldest) {
+					return size() > MAX_CACHED_PAGES;
+				}
+			};
 
-		public MIMemoryCache() {
-	    	// Create the memory block cache
-	    	fMemoryBlockList = new SortedMemoryBlockList();
-		}
+		// End of the last request, and number of pages to read ahead of a request
+		// that starts there.  The read-ahead doubles with each sequential request.
+		private BigInteger fLastRequestEnd;
+		private int fReadAheadPages;
+
+		// The pages which could not be read whole because they are next to unmapped
+		// memory.  The bytes of these pages are read exactly as requested.
+		private final Set<BigInteger> fPartialPages = new HashSet<BigInteger>();
 
 		public void reset() {
 	    	// Clear the memory cache
-	    	fMemoryBlockList.clear();
+			fPages.clear();
+			fPartialPages.clear();
+			fLastRequestEnd = null;
+			fReadAheadPages = 0;
 		}
 
-	    /**
- 	     *  This function walks the address-sorted memory block list to identify
-	     *  the 'missing' blocks (i.e. the holes) that need to be fetched on the target.
-	     * 
-	     *  The idea is fairly simple but an illustration could perhaps help.
-	     *  Assume the cache holds a number of cached memory blocks with gaps i.e.
-	     *  there is un-cached memory areas between blocks A, B and C:
-	     * 
-	     *        +---------+      +---------+      +---------+
-	     *        +    A    +      +    B    +      +    C    +
-	     *        +---------+      +---------+      +---------+
-	     *        :         :      :         :      :         :
-	     *   [a]  :         :  [b] :         :  [c] :         :  [d]
-	     *        :         :      :         :      :         :
-	     *   [e---+--]      :  [f--+---------+--]   :         :
-	     *   [g---+---------+------+---------+------+---------+----]
-	     *        :         :      :         :      :         :
-	     *        :   [h]   :      :   [i----+--]   :         :
-	     * 
-	     * 
-	     *  We have the following cases to consider.The requested block [a-i] either:
-	     * 
-	     *  [1] Fits entirely before A, in one of the gaps, or after C
-	     *      with no overlap and no contiguousness (e.g. [a], [b], [c] and [d])
-	     *      -> Add the requested block to the list of blocks to fetch
-	     * 
-	     *  [2] Starts before an existing block but overlaps part of it, possibly
-	     *      spilling in the gap following the cached block (e.g. [e], [f] and [g])
-	     *      -> Determine the length of the missing part (< count)
-	     *      -> Add a request to fill the gap before the existing block
-	     *      -> Update the requested block for the next iteration:
-	     *         - Start address to point just after the end of the cached block
-	     *         - Count reduced by cached block length (possibly becoming negative, e.g. [e])
-	     *      At this point, the updated requested block starts just beyond the cached block
-	     *      for the next iteration.
-	     * 
-	     *  [3] Starts at or into an existing block and overlaps part of it ([h] and [i])
-	     *      -> Update the requested block for the next iteration:
-	     *         - Start address to point just after the end of the cached block
-	     *         - Count reduced by length to end of cached block (possibly becoming negative, e.g. [h])
-	     *      At this point, the updated requested block starts just beyond the cached block
-	     *      for the next iteration.
-	     * 
-	     *  We iterate over the cached blocks list until there is no entry left or until
-	     *  the remaining requested block count is <= 0, meaning the result list contains
-	     *  only the sub-blocks needed to fill the gap(s), if any.
-	     * 
-	     *  (As is often the case, it takes much more typing to explain it than to just do it :-)
-	     *
-	     *  What is missing is a parameter that indicates the minimal block size that is worth fetching.
-	     *  This is target-specific and straight in the realm of the coalescing function... 
-	     *  
-	     * @param reqBlockStart The address of the requested block
-	     * @param count Its length
-	     * @return A list of the sub-blocks to fetch in order to fill enough gaps in the memory cache
-	     * to service the request
-	     */
-	    private LinkedList<MemoryBlock> getListOfMissingBlocks(IAddress reqBlockStart, int count) {
-
-			LinkedList<MemoryBlock> list = new LinkedList<MemoryBlock>();
-			ListIterator<MemoryBlock> it = fMemoryBlockList.listIterator();
-
-			// Look for holes in the list of memory blocks
-			while (it.hasNext() && count > 0) {
-				MemoryBlock cachedBlock = it.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLength);
-
-				// Case where we miss a block before the cached block
-				if (reqBlockStart.distanceTo(cachedBlockStart).longValue() >= 0) {
-					int length = (int) Math.min(reqBlockStart.distanceTo(cachedBlockStart).longValue(), count);
-					// If both blocks start at the same location, no need to create a new cached block
-					if (length > 0) {
-						MemoryBlock newBlock = new MemoryBlock(reqBlockStart, length, new MemoryByte[0]);
-						list.add(newBlock);
-					}
-					// Adjust request block start and length for the next iteration
-					reqBlockStart = cachedBlockEnd;
-					count -= length + cachedBlock.fLength;
-				}
+		private BigInteger pageStart(BigInteger address) {
+			return address.subtract(address.mod(BIG_PAGE_SIZE));
+		}
 
-				// Case where the requested block starts somewhere in the cached block
-				else if (cachedBlockStart.distanceTo(reqBlockStart).longValue() > 0
-					&&  reqBlockStart.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					// Start of the requested block already in cache
-					// Adjust request block start and length for the next iteration
-					count -= reqBlockStart.distanceTo(cachedBlockEnd).longValue();
-					reqBlockStart = cachedBlockEnd;
-				}
+		/**
+		 * Drops the pages holding the given addresses, so that they are read again.
+		 */
+		public void invalidate(IAddress[] addresses) {
+			for (IAddress address : addresses) {
+				BigInteger page = pageStart(address.getValue());
+				fPages.remove(page);
+				fPartialPages.remove(page);
 			}
+		}
 
-			// Case where we miss a block at the end of the cache
-			if (count > 0) {
-				MemoryBlock newBlock = new MemoryBlock(reqBlockStart, count, new MemoryByte[0]);
-				list.add(newBlock);
+		/**
+		 * Returns whether any of the given pages could not be read whole before.
+		 */
+		private boolean hasPartialPage(List<BigInteger> pages) {
+			for (BigInteger page : pages) {
+				if (fPartialPages.contains(page)) return true;
 			}
-			
-			return list;
+			return false;
 		}
 
-	    /**
-	     *  This function walks the address-sorted memory block list to get the
-	     *  cached memory bytes (possibly from multiple contiguous blocks).
-	     *  This function is called *after* the missing blocks have been read from
-	     *  the back end i.e. the requested memory is all cached. 
-	     *
-	     *  Again, this is fairly simple. As we loop over the address-ordered list,
-	     *  There are really only 2 cases:
-	     *
-	     *  [1] The requested block fits entirely in the cached block ([a] or [b])
-	     *  [2] The requested block starts in a cached block and ends in the
-	     *      following (contiguous) one ([c]) in which case it is treated
-	     *      as 2 contiguous requests ([c'] and [c"])
-	     *
-	     *       +--------------+--------------+
-	     *       +       A      +      B       +
-	     *       +--------------+--------------+
-	     *       :  [a----]     :   [b-----]   :
-	     *       :              :              :
-	     *       :       [c-----+------]       :
-	     *       :       [c'---]+[c"---]       :
-		 *
-	     * @param reqBlockStart The address of the requested block
-	     * @param count Its length
-	     * @return The cached memory content
-	     */
-	    private MemoryByte[] getMemoryBlockFromCache(IAddress reqBlockStart, int count) {
-
-			IAddress reqBlockEnd = reqBlockStart.add(count);
-			MemoryByte[] resultBlock = new MemoryByte[count];
-			ListIterator<MemoryBlock> iter = fMemoryBlockList.listIterator();
-
-			while (iter.hasNext()) {
-				MemoryBlock cachedBlock = iter.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLength);
-
-				// Case where the cached block overlaps completely the requested memory block  
-				if (cachedBlockStart.distanceTo(reqBlockStart).longValue() >= 0
-					&& reqBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(reqBlockStart).longValue();
-					System.arraycopy(cachedBlock.fBlock, pos, resultBlock, 0, count);
+		/**
+		 * Remembers the pages of a run which failed to be read whole, except the 
+		 * pages covered by the request: these failed on their own.
+		 */
+		private void addPartialPages(BigInteger runStart, int length, BigInteger reqStart, BigInteger reqEnd) {
+			BigInteger runEnd = runStart.add(BigInteger.valueOf(length));
+			for (BigInteger page = runStart; page.compareTo(runEnd) < 0; page = page.add(BIG_PAGE_SIZE)) {
+				if (page.compareTo(reqStart) < 0 || page.add(BIG_PAGE_SIZE).compareTo(reqEnd) > 0) {
+					fPartialPages.add(page);
 				}
-				
-				// Case where the beginning of the cached block is within the requested memory block  
-				else if (reqBlockStart.distanceTo(cachedBlockStart).longValue() >= 0
-					&& cachedBlockStart.distanceTo(reqBlockEnd).longValue() > 0)
-				{
-					int pos = (int) reqBlockStart.distanceTo(cachedBlockStart).longValue();
-					int length = (int) Math.min(cachedBlock.fLength, count - pos);
-					System.arraycopy(cachedBlock.fBlock, 0, resultBlock, pos, length);
+			}
+		}
+
+		/**
+		 * Copies the cached bytes of the given range in the given block.  The bytes
+		 * which are not cached are left untouched.
+		 * 
+		 * @return the start address of the pages in the range which are not cached
+		 */
+		private List<BigInteger> copyFromCache(BigInteger start, MemoryByte[] block) {
+			List<BigInteger> missingPages = new ArrayList<BigInteger>();
+			BigInteger end = start.add(BigInteger.valueOf(block.length));
+			for (BigInteger page = pageStart(start); page.compareTo(end) < 0; page = page.add(BIG_PAGE_SIZE)) {
+				MemoryPage cachedPage = fPages.get(page);
+				if (cachedPage == null) {
+					missingPages.add(page);
+					continue;
 				}
-				
-				// Case where the end of the cached block is within the requested memory block  
-				else if (cachedBlockStart.distanceTo(reqBlockStart).longValue() >= 0
-					&& reqBlockStart.distanceTo(cachedBlockEnd).longValue() > 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(reqBlockStart).longValue();
-					int length = (int) Math.min(cachedBlock.fLength - pos, count);
-					System.arraycopy(cachedBlock.fBlock, pos, resultBlock, 0, length);
+				int from = Math.max(0, start.subtract(page).intValue());
+				int to = PAGE_SIZE - Math.max(0, page.add(BIG_PAGE_SIZE).subtract(end).intValue());
+				int pos = page.add(BigInteger.valueOf(from)).subtract(start).intValue();
+				for (int i = from; i < to; i++) {
+					block[pos++] = new MemoryByte(cachedPage.fValues[i], cachedPage.fFlags[i]);
 				}
- 			}
-			return resultBlock;
+			}
+			return missingPages;
 		}
 
 		/**
-	     *  This function walks the address-sorted memory block list and updates
-	     *  the content with the actual memory just read from the target.
-	     * 
-		 * @param modBlockStart
-		 * @param count
-		 * @param modBlock
+		 * Stores the given block, read from the target, in the cache.  The block
+		 * must start on a page boundary and span whole pages.
 		 */
-		private void updateMemoryCache(IAddress modBlockStart, int count, MemoryByte[] modBlock) {
-			
-			IAddress modBlockEnd = modBlockStart.add(count);
-			ListIterator<MemoryBlock> iter = fMemoryBlockList.listIterator();
-
-			while (iter.hasNext()) {
-				MemoryBlock cachedBlock = iter.next();
-				IAddress cachedBlockStart = cachedBlock.fAddress;
-				IAddress cachedBlockEnd   = cachedBlock.fAddress.add(cachedBlock.fLength);
-				
-				// For now, we only bother to update bytes already cached.
-				// Note: In a better implementation (v1.1), we would augment
-				// the cache with the missing memory blocks since we went 
-				// through the pains of reading them in the first place.
-				// (this is left as an exercise to the reader :-)
-
-				// Case where the modified block is completely included in the cached block  
-				if (cachedBlockStart.distanceTo(modBlockStart).longValue() >= 0
-					&& modBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(modBlockStart).longValue();
-					System.arraycopy(modBlock, 0, cachedBlock.fBlock, pos, count);
+		private void storeInCache(BigInteger start, MemoryByte[] block) {
+			for (int pos = 0; pos + PAGE_SIZE <= block.length; pos += PAGE_SIZE) {
+				MemoryPage page = new MemoryPage();
+				for (int i = 0; i < PAGE_SIZE; i++) {
+					page.fValues[i] = block[pos + i].getValue();
+					page.fFlags[i] = block[pos + i].getFlags();
 				}
-				
-				// Case where the beginning of the modified block is within the cached block  
-				else if (cachedBlockStart.distanceTo(modBlockStart).longValue() >= 0
-					&& modBlockStart.distanceTo(cachedBlockEnd).longValue() > 0)
-				{
-					int pos = (int) cachedBlockStart.distanceTo(modBlockStart).longValue();
-					int length = (int) cachedBlockStart.distanceTo(modBlockEnd).longValue();
-					System.arraycopy(modBlock, 0, cachedBlock.fBlock, pos, length);
+				fPages.put(start.add(BigInteger.valueOf(pos)), page);
+			}
+		}
+
+		/**
+		 * Copies the part of the source block which overlaps the target block.
+		 */
+		private void copyOverlap(BigInteger sourceStart, MemoryByte[] source, BigInteger targetStart, MemoryByte[] target) {
+			BigInteger start = sourceStart.max(targetStart);
+			BigInteger end = sourceStart.add(BigInteger.valueOf(source.length)).min(targetStart.add(BigInteger.valueOf(target.length)));
+			if (start.compareTo(end) < 0) {
+				System.arraycopy(source, start.subtract(sourceStart).intValue(), 
+						         target, start.subtract(targetStart).intValue(), 
+						         end.subtract(start).intValue());
+			}
+		}
+
+		/**
+		 * Groups the missing pages in contiguous runs, each read with a single
+		 * command, and extends the last run with the read-ahead of a sequential
+		 * access.
+		 */
+		private List<PageRun> getRunsToRead(List<BigInteger> missingPages, BigInteger reqEnd, BigInteger maxAddress) {
+			List<PageRun> runs = new ArrayList<PageRun>();
+			PageRun run = null;
+			for (BigInteger page : missingPages) {
+				if (run != null && run.fStart.add(BigInteger.valueOf((long)run.fPageCount * PAGE_SIZE)).equals(page)) {
+					run.fPageCount++;
+				} else {
+					run = new PageRun(page);
+					runs.add(run);
 				}
-				
-				// Case where the end of the modified block is within the cached block  
-				else if (cachedBlockStart.distanceTo(modBlockEnd).longValue() > 0
-					&& modBlockEnd.distanceTo(cachedBlockEnd).longValue() >= 0)
-				{
-					int pos = (int) modBlockStart.distanceTo(cachedBlockStart).longValue();
-					int length = (int) cachedBlockStart.distanceTo(modBlockEnd).longValue();
-					System.arraycopy(modBlock, pos, cachedBlock.fBlock, 0, length);
+			}
+
+			// Only read ahead if the request is a miss which reaches the end of the range
+			if (run != null && fReadAheadPages > 0 && 
+				run.fStart.add(BigInteger.valueOf((long)run.fPageCount * PAGE_SIZE)).compareTo(reqEnd) >= 0) 
+			{
+				for (int i = 0; i < fReadAheadPages; i++) {
+					BigInteger next = run.fStart.add(BigInteger.valueOf((long)run.fPageCount * PAGE_SIZE));
+					if (next.add(BIG_PAGE_SIZE).compareTo(maxAddress) > 0 || fPages.containsKey(next) ||
+						fPartialPages.contains(next)) break;
+					run.fPageCount++;
 				}
- 			}
-			return;
+			}
+			return runs;
+		}
+
+		/**
+		 * Adapts the read-ahead to the access pattern: it grows while the requests
+		 * follow each other, and is dropped on the first random access.
+		 */
+		private void updateReadAhead(BigInteger reqStart, BigInteger reqEnd) {
+			if (fLastRequestEnd != null && pageStart(reqStart).equals(pageStart(fLastRequestEnd))) {
+				fReadAheadPages = Math.min(MAX_READ_AHEAD_PAGES, Math.max(1, fReadAheadPages * 2));
+			} else {
+				fReadAheadPages = 0;
+			}
+			fLastRequestEnd = reqEnd;
 		}
 
 	    /**
@@ -853,45 +722,132 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	     * @param count		the number of bytes to read
 	     * @param drm		the asynchronous data request monitor
 	     */
-	    public void getMemory(IMemoryDMContext memoryDMC, final IAddress address, final int word_size, 
+	    public void getMemory(final IMemoryDMContext memoryDMC, final IAddress address, final int word_size, 
 	    		final int count, final DataRequestMonitor<MemoryByte[]> drm)
 	    {
-	    	// Determine the number of read requests to issue 
-	    	LinkedList<MemoryBlock> missingBlocks = getListOfMissingBlocks(address, count);
-	    	int numberOfRequests = missingBlocks.size();
+	    	final BigInteger reqStart = address.getValue();
+	    	final BigInteger reqEnd = reqStart.add(BigInteger.valueOf(count));
+	    	
+	    	// Fill the result with what is cached, and determine the pages to read
+	    	final MemoryByte[] result = new MemoryByte[count];
+	    	List<BigInteger> missingPages = copyFromCache(reqStart, result);
+	    	updateReadAhead(reqStart, reqEnd);
+	    	
+	    	// Pages at the end of the address space, and pages next to unmapped memory,
+	    	// can't be read whole: read the exact range instead, without caching it.
+	    	BigInteger maxAddress = address.getMaxOffset().add(BigInteger.ONE);
+	    	if (!missingPages.isEmpty() && 
+	    		(missingPages.get(missingPages.size() - 1).add(BIG_PAGE_SIZE).compareTo(maxAddress) > 0 ||
+	    		 hasPartialPage(missingPages))) 
+	    	{
+	    		readMemoryBlock(memoryDMC, address, 0, word_size, count, drm);
+	    		return;
+	    	}
+	    	List<PageRun> runs = getRunsToRead(missingPages, reqEnd, maxAddress);
 
-	    	// A read request will be issued for each block needed
+	    	// A read request will be issued for each run of missing pages
 	    	// so we need to keep track of the count
 	        final CountingRequestMonitor countingRM =
 	        	new CountingRequestMonitor(getExecutor(), drm) { 
 	                @Override
 	                protected void handleSuccess() {
-	                	// We received everything so read the result from the memory cache
-	                	drm.setData(getMemoryBlockFromCache(address, count));
+	                	// We received everything
+	                	drm.setData(result);
 	                    drm.done();
 	                }
 	            };
-	       	countingRM.setDoneCount(numberOfRequests);
+	       	countingRM.setDoneCount(runs.size());
 
 	        // Issue the read requests
-	        for (int i = 0; i < numberOfRequests; i++) {
-	        	MemoryBlock block = missingBlocks.get(i);
-	        	final IAddress startAddress = block.fAddress;
-	        	final int length = (int) block.fLength;
-		        readMemoryBlock(memoryDMC, startAddress, 0, word_size, length,
-					    new DataRequestMonitor<MemoryByte[]>(getSession().getExecutor(), drm) {
-					    	@Override
-					    	protected void handleSuccess() {
-					    		MemoryByte[] block = new MemoryByte[count];
-					    		block = getData();
-					    		MemoryBlock memoryBlock = new MemoryBlock(startAddress, length, block);
-					    		fMemoryBlockList.add(memoryBlock);
-					    		countingRM.done();
-					    	}
-					    });
-	        }
+	       	for (PageRun run : runs) {
+	       		final BigInteger runStart = run.fStart;
+	       		final int length = run.fPageCount * PAGE_SIZE;
+	       		readMemoryBlock(memoryDMC, address.add(runStart.subtract(reqStart)), 0, word_size, length,
+	       			new DataRequestMonitor<MemoryByte[]>(getExecutor(), countingRM) {
+	       				@Override
+	       				protected void handleSuccess() {
+	       					MemoryByte[] block = getData();
+	       					
+	       					// Reading whole pages, or reading ahead, can run into unmapped 
+	       					// memory and make the whole read fail.  In that case, read just 
+	       					// the requested bytes so that their actual state is reported.  The
+	       					// pages are remembered so that the next accesses read them once.
+	       					if (!isReadable(block) && !isWithinRequest(runStart, length)) {
+	       						addPartialPages(runStart, length, reqStart, reqEnd);
+	       						BigInteger start = runStart.max(reqStart);
+	       						BigInteger end = runStart.add(BigInteger.valueOf(length)).min(reqEnd);
+	       						final int offset = start.subtract(reqStart).intValue();
+	       						readMemoryBlock(memoryDMC, address.add(offset), 0, word_size, end.subtract(start).intValue(),
+	       							new DataRequestMonitor<MemoryByte[]>(getExecutor(), countingRM) {
+	       								@Override
+	       								protected void handleSuccess() {
+	       									System.arraycopy(getData(), 0, result, offset, getData().length);
+	       									countingRM.done();
+	       								}
+	       							});
+	       						return;
+	       					}
+	       					
+	       					storeInCache(runStart, block);
+	       					copyOverlap(runStart, block, reqStart, result);
+	       					countingRM.done();
+	       				}
+	       				
+	       				private boolean isWithinRequest(BigInteger start, int length) {
+	       					return start.compareTo(reqStart) >= 0 && 
+	       					       start.add(BigInteger.valueOf(length)).compareTo(reqEnd) <= 0;
+	       				}
+	       			});
+	       	}
 	    }
 
+		/**
+		 * Returns whether any page of the given range is cached.
+		 */
+		private boolean isCached(BigInteger start, int count) {
+			BigInteger end = start.add(BigInteger.valueOf(count));
+			for (BigInteger page = pageStart(start); page.compareTo(end) < 0; page = page.add(BIG_PAGE_SIZE)) {
+				if (fPages.containsKey(page)) return true;
+			}
+			return false;
+		}
+
+	    /**
+	     * Returns whether any byte of the given block could be read.
+	     */
+	    private boolean isReadable(MemoryByte[] block) {
+	    	for (MemoryByte b : block) {
+	    		if (b.isReadable()) return true;
+	    	}
+	    	return false;
+	    }
+
+		/**
+	     *  Updates the cached bytes of the given range with the actual memory 
+	     *  just read from the target.  The pages which are not cached are left
+	     *  alone.
+	     * 
+		 * @param modBlockStart
+		 * @param count
+		 * @param modBlock
+		 */
+		private void updateMemoryCache(IAddress modBlockStart, int count, MemoryByte[] modBlock) {
+			BigInteger start = modBlockStart.getValue();
+			BigInteger end = start.add(BigInteger.valueOf(count));
+			for (BigInteger page = pageStart(start); page.compareTo(end) < 0; page = page.add(BIG_PAGE_SIZE)) {
+				MemoryPage cachedPage = fPages.get(page);
+				if (cachedPage == null) continue;
+				
+				int from = Math.max(0, start.subtract(page).intValue());
+				int to = PAGE_SIZE - Math.max(0, page.add(BIG_PAGE_SIZE).subtract(end).intValue());
+				int pos = page.add(BigInteger.valueOf(from)).subtract(start).intValue();
+				for (int i = from; i < to; i++, pos++) {
+					cachedPage.fValues[i] = modBlock[pos].getValue();
+					cachedPage.fFlags[i] = modBlock[pos].getFlags();
+				}
+			}
+		}
+
 	    /**
 		 * @param memoryDMC
 	     * @param address	the memory block address (on the target)
@@ -947,14 +903,8 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 	   {
 		   // Check if we already cache part of this memory area (which means it
 		   // is used by a memory service client that will have to be updated)
-		   LinkedList<MemoryBlock> list = getListOfMissingBlocks(address, count);
-		   int sizeToRead = 0;
-		   for (MemoryBlock block : list) {
-			   sizeToRead += block.fLength;
-		   }
-
 		   // If none of the requested memory is in cache, just get out
-		   if (sizeToRead == count) {
+		   if (!isCached(address.getValue(), count)) {
 			   rm.done();
 			   return;
 		   }
@@ -971,11 +921,13 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
 				   new DataRequestMonitor<MemoryByte[]>(getExecutor(), rm) {
 					   @Override
 					   protected void handleSuccess() {
-						   MemoryByte[] oldBlock = getMemoryBlockFromCache(address, count);
+						   MemoryByte[] oldBlock = new MemoryByte[count];
+						   copyFromCache(address.getValue(), oldBlock);
 						   MemoryByte[] newBlock = getData();
 						   boolean blocksDiffer = false;
 						   for (int i = 0; i < oldBlock.length; i++) {
-						       if (oldBlock[i].getValue() != newBlock[i].getValue()) {
+						       // Only the cached bytes can have changed for the clients
+						       if (oldBlock[i] != null && oldBlock[i].getValue() != newBlock[i].getValue()) {
 						          blocksDiffer = true;
 						          break;
 						       }
@@ -990,6 +942,26 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
  		}
 	}
 
+    /**
+     * Resets the memory cache of the given context and the caches of its memory
+     * spaces, since they all hold memory of the same target.
+     */
+    private void resetMemoryCaches(IMemoryDMContext memoryDMC) {
+    	// We do not want to use the call to getMemoryCache() here.
+    	// This is because:
+    	// 1- if there is not an entry already , we do not want to automatically 
+    	//    create one, just to call reset() on it.
+    	// 2- if memoryDMC == null, we do not want to create a cache
+    	//    entry for which the key is 'null'
+    	if (memoryDMC == null) return;
+    	
+    	for (Map.Entry<IMemoryDMContext, MIMemoryCache> entry : fMemoryCaches.entrySet()) {
+    		if (entry.getKey().equals(memoryDMC) || DMContexts.isAncestorOf(entry.getKey(), memoryDMC)) {
+    			entry.getValue().reset();
+    		}
+    	}
+    }
+
    /**
     * {@inheritDoc}
     * @since 1.1
@@ -998,14 +970,6 @@ public class MIMemory extends AbstractDsfService implements IMemory, ICachingSer
     	fCommandCache.reset(context);
     	
     	IMemoryDMContext memoryDMC = DMContexts.getAncestorOfType(context, IMemoryDMContext.class);
-    	if (fMemoryCaches.containsKey(memoryDMC)) {
-    		// We do not want to use the call to getMemoryCache() here.
-    		// This is because:
-    		// 1- if there is not an entry already , we do not want to automatically 
-    		//    create one, just to call reset() on it.
-    		// 2- if memoryDMC == null, we do not want to create a cache
-    		//    entry for which the key is 'null'
-    		fMemoryCaches.get(memoryDMC).reset();
-    	}
+    	resetMemoryCaches(memoryDMC);
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Monta Vista and others.
+ * Copyright (c) 2008, 2011 Monta Vista and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@
 package org.eclipse.cdt.dsf.mi.service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -25,6 +26,7 @@ import java.util.Map;
 
 import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
 import org.eclipse.cdt.dsf.concurrent.IDsfStatusConstants;
 import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
 import org.eclipse.cdt.dsf.datamodel.DMContexts;
@@ -1450,6 +1452,11 @@ public class MIVariableManager implements ICommandControl {
 	        						// var-info-path-expression. Build the expression ourselves.
     	    						childPathRm.setData(buildChildExpression(exprDmc.getExpression(), child.getExp()));
 	        						childPathRm.done();
+	        					} else if (getMemberExpression(exprDmc, child) != null) {
+	        						// The members of a structure don't need a round trip to GDB each,
+	        						// which matters for large structures.
+	        						childPathRm.setData(getMemberExpression(exprDmc, child));
+	        						childPathRm.done();
 	        					} else {
 	        						// To build the child id, we need the fully qualified expression which we
 	        						// can get from -var-info-path-expression starting from GDB 6.7 
@@ -1582,6 +1589,48 @@ public class MIVariableManager implements ICommandControl {
 					});
 		}
 
+		/**
+		 * Returns the expression of the given child if it is a member of a structure,
+		 * union or class, built as -var-info-path-expression builds it.  Returns null
+		 * if only GDB can tell the expression, e.g. for base classes or members
+		 * accessed through a pointer.
+		 */
+		private String getMemberExpression(MIExpressionDMC exprDmc, MIVar child) {
+			if (exprDmc instanceof ICastedExpressionDMContext) return null;
+			
+			// The members below an access qualifier belong to the parent of the qualifier
+			MIVariableObject structVar = this;
+			String structExpr = exprDmc.getExpression();
+			boolean cplusplus = isAccessQualifier(exprInfo.getRelExpr());
+			if (cplusplus) {
+				structVar = getParent();
+				if (structVar == null) return null;
+				structExpr = structVar.exprInfo.getFullExpr();
+			}
+			if (!structVar.isComplex() || structVar.isArray() || structVar.isDynamic()) return null;
+			
+			// A base class is shown as a child named after its type
+			String member = child.getExp();
+			if (!isIdentifier(member) || member.equals(child.getType())) return null;
+			
+			// GDB puts C++ member expressions in an additional pair of parentheses
+			if (cplusplus) {
+				return "((" + structExpr + ")." + member + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return "(" + structExpr + ")." + member; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		private boolean isIdentifier(String str) {
+			if (str == null || str.length() == 0 || !Character.isLetter(str.charAt(0)) && str.charAt(0) != '_') {
+				return false;
+			}
+			for (int i = 1; i < str.length(); i++) {
+				char c = str.charAt(i);
+				if (!Character.isLetterOrDigit(c) && c != '_') return false;
+			}
+			return true;
+		}
+
 		/**
 		 * This method builds a child expression based on its parent's expression.
 		 * It is a fallback solution for when GDB doesn't support the var-info-path-expression.
@@ -1868,6 +1917,12 @@ public class MIVariableManager implements ICommandControl {
 	     * or number of children (dynamic variable objects) can change.
 		 */
 		private Map<String, MIVariableObject> modifiableDescendants;
+		
+		/**
+		 * Changes of this root reported by a -var-update of all the variable objects,
+		 * while the update of this root was pending.
+		 */
+		private List<MIVarChange> fChangesFromOtherUpdates;
 
 		public MIRootVariableObject(VariableObjectId id) {
 			super(id, null);
@@ -2009,85 +2064,138 @@ public class MIVariableManager implements ICommandControl {
 				// The simplest way to do this is that whenever we change the format
 				// of a variable object, we immediately set it back to natural with a second
 				// var-set-format command.  This is done in the getValue() method
-				fCommandControl.queueCommand(
-						fCommandFactory.createMIVarUpdate(getRootToUpdate().getControlDMContext(), getGdbName()),
-						new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), rm) {
-							@Override
-							protected void handleCompleted() {
-								if (isSuccess()) {
-									setOutOfDate(false);
-									
-									MIVarChange[] changes = getData().getMIVarChanges();
-									if (changes.length > 0 && changes[0].isInScope() == false) {
-										// Object is out-of-scope
-										currentState = STATE_READY;
+				queueRootUpdate(this, rm);
+		    }
+		}
 
-										outOfScope = true;
-										
-										// We can delete this root in GDB right away.  This is safe, even
-									 	// if the root has children, because they are also out-of-scope.
-										// We -must- also remove this entry from our LRU.  If we don't
-										// we can end-up with a race condition that create this object
-										// twice, or have an infinite loop while never re-creating the object.
-										// The can happen if we update a child first then we request 
-										// the root later,
-										lruVariableList.remove(getInternalId());
-
-										rm.setData(true);
-										rm.done();
-										
-										while (updatesPending.size() > 0) {
-											DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-											pendingRm.setData(false);
-											pendingRm.done();
-										}
-									} else {
-										// The root object is now up-to-date, we must parse the changes, if any.
-										processChanges(changes, new RequestMonitor(fSession.getExecutor(), rm) {
-											@Override
-											protected void handleCompleted() {
-												currentState = STATE_READY;
-
-												// We only mark this root as updated in our list if it is in-scope.
-												// For out-of-scope object, we don't ever need to re-update them so
-												// we don't need to add them to this list.
-												rootVariableUpdated(MIRootVariableObject.this);
-
-												if (isSuccess()) {
-													rm.setData(false);
-												} else {
-													rm.setStatus(getStatus());
-												}
-												rm.done();
-
-												while (updatesPending.size() > 0) {
-													DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-													if (isSuccess()) {
-														pendingRm.setData(false);
-													} else {
-														pendingRm.setStatus(getStatus());
-													}
-													pendingRm.done();
-												}
-											};
-										});
-									}									
-								} else {
-									// We were not able to update for some reason
-									currentState = STATE_READY;
+		/**
+		 * Processes the result of the -var-update command which updated this root.
+		 * 
+		 * @param changes
+		 *            The changes reported for this root and its descendants.
+		 * @param rm
+		 *            The request monitor of the update, its data is true if the
+		 *            root turned out to be out-of-scope.
+		 * 
+		 * @since 4.1
+		 */
+		protected void updateCompleted(MIVarChange[] changes, final DataRequestMonitor<Boolean> rm) {
+			setOutOfDate(false);
+			
+			if (fChangesFromOtherUpdates != null) {
+				// These changes were reported first, they must be processed first
+				fChangesFromOtherUpdates.addAll(Arrays.asList(changes));
+				changes = fChangesFromOtherUpdates.toArray(new MIVarChange[fChangesFromOtherUpdates.size()]);
+				fChangesFromOtherUpdates = null;
+			}
+			
+			if (isReportedOutOfScope(changes)) {
+				// Object is out-of-scope
+				currentState = STATE_READY;
 
-									rm.setData(false);
-									rm.done();
+				setOutOfScope();
 
-									while (updatesPending.size() > 0) {
-										DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
-										pendingRm.setStatus(getStatus());
-										pendingRm.done();
-									}
-								}
+				rm.setData(true);
+				rm.done();
+				
+				while (updatesPending.size() > 0) {
+					DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+					pendingRm.setData(false);
+					pendingRm.done();
+				}
+			} else {
+				// The root object is now up-to-date, we must parse the changes, if any.
+				processChanges(changes, new RequestMonitor(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleCompleted() {
+						currentState = STATE_READY;
+
+						// We only mark this root as updated in our list if it is in-scope.
+						// For out-of-scope object, we don't ever need to re-update them so
+						// we don't need to add them to this list.
+						rootVariableUpdated(MIRootVariableObject.this);
+
+						if (isSuccess()) {
+							rm.setData(false);
+						} else {
+							rm.setStatus(getStatus());
+						}
+						rm.done();
+
+						while (updatesPending.size() > 0) {
+							DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+							if (isSuccess()) {
+								pendingRm.setData(false);
+							} else {
+								pendingRm.setStatus(getStatus());
 							}
-						});
-		    }
+							pendingRm.done();
+						}
+					};
+				});
+			}
+		}
+
+		/**
+		 * Processes the changes of this root reported by a -var-update command
+		 * which updated other roots.  GDB will not report these changes again.
+		 */
+		private void otherUpdateCompleted(List<MIVarChange> changes) {
+			if (currentState == STATE_READY) {
+				MIVarChange[] changesArray = changes.toArray(new MIVarChange[changes.size()]);
+				if (isReportedOutOfScope(changesArray)) {
+					setOutOfScope();
+				} else {
+					processChanges(changesArray, new RequestMonitor(fSession.getExecutor(), null));
+				}
+			} else if (isUpdating()) {
+				// The changes are processed when the update of this root completes
+				if (fChangesFromOtherUpdates == null) {
+					fChangesFromOtherUpdates = new ArrayList<MIVarChange>();
+				}
+				fChangesFromOtherUpdates.addAll(changes);
+			}
+		}
+
+		private boolean isReportedOutOfScope(MIVarChange[] changes) {
+			for (MIVarChange change : changes) {
+				if (change.getVarName().equals(getGdbName()) && !change.isInScope()) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void setOutOfScope() {
+			outOfScope = true;
+			
+			// We can delete this root in GDB right away.  This is safe, even
+		 	// if the root has children, because they are also out-of-scope.
+			// We -must- also remove this entry from our LRU.  If we don't
+			// we can end-up with a race condition that create this object
+			// twice, or have an infinite loop while never re-creating the object.
+			// The can happen if we update a child first then we request 
+			// the root later,
+			lruVariableList.remove(getInternalId());
+		}
+
+		/**
+		 * Completes the update of this root when the -var-update command failed.
+		 * 
+		 * @since 4.1
+		 */
+		protected void updateFailed(IStatus status, DataRequestMonitor<Boolean> rm) {
+			// We were not able to update for some reason
+			currentState = STATE_READY;
+
+			rm.setData(false);
+			rm.done();
+
+			while (updatesPending.size() > 0) {
+				DataRequestMonitor<Boolean> pendingRm = updatesPending.poll();
+				pendingRm.setStatus(status);
+				pendingRm.done();
+			}
 		}
 
 		/**
@@ -2313,6 +2421,7 @@ public class MIVariableManager implements ICommandControl {
 	// same name but refer to a different context
 	private final IStack fStackService;
 	private IExpressions fExpressionService;
+	private final IRunControl fRunControl;
 
 	// Typically, there will only be one listener, since only the ExpressionService will use this class
     private final List<ICommandListener> fCommandProcessors = new ArrayList<ICommandListener>();
@@ -2323,6 +2432,14 @@ public class MIVariableManager implements ICommandControl {
 	/** The list of root variable objects that have been updated */
 	private final LinkedList<MIRootVariableObject> updatedRootList = new LinkedList<MIRootVariableObject>();
 
+	/** 
+	 * The root variable objects waiting to be updated, by control context, with the
+	 * request monitors of their updates.  The roots queued during the same dispatch
+	 * cycle are updated together.
+	 */
+	private final Map<ICommandControlDMContext, Map<MIRootVariableObject, DataRequestMonitor<Boolean>>> fPendingRootUpdates = 
+		new HashMap<ICommandControlDMContext, Map<MIRootVariableObject, DataRequestMonitor<Boolean>>>();
+
 	/**
 	 * MIVariableManager constructor
 	 * 
@@ -2336,6 +2453,7 @@ public class MIVariableManager implements ICommandControl {
 		lruVariableList = new LRUVariableCache();
 		fCommandControl = tracker.getService(ICommandControl.class);
 		fStackService  = tracker.getService(IStack.class);
+		fRunControl = tracker.getService(IRunControl.class);
 		fExpressionService = tracker.getService(IExpressions.class);
 		fCommandFactory = tracker.getService(IMICommandControl.class).getCommandFactory();
 
@@ -2367,6 +2485,120 @@ public class MIVariableManager implements ICommandControl {
 	protected void rootVariableUpdated(MIRootVariableObject rootObj) {
 	    updatedRootList.add(rootObj);
 	}
+
+	/**
+	 * Queues the update of the given root.  After a suspension, the views request
+	 * the update of many roots at once; these requests are sent as a single
+	 * -var-update command for all the variable objects.
+	 * 
+	 * @since 4.1
+	 */
+	protected void queueRootUpdate(MIRootVariableObject root, DataRequestMonitor<Boolean> rm) {
+		final ICommandControlDMContext controlDmc = root.getControlDMContext();
+		Map<MIRootVariableObject, DataRequestMonitor<Boolean>> pendingUpdates = fPendingRootUpdates.get(controlDmc);
+		if (pendingUpdates == null) {
+			pendingUpdates = new LinkedHashMap<MIRootVariableObject, DataRequestMonitor<Boolean>>();
+			fPendingRootUpdates.put(controlDmc, pendingUpdates);
+			
+			// Give the other roots needed by the views a chance to be queued
+			fSession.getExecutor().execute(new DsfRunnable() {
+				public void run() {
+					sendRootUpdates(controlDmc);
+				}
+			});
+		}
+		pendingUpdates.put(root, rm);
+	}
+
+	private void sendRootUpdates(ICommandControlDMContext controlDmc) {
+		final Map<MIRootVariableObject, DataRequestMonitor<Boolean>> pendingUpdates = fPendingRootUpdates.remove(controlDmc);
+
+		// -var-update * skips the variable objects of running threads, so only the 
+		// roots of suspended threads can be updated together.
+		final Map<MIRootVariableObject, DataRequestMonitor<Boolean>> batchedUpdates = 
+			new LinkedHashMap<MIRootVariableObject, DataRequestMonitor<Boolean>>();
+		for (Map.Entry<MIRootVariableObject, DataRequestMonitor<Boolean>> entry : pendingUpdates.entrySet()) {
+			IExecutionDMContext execCtx = entry.getKey().getInternalId().fExecContext;
+			if (pendingUpdates.size() > 1 && fRunControl != null && execCtx != null && fRunControl.isSuspended(execCtx)) {
+				batchedUpdates.put(entry.getKey(), entry.getValue());
+			} else {
+				sendRootUpdate(entry.getKey(), entry.getValue());
+			}
+		}
+		if (batchedUpdates.size() == 1) {
+			Map.Entry<MIRootVariableObject, DataRequestMonitor<Boolean>> entry = batchedUpdates.entrySet().iterator().next();
+			sendRootUpdate(entry.getKey(), entry.getValue());
+			return;
+		} else if (batchedUpdates.isEmpty()) {
+			return;
+		}
+		
+		fCommandControl.queueCommand(
+				fCommandFactory.createMIVarUpdate(controlDmc, "*"), //$NON-NLS-1$
+				new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), null) {
+					@Override
+					protected void handleCompleted() {
+						if (!isSuccess()) {
+							for (Map.Entry<MIRootVariableObject, DataRequestMonitor<Boolean>> entry : batchedUpdates.entrySet()) {
+								entry.getKey().updateFailed(getStatus(), entry.getValue());
+							}
+							return;
+						}
+
+						// Dispatch the changes to their roots.  The name of a child 
+						// variable object starts with the name of its root.
+						Map<String, List<MIVarChange>> changesByRoot = new HashMap<String, List<MIVarChange>>();
+						for (MIVarChange change : getData().getMIVarChanges()) {
+							String name = change.getVarName();
+							int dot = name.indexOf('.');
+							String rootName = dot == -1 ? name : name.substring(0, dot);
+							List<MIVarChange> rootChanges = changesByRoot.get(rootName);
+							if (rootChanges == null) {
+								rootChanges = new ArrayList<MIVarChange>();
+								changesByRoot.put(rootName, rootChanges);
+							}
+							rootChanges.add(change);
+						}
+
+						for (Map.Entry<MIRootVariableObject, DataRequestMonitor<Boolean>> entry : batchedUpdates.entrySet()) {
+							List<MIVarChange> rootChanges = changesByRoot.remove(entry.getKey().getGdbName());
+							entry.getKey().updateCompleted(
+									rootChanges == null ? new MIVarChange[0] : rootChanges.toArray(new MIVarChange[rootChanges.size()]), 
+									entry.getValue());
+						}
+
+						// GDB also updated the other roots, and will not report their 
+						// changes again: apply them now, or when the pending update of 
+						// the root completes.
+						if (!changesByRoot.isEmpty()) {
+							List<MIRootVariableObject> otherRoots = new ArrayList<MIRootVariableObject>();
+							for (MIVariableObject varObj : lruVariableList.values()) {
+								if (varObj instanceof MIRootVariableObject && changesByRoot.containsKey(varObj.getGdbName())) {
+									otherRoots.add((MIRootVariableObject)varObj);
+								}
+							}
+							for (MIRootVariableObject root : otherRoots) {
+								root.otherUpdateCompleted(changesByRoot.get(root.getGdbName()));
+							}
+						}
+					}
+				});
+	}
+
+	private void sendRootUpdate(final MIRootVariableObject root, final DataRequestMonitor<Boolean> rm) {
+		fCommandControl.queueCommand(
+				fCommandFactory.createMIVarUpdate(root.getControlDMContext(), root.getGdbName()),
+				new DataRequestMonitor<MIVarUpdateInfo>(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleCompleted() {
+						if (isSuccess()) {
+							root.updateCompleted(getData().getMIVarChanges(), rm);
+						} else {
+							root.updateFailed(getStatus(), rm);
+						}
+					}
+				});
+	}
 	
     /**
      * @since 3.0
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 Wind River Systems and others.
+ * Copyright (c) 2006, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +45,8 @@ import org.eclipse.cdt.dsf.gdb.service.GDBBackend;
 import org.eclipse.cdt.dsf.mi.service.IMICommandControl;
 import org.eclipse.cdt.dsf.mi.service.IMIContainerDMContext;
 import org.eclipse.cdt.dsf.mi.service.IMIExecutionDMContext;
+import org.eclipse.cdt.dsf.mi.service.IMIRunControl;
+import org.eclipse.cdt.dsf.mi.service.IMIRunControl.MIRunMode;
 import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
 import org.eclipse.cdt.dsf.mi.service.command.commands.RawCommand;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIConst;
@@ -117,6 +120,13 @@ public abstract class AbstractMIControl extends AbstractDsfService
     
     private final List<CommandHandle> fCommandQueue = new ArrayList<CommandHandle>();
 
+    /**
+     * Queries that are waiting to be sent or waiting for their result, mapped by their
+     * command.  An equal query queued by any service is attached to the one in this map
+     * instead of being sent again.  Only accessed on the executor thread.
+     */
+    private final Map<MICommand<MIInfo>, CommandHandle> fCoalescableCommands = new HashMap<MICommand<MIInfo>, CommandHandle>();
+
     /**
      * Flag indicating that the command control has stopped processing commands.
      */
@@ -247,9 +257,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
     	 *  First go through the commands which have been queueud and not yet sent to the backend.
     	 */
     	for (CommandHandle commandHandle : fCommandQueue) {
-            if (commandHandle.getRequestMonitor() == null) continue;
-            commandHandle.getRequestMonitor().setStatus(genStatus("Connection is shut down")); //$NON-NLS-1$
-            commandHandle.getRequestMonitor().done();
+    		failCommand(commandHandle, genStatus("Connection is shut down")); //$NON-NLS-1$
         }
     	fCommandQueue.clear();
     	
@@ -258,9 +266,7 @@ public abstract class AbstractMIControl extends AbstractDsfService
     	 */
         synchronized(fRxCommands) {
             for (CommandHandle commandHandle : fRxCommands.values()) {
-                if (commandHandle.getRequestMonitor() == null) continue;
-                commandHandle.getRequestMonitor().setStatus(genStatus( "Connection is shut down")); //$NON-NLS-1$
-                commandHandle.getRequestMonitor().done();
+                failCommand(commandHandle, genStatus( "Connection is shut down")); //$NON-NLS-1$
             }
             fRxCommands.clear();
         }
@@ -271,14 +277,32 @@ public abstract class AbstractMIControl extends AbstractDsfService
         List<CommandHandle> txCommands = new ArrayList<CommandHandle>();
         fTxCommands.drainTo(txCommands);
         for (CommandHandle commandHandle : txCommands) {
-            if (commandHandle.getRequestMonitor() == null) continue;
-            commandHandle.getRequestMonitor().setStatus(genStatus("Connection is shut down")); //$NON-NLS-1$
-            commandHandle.getRequestMonitor().done();
+            failCommand(commandHandle, genStatus("Connection is shut down")); //$NON-NLS-1$
         }
+        fCoalescableCommands.clear();
         
         // Queue a null value to tell the send thread to shut down.
         fTxCommands.add(fTerminatorHandle);
     }
+
+    /**
+     * Completes the request monitor of the given command, and of the commands 
+     * coalesced with it, with the given error status.
+     */
+    private void failCommand(CommandHandle commandHandle, IStatus status) {
+        if (commandHandle.getRequestMonitor() != null) {
+            commandHandle.getRequestMonitor().setStatus(status);
+            commandHandle.getRequestMonitor().done();
+        }
+        if (commandHandle.fFollowers != null) {
+            for (CommandHandle follower : commandHandle.fFollowers) {
+                follower.fPrimary = null;
+                follower.getRequestMonitor().setStatus(status);
+                follower.getRequestMonitor().done();
+            }
+            commandHandle.fFollowers = null;
+        }
+    }
     
     /**
      * Queues the given MI command to be sent to the debugger back end.  
@@ -309,7 +333,24 @@ public abstract class AbstractMIControl extends AbstractDsfService
         if (fStoppedCommandProcessing) {
             rm.setStatus(genStatus("Connection is shut down")); //$NON-NLS-1$
             rm.done();
+        } else if (coalesceCommand(handle)) {
+            // An equal query is already queued or on the wire, its result will 
+            // also complete this one.
+            processCommandQueued(handle);
         } else {
+            // A command that resumes the target makes the queries that are still 
+            // waiting in the background obsolete.
+            if (miCommand.resumesTarget()) {
+                dropObsoleteCommands(miCommand.getContext());
+            }
+            if (isCoalescable(handle)) {
+                fCoalescableCommands.put(miCommand, handle);
+            } else {
+                // This command may change the state of the back end, the queries queued 
+                // after it cannot share the result of the ones queued before it.
+                fCoalescableCommands.clear();
+            }
+            
         	/*
         	 *  We only allow three outstanding commands to be on the wire to the backend
         	 *  at any one time. This allows for coalescing as well as canceling
@@ -333,9 +374,125 @@ public abstract class AbstractMIControl extends AbstractDsfService
         return handle;
     }
 
+    /**
+     * Returns whether the given command is a query which can share its result with the 
+     * equal queries queued after it.  Commands of the default priority are not coalesced 
+     * since they may change the state of the back end.
+     */
+    private boolean isCoalescable(CommandHandle handle) {
+        return handle.getRequestMonitor() != null && 
+               handle.getCommand().getPriority() != MICommand.PRIORITY_DEFAULT;
+    }
+
+    /**
+     * Attaches the given command to an equal query that is waiting to be sent or 
+     * waiting for its result.  If the given command is more urgent, the query it is 
+     * attached to takes its priority.
+     * 
+     * @return whether the command was attached
+     */
+    private boolean coalesceCommand(CommandHandle handle) {
+        if (!isCoalescable(handle)) return false;
+
+        // MICommand.equals() does not compare the classes, and the result of a command 
+        // of another class would not be of the type the command expects.
+        CommandHandle primary = fCoalescableCommands.get(handle.getCommand());
+        if (primary == null || primary.getCommand().getClass() != handle.getCommand().getClass()) return false;
+
+        if (primary.fFollowers == null) {
+            primary.fFollowers = new ArrayList<CommandHandle>();
+        }
+        primary.fFollowers.add(handle);
+        handle.fPrimary = primary;
+        if (handle.fPriority < primary.fPriority) {
+            primary.fPriority = handle.fPriority;
+        }
+        return true;
+    }
+
+    /**
+     * Completes the commands which were coalesced with the given command, with the 
+     * result of that command.
+     */
+    private void completeCoalescedCommands(CommandHandle primary, ICommandResult result) {
+        if (fCoalescableCommands.get(primary.getCommand()) == primary) {
+            fCoalescableCommands.remove(primary.getCommand());
+        }
+        if (primary.fFollowers == null) return;
+
+        List<CommandHandle> followers = primary.fFollowers;
+        primary.fFollowers = null;
+        for (CommandHandle follower : followers) {
+            follower.fPrimary = null;
+            follower.getRequestMonitor().setData(primary.getRequestMonitor().getData());
+            follower.getRequestMonitor().setStatus(primary.getRequestMonitor().getStatus());
+            follower.getRequestMonitor().done();
+            processCommandDone(follower, result);
+        }
+    }
+
+    /**
+     * Removes the background queries that are still waiting to be sent 
+     * and that are about the context being resumed.  Their result would only describe 
+     * the state of the target before it resumes.  Queries for the visible views are kept.
+     */
+    private void dropObsoleteCommands(IDMContext resumedContext) {
+        IMIExecutionDMContext resumedExecDmc = null;
+        IMIRunControl runControl = getServicesTracker().getService(IMIRunControl.class);
+        if (runControl != null && runControl.getRunMode() == MIRunMode.NON_STOP) {
+            resumedExecDmc = DMContexts.getAncestorOfType(resumedContext, IMIExecutionDMContext.class);
+        }
+        IMIContainerDMContext resumedContainerDmc = 
+            DMContexts.getAncestorOfType(resumedContext, IMIContainerDMContext.class);
+
+        for (Iterator<CommandHandle> itr = fCommandQueue.iterator(); itr.hasNext();) {
+            CommandHandle handle = itr.next();
+            if (handle.fPriority < MICommand.PRIORITY_BACKGROUND) continue;
+
+            IDMContext context = handle.getCommand().getContext();
+            if (resumedExecDmc != null) {
+                if (!resumedExecDmc.equals(DMContexts.getAncestorOfType(context, IMIExecutionDMContext.class))) continue;
+            } else if (resumedContainerDmc != null) {
+                IMIContainerDMContext containerDmc = DMContexts.getAncestorOfType(context, IMIContainerDMContext.class);
+                if (containerDmc != null && !resumedContainerDmc.equals(containerDmc)) continue;
+            }
+
+            itr.remove();
+            fCoalescableCommands.remove(handle.getCommand());
+            List<CommandHandle> followers = handle.fFollowers;
+            failCommand(handle, genStatus("Target resumed before the command was sent")); //$NON-NLS-1$
+            processCommandRemoved(handle);
+            if (followers != null) {
+                for (CommandHandle follower : followers) {
+                    processCommandRemoved(follower);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the next command to send.  The commands of the default 
+     * priority are sent in order and the commands queued after one of them wait for 
+     * it to be sent.  Before it, the earliest of the most urgent commands goes first.
+     */
+    private int getNextCommandIndex() {
+        int next = 0;
+        for (int i = 0; i < fCommandQueue.size(); i++) {
+            int priority = fCommandQueue.get(i).fPriority;
+            if (priority == MICommand.PRIORITY_DEFAULT) break;
+            if (priority < fCommandQueue.get(next).fPriority) {
+                next = i;
+            }
+            if (fCommandQueue.get(next).fPriority == MICommand.PRIORITY_VISIBLE) {
+                break;
+            }
+        }
+        return next;
+    }
+
     private void processNextQueuedCommand() {
 		if (fCommandQueue.size() > 0) {
-			final CommandHandle handle = fCommandQueue.remove(0);
+			final CommandHandle handle = fCommandQueue.remove(getNextCommandIndex());
 			if (handle != null) {
 				processCommandSent(handle);
 
@@ -400,9 +557,41 @@ public abstract class AbstractMIControl extends AbstractDsfService
     	
     	synchronized(fCommandQueue) {
     		
+    		if (token instanceof CommandHandle && ((CommandHandle)token).fPrimary != null) {
+    			// The command was coalesced with another one, just detach it.
+    			final CommandHandle follower = (CommandHandle)token;
+    			follower.fPrimary.fFollowers.remove(follower);
+    			follower.fPrimary = null;
+                getExecutor().execute(new DsfRunnable() {
+                    public void run() {
+                    	processCommandRemoved(follower);
+                    }
+                });
+    			return;
+    		}
+    		
     		for ( CommandHandle handle : fCommandQueue ) {
     			if ( handle.equals(token)) {
-    				fCommandQueue.remove(handle);
+    				int index = fCommandQueue.indexOf(handle);
+    				fCommandQueue.remove(index);
+    				if (fCoalescableCommands.get(handle.getCommand()) == handle) {
+    					fCoalescableCommands.remove(handle.getCommand());
+    				}
+    				
+    				// The first command coalesced with the removed one takes its place.
+    				if (handle.fFollowers != null && !handle.fFollowers.isEmpty()) {
+    					CommandHandle promoted = handle.fFollowers.remove(0);
+    					promoted.fPrimary = null;
+    					if (!handle.fFollowers.isEmpty()) {
+    						promoted.fFollowers = handle.fFollowers;
+    						for (CommandHandle follower : promoted.fFollowers) {
+    							follower.fPrimary = promoted;
+    						}
+    					}
+    					handle.fFollowers = null;
+    					fCommandQueue.add(index, promoted);
+    					fCoalescableCommands.put(promoted.getCommand(), promoted);
+    				}
     				
     				final CommandHandle finalHandle = handle;
                     getExecutor().execute(new DsfRunnable() {
@@ -518,11 +707,19 @@ public abstract class AbstractMIControl extends AbstractDsfService
         private MICommand<MIInfo> fCommand;
         private DataRequestMonitor<MIInfo> fRequestMonitor;
         private int fTokenId ;
+        // Priority used to order the waiting commands, raised when a more urgent 
+        // query is coalesced with this one.
+        private int fPriority;
+        // Commands completed with the result of this one, and the command 
+        // this one is coalesced with.
+        private List<CommandHandle> fFollowers;
+        private CommandHandle fPrimary;
         
         CommandHandle(MICommand<MIInfo> c, DataRequestMonitor<MIInfo> d) {
             fCommand = c; 
             fRequestMonitor = d;
             fTokenId = -1; // Only initialize to a real value when needed
+            fPriority = c != null ? c.getPriority() : MICommand.PRIORITY_DEFAULT;
         }
         
         public MICommand<MIInfo> getCommand() { return fCommand; }
@@ -903,6 +1100,11 @@ public abstract class AbstractMIControl extends AbstractDsfService
 	                             *  Now tell the generic listeners about it.
 	                             */
 	                            processCommandDone(commandHandle, finalResult);
+	                            
+	                            /*
+	                             *  And complete the equal queries that were waiting for this result.
+	                             */
+	                            completeCoalescedCommands(commandHandle, finalResult);
 	                        }
 	                        @Override
                             public String toString() {
@@ -35,11 +35,32 @@ public class MICommand<V extends MIInfo> implements ICommand<V> {
      *  Variables.
      */
     final static String[] empty = new String[0];
-    
+
+    /**
+     * Priority of the queries for the data shown in the visible views, such as the stack of
+     * the selected thread.  They are sent before all other queries that are waiting.
+     * @since 4.1
+     */
+    public final static int PRIORITY_VISIBLE = 0;
+
+    /**
+     * Priority of all commands that don't declare otherwise.  These commands are sent in the
+     * order they were queued, and no command waiting behind them is sent before them.
+     * @since 4.1
+     */
+    public final static int PRIORITY_DEFAULT = 1;
+
+    /**
+     * Priority of the queries that refresh data in the background, such as registers and memory.
+     * @since 4.1
+     */
+    public final static int PRIORITY_BACKGROUND = 2;
+
     List<Adjustable> fOptions = new ArrayList<Adjustable>();
     List<Adjustable> fParameters = new ArrayList<Adjustable>();
     String   fOperation = new String();
     IDMContext fCtx;
+    private int fPriority = PRIORITY_DEFAULT;
     
     /*
      * Constructors.
@@ -258,7 +279,28 @@ public class MICommand<V extends MIInfo> implements ICommand<V> {
      * @since 4.0
      */
     public boolean supportsThreadGroupOption() { return true; }
-    
+
+    /**
+     * Returns the priority class of this command, one of the <code>PRIORITY_*</code> constants.
+     * @since 4.1
+     */
+    public int getPriority() { return fPriority; }
+
+    /**
+     * Sets the priority class of this command.  Only commands that query the back end without
+     * changing its state may have a priority other than {@link #PRIORITY_DEFAULT}.
+     * @since 4.1
+     */
+    public void setPriority(int priority) { fPriority = priority; }
+
+    /**
+     * Returns whether this command resumes the target.  The queries of lower priority that
+     * are waiting to be sent when such a command is queued are dropped, their result would
+     * be obsolete by the time the target suspends again.
+     * @since 4.1
+     */
+    public boolean resumesTarget() { return false; }
+
     /**
      * Compare commands based on the MI command string that they generate, 
      * without the token.  
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -41,6 +41,7 @@ public class MIDataListRegisterValues extends MICommand<MIDataListRegisterValues
 
     public MIDataListRegisterValues(IMIExecutionDMContext ctx, int fmt, int [] regnos) {
         super(ctx, "-data-list-register-values"); //$NON-NLS-1$
+        setPriority(PRIORITY_BACKGROUND);
         regnums = regnos;
 
         String format = "x"; //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009, 2007 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -69,6 +69,7 @@ public class MIDataReadMemory extends MICommand<MIDataReadMemoryInfo> {
 			Character asChar)
 	{
 		super(ctx, "-data-read-memory"); //$NON-NLS-1$
+		setPriority(PRIORITY_BACKGROUND);
 
 		// Save this for the result parser
 		fword_size = word_size;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 CodeSourcery and others.
+ * Copyright (c) 2010, 2011 CodeSourcery and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -42,6 +42,7 @@ public class MIDataReadMemoryBytes extends MICommand<MIDataReadMemoryBytesInfo>
 	public MIDataReadMemoryBytes(IDMContext ctx, String address, long offset,
 			int num_bytes) {
 		super(ctx, "-data-read-memory-bytes"); //$NON-NLS-1$
+		setPriority(PRIORITY_BACKGROUND);
 		
 		fSize = num_bytes;
 
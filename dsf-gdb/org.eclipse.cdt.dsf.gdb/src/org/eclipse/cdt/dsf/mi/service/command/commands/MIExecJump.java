@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Ericsson and others.
+ * Copyright (c) 2010, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,4 +31,12 @@ public class MIExecJump extends MICommand<MIInfo>
 	public MIExecJump(IExecutionDMContext ctx, String location) {
         super(ctx, "-exec-jump", null, new String[] { location }); //$NON-NLS-1$
     }
+
+	/**
+	 * @since 4.1
+	 */
+	@Override
+	public boolean resumesTarget() {
+		return true;
+	}
 }
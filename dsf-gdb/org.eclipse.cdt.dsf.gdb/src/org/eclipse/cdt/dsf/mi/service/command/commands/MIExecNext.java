@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -33,4 +33,12 @@ public class MIExecNext extends MICommand<MIInfo>
 	public MIExecNext(IExecutionDMContext dmc, int count) {
 	    super(dmc, "-exec-next", new String[] { Integer.toString(count) }); //$NON-NLS-1$
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @since 4.1
+	 */
+	@Override
+	public boolean resumesTarget() {
+		return true;
+	}
+}
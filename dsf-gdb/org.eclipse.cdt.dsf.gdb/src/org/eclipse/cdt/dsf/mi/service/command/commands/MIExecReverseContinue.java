@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Ericsson and others.
+ * Copyright (c) 2009, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,4 +23,12 @@ public class MIExecReverseContinue extends MICommand<MIInfo> {
     public MIExecReverseContinue(IExecutionDMContext dmc) {
         super(dmc, "-interpreter-exec", new String[] {"console", "reverse-continue"}); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
     }
+
+    /**
+     * @since 4.1
+     */
+    @Override
+    public boolean resumesTarget() {
+        return true;
+    }
 }
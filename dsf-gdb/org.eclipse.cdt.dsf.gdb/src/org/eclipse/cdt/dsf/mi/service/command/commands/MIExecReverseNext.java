@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Ericsson and others.
+ * Copyright (c) 2009, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,4 +27,12 @@ public class MIExecReverseNext extends MICommand<MIInfo> {
     public MIExecReverseNext(IExecutionDMContext dmc, int count) {
         super(dmc, "-interpreter-exec", new String[] {"console", "reverse-next " + Integer.toString(count) }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
     }
+
+    /**
+     * @since 4.1
+     */
+    @Override
+    public boolean resumesTarget() {
+        return true;
+    }
 }
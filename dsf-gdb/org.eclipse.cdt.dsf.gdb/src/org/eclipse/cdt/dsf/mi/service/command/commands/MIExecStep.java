@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,4 +35,12 @@ public class MIExecStep extends MICommand<MIInfo>
     public MIExecStep(IExecutionDMContext dmc, int count) {
         super(dmc, "-exec-step", new String[] { Integer.toString(count) }); //$NON-NLS-1$
     }
+
+    /**
+     * @since 4.1
+     */
+    @Override
+    public boolean resumesTarget() {
+        return true;
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 Ericsson and others.
+ * Copyright (c) 2007, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,10 +26,12 @@ public class MIStackInfoDepth extends MICommand<MIStackInfoDepthInfo>
 	
     public MIStackInfoDepth(IMIExecutionDMContext ctx) {
     	super(ctx, "-stack-info-depth"); //$NON-NLS-1$
+    	setPriority(PRIORITY_VISIBLE);
     }    	
 
     public MIStackInfoDepth(IMIExecutionDMContext ctx, int maxDepth) {
         super(ctx, "-stack-info-depth", new String[]{Integer.toString(maxDepth)}); //$NON-NLS-1$
+        setPriority(PRIORITY_VISIBLE);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,15 +36,18 @@ public class MIStackListArguments extends MICommand<MIStackListArgumentsInfo>
 {
     public MIStackListArguments(IMIExecutionDMContext execDmc, boolean showValues) {
         super(execDmc, "-stack-list-arguments", new String[] { showValues ? "1" : "0" }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        setPriority(PRIORITY_VISIBLE);
     }
 
     public MIStackListArguments(IFrameDMContext frameDmc, boolean showValues) {
         super(frameDmc, "-stack-list-arguments", new String[] { showValues ? "1" : "0" }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        setPriority(PRIORITY_VISIBLE);
     }
     
     public MIStackListArguments(IMIExecutionDMContext execDmc, boolean showValues, int low, int high) {
         super(execDmc, "-stack-list-arguments",  //$NON-NLS-1$
         		new String[] {showValues ? "1" : "0", Integer.toString(low), Integer.toString(high)}); //$NON-NLS-1$ //$NON-NLS-2$
+        setPriority(PRIORITY_VISIBLE);
     }
     
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -55,10 +55,12 @@ public class MIStackListFrames extends MICommand<MIStackListFramesInfo>
 {
     public MIStackListFrames(IMIExecutionDMContext execDmc) {
         super(execDmc, "-stack-list-frames"); //$NON-NLS-1$
+        setPriority(PRIORITY_VISIBLE);
     }
     
     public MIStackListFrames(IMIExecutionDMContext execDmc, int low, int high) {
         super(execDmc, "-stack-list-frames", new String[] { Integer.toString(low), Integer.toString(high) }); //$NON-NLS-1$
+        setPriority(PRIORITY_VISIBLE);
     }
     
     @Override
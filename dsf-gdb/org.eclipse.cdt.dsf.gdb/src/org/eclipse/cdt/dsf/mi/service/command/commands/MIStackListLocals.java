@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,6 +31,7 @@ public class MIStackListLocals extends MICommand<MIStackListLocalsInfo>
 	
     public MIStackListLocals(IFrameDMContext frameCtx, boolean printValues) {
         super(frameCtx, "-stack-list-locals", new String[] { printValues ? "1" : "0" } );  //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        setPriority(PRIORITY_VISIBLE);
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Ericsson and others.
+ * Copyright (c) 2008, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -29,10 +29,12 @@ public class MIThreadInfo extends MICommand<MIThreadInfoInfo> {
 	
 	public MIThreadInfo(ICommandControlDMContext dmc) {
 		super(dmc, "-thread-info"); //$NON-NLS-1$
+		setPriority(PRIORITY_VISIBLE);
 	}
 
 	public MIThreadInfo(ICommandControlDMContext dmc, String threadId) {
 		super(dmc, "-thread-info", new String[]{ threadId }); //$NON-NLS-1$
+		setPriority(PRIORITY_VISIBLE);
 	}
 
     @Override
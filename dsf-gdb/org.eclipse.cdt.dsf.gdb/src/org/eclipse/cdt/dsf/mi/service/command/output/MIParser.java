@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 QNX Software Systems and others.
+ * Copyright (c) 2000, 2011 QNX Software Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -96,6 +96,27 @@ public class MIParser {
     public String cliPrompt = primaryPrompt;
     public String secondaryPrompt = ">"; //$NON-NLS-1$
 
+    private static final MIResult[] EMPTY_RESULTS = new MIResult[0];
+    private static final MIValue[] EMPTY_VALUES = new MIValue[0];
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+    private static final int NAME_CACHE_SIZE = 256;
+    private static final int MAX_NAME_LENGTH = 32;
+
+    /*
+     * The line being parsed is copied into a character buffer that is reused for
+     * all lines, and parsed in a single pass by moving fPos forward. Strings are
+     * only created for the leaves of the output tree, the names of variables and
+     * async classes are shared via a small cache because the same few names are
+     * repeated in every record. As a consequence a parser must not be used by
+     * multiple threads at the same time.
+     */
+    private char[] fChars = new char[DEFAULT_BUFFER_SIZE];
+    private int fPos;
+    private int fEnd;
+    private final String[] fNames = new String[NAME_CACHE_SIZE];
+    private final StringBuilder fText = new StringBuilder();
+
     public RecordType getRecordType(String line) {
         int i = 0;
         if (Character.isDigit(line.charAt(0))) {
@@ -119,37 +140,32 @@ public class MIParser {
      * 
      */
     public MIResultRecord parseMIResultRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
+        reset(line);
         // Fetch the Token/Id
-        int id = parseToken(buffer);
+        int id = parseToken();
         // Consume the '^'
-        buffer.deleteCharAt(0);
+        fPos++;
         
         MIResultRecord rr = new MIResultRecord();
         rr.setToken(id);
-        if (buffer.toString().startsWith(MIResultRecord.DONE)) {
+        if (consume(MIResultRecord.DONE)) {
             rr.setResultClass(MIResultRecord.DONE);
-            buffer.delete(0, MIResultRecord.DONE.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.ERROR)) {
+        } else if (consume(MIResultRecord.ERROR)) {
             rr.setResultClass(MIResultRecord.ERROR);
-            buffer.delete(0, MIResultRecord.ERROR.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.EXIT)) {
+        } else if (consume(MIResultRecord.EXIT)) {
             rr.setResultClass(MIResultRecord.EXIT);
-            buffer.delete(0, MIResultRecord.EXIT.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.RUNNING)) {
+        } else if (consume(MIResultRecord.RUNNING)) {
             rr.setResultClass(MIResultRecord.RUNNING);
-            buffer.delete(0, MIResultRecord.RUNNING.length());
-        } else if (buffer.toString().startsWith(MIResultRecord.CONNECTED)) {
+        } else if (consume(MIResultRecord.CONNECTED)) {
             rr.setResultClass(MIResultRecord.CONNECTED);
-            buffer.delete(0, MIResultRecord.CONNECTED.length());
         } else {
             // Error throw an exception?
         }
 
         // Results are separated by commas.
-        if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-            buffer.deleteCharAt(0);
-            MIResult[] res = processMIResults(new FSB(buffer));
+        if (fPos < fEnd && fChars[fPos] == ',') {
+            fPos++;
+            MIResult[] res = processMIResults();
             rr.setMIResults(res);
         }
         return rr;
@@ -159,13 +175,13 @@ public class MIParser {
      * Find OutOfBand Records depending on the starting token.
      */
     public MIOOBRecord parseMIOOBRecord(String line) {
-        StringBuffer buffer = new StringBuffer(line);
-        int id = parseToken(buffer);
+        reset(line);
+        int id = parseToken();
         MIOOBRecord oob = null;
-        char c = buffer.length() != 0 ? buffer.charAt(0) : 0;
+        char c = fPos < fEnd ? fChars[fPos] : 0;
         if (c == '*' || c == '+' || c == '=') {
             // Consume the first char
-            buffer.deleteCharAt(0);
+            fPos++;
             MIAsyncRecord async = null;
             switch (c) {
                 case '*' :
@@ -182,22 +198,29 @@ public class MIParser {
             }
             async.setToken(id);
             // Extract the Async-Class
-            int i = buffer.toString().indexOf(',');
+            int i = indexOf(',');
             if (i != -1) {
-                String asyncClass = buffer.substring(0, i);
-                async.setAsyncClass(asyncClass);
+                async.setAsyncClass(name(fPos, i));
                 // Consume the async-class and the comma
-                buffer.delete(0, i + 1);
+                fPos = i + 1;
             } else {
-                async.setAsyncClass(buffer.toString().trim());
-                buffer.setLength(0);
+                int start = fPos;
+                int end = fEnd;
+                while (start < end && fChars[start] <= ' ') {
+                    start++;
+                }
+                while (start < end && fChars[end - 1] <= ' ') {
+                    end--;
+                }
+                async.setAsyncClass(name(start, end));
+                fPos = fEnd;
             }
-            MIResult[] res = processMIResults(new FSB(buffer));
+            MIResult[] res = processMIResults();
             async.setMIResults(res);
             oob = async;
         } else if (c == '~' || c == '@' || c == '&') {
             // Consume the first char
-            buffer.deleteCharAt(0);
+            fPos++;
             MIStreamRecord stream = null;
             switch (c) {
                 case '~' :
@@ -212,11 +235,11 @@ public class MIParser {
                     stream = new MILogStreamOutput();
                     break;
             }
-            // translateCString() assumes that the leading " is deleted
-            if (buffer.length() > 0 && buffer.charAt(0) == '"') {
-                buffer.deleteCharAt(0);
+            // translateCString() assumes that the leading " is consumed
+            if (fPos < fEnd && fChars[fPos] == '"') {
+                fPos++;
             }
-            stream.setCString(translateCString(new FSB(buffer)));
+            stream.setCString(translateCString());
             oob = stream;
         } else {
             // Badly format MI line, just pass it to the user as target stream
@@ -226,39 +249,112 @@ public class MIParser {
         }
         return oob;
     }
-    
-    private int parseToken(StringBuffer buffer) {
+
+    /**
+     * Copies the line into the character buffer and positions the parser at its start.
+     */
+    private void reset(String line) {
+        final int length = line.length();
+        if (fChars.length < length) {
+            fChars = new char[Math.max(length, 2 * fChars.length)];
+        } else if (fChars.length > MAX_RETAINED_BUFFER_SIZE && length <= MAX_RETAINED_BUFFER_SIZE) {
+            // Don't hold on to the buffer of an exceptionally large record
+            fChars = new char[Math.max(length, DEFAULT_BUFFER_SIZE)];
+        }
+        line.getChars(0, length, fChars, 0);
+        fPos = 0;
+        fEnd = length;
+    }
+
+    private int parseToken() {
         int id = -1;
         // Fetch the Token/Id
-        if (Character.isDigit(buffer.charAt(0))) {
-            int i = 1;
-            while (i < buffer.length() && Character.isDigit(buffer.charAt(i))) {
-                i++;
+        if (fPos < fEnd && Character.isDigit(fChars[fPos])) {
+            long value = 0;
+            while (fPos < fEnd && Character.isDigit(fChars[fPos])) {
+                if (value <= Integer.MAX_VALUE) {
+                    value = value * 10 + Character.digit(fChars[fPos], 10);
+                }
+                fPos++;
             }
-            String numbers = buffer.substring(0, i);
-            try {
-                id = Integer.parseInt(numbers);
-            } catch (NumberFormatException e) {
+            if (value <= Integer.MAX_VALUE) {
+                id = (int) value;
             }
-            // Consume the token.
-            buffer.delete(0, i);
         }
         return id;
     }
 
+    /**
+     * Consumes the given prefix, if the remaining characters start with it.
+     */
+    private boolean consume(String prefix) {
+        final int length = prefix.length();
+        if (fEnd - fPos < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (fChars[fPos + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        fPos += length;
+        return true;
+    }
+
+    /**
+     * Returns the index of the next occurrence of the character, or -1.
+     */
+    private int indexOf(char c) {
+        for (int i = fPos; i < fEnd; i++) {
+            if (fChars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the string for the given range of the buffer. Short strings are looked
+     * up in the cache of names first.
+     */
+    private String name(int start, int end) {
+        final int length = end - start;
+        if (length > MAX_NAME_LENGTH) {
+            return new String(fChars, start, length);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + fChars[i];
+        }
+        final int slot = hash & (NAME_CACHE_SIZE - 1);
+        String name = fNames[slot];
+        if (name != null && name.length() == length) {
+            int i = 0;
+            while (i < length && name.charAt(i) == fChars[start + i]) {
+                i++;
+            }
+            if (i == length) {
+                return name;
+            }
+        }
+        name = new String(fChars, start, length);
+        fNames[slot] = name;
+        return name;
+    }
+
     /**
      * Assuming that the usual leading comma was consumed.
      * Extract the MI Result comma seperated responses.
      */
-    private MIResult[] processMIResults(FSB buffer) {
+    private MIResult[] processMIResults() {
         List<MIResult> aList = new ArrayList<MIResult>();
-        MIResult result = processMIResult(buffer);
+        MIResult result = processMIResult();
         if (result != null) {
             aList.add(result);
         }
-        while (buffer.length() > 0 && buffer.charAt(0) == ',') {
-            buffer.deleteCharAt(0);
-            result = processMIResult(buffer);
+        while (fPos < fEnd && fChars[fPos] == ',') {
+            fPos++;
+            result = processMIResult();
             if (result != null) {
                 aList.add(result);
             }
@@ -267,26 +363,25 @@ public class MIParser {
     }
 
     /**
-     * Construct the DsfMIResult.  Characters will be consume/delete
+     * Construct the DsfMIResult.  Characters will be consumed
      * moving forward constructing the AST.
      */
-    private MIResult processMIResult(FSB buffer) {
+    private MIResult processMIResult() {
         MIResult result = new MIResult();
         int equal;
-        if (buffer.length() > 0 && Character.isLetter(buffer.charAt(0)) && (equal = buffer.indexOf('=')) != -1) {
-            String variable = buffer.substring(0, equal);
-            result.setVariable(variable);
-            buffer.delete(0, equal + 1);
-            MIValue value = processMIValue(buffer);
+        if (fPos < fEnd && Character.isLetter(fChars[fPos]) && (equal = indexOf('=')) != -1) {
+            result.setVariable(name(fPos, equal));
+            fPos = equal + 1;
+            MIValue value = processMIValue();
             result.setMIValue(value);
-        } else if(buffer.length()>0 && buffer.charAt(0)=='"') {
+        } else if (fPos < fEnd && fChars[fPos] == '"') {
             // This an error but we just swallow it and move on.
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue();
             result.setMIValue(value);
         } else {
-            result.setVariable(buffer.toString());
+            result.setVariable(new String(fChars, fPos, fEnd - fPos));
             result.setMIValue(new MIConst()); // Empty string:???
-            buffer.setLength(0);
+            fPos = fEnd;
         }
         return result;
     }
@@ -294,19 +389,20 @@ public class MIParser {
     /**
      * Find a DsfMIValue implementation or return null.
      */
-    private MIValue processMIValue(FSB buffer) {
+    private MIValue processMIValue() {
         MIValue value = null;
-        if (buffer.length() > 0) {
-            if (buffer.charAt(0) == '{') {
-                buffer.deleteCharAt(0);
-                value = processMITuple(buffer);
-            } else if (buffer.charAt(0) == '[') {
-                buffer.deleteCharAt(0);
-                value = processMIList(buffer);
-            } else if (buffer.charAt(0) == '"') {
-                buffer.deleteCharAt(0);
+        if (fPos < fEnd) {
+            char c = fChars[fPos];
+            if (c == '{') {
+                fPos++;
+                value = processMITuple();
+            } else if (c == '[') {
+                fPos++;
+                value = processMIList();
+            } else if (c == '"') {
+                fPos++;
                 MIConst cnst = new MIConst();
-                cnst.setCString(translateCString(buffer));
+                cnst.setCString(translateCString());
                 value = cnst;
             }
         }
@@ -314,91 +410,133 @@ public class MIParser {
     }
 
     /**
-     * Assuming the starting '{' was deleted form the StringBuffer,
-     * go to the closing '}' consuming/deleting all the characters.
+     * Assuming the starting '{' was consumed, go to the closing '}'
+     * consuming all the characters.
      * This is usually call by processMIvalue();
      */
-    private MIValue processMITuple(FSB buffer) {
+    private MIValue processMITuple() {
         MITuple tuple = new MITuple();
-        List<MIValue> valueList = new ArrayList<MIValue>();
-        List<MIResult> resultList = new ArrayList<MIResult>();
+        List<MIValue> valueList = null;
+        List<MIResult> resultList = null;
         // Catch closing '}'
-        while (buffer.length() > 0 && buffer.charAt(0) != '}') {
+        while (fPos < fEnd && fChars[fPos] != '}') {
             // Try for the DsfMIValue first
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue();
             if (value != null) {
+                if (valueList == null) {
+                    valueList = new ArrayList<MIValue>();
+                }
                 valueList.add(value);
             } else {
-                MIResult result = processMIResult(buffer);
+                MIResult result = processMIResult();
                 if (result != null) {
+                    if (resultList == null) {
+                        resultList = new ArrayList<MIResult>();
+                    }
                     resultList.add(result);
                 }
             }
-            if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-                buffer.deleteCharAt(0);
+            if (fPos < fEnd && fChars[fPos] == ',') {
+                fPos++;
             }
         }
-        if (buffer.length() > 0 && buffer.charAt(0) == '}') {
-            buffer.deleteCharAt(0);
+        if (fPos < fEnd && fChars[fPos] == '}') {
+            fPos++;
         }
-        MIValue[] values = valueList.toArray(new MIValue[valueList.size()]);
-        MIResult[] res = resultList.toArray(new MIResult[resultList.size()]);
-        tuple.setMIValues(values);
-        tuple.setMIResults(res);
+        tuple.setMIValues(toValueArray(valueList));
+        tuple.setMIResults(toResultArray(resultList));
         return tuple;
     }
 
     /**
-     * Assuming the leading '[' was deleted, find the closing
-     * ']' consuming/delete chars from the StringBuffer.
+     * Assuming the leading '[' was consumed, find the closing
+     * ']' consuming the chars.
      */
-    private MIValue processMIList(FSB buffer) {
+    private MIValue processMIList() {
         MIList list = new MIList();
-        List<MIValue> valueList = new ArrayList<MIValue>();
-        List<MIResult> resultList = new ArrayList<MIResult>();
+        List<MIValue> valueList = null;
+        List<MIResult> resultList = null;
         // catch closing ']'
-        while (buffer.length() > 0 && buffer.charAt(0) != ']') {
+        while (fPos < fEnd && fChars[fPos] != ']') {
             // Try for the DsfMIValue first
-            MIValue value = processMIValue(buffer);
+            MIValue value = processMIValue();
             if (value != null) {
+                if (valueList == null) {
+                    valueList = new ArrayList<MIValue>();
+                }
                 valueList.add(value);
             } else {
-                MIResult result = processMIResult(buffer);
+                MIResult result = processMIResult();
                 if (result != null) {
+                    if (resultList == null) {
+                        resultList = new ArrayList<MIResult>();
+                    }
                     resultList.add(result);
                 }
             }
-            if (buffer.length() > 0 && buffer.charAt(0) == ',') {
-                buffer.deleteCharAt(0);
+            if (fPos < fEnd && fChars[fPos] == ',') {
+                fPos++;
             }
         }
-        if (buffer.length() > 0 && buffer.charAt(0) == ']') {
-            buffer.deleteCharAt(0);
+        if (fPos < fEnd && fChars[fPos] == ']') {
+            fPos++;
         }
-        MIValue[] values = valueList.toArray(new MIValue[valueList.size()]);
-        MIResult[] res = resultList.toArray(new MIResult[resultList.size()]);
-        list.setMIValues(values);
-        list.setMIResults(res);
+        list.setMIValues(toValueArray(valueList));
+        list.setMIResults(toResultArray(resultList));
         return list;
     }
 
+    private static MIValue[] toValueArray(List<MIValue> values) {
+        if (values == null) {
+            return EMPTY_VALUES;
+        }
+        return values.toArray(new MIValue[values.size()]);
+    }
+
+    private static MIResult[] toResultArray(List<MIResult> results) {
+        if (results == null) {
+            return EMPTY_RESULTS;
+        }
+        return results.toArray(new MIResult[results.size()]);
+    }
+
     /*
      * MI C-String rather MICOnst values are enclose in double quotes
      * and any double quotes or backslash in the string are escaped.
-     * Assuming the starting double quote was removed.
+     * Assuming the starting double quote was consumed.
      * This method will stop at the closing double quote remove the extra
      * backslach escaping and return the string __without__ the enclosing double quotes
-     * The orignal StringBuffer will move forward.
+     * The parser position will move forward.
      */
-    private String translateCString(FSB buffer) {
+    private String translateCString() {
+        final int start = fPos;
+        int index = start;
+        // Strings without escapes are taken from the buffer as they are.
+        while (index < fEnd) {
+            char c = fChars[index];
+            if (c == '"') {
+                fPos = index + 1;
+                return new String(fChars, start, index - start);
+            }
+            if (c == '\\') {
+                break;
+            }
+            index++;
+        }
+        if (index == fEnd) {
+            fPos = fEnd;
+            return new String(fChars, start, fEnd - start);
+        }
+
         boolean escape = false;
         boolean closingQuotes = false;
 
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = fText;
+        sb.setLength(0);
+        sb.append(fChars, start, index - start);
 
-        int index = 0;
-        for (; index < buffer.length() && !closingQuotes; index++) {
-            char c = buffer.charAt(index);
+        for (; index < fEnd && !closingQuotes; index++) {
+            char c = fChars[index];
             if (c == '\\') {
                 if (escape) {
                     sb.append(c);
@@ -423,7 +561,7 @@ public class MIParser {
                 escape = false;
             }
         }
-        buffer.delete(0, index);
+        fPos = index;
         return sb.toString();
     }
 
@@ -458,7 +596,10 @@ public class MIParser {
      * with this for large arrays. Use of FSB rather than String
      * Buffer makes MIParser N rather than N^2 because FSB can 
      * delete from the front in constant time.
+     * 
+     * @deprecated The parser works on a character buffer and no longer uses this class.
      */
+    @Deprecated
     public class FSB {
         StringBuffer buf;
         int pos;
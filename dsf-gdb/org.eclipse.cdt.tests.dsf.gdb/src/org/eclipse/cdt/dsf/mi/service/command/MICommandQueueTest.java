@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.IDsfStatusConstants;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.CommandCache;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIInfo;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIOutput;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BackgroundRunner;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbProcess;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests the scheduling of the MI commands by priority, the coalescing of equal queries and
+ * the dropping of the queries made obsolete by a command that resumes the target.
+ */
+@RunWith(BackgroundRunner.class)
+public class MICommandQueueTest {
+	private ScriptedGdbSession fSession;
+	private ICommandControlService fControl;
+	private IDMContext fContext;
+
+	/** Operations of the commands in the order they were sent, only accessed on the executor thread. */
+	private final List<String> fSent = new ArrayList<String>();
+	private final List<String> fRemoved = new ArrayList<String>();
+
+	private final ICommandListener fListener = new ICommandListener() {
+		public void commandQueued(ICommandToken token) {
+		}
+
+		public void commandSent(ICommandToken token) {
+			fSent.add(((MICommand<?>) token.getCommand()).getOperation());
+		}
+
+		public void commandRemoved(ICommandToken token) {
+			fRemoved.add(((MICommand<?>) token.getCommand()).getOperation());
+		}
+
+		public void commandDone(ICommandToken token, ICommandResult result) {
+		}
+	};
+
+	static class TestCommand extends MICommand<MIInfo> {
+		private final boolean fResumesTarget;
+
+		TestCommand(IDMContext ctx, String operation, int priority) {
+			this(ctx, operation, priority, false);
+		}
+
+		TestCommand(IDMContext ctx, String operation, int priority, boolean resumesTarget) {
+			super(ctx, operation);
+			setPriority(priority);
+			fResumesTarget = resumesTarget;
+		}
+
+		@Override
+		public boolean resumesTarget() {
+			return fResumesTarget;
+		}
+	}
+
+	static class OtherInfo extends MIInfo {
+		OtherInfo(MIOutput record) {
+			super(record);
+		}
+	}
+
+	/**
+	 * A query equal to a {@link TestCommand} of the same operation, but with another type of result.
+	 */
+	static class OtherCommand extends MICommand<OtherInfo> {
+		OtherCommand(IDMContext ctx, String operation) {
+			super(ctx, operation);
+			setPriority(PRIORITY_BACKGROUND);
+		}
+
+		@Override
+		public OtherInfo getResult(MIOutput out) {
+			return new OtherInfo(out);
+		}
+	}
+
+	@Before
+	public void startServices() throws Exception {
+		fSession = new ScriptedGdbSession(new ScriptedGdbProcess(1, 1, 0, 0));
+		fSession.start();
+		fControl = fSession.getService(ICommandControlService.class);
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fContext = fControl.getContext();
+				fControl.addCommandListener(fListener);
+				return null;
+			}
+		});
+	}
+
+	@After
+	public void shutdownServices() throws Exception {
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fControl.removeCommandListener(fListener);
+				return null;
+			}
+		});
+		fSession.shutdown();
+	}
+
+	/**
+	 * Queues the given commands in one dispatch cycle and returns their request monitors
+	 * once all of them completed.
+	 */
+	private List<DataRequestMonitor<MIInfo>> queue(final ICommand<?>... commands) throws Exception {
+		return fSession.query(new Query<List<DataRequestMonitor<MIInfo>>>() {
+			@Override
+			protected void execute(final DataRequestMonitor<List<DataRequestMonitor<MIInfo>>> rm) {
+				fSent.clear();
+				fRemoved.clear();
+				final List<DataRequestMonitor<MIInfo>> rms = new ArrayList<DataRequestMonitor<MIInfo>>();
+				CountingRequestMonitor crm = new CountingRequestMonitor(ImmediateExecutor.getInstance(), null) {
+					@Override
+					protected void handleCompleted() {
+						rm.setData(rms);
+						rm.done();
+					}
+				};
+				crm.setDoneCount(commands.length);
+				for (ICommand<?> command : commands) {
+					DataRequestMonitor<MIInfo> commandRm = new DataRequestMonitor<MIInfo>(ImmediateExecutor.getInstance(), crm);
+					rms.add(commandRm);
+					@SuppressWarnings("unchecked")
+					ICommand<MIInfo> miCommand = (ICommand<MIInfo>) command;
+					fControl.queueCommand(miCommand, commandRm);
+				}
+			}
+		});
+	}
+
+	private List<String> getSent() throws Exception {
+		return fSession.call(new Callable<List<String>>() {
+			public List<String> call() {
+				return new ArrayList<String>(fSent);
+			}
+		});
+	}
+
+	private List<String> getRemoved() throws Exception {
+		return fSession.call(new Callable<List<String>>() {
+			public List<String> call() {
+				return new ArrayList<String>(fRemoved);
+			}
+		});
+	}
+
+	@Test
+	public void priorityOrderTest() throws Exception {
+		List<DataRequestMonitor<MIInfo>> rms = queue(
+				new TestCommand(fContext, "-test-background", MICommand.PRIORITY_BACKGROUND),
+				new TestCommand(fContext, "-test-visible-1", MICommand.PRIORITY_VISIBLE),
+				new TestCommand(fContext, "-test-default", MICommand.PRIORITY_DEFAULT),
+				new TestCommand(fContext, "-test-visible-2", MICommand.PRIORITY_VISIBLE));
+
+		for (DataRequestMonitor<MIInfo> rm : rms) {
+			assertTrue(rm.getStatus().toString(), rm.isSuccess());
+		}
+		// The visible query passes the background one, but no query passes the default command.
+		assertEquals(Arrays.asList("-test-visible-1", "-test-background", "-test-default", "-test-visible-2"), getSent());
+	}
+
+	@Test
+	public void coalesceTest() throws Exception {
+		List<DataRequestMonitor<MIInfo>> rms = queue(
+				new TestCommand(fContext, "-test-query", MICommand.PRIORITY_BACKGROUND),
+				new TestCommand(fContext, "-test-query", MICommand.PRIORITY_VISIBLE),
+				new OtherCommand(fContext, "-test-query"));
+
+		for (DataRequestMonitor<MIInfo> rm : rms) {
+			assertTrue(rm.getStatus().toString(), rm.isSuccess());
+		}
+		// The equal queries share one result, the one of another class gets its own.
+		assertEquals(Arrays.asList("-test-query", "-test-query"), getSent());
+		assertSame(rms.get(0).getData(), rms.get(1).getData());
+		assertFalse(rms.get(0).getData() instanceof OtherInfo);
+		assertTrue(rms.get(2).getData() instanceof OtherInfo);
+	}
+
+	@Test
+	public void dropObsoleteCommandsTest() throws Exception {
+		List<DataRequestMonitor<MIInfo>> rms = queue(
+				new TestCommand(fContext, "-test-default", MICommand.PRIORITY_DEFAULT),
+				new TestCommand(fContext, "-test-background", MICommand.PRIORITY_BACKGROUND),
+				new TestCommand(fContext, "-test-visible", MICommand.PRIORITY_VISIBLE),
+				new TestCommand(fContext, "-test-resume", MICommand.PRIORITY_DEFAULT, true));
+
+		assertTrue(rms.get(0).isSuccess());
+		assertFalse(rms.get(1).isSuccess());
+		assertEquals(IDsfStatusConstants.INVALID_STATE, rms.get(1).getStatus().getCode());
+		assertTrue(rms.get(2).isSuccess());
+		assertTrue(rms.get(3).isSuccess());
+		assertEquals(Arrays.asList("-test-default", "-test-visible", "-test-resume"), getSent());
+		assertEquals(Arrays.asList("-test-background"), getRemoved());
+	}
+
+	@Test
+	public void droppedCommandNotCachedTest() throws Exception {
+		final CommandCache cache = fSession.call(new Callable<CommandCache>() {
+			public CommandCache call() {
+				CommandCache commandCache = new CommandCache(fSession.getSession(), fControl);
+				commandCache.setContextAvailable(fContext, true);
+				return commandCache;
+			}
+		});
+
+		class CachedQuery extends Query<MIInfo> {
+			private final boolean fResume;
+
+			CachedQuery(boolean resume) {
+				fResume = resume;
+			}
+
+			@Override
+			protected void execute(DataRequestMonitor<MIInfo> rm) {
+				cache.execute(new TestCommand(fContext, "-test-background", MICommand.PRIORITY_BACKGROUND), rm);
+				if (fResume) {
+					fControl.queueCommand(
+							new TestCommand(fContext, "-test-resume", MICommand.PRIORITY_DEFAULT, true),
+							new DataRequestMonitor<MIInfo>(ImmediateExecutor.getInstance(), null));
+				}
+			}
+		}
+
+		CachedQuery dropped = new CachedQuery(true);
+		fSession.getSession().getExecutor().execute(dropped);
+		try {
+			dropped.get();
+			fail("The query should have been dropped");
+		} catch (ExecutionException e) {
+			// Expected, the target resumed before the query was sent
+		}
+
+		// The query is sent again, rather than failing with the cached error.
+		assertNotNull(fSession.query(new CachedQuery(false)));
+		assertTrue(getSent().contains("-test-background"));
+	}
+}
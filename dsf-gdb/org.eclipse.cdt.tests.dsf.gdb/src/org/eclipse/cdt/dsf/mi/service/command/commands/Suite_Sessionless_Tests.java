@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Ericsson and others.
+ * Copyright (c) 2008, 2011 Ericsson and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,16 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.mi.service.command.commands;
 
+import org.eclipse.cdt.dsf.mi.service.command.MICommandQueueTest;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIParserTests;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIThreadTests;
 import org.eclipse.cdt.tests.dsf.gdb.framework.OnceOnlySuite;
+import org.eclipse.cdt.tests.dsf.gdb.tests.DisassemblyDiskCacheTest;
+import org.eclipse.cdt.tests.dsf.gdb.tests.GDBProcessesThreadTableTest;
 import org.eclipse.cdt.tests.dsf.gdb.tests.LaunchUtilsTest;
+import org.eclipse.cdt.tests.dsf.gdb.tests.MIBreakpointsManagerInstallCountTest;
+import org.eclipse.cdt.tests.dsf.gdb.tests.MIMemoryCacheTest;
+import org.eclipse.cdt.tests.dsf.gdb.tests.MIVariableManagerTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -27,7 +34,14 @@ import org.junit.runners.Suite;
         TestMIBreakInsertCommand.class,
         TestMICommandConstructCommand.class,
         MIThreadTests.class,
-        LaunchUtilsTest.class
+        MIParserTests.class,
+        LaunchUtilsTest.class,
+        MICommandQueueTest.class,
+        GDBProcessesThreadTableTest.class,
+        MIBreakpointsManagerInstallCountTest.class,
+        DisassemblyDiskCacheTest.class,
+        MIMemoryCacheTest.class,
+        MIVariableManagerTest.class
         /* Add your test class here */
         })
 public class Suite_Sessionless_Tests {
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.mi.service.command.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MIParserTests {
+	private static final boolean PRINT_TIMING = false;
+
+	@Test
+	public void testResultRecord() {
+		MIParser parser = new MIParser();
+		String line = "12^done,bkpt={number=\"1\",type=\"breakpoint\",file=\"a.c\",line=\"5\",times=\"0\"}";
+		assertEquals(MIParser.RecordType.ResultRecord, parser.getRecordType(line));
+		MIResultRecord rr = parser.parseMIResultRecord(line);
+		assertEquals(12, rr.getToken());
+		assertEquals(MIResultRecord.DONE, rr.getResultClass());
+		MIResult[] results = rr.getMIResults();
+		assertEquals(1, results.length);
+		assertEquals("bkpt", results[0].getVariable());
+		MITuple bkpt = (MITuple) results[0].getMIValue();
+		assertEquals(5, bkpt.getMIResults().length);
+		assertEquals("line", bkpt.getMIResults()[3].getVariable());
+		assertEquals("5", ((MIConst) bkpt.getMIResults()[3].getMIValue()).getCString());
+
+		rr = parser.parseMIResultRecord("^error,msg=\"No symbol \\\"x\\\" in current context.\"");
+		assertEquals(-1, rr.getToken());
+		assertEquals(MIResultRecord.ERROR, rr.getResultClass());
+		assertEquals("No symbol \"x\" in current context.", ((MIConst) rr.getMIResults()[0].getMIValue()).getCString());
+	}
+
+	@Test
+	public void testOOBRecords() {
+		MIParser parser = new MIParser();
+		MIOOBRecord oob = parser.parseMIOOBRecord("*stopped,reason=\"breakpoint-hit\",thread-id=\"1\",stopped-threads=\"all\"");
+		assertTrue(oob instanceof MIExecAsyncOutput);
+		MIAsyncRecord async = (MIAsyncRecord) oob;
+		assertEquals("stopped", async.getAsyncClass());
+		assertEquals(3, async.getMIResults().length);
+		assertEquals("thread-id", async.getMIResults()[1].getVariable());
+
+		oob = parser.parseMIOOBRecord("=thread-group-created,id=\"i1\",pid=\"42\"");
+		assertTrue(oob instanceof MINotifyAsyncOutput);
+		assertEquals("thread-group-created", ((MIAsyncRecord) oob).getAsyncClass());
+
+		oob = parser.parseMIOOBRecord("~\"Breakpoint 1, main () at a.c:5\\n\"");
+		assertTrue(oob instanceof MIConsoleStreamOutput);
+		// Escapes other than quotes are kept, MIStreamRecord.getString() translates them
+		assertEquals("Breakpoint 1, main () at a.c:5\\n", ((MIStreamRecord) oob).getCString());
+		assertEquals("Breakpoint 1, main () at a.c:5\n", ((MIStreamRecord) oob).getString());
+
+		oob = parser.parseMIOOBRecord("not an MI record");
+		assertTrue(oob instanceof MITargetStreamOutput);
+		assertEquals("not an MI record\n", ((MIStreamRecord) oob).getCString());
+	}
+
+	@Test
+	public void testListOfValues() {
+		MIParser parser = new MIParser();
+		MIResultRecord rr = parser.parseMIResultRecord("3^done,register-names=[\"eax\",\"ecx\",\"\",\"edx\"]");
+		MIList list = (MIList) rr.getMIResults()[0].getMIValue();
+		assertEquals(0, list.getMIResults().length);
+		MIValue[] values = list.getMIValues();
+		assertEquals(4, values.length);
+		assertEquals("", ((MIConst) values[2]).getCString());
+		assertEquals("edx", ((MIConst) values[3]).getCString());
+	}
+
+	@Test
+	public void testLargeStackFrameList() {
+		final int count = 5000;
+		StringBuilder line = new StringBuilder("45^done,stack=[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append("frame={level=\"").append(i).append("\",addr=\"0x0804").append(Integer.toHexString(i))
+					.append("\",func=\"func").append(i).append("\",file=\"file.c\",fullname=\"/home/user/src/file.c\",line=\"")
+					.append(i).append("\"}");
+		}
+		line.append(']');
+
+		MIResultRecord rr = parse(line.toString(), "-stack-list-frames");
+		MIList stack = (MIList) rr.getMIResults()[0].getMIValue();
+		assertEquals(count, stack.getMIResults().length);
+		MITuple last = (MITuple) stack.getMIResults()[count - 1].getMIValue();
+		assertEquals("func" + (count - 1), ((MIConst) last.getMIResults()[2].getMIValue()).getCString());
+	}
+
+	@Test
+	public void testLargeThreadInfo() {
+		final int count = 2000;
+		StringBuilder line = new StringBuilder("46^done,threads=[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append("{id=\"").append(i + 1).append("\",target-id=\"Thread 0xb7c8ab90 (LWP ").append(7000 + i)
+					.append(")\",frame={level=\"0\",addr=\"0x08048564\",func=\"worker\",args=[{name=\"arg\",value=\"0x0\"}],")
+					.append("file=\"thread.c\",fullname=\"/home/user/src/thread.c\",line=\"12\"},state=\"stopped\",core=\"1\"}");
+		}
+		line.append("],current-thread-id=\"1\"");
+
+		MIResultRecord rr = parse(line.toString(), "-thread-info");
+		assertEquals(2, rr.getMIResults().length);
+		MIList threads = (MIList) rr.getMIResults()[0].getMIValue();
+		assertEquals(count, threads.getMIValues().length);
+		MITuple thread = (MITuple) threads.getMIValues()[count - 1];
+		assertEquals(String.valueOf(count), ((MIConst) thread.getMIResults()[0].getMIValue()).getCString());
+		assertEquals("current-thread-id", rr.getMIResults()[1].getVariable());
+	}
+
+	private MIResultRecord parse(String line, String command) {
+		MIParser parser = new MIParser();
+		MIResultRecord rr = null;
+		long time = System.currentTimeMillis();
+		for (int i = 0; i < 10; i++) {
+			rr = parser.parseMIResultRecord(line);
+		}
+		time = System.currentTimeMillis() - time;
+		if (PRINT_TIMING) {
+			System.out.println("Parsed " + command + " result of " + line.length() + " characters 10 times in " + time + " ms");
+		}
+		return rr;
+	}
+}
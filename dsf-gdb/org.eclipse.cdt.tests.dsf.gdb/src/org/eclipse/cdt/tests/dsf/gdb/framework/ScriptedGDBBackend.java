@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.framework;
+
+import org.eclipse.cdt.dsf.gdb.service.GDBBackend;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.debug.core.ILaunchConfiguration;
+
+/**
+ * A backend service that talks to a {@link ScriptedGdbProcess} instead of launching GDB.
+ */
+public class ScriptedGDBBackend extends GDBBackend {
+	private final ScriptedGdbProcess fScriptedProcess;
+
+	public ScriptedGDBBackend(DsfSession session, ILaunchConfiguration lc, ScriptedGdbProcess process) {
+		super(session, lc);
+		fScriptedProcess = process;
+	}
+
+	@Override
+	protected String getGDBCommandLine() {
+		return "scripted-gdb --interpreter mi2 --nx";
+	}
+
+	@Override
+	protected Process launchGDBProcess(String commandLine) {
+		fScriptedProcess.start();
+		return fScriptedProcess;
+	}
+}
@@ -0,0 +1,645 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.framework;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A process that stands in for GDB, such that the performance of the DSF-GDB services can be
+ * measured without GDB and without a program to debug.
+ * <p>
+ * The process reads the MI commands written to its input stream and answers them with
+ * synthesized results describing a suspended process with a configurable number of threads,
+ * stack frames and array elements, and with the memory mapped with {@link #setMemory(long, byte[])}.
+ * Each command is answered after a configurable latency,
+ * one command at a time like GDB does. Recorded results can be replayed for selected
+ * commands with {@link #setResult(String, String)} and {@link #setResult(String, String, String)}. Commands that are not known are
+ * answered with <code>^done</code>. Asynchronous records such as <code>=thread-created</code>
+ * can be written with {@link #writeEvent(String)}, or right before the result of a command
+ * with {@link #setEvent(String, String)}.
+ */
+public class ScriptedGdbProcess extends Process {
+	private static final String PROMPT = "(gdb) \n";
+	private static final String FILE = "scripted.c";
+	private static final String FULLNAME = "/scripted/scripted.c";
+
+	/**
+	 * An in-memory pipe, the pipes of the JDK hand over the data in chunks of a kilobyte.
+	 */
+	private static class Pipe {
+		private byte[] fBuffer = new byte[8192];
+		private int fStart;
+		private int fEnd;
+		private boolean fClosed;
+
+		final InputStream fIn = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return Pipe.this.read(b, off, len);
+			}
+
+			@Override
+			public int available() {
+				synchronized (Pipe.this) {
+					return fEnd - fStart;
+				}
+			}
+
+			@Override
+			public void close() {
+				Pipe.this.close();
+			}
+		};
+
+		final OutputStream fOut = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				Pipe.this.write(b, off, len);
+			}
+
+			@Override
+			public void close() {
+				Pipe.this.close();
+			}
+		};
+
+		synchronized int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			while (fStart == fEnd) {
+				if (fClosed)
+					return -1;
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					throw new IOException("Interrupted");
+				}
+			}
+			int count = Math.min(len, fEnd - fStart);
+			System.arraycopy(fBuffer, fStart, b, off, count);
+			fStart += count;
+			return count;
+		}
+
+		synchronized void write(byte[] b, int off, int len) throws IOException {
+			if (fClosed)
+				throw new IOException("Pipe closed");
+			if (fEnd + len > fBuffer.length) {
+				int size = fEnd - fStart;
+				byte[] buffer = fBuffer;
+				if (size + len > fBuffer.length) {
+					buffer = new byte[Math.max(2 * fBuffer.length, size + len)];
+				}
+				System.arraycopy(fBuffer, fStart, buffer, 0, size);
+				fBuffer = buffer;
+				fStart = 0;
+				fEnd = size;
+			}
+			System.arraycopy(b, off, fBuffer, fEnd, len);
+			fEnd += len;
+			notifyAll();
+		}
+
+		synchronized void close() {
+			fClosed = true;
+			notifyAll();
+		}
+	}
+
+	private final int fThreadCount;
+	private final int fFrameCount;
+	private final int fArrayLength;
+	private final long fLatency;
+
+	private final Pipe fCommands = new Pipe();
+	private final Pipe fResults = new Pipe();
+	private final Pipe fErrors = new Pipe();
+	private final Map<String, String> fScriptedResults = new HashMap<String, String>();
+	private final Map<String, String> fScriptedEvents = new HashMap<String, String>();
+	private final Map<String, Integer> fOperationCounts = new HashMap<String, Integer>();
+	private final Map<String, String> fVariables = new HashMap<String, String>();
+	private int fVariableCounter;
+	private long fMemoryStart;
+	private byte[] fMemory = new byte[0];
+	private final List<String> fMemoryReads = new ArrayList<String>();
+	private int fCommandCount;
+	private boolean fExited;
+	private Thread fResponder;
+
+	/**
+	 * @param threadCount the number of threads of the process, at least one.
+	 * @param frameCount the number of stack frames of each thread.
+	 * @param arrayLength the number of elements of the arrays created for any expression.
+	 * @param latency the time in milliseconds it takes to answer a command.
+	 */
+	public ScriptedGdbProcess(int threadCount, int frameCount, int arrayLength, long latency) {
+		fThreadCount = Math.max(1, threadCount);
+		fFrameCount = Math.max(1, frameCount);
+		fArrayLength = arrayLength;
+		fLatency = latency;
+	}
+
+	/**
+	 * Replays the given result for all commands with the given operation, instead of the
+	 * synthesized one. A <code>null</code> result restores the synthesized one.
+	 * @param operation the MI operation, e.g. <code>-data-list-register-names</code>.
+	 * @param result the result record without the token, e.g. <code>^done,register-names=[]</code>.
+	 */
+	public synchronized void setResult(String operation, String result) {
+		fScriptedResults.put(operation, result);
+	}
+
+	/**
+	 * Replays the given result for the commands with the given operation and argument,
+	 * instead of the result replayed for all the commands with the operation or the
+	 * synthesized one. A <code>null</code> result restores the previous behavior.
+	 * @param operation the MI operation, e.g. <code>-var-list-children</code>.
+	 * @param argument a parameter of the command, e.g. the name of a variable object.
+	 * @param result the result record without the token.
+	 */
+	public synchronized void setResult(String operation, String argument, String result) {
+		fScriptedResults.put(operation + ' ' + argument, result);
+	}
+
+	/**
+	 * Writes the given asynchronous record before the result of the next command with the
+	 * given operation, as if GDB reported the event while it executed the command.
+	 * @param operation the MI operation, e.g. <code>-list-thread-groups</code>.
+	 * @param record the record, e.g. <code>=thread-created,id="4",group-id="i1"</code>.
+	 */
+	public synchronized void setEvent(String operation, String record) {
+		fScriptedEvents.put(operation, record);
+	}
+
+	/**
+	 * Writes the given asynchronous record right away.
+	 * @param record the record, e.g. <code>=thread-exited,id="2",group-id="i1"</code>.
+	 */
+	public void writeEvent(String record) throws IOException {
+		write(record + '\n');
+	}
+
+	/**
+	 * Maps the given contents at the given address. The memory outside of them cannot be
+	 * accessed: a read starting there fails, and the bytes of a read ending there are
+	 * reported as <code>N/A</code>, like GDB does.
+	 */
+	public synchronized void setMemory(long address, byte[] contents) {
+		fMemoryStart = address;
+		fMemory = contents.clone();
+	}
+
+	/**
+	 * Returns the contents of the mapped memory, with the bytes written since it was mapped.
+	 */
+	public synchronized byte[] getMemory() {
+		return fMemory.clone();
+	}
+
+	/**
+	 * Returns the memory read since the last call, each read as <code>0x&lt;address&gt;+&lt;count&gt;</code>.
+	 */
+	public synchronized List<String> takeMemoryReads() {
+		List<String> reads = new ArrayList<String>(fMemoryReads);
+		fMemoryReads.clear();
+		return reads;
+	}
+
+	/**
+	 * Returns the number of commands answered so far.
+	 */
+	public synchronized int getCommandCount() {
+		return fCommandCount;
+	}
+
+	/**
+	 * Returns the number of commands with the given operation answered so far.
+	 */
+	public synchronized int getCommandCount(String operation) {
+		Integer count = fOperationCounts.get(operation);
+		return count == null ? 0 : count.intValue();
+	}
+
+	/**
+	 * Starts answering commands, the first prompt is written right away.
+	 */
+	public synchronized void start() {
+		if (fResponder != null)
+			return;
+		fResponder = new Thread("Scripted GDB") {
+			@Override
+			public void run() {
+				respond();
+			}
+		};
+		fResponder.setDaemon(true);
+		fResponder.start();
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return fCommands.fOut;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return fResults.fIn;
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		return fErrors.fIn;
+	}
+
+	@Override
+	public synchronized int waitFor() throws InterruptedException {
+		while (!fExited) {
+			wait();
+		}
+		return 0;
+	}
+
+	@Override
+	public synchronized int exitValue() {
+		if (!fExited)
+			throw new IllegalThreadStateException("Process has not exited");
+		return 0;
+	}
+
+	@Override
+	public void destroy() {
+		exit();
+	}
+
+	private void exit() {
+		fCommands.close();
+		fResults.close();
+		fErrors.close();
+		synchronized (this) {
+			fExited = true;
+			notifyAll();
+		}
+	}
+
+	private void respond() {
+		try {
+			write(PROMPT);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(fCommands.fIn, "US-ASCII"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0)
+					continue;
+				if (fLatency > 0) {
+					Thread.sleep(fLatency);
+				}
+				int i = 0;
+				while (i < line.length() && Character.isDigit(line.charAt(i))) {
+					i++;
+				}
+				String token = line.substring(0, i);
+				List<String> args = tokenize(line.substring(i));
+				String operation = args.isEmpty() ? "" : args.remove(0);
+				String result = getResult(operation, args);
+				String event;
+				synchronized (this) {
+					fCommandCount++;
+					Integer count = fOperationCounts.get(operation);
+					fOperationCounts.put(operation, count == null ? 1 : count.intValue() + 1);
+					event = fScriptedEvents.remove(operation);
+				}
+				if (event != null) {
+					write(event + '\n');
+				}
+				write(token + result + '\n' + PROMPT);
+				if (result.startsWith("^exit"))
+					break;
+			}
+		} catch (IOException e) {
+			// The process was destroyed
+		} catch (InterruptedException e) {
+			// The process was destroyed
+		} finally {
+			exit();
+		}
+	}
+
+	private void write(String text) throws IOException {
+		try {
+			byte[] bytes = text.getBytes("US-ASCII");
+			fResults.write(bytes, 0, bytes.length);
+		} catch (UnsupportedEncodingException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Splits the command into its operation and parameters, the --thread, --frame and
+	 * --thread-group options are dropped.
+	 */
+	private static List<String> tokenize(String command) {
+		List<String> args = new ArrayList<String>();
+		StringBuilder arg = new StringBuilder();
+		boolean inArg = false;
+		boolean inQuotes = false;
+		for (int i = 0; i < command.length(); i++) {
+			char c = command.charAt(i);
+			if (inQuotes) {
+				if (c == '\\' && i + 1 < command.length()) {
+					arg.append(command.charAt(++i));
+				} else if (c == '"') {
+					inQuotes = false;
+				} else {
+					arg.append(c);
+				}
+			} else if (c == '"') {
+				inQuotes = true;
+				inArg = true;
+			} else if (Character.isWhitespace(c)) {
+				if (inArg) {
+					args.add(arg.toString());
+					arg.setLength(0);
+					inArg = false;
+				}
+			} else {
+				arg.append(c);
+				inArg = true;
+			}
+		}
+		if (inArg) {
+			args.add(arg.toString());
+		}
+		for (int i = 0; i < args.size();) {
+			String option = args.get(i);
+			if (option.equals("--thread") || option.equals("--frame") || option.equals("--thread-group")) {
+				args.remove(i);
+				if (i < args.size()) {
+					args.remove(i);
+				}
+			} else {
+				i++;
+			}
+		}
+		return args;
+	}
+
+	private String getResult(String operation, List<String> args) {
+		synchronized (this) {
+			for (String arg : args) {
+				String result = fScriptedResults.get(operation + ' ' + arg);
+				if (result != null)
+					return result;
+			}
+			String result = fScriptedResults.get(operation);
+			if (result != null)
+				return result;
+		}
+		if (operation.equals("-data-read-memory")) {
+			return readMemory(args);
+		} else if (operation.equals("-data-write-memory")) {
+			return writeMemory(args);
+		}
+		StringBuilder result = new StringBuilder("^done");
+		if (operation.equals("-gdb-exit")) {
+			return "^exit";
+		} else if (operation.equals("-list-features")) {
+			result.append(",features=[\"frozen-varobjs\",\"pending-breakpoints\",\"thread-info\"]");
+		} else if (operation.equals("-list-thread-groups")) {
+			if (args.isEmpty()) {
+				result.append(",groups=[{id=\"i1\",type=\"process\",pid=\"4242\",executable=\"/scripted/a.out\"}]");
+			} else if (args.get(0).equals("--available")) {
+				result.append(",groups=[]");
+			} else {
+				appendThreads(result, 1, fThreadCount);
+			}
+		} else if (operation.equals("-thread-info")) {
+			if (args.isEmpty()) {
+				appendThreads(result, 1, fThreadCount);
+				result.append(",current-thread-id=\"1\"");
+			} else {
+				int id = parseInt(args.get(0), 1);
+				appendThreads(result, id, id <= fThreadCount ? id : id - 1);
+			}
+		} else if (operation.equals("-thread-list-ids")) {
+			result.append(",thread-ids={");
+			for (int i = 1; i <= fThreadCount; i++) {
+				if (i > 1) {
+					result.append(',');
+				}
+				result.append("thread-id=\"").append(i).append('"');
+			}
+			result.append("},current-thread-id=\"1\",number-of-threads=\"").append(fThreadCount).append('"');
+		} else if (operation.equals("-stack-info-depth")) {
+			int depth = fFrameCount;
+			if (!args.isEmpty()) {
+				depth = Math.min(depth, parseInt(args.get(0), depth));
+			}
+			result.append(",depth=\"").append(depth).append('"');
+		} else if (operation.equals("-stack-list-frames")) {
+			int low = args.size() > 1 ? parseInt(args.get(0), 0) : 0;
+			int high = args.size() > 1 ? parseInt(args.get(1), fFrameCount - 1) : fFrameCount - 1;
+			result.append(",stack=[");
+			for (int i = low; i <= high && i < fFrameCount; i++) {
+				if (i > low) {
+					result.append(',');
+				}
+				result.append("frame=");
+				appendFrame(result, i);
+			}
+			result.append(']');
+		} else if (operation.equals("-stack-list-arguments")) {
+			int low = args.size() > 2 ? parseInt(args.get(1), 0) : 0;
+			int high = args.size() > 2 ? parseInt(args.get(2), fFrameCount - 1) : fFrameCount - 1;
+			result.append(",stack-args=[");
+			for (int i = low; i <= high && i < fFrameCount; i++) {
+				if (i > low) {
+					result.append(',');
+				}
+				result.append("frame={level=\"").append(i).append("\",args=[]}");
+			}
+			result.append(']');
+		} else if (operation.equals("-stack-list-locals")) {
+			result.append(",locals=[]");
+		} else if (operation.equals("-var-create")) {
+			String expression = args.size() > 2 ? args.get(2) : "";
+			String name = "var" + (++fVariableCounter);
+			fVariables.put(name, expression);
+			result.append(",name=\"").append(name).append("\",numchild=\"").append(fArrayLength)
+					.append("\",value=\"[").append(fArrayLength).append("]\",type=\"int [").append(fArrayLength)
+					.append("]\",thread-id=\"1\",has_more=\"0\"");
+		} else if (operation.equals("-var-list-children")) {
+			String name = args.isEmpty() ? "" : args.get(0);
+			int from = args.size() > 2 ? parseInt(args.get(1), 0) : 0;
+			int to = args.size() > 2 ? Math.min(parseInt(args.get(2), fArrayLength), fArrayLength) : fArrayLength;
+			if (name.indexOf('.') >= 0) {
+				// Only the roots are arrays
+				to = from;
+			}
+			result.append(",numchild=\"").append(Math.max(0, to - from)).append("\",children=[");
+			for (int i = from; i < to; i++) {
+				if (i > from) {
+					result.append(',');
+				}
+				result.append("child={name=\"").append(name).append('.').append(i).append("\",exp=\"").append(i)
+						.append("\",numchild=\"0\",type=\"int\",thread-id=\"1\"}");
+			}
+			result.append("],has_more=\"0\"");
+		} else if (operation.equals("-var-info-path-expression")) {
+			String name = args.isEmpty() ? "" : args.get(0);
+			int dot = name.lastIndexOf('.');
+			String path = fVariables.get(dot < 0 ? name : name.substring(0, dot));
+			if (path == null) {
+				path = name;
+			} else if (dot >= 0) {
+				path = '(' + path + ")[" + name.substring(dot + 1) + ']';
+			}
+			result.append(",path_expr=\"").append(path).append('"');
+		} else if (operation.equals("-var-show-attributes")) {
+			result.append(",attr=\"noneditable\"");
+		} else if (operation.equals("-var-evaluate-expression")
+				|| operation.equals("-data-evaluate-expression")) {
+			result.append(",value=\"0\"");
+		} else if (operation.equals("-var-set-format")) {
+			result.append(",format=\"natural\",value=\"0\"");
+		} else if (operation.equals("-var-update")) {
+			result.append(",changelist=[]");
+		} else if (operation.equals("-var-delete")) {
+			if (!args.isEmpty()) {
+				fVariables.remove(args.get(args.size() - 1));
+			}
+			result.append(",ndeleted=\"1\"");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns the address given by the parameters of a memory command, with the offset
+	 * given by the <code>-o</code> option, and removes them.
+	 */
+	private static long removeAddress(List<String> args) {
+		long offset = 0;
+		if (args.size() > 1 && args.get(0).equals("-o")) {
+			args.remove(0);
+			offset = parseLong(args.remove(0), 0);
+		}
+		return args.isEmpty() ? -1 : parseLong(args.remove(0), -1) + offset;
+	}
+
+	private boolean isMapped(long address) {
+		return address >= fMemoryStart && address < fMemoryStart + fMemory.length;
+	}
+
+	private static String hex(long value) {
+		return "0x" + Long.toHexString(value);
+	}
+
+	private static String accessError(long address) {
+		return "^error,msg=\"Cannot access memory at address " + hex(address) + '"';
+	}
+
+	/**
+	 * Answers <code>-data-read-memory [-o offset] address format 1 rows columns</code>.
+	 */
+	private synchronized String readMemory(List<String> args) {
+		long address = removeAddress(args);
+		int count = args.size() > 3 ? parseInt(args.get(2), 1) * parseInt(args.get(3), 1) : 1;
+		fMemoryReads.add(hex(address) + '+' + count);
+		if (!isMapped(address))
+			return accessError(address);
+
+		int readable = (int) Math.min(count, fMemoryStart + fMemory.length - address);
+		StringBuilder result = new StringBuilder("^done,addr=\"").append(hex(address)).append("\",nr-bytes=\"")
+				.append(readable).append("\",total-bytes=\"").append(count).append("\",next-row=\"")
+				.append(hex(address + count)).append("\",prev-row=\"").append(hex(address - count))
+				.append("\",next-page=\"").append(hex(address + count)).append("\",prev-page=\"")
+				.append(hex(address - count)).append("\",memory=[{addr=\"").append(hex(address)).append("\",data=[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				result.append(',');
+			}
+			if (i < readable) {
+				result.append("\"0x").append(Integer.toHexString(fMemory[(int) (address - fMemoryStart) + i] & 0xff))
+						.append('"');
+			} else {
+				result.append("\"N/A\"");
+			}
+		}
+		result.append("]}]");
+		return result.toString();
+	}
+
+	/**
+	 * Answers <code>-data-write-memory [-o offset] address format 1 value</code>.
+	 */
+	private synchronized String writeMemory(List<String> args) {
+		long address = removeAddress(args);
+		if (!isMapped(address))
+			return accessError(address);
+		fMemory[(int) (address - fMemoryStart)] = (byte) parseLong(args.size() > 2 ? args.get(2) : "", 0);
+		return "^done";
+	}
+
+	private void appendThreads(StringBuilder result, int first, int last) {
+		result.append(",threads=[");
+		for (int i = first; i <= last; i++) {
+			if (i > first) {
+				result.append(',');
+			}
+			result.append("{id=\"").append(i).append("\",target-id=\"Thread 0x").append(Integer.toHexString(0xb7000000 + i))
+					.append(" (LWP ").append(4242 + i).append(")\",frame=");
+			appendFrame(result, 0);
+			result.append(",state=\"stopped\",core=\"0\"}");
+		}
+		result.append(']');
+	}
+
+	private static void appendFrame(StringBuilder result, int level) {
+		result.append("{level=\"").append(level).append("\",addr=\"0x").append(Integer.toHexString(0x08048000 + 16 * level))
+				.append("\",func=\"func").append(level).append("\",args=[],file=\"").append(FILE)
+				.append("\",fullname=\"").append(FULLNAME).append("\",line=\"").append(level + 1).append("\"}");
+	}
+
+	private static int parseInt(String value, int defaultValue) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private static long parseLong(String value, long defaultValue) {
+		try {
+			return Long.decode(value);
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
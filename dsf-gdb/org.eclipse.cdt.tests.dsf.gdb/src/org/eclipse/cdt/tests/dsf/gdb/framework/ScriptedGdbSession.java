@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.dsf.gdb.launching.ShutdownSequence;
+import org.eclipse.cdt.dsf.gdb.service.GDBProcesses_7_0;
+import org.eclipse.cdt.dsf.gdb.service.GDBRunControl_7_0;
+import org.eclipse.cdt.dsf.gdb.service.command.CommandFactory_6_8;
+import org.eclipse.cdt.dsf.gdb.service.command.GDBControl_7_0;
+import org.eclipse.cdt.dsf.service.DsfServicesTracker;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.cdt.dsf.service.IDsfService;
+import org.eclipse.cdt.tests.dsf.gdb.launching.TestsPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchConfigurationType;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+
+/**
+ * A DSF session with the GDB 7.0 backend, control, processes and run control services
+ * talking to a {@link ScriptedGdbProcess}, for the tests of the services which don't
+ * need a real GDB.
+ */
+public class ScriptedGdbSession {
+	public static final int TIMEOUT = 20000;
+
+	private final ScriptedGdbProcess fProcess;
+	private final ILaunchConfiguration fLaunchConfiguration;
+	private final DsfSession fSession;
+	private DsfServicesTracker fServicesTracker;
+
+	public ScriptedGdbSession(ScriptedGdbProcess process) throws CoreException {
+		fProcess = process;
+		ILaunchConfigurationType lcType = DebugPlugin.getDefault().getLaunchManager().getLaunchConfigurationType("org.eclipse.cdt.tests.dsf.gdb.TestLaunch");
+		ILaunchConfigurationWorkingCopy lc = lcType.newInstance(null, "ScriptedGdbSession");
+		lc.setAttribute(ICDTLaunchConfigurationConstants.ATTR_PROGRAM_NAME, "/scripted/a.out");
+		fLaunchConfiguration = lc;
+		fSession = DsfSession.startSession(new DefaultDsfExecutor(TestsPlugin.PLUGIN_ID), TestsPlugin.PLUGIN_ID);
+	}
+
+	public DsfSession getSession() {
+		return fSession;
+	}
+
+	public ScriptedGdbProcess getProcess() {
+		return fProcess;
+	}
+
+	/**
+	 * Initializes the standard services followed by the given ones, which have to be created
+	 * for the session returned by {@link #getSession()}.
+	 */
+	public void start(final IDsfService... additionalServices) throws Exception {
+		Query<Object> query = new Query<Object>() {
+			@Override
+			protected void execute(DataRequestMonitor<Object> rm) {
+				List<IDsfService> services = new ArrayList<IDsfService>();
+				services.add(new ScriptedGDBBackend(fSession, fLaunchConfiguration, fProcess));
+				services.add(new GDBControl_7_0(fSession, fLaunchConfiguration, new CommandFactory_6_8()));
+				services.add(new GDBProcesses_7_0(fSession));
+				services.add(new GDBRunControl_7_0(fSession));
+				services.addAll(Arrays.asList(additionalServices));
+				initialize(services, 0, rm);
+			}
+		};
+		fSession.getExecutor().execute(query);
+		query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+		fServicesTracker = call(new Callable<DsfServicesTracker>() {
+			public DsfServicesTracker call() {
+				return new DsfServicesTracker(TestsPlugin.getBundleContext(), fSession.getId());
+			}
+		});
+	}
+
+	private static void initialize(final List<IDsfService> services, final int index, final RequestMonitor rm) {
+		if (index == services.size()) {
+			rm.done();
+			return;
+		}
+		services.get(index).initialize(new RequestMonitor(ImmediateExecutor.getInstance(), rm) {
+			@Override
+			protected void handleSuccess() {
+				initialize(services, index + 1, rm);
+			}
+		});
+	}
+
+	/**
+	 * Returns the service of the given class, to be used on the executor thread only.
+	 */
+	public <V> V getService(final Class<V> serviceClass) throws Exception {
+		return call(new Callable<V>() {
+			public V call() {
+				return fServicesTracker.getService(serviceClass);
+			}
+		});
+	}
+
+	/**
+	 * Runs the given callable on the executor thread and returns its result.
+	 */
+	public <V> V call(Callable<V> callable) throws Exception {
+		return fSession.getExecutor().submit(callable).get(TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs the given query and returns its result.
+	 */
+	public <V> V query(Query<V> query) throws Exception {
+		fSession.getExecutor().execute(query);
+		return query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	public void shutdown() throws Exception {
+		if (fServicesTracker != null) {
+			call(new Callable<Object>() {
+				public Object call() {
+					fServicesTracker.dispose();
+					return null;
+				}
+			});
+		}
+		query(new Query<Object>() {
+			@Override
+			protected void execute(DataRequestMonitor<Object> rm) {
+				fSession.getExecutor().execute(new ShutdownSequence(fSession.getExecutor(), fSession.getId(), rm));
+			}
+		});
+		call(new Callable<Object>() {
+			public Object call() {
+				DsfSession.endSession(fSession);
+				return null;
+			}
+		});
+		fSession.getExecutor().shutdown();
+		fProcess.destroy();
+	}
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.cdt.dsf.debug.service.AbstractInstruction;
+import org.eclipse.cdt.dsf.debug.service.IInstruction;
+import org.eclipse.cdt.dsf.debug.service.IMixedInstruction;
+import org.eclipse.cdt.dsf.gdb.internal.DisassemblyDiskCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the on-disk cache of the disassembly of a program binary, with a minimal
+ * ELF executable that has one executable segment and no build ID.
+ */
+public class DisassemblyDiskCacheTest {
+	private static final long TEXT_START = 0x8048000L;
+	private static final long TEXT_SIZE = 0x1000L;
+	private static final int ET_EXEC = 2;
+	private static final int ET_DYN = 3;
+
+	private File fDirectory;
+	private File fBinary;
+
+	private static BigInteger address(long offset) {
+		return BigInteger.valueOf(TEXT_START + offset);
+	}
+
+	private static IInstruction instruction(final long offset, final String opcode, final String args) {
+		return new AbstractInstruction() {
+			public BigInteger getAdress() {
+				return address(offset);
+			}
+
+			public String getFuntionName() {
+				return "main";
+			}
+
+			public long getOffset() {
+				return offset;
+			}
+
+			public String getInstruction() {
+				return opcode + " " + args;
+			}
+
+			public String getOpcode() {
+				return opcode;
+			}
+
+			public String getArgs() {
+				return args;
+			}
+
+			@Override
+			public Integer getSize() {
+				return 4;
+			}
+		};
+	}
+
+	private static IMixedInstruction mixedInstruction(final int line, final IInstruction... instructions) {
+		return new IMixedInstruction() {
+			public String getFileName() {
+				return "main.c";
+			}
+
+			public int getLineNumber() {
+				return line;
+			}
+
+			public IInstruction[] getInstructions() {
+				return instructions;
+			}
+		};
+	}
+
+	/**
+	 * Writes the ELF header and the program header of a 32-bit binary with one executable
+	 * segment, followed by the given number of padding bytes.
+	 */
+	private static void writeBinary(File file, int type, int padding) throws IOException {
+		ByteBuffer elf = ByteBuffer.allocate(52 + 32 + padding).order(ByteOrder.LITTLE_ENDIAN);
+		elf.put(new byte[] { 0x7f, 'E', 'L', 'F', 1, 1, 1 });
+		elf.position(16);
+		elf.putShort((short) type);       // e_type
+		elf.putShort((short) 3);          // e_machine, i386
+		elf.putInt(1);                    // e_version
+		elf.putInt((int) TEXT_START);     // e_entry
+		elf.putInt(52);                   // e_phoff
+		elf.putInt(0);                    // e_shoff
+		elf.putInt(0);                    // e_flags
+		elf.putShort((short) 52);         // e_ehsize
+		elf.putShort((short) 32);         // e_phentsize
+		elf.putShort((short) 1);          // e_phnum
+		elf.putShort((short) 40);         // e_shentsize
+		elf.putShort((short) 0);          // e_shnum
+		elf.putShort((short) 0);          // e_shstrndx
+		elf.putInt(1);                    // p_type, PT_LOAD
+		elf.putInt(0);                    // p_offset
+		elf.putInt((int) TEXT_START);     // p_vaddr
+		elf.putInt((int) TEXT_START);     // p_paddr
+		elf.putInt(52 + 32);              // p_filesz
+		elf.putInt((int) TEXT_SIZE);      // p_memsz
+		elf.putInt(5);                    // p_flags, PF_R | PF_X
+		elf.putInt(0x1000);               // p_align
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(elf.array());
+		} finally {
+			out.close();
+		}
+	}
+
+	@Before
+	public void createBinary() throws Exception {
+		fDirectory = File.createTempFile("disassembly", "");
+		fDirectory.delete();
+		fDirectory.mkdirs();
+		fBinary = new File(fDirectory, "program");
+		writeBinary(fBinary, ET_EXEC, 0);
+	}
+
+	@After
+	public void deleteFiles() {
+		File cacheDirectory = new File(fDirectory, "cache");
+		File[] files = cacheDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		cacheDirectory.delete();
+		fBinary.delete();
+		fDirectory.delete();
+	}
+
+	private DisassemblyDiskCache.Module getModule() {
+		return new DisassemblyDiskCache(new File(fDirectory, "cache")).getModule(fBinary.getAbsolutePath());
+	}
+
+	/**
+	 * Fills a new cache with the instructions of one range, and writes it to the disk.
+	 */
+	private void storeInstructions() {
+		DisassemblyDiskCache cache = new DisassemblyDiskCache(new File(fDirectory, "cache"));
+		DisassemblyDiskCache.Module module = cache.getModule(fBinary.getAbsolutePath());
+		module.putInstructions(address(0), address(8),
+				new IInstruction[] { instruction(0, "push", "%ebp"), instruction(4, "mov", "%esp,%ebp") });
+		cache.flush();
+	}
+
+	private static void checkInstructions(IInstruction[] instructions) {
+		assertNotNull(instructions);
+		assertEquals(2, instructions.length);
+		assertEquals(address(4), instructions[1].getAdress());
+		assertEquals("main", instructions[1].getFuntionName());
+		assertEquals(4, instructions[1].getOffset());
+		assertEquals("mov", instructions[1].getOpcode());
+		assertEquals("%esp,%ebp", instructions[1].getArgs());
+		assertEquals(Integer.valueOf(4), ((AbstractInstruction) instructions[1]).getSize());
+	}
+
+	@Test
+	public void storeTest() throws Exception {
+		DisassemblyDiskCache.Module module = getModule();
+		assertNotNull(module);
+		assertTrue(module.isCacheable(address(0), address(TEXT_SIZE)));
+		assertFalse(module.isCacheable(address(0), address(TEXT_SIZE + 1)));
+		assertFalse(module.isCacheable(address(-4), address(4)));
+		assertNull(module.getInstructions(address(0), address(8)));
+
+		module.putInstructions(address(0), address(8),
+				new IInstruction[] { instruction(0, "push", "%ebp"), instruction(4, "mov", "%esp,%ebp") });
+		checkInstructions(module.getInstructions(address(0), address(8)));
+		IInstruction[] part = module.getInstructions(address(4), address(8));
+		assertEquals(1, part.length);
+		assertEquals("mov", part[0].getOpcode());
+
+		// Neither a larger range nor the mixed instructions are cached
+		assertNull(module.getInstructions(address(0), address(12)));
+		assertNull(module.getMixedInstructions(address(0), address(8)));
+
+		// GDB confirms the cached instructions, or changes them
+		assertFalse(module.confirmInstructions(address(0), address(8),
+				new IInstruction[] { instruction(0, "push", "%ebp"), instruction(4, "mov", "%esp,%ebp") }));
+		assertTrue(module.confirmInstructions(address(0), address(8),
+				new IInstruction[] { instruction(0, "push", "%ebp"), instruction(4, "nop", "") }));
+		assertEquals("nop", module.getInstructions(address(0), address(8))[1].getOpcode());
+	}
+
+	@Test
+	public void reloadTest() throws Exception {
+		DisassemblyDiskCache cache = new DisassemblyDiskCache(new File(fDirectory, "cache"));
+		DisassemblyDiskCache.Module module = cache.getModule(fBinary.getAbsolutePath());
+		module.putInstructions(address(0), address(8),
+				new IInstruction[] { instruction(0, "push", "%ebp"), instruction(4, "mov", "%esp,%ebp") });
+		module.putMixedInstructions(address(0), address(8), new IMixedInstruction[] {
+				mixedInstruction(3, instruction(0, "push", "%ebp")),
+				mixedInstruction(4),
+				mixedInstruction(5, instruction(4, "mov", "%esp,%ebp")) });
+		cache.flush();
+
+		module = getModule();
+		checkInstructions(module.getInstructions(address(0), address(8)));
+		IMixedInstruction[] mixed = module.getMixedInstructions(address(0), address(8));
+		assertEquals(3, mixed.length);
+		assertEquals("main.c", mixed[0].getFileName());
+		assertEquals(3, mixed[0].getLineNumber());
+		assertEquals(0, mixed[1].getInstructions().length);
+		assertEquals(5, mixed[2].getLineNumber());
+		assertEquals("mov", mixed[2].getInstructions()[0].getOpcode());
+	}
+
+	@Test
+	public void binaryModifiedTest() throws Exception {
+		storeInstructions();
+		checkInstructions(getModule().getInstructions(address(0), address(8)));
+
+		// A rebuilt binary is not answered from the cache of the former one
+		assertTrue(fBinary.setLastModified(fBinary.lastModified() + 10000));
+		assertNull(getModule().getInstructions(address(0), address(8)));
+	}
+
+	@Test
+	public void binarySizeChangedTest() throws Exception {
+		storeInstructions();
+		long modified = fBinary.lastModified();
+		writeBinary(fBinary, ET_EXEC, 16);
+		fBinary.setLastModified(modified);
+		assertNull(getModule().getInstructions(address(0), address(8)));
+	}
+
+	@Test
+	public void corruptCacheFileTest() throws Exception {
+		storeInstructions();
+		File[] cacheFiles = new File(fDirectory, "cache").listFiles();
+		assertEquals(1, cacheFiles.length);
+		RandomAccessFile file = new RandomAccessFile(cacheFiles[0], "rw");
+		try {
+			file.setLength(file.length() - 6);
+		} finally {
+			file.close();
+		}
+		assertNull(getModule().getInstructions(address(0), address(8)));
+
+		// The damaged file is replaced
+		storeInstructions();
+		checkInstructions(getModule().getInstructions(address(0), address(8)));
+	}
+
+	@Test
+	public void positionIndependentTest() throws Exception {
+		writeBinary(fBinary, ET_DYN, 0);
+		assertNull(getModule());
+	}
+}
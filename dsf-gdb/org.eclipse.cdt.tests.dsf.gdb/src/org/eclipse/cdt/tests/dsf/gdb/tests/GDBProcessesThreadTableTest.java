@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.gdb.service.GDBProcesses_7_0;
+import org.eclipse.cdt.dsf.mi.service.IMIContainerDMContext;
+import org.eclipse.cdt.dsf.mi.service.IMIExecutionDMContext;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIInfo;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BackgroundRunner;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbProcess;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests the table of threads that the processes service keeps up to date with the
+ * <code>=thread-created</code> and <code>=thread-exited</code> events, rather than
+ * listing the threads again.
+ */
+@RunWith(BackgroundRunner.class)
+public class GDBProcessesThreadTableTest {
+	private static final String LIST_THREAD_GROUPS = "-list-thread-groups";
+
+	private ScriptedGdbSession fSession;
+	private ScriptedGdbProcess fProcess;
+	private ICommandControlService fControl;
+	private GDBProcesses_7_0 fProcesses;
+	private IMIContainerDMContext fContainerDmc;
+
+	@Before
+	public void startServices() throws Exception {
+		fProcess = new ScriptedGdbProcess(3, 1, 0, 0);
+		fSession = new ScriptedGdbSession(fProcess);
+		fSession.start();
+		fControl = fSession.getService(ICommandControlService.class);
+		fProcesses = fSession.getService(GDBProcesses_7_0.class);
+		fContainerDmc = fSession.call(new Callable<IMIContainerDMContext>() {
+			public IMIContainerDMContext call() {
+				return fProcesses.createContainerContextFromGroupId(fControl.getContext(), "i1");
+			}
+		});
+	}
+
+	@After
+	public void shutdownServices() throws Exception {
+		fSession.shutdown();
+	}
+
+	/**
+	 * Returns the ids of the threads of the process, as the debug view gets them.
+	 */
+	private List<String> getThreads() throws Exception {
+		IDMContext[] threads = fSession.query(new Query<IDMContext[]>() {
+			@Override
+			protected void execute(DataRequestMonitor<IDMContext[]> rm) {
+				fProcesses.getProcessesBeingDebugged(fContainerDmc, rm);
+			}
+		});
+		List<String> threadIds = new ArrayList<String>();
+		for (IDMContext thread : threads) {
+			threadIds.add(Integer.toString(((IMIExecutionDMContext) thread).getThreadId()));
+		}
+		return threadIds;
+	}
+
+	/**
+	 * Waits for the events written so far to be processed, GDB answers a command only
+	 * after them.
+	 */
+	private void sync() throws Exception {
+		fSession.query(new Query<MIInfo>() {
+			@Override
+			protected void execute(DataRequestMonitor<MIInfo> rm) {
+				fControl.queueCommand(new MICommand<MIInfo>(fControl.getContext(), "-test-sync"), rm);
+			}
+		});
+	}
+
+	private void flushCache() throws Exception {
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fProcesses.flushCache(null);
+				return null;
+			}
+		});
+	}
+
+	private static String threadsResult(int... threadIds) {
+		StringBuilder result = new StringBuilder("^done,threads=[");
+		for (int i = 0; i < threadIds.length; i++) {
+			if (i > 0) {
+				result.append(',');
+			}
+			result.append("{id=\"").append(threadIds[i]).append("\",target-id=\"Thread ").append(threadIds[i])
+					.append("\",state=\"stopped\"}");
+		}
+		return result.append(']').toString();
+	}
+
+	@Test
+	public void threadEventsTest() throws Exception {
+		assertEquals(Arrays.asList("1", "2", "3"), getThreads());
+		int listCount = fProcess.getCommandCount(LIST_THREAD_GROUPS);
+
+		fProcess.writeEvent("=thread-created,id=\"4\",group-id=\"i1\"");
+		sync();
+		assertEquals(Arrays.asList("1", "2", "3", "4"), getThreads());
+
+		fProcess.writeEvent("=thread-exited,id=\"2\",group-id=\"i1\"");
+		sync();
+		assertEquals(Arrays.asList("1", "3", "4"), getThreads());
+
+		// The table is updated without asking GDB
+		assertEquals(listCount, fProcess.getCommandCount(LIST_THREAD_GROUPS));
+	}
+
+	@Test
+	public void flushCacheTest() throws Exception {
+		assertEquals(Arrays.asList("1", "2", "3"), getThreads());
+		int listCount = fProcess.getCommandCount(LIST_THREAD_GROUPS);
+
+		// Thread 4 was created and thread 2 exited, but the events were missed.
+		fProcess.setResult(LIST_THREAD_GROUPS, threadsResult(1, 3, 4));
+		flushCache();
+		assertEquals(Arrays.asList("1", "3", "4"), getThreads());
+		assertEquals(listCount + 1, fProcess.getCommandCount(LIST_THREAD_GROUPS));
+	}
+
+	@Test
+	public void eventsWhileListingTest() throws Exception {
+		fProcess.setResult(LIST_THREAD_GROUPS, threadsResult(1, 2));
+		fProcess.setEvent(LIST_THREAD_GROUPS, "=thread-created,id=\"3\",group-id=\"i1\"");
+		assertEquals(Arrays.asList("1", "2", "3"), getThreads());
+
+		fProcess.setEvent(LIST_THREAD_GROUPS, "=thread-exited,id=\"1\",group-id=\"i1\"");
+		flushCache();
+		// Thread 3 is not known to GDB anymore
+		assertEquals(Arrays.asList("2"), getThreads());
+	}
+}
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.eclipse.cdt.debug.core.CDIDebugModel;
+import org.eclipse.cdt.debug.core.CDebugCorePlugin;
+import org.eclipse.cdt.debug.core.model.ICBreakpoint;
+import org.eclipse.cdt.debug.core.model.ICBreakpointType;
+import org.eclipse.cdt.debug.internal.core.sourcelookup.CSourceLookupDirector;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.DMContexts;
+import org.eclipse.cdt.dsf.debug.service.IBreakpoints.IBreakpointsTargetDMContext;
+import org.eclipse.cdt.dsf.debug.service.ISourceLookup.ISourceLookupDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService.ICommandControlDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService.ICommandControlShutdownDMEvent;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.gdb.service.GDBProcesses_7_0;
+import org.eclipse.cdt.dsf.mi.service.CSourceLookup;
+import org.eclipse.cdt.dsf.mi.service.MIBreakpoints;
+import org.eclipse.cdt.dsf.mi.service.MIBreakpointsManager;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BackgroundRunner;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbProcess;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbSession;
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.IBreakpointListener;
+import org.eclipse.debug.core.model.IBreakpoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests that the install count of a platform breakpoint is back to zero once the
+ * session ends, however soon after the installation of the initial breakpoints.
+ */
+@RunWith(BackgroundRunner.class)
+public class MIBreakpointsManagerInstallCountTest {
+	/** The jobs which update the install counts. */
+	private static final Set<String> MARKER_JOBS = new HashSet<String>(Arrays.asList(
+			"Update Breakpoint Markers", "Clear Breakpoints Status"));
+
+	private ScriptedGdbSession fSession;
+	private ICommandControlService fControl;
+	private MIBreakpointsManager fManager;
+	private IBreakpointsTargetDMContext fTargetDmc;
+	private ICBreakpoint fBreakpoint;
+
+	/** The lowest install count of the breakpoint seen so far. */
+	private volatile int fMinInstallCount;
+
+	private final IBreakpointListener fBreakpointListener = new IBreakpointListener() {
+		public void breakpointAdded(IBreakpoint breakpoint) {
+		}
+
+		public void breakpointRemoved(IBreakpoint breakpoint, IMarkerDelta delta) {
+		}
+
+		public void breakpointChanged(IBreakpoint breakpoint, IMarkerDelta delta) {
+			if (breakpoint == fBreakpoint) {
+				try {
+					fMinInstallCount = Math.min(fMinInstallCount, fBreakpoint.getInstallCount());
+				} catch (CoreException e) {
+				}
+			}
+		}
+	};
+
+	@Before
+	public void startServices() throws Exception {
+		ScriptedGdbProcess process = new ScriptedGdbProcess(1, 1, 0, 0);
+		process.setResult("-break-insert", "^done,bkpt={number=\"1\",type=\"breakpoint\",disp=\"keep\",enabled=\"y\"," +
+				"addr=\"0x08048000\",func=\"func0\",file=\"scripted.c\",fullname=\"/scripted/scripted.c\",line=\"1\",times=\"0\"}");
+		fSession = new ScriptedGdbSession(process);
+		fSession.start(
+				new CSourceLookup(fSession.getSession()),
+				new MIBreakpoints(fSession.getSession()),
+				new MIBreakpointsManager(fSession.getSession(), CDebugCorePlugin.PLUGIN_ID));
+		fControl = fSession.getService(ICommandControlService.class);
+		fManager = fSession.getService(MIBreakpointsManager.class);
+		final GDBProcesses_7_0 processes = fSession.getService(GDBProcesses_7_0.class);
+		final CSourceLookup sourceLookup = fSession.getService(CSourceLookup.class);
+		fTargetDmc = fSession.call(new Callable<IBreakpointsTargetDMContext>() {
+			public IBreakpointsTargetDMContext call() {
+				ICommandControlDMContext controlDmc = fControl.getContext();
+				sourceLookup.setSourceLookupDirector(
+						DMContexts.getAncestorOfType(controlDmc, ISourceLookupDMContext.class), new CSourceLookupDirector());
+				return (IBreakpointsTargetDMContext) processes.createContainerContextFromGroupId(controlDmc, "i1");
+			}
+		});
+
+		fBreakpoint = CDIDebugModel.createLineBreakpoint("/scripted/scripted.c", ResourcesPlugin.getWorkspace().getRoot(),
+				ICBreakpointType.REGULAR, 1, true, 0, "", true);
+		DebugPlugin.getDefault().getBreakpointManager().addBreakpointListener(fBreakpointListener);
+	}
+
+	@After
+	public void shutdownServices() throws Exception {
+		DebugPlugin.getDefault().getBreakpointManager().removeBreakpointListener(fBreakpointListener);
+		DebugPlugin.getDefault().getBreakpointManager().removeBreakpoint(fBreakpoint, true);
+		fSession.shutdown();
+	}
+
+	private void terminate() {
+		fManager.eventDispatched(new ICommandControlShutdownDMEvent() {
+			public ICommandControlDMContext getDMContext() {
+				return fControl.getContext();
+			}
+		});
+	}
+
+	/**
+	 * Installs the initial breakpoints, and ends the session right away if requested.
+	 */
+	private void startTracking(final boolean terminate) throws Exception {
+		fSession.query(new Query<Object>() {
+			@Override
+			protected void execute(final DataRequestMonitor<Object> rm) {
+				fManager.startTrackingBreakpoints(fTargetDmc, new RequestMonitor(fSession.getSession().getExecutor(), rm) {
+					@Override
+					protected void handleCompleted() {
+						if (terminate) {
+							terminate();
+						}
+						rm.done();
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Waits for the jobs updating the install counts and the requests they make
+	 * on the executor.
+	 */
+	private void waitForMarkerUpdates() throws Exception {
+		long timeout = System.currentTimeMillis() + ScriptedGdbSession.TIMEOUT;
+		boolean busy = true;
+		while (busy) {
+			if (System.currentTimeMillis() > timeout) {
+				fail("The breakpoint markers were not updated in time");
+			}
+			Thread.sleep(50);
+			// Let the executor complete the requests of the jobs
+			fSession.call(new Callable<Object>() {
+				public Object call() {
+					return null;
+				}
+			});
+			busy = false;
+			for (Job job : Job.getJobManager().find(null)) {
+				if (MARKER_JOBS.contains(job.getName())) {
+					busy = true;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void installTest() throws Exception {
+		startTracking(false);
+		waitForMarkerUpdates();
+		assertEquals(1, fBreakpoint.getInstallCount());
+
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				terminate();
+				return null;
+			}
+		});
+		waitForMarkerUpdates();
+		assertEquals(0, fBreakpoint.getInstallCount());
+		assertEquals(0, fMinInstallCount);
+	}
+
+	@Test
+	public void terminateAfterInstallTest() throws Exception {
+		startTracking(true);
+		waitForMarkerUpdates();
+		assertEquals(0, fBreakpoint.getInstallCount());
+		assertEquals(0, fMinInstallCount);
+	}
+
+	@Test
+	public void terminateDuringInstallTest() throws Exception {
+		final boolean[] terminated = new boolean[1];
+		final ICommandListener listener = new ICommandListener() {
+			public void commandQueued(ICommandToken token) {
+			}
+
+			public void commandSent(ICommandToken token) {
+				if (!terminated[0] && "-break-insert".equals(((MICommand<?>) token.getCommand()).getOperation())) {
+					terminated[0] = true;
+					terminate();
+				}
+			}
+
+			public void commandRemoved(ICommandToken token) {
+			}
+
+			public void commandDone(ICommandToken token, ICommandResult result) {
+			}
+		};
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fControl.addCommandListener(listener);
+				return null;
+			}
+		});
+		try {
+			startTracking(false);
+		} finally {
+			fSession.call(new Callable<Object>() {
+				public Object call() {
+					fControl.removeCommandListener(listener);
+					return null;
+				}
+			});
+		}
+		waitForMarkerUpdates();
+		assertTrue(terminated[0]);
+		assertEquals(0, fBreakpoint.getInstallCount());
+		assertEquals(0, fMinInstallCount);
+	}
+}
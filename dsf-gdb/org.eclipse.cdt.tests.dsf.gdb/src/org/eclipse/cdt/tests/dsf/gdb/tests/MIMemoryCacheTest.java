@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.eclipse.cdt.core.IAddress;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.datamodel.AbstractDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryChangedEvent;
+import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.gdb.service.GDBProcesses_7_0;
+import org.eclipse.cdt.dsf.mi.service.MIMemory;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BackgroundRunner;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbProcess;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbSession;
+import org.eclipse.cdt.utils.Addr64;
+import org.eclipse.debug.core.model.MemoryByte;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests the page cache of the memory service, with a target whose mapped memory
+ * neither starts nor ends on a page boundary.
+ */
+@RunWith(BackgroundRunner.class)
+public class MIMemoryCacheTest {
+	private static final long MAPPED_START = 0x10100;
+	private static final int MAPPED_SIZE = 0x2000;
+
+	/**
+	 * A change of the memory made behind the back of the memory service.
+	 */
+	private static class TargetMemoryChangedEvent extends AbstractDMEvent<IMemoryDMContext>
+		implements IMemoryChangedEvent
+	{
+		private final IAddress[] fAddresses;
+
+		public TargetMemoryChangedEvent(IMemoryDMContext context, IAddress[] addresses) {
+			super(context);
+			fAddresses = addresses;
+		}
+
+		public IAddress[] getAddresses() {
+			return fAddresses;
+		}
+	}
+
+	private ScriptedGdbProcess fProcess;
+	private ScriptedGdbSession fSession;
+	private MIMemory fMemory;
+	private IMemoryDMContext fMemoryDmc;
+
+	@Before
+	public void startServices() throws Exception {
+		fProcess = new ScriptedGdbProcess(1, 1, 0, 0);
+		fProcess.setMemory(MAPPED_START, createContents(0));
+		fSession = new ScriptedGdbSession(fProcess);
+		fSession.start(new MIMemory(fSession.getSession()));
+		fMemory = fSession.getService(MIMemory.class);
+		final ICommandControlService control = fSession.getService(ICommandControlService.class);
+		final GDBProcesses_7_0 processes = fSession.getService(GDBProcesses_7_0.class);
+		fMemoryDmc = fSession.call(new Callable<IMemoryDMContext>() {
+			public IMemoryDMContext call() {
+				return (IMemoryDMContext) processes.createContainerContextFromGroupId(control.getContext(), "i1");
+			}
+		});
+	}
+
+	@After
+	public void shutdownServices() throws Exception {
+		fSession.shutdown();
+	}
+
+	private static byte[] createContents(int seed) {
+		byte[] contents = new byte[MAPPED_SIZE];
+		for (int i = 0; i < contents.length; i++) {
+			contents[i] = (byte) (i * 7 + seed);
+		}
+		return contents;
+	}
+
+	private static IAddress address(long address) {
+		return new Addr64(BigInteger.valueOf(address));
+	}
+
+	private MemoryByte[] readMemory(final long address, final int count) throws Exception {
+		return fSession.query(new Query<MemoryByte[]>() {
+			@Override
+			protected void execute(DataRequestMonitor<MemoryByte[]> rm) {
+				fMemory.getMemory(fMemoryDmc, address(address), 0, 1, count, rm);
+			}
+		});
+	}
+
+	private void writeMemory(final long address, final byte[] values) throws Exception {
+		fSession.query(new Query<Object>() {
+			@Override
+			protected void execute(DataRequestMonitor<Object> rm) {
+				fMemory.setMemory(fMemoryDmc, address(address), 0, 1, values.length, values, rm);
+			}
+		});
+	}
+
+	private void flushCache() throws Exception {
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fMemory.flushCache(fMemoryDmc);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Checks the bytes read at the given address against the memory of the target.
+	 */
+	private void checkMemory(long address, MemoryByte[] bytes) {
+		byte[] contents = fProcess.getMemory();
+		for (int i = 0; i < bytes.length; i++) {
+			long offset = address + i - MAPPED_START;
+			if (offset >= 0 && offset < MAPPED_SIZE) {
+				assertTrue("Byte " + i, bytes[i].isReadable());
+				assertEquals("Byte " + i, contents[(int) offset], bytes[i].getValue());
+			} else {
+				assertFalse("Byte " + i, bytes[i].isReadable());
+			}
+		}
+	}
+
+	private void checkReads(String... expected) {
+		assertEquals(Arrays.asList(expected), fProcess.takeMemoryReads());
+	}
+
+	@Test
+	public void pageAlignmentTest() throws Exception {
+		// The read is widened to the page holding the request
+		checkMemory(0x10810, readMemory(0x10810, 16));
+		checkReads("0x10800+1024");
+
+		// The rest of the page is cached
+		checkMemory(0x10900, readMemory(0x10900, 256));
+		checkReads();
+
+		// Adjacent pages are read with a single command
+		checkMemory(0x11ff0, readMemory(0x11ff0, 32));
+		checkReads("0x11c00+2048");
+
+		// The unmapped end of the last page is cached as unreadable
+		checkMemory(0x120f0, readMemory(0x120f0, 32));
+		checkReads();
+	}
+
+	@Test
+	public void partialPageTest() throws Exception {
+		// The page in front of the mapped memory can't be read whole
+		checkMemory(MAPPED_START, readMemory(MAPPED_START, 16));
+		checkReads("0x10000+1024", "0x10100+16");
+
+		// A write empties the command cache, the page cache remembers the partial page
+		writeMemory(0x10800, new byte[] { 1 });
+		fProcess.takeMemoryReads();
+
+		checkMemory(MAPPED_START, readMemory(MAPPED_START, 16));
+		checkReads("0x10100+16");
+		checkMemory(0x10180, readMemory(0x10180, 16));
+		checkReads("0x10180+16");
+
+		// The next page is still read whole
+		checkMemory(0x10400, readMemory(0x10400, 16));
+		checkReads("0x10400+1024");
+
+		// The memory could have been mapped meanwhile
+		flushCache();
+		checkMemory(MAPPED_START, readMemory(MAPPED_START, 16));
+		checkReads("0x10000+1024", "0x10100+16");
+	}
+
+	@Test
+	public void writeTest() throws Exception {
+		checkMemory(0x10810, readMemory(0x10810, 16));
+		checkReads("0x10800+1024");
+
+		writeMemory(0x10814, new byte[] { 0x55, 0x66 });
+		byte[] contents = fProcess.getMemory();
+		assertEquals(0x55, contents[(int) (0x10814 - MAPPED_START)]);
+		assertEquals(0x66, contents[(int) (0x10815 - MAPPED_START)]);
+		checkReads("0x10814+2");
+
+		// The cached page holds the written bytes
+		checkMemory(0x10810, readMemory(0x10810, 16));
+		checkReads();
+	}
+
+	@Test
+	public void memoryChangedTest() throws Exception {
+		checkMemory(0x10810, readMemory(0x10810, 16));
+		checkReads("0x10800+1024");
+
+		// The memory changes without the memory service knowing
+		byte[] oldContents = fProcess.getMemory();
+		fProcess.setMemory(MAPPED_START, createContents(1));
+		MemoryByte[] bytes = readMemory(0x10810, 16);
+		assertEquals(oldContents[(int) (0x10810 - MAPPED_START)], bytes[0].getValue());
+		checkReads();
+
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fSession.getSession().dispatchEvent(
+						new TargetMemoryChangedEvent(fMemoryDmc, new IAddress[] { address(0x10814) }),
+						new Hashtable<String, String>());
+				return null;
+			}
+		});
+
+		// The page is read again
+		checkMemory(0x10810, readMemory(0x10810, 16));
+		List<String> reads = fProcess.takeMemoryReads();
+		assertEquals(1, reads.size());
+		assertTrue(reads.get(0), reads.get(0).startsWith("0x10800+"));
+	}
+}
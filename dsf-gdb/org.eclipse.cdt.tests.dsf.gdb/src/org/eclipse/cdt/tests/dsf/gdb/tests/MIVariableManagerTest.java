@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.eclipse.cdt.core.IAddress;
+import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.datamodel.AbstractDMEvent;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.service.IExpressions.IExpressionDMContext;
+import org.eclipse.cdt.dsf.debug.service.IFormattedValues;
+import org.eclipse.cdt.dsf.debug.service.IFormattedValues.FormattedValueDMData;
+import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryChangedEvent;
+import org.eclipse.cdt.dsf.debug.service.IMemory.IMemoryDMContext;
+import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.gdb.service.GDBProcesses_7_0;
+import org.eclipse.cdt.dsf.mi.service.IMIContainerDMContext;
+import org.eclipse.cdt.dsf.mi.service.IMIExecutionDMContext;
+import org.eclipse.cdt.dsf.mi.service.MIExpressions;
+import org.eclipse.cdt.dsf.mi.service.MIStack;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BackgroundRunner;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbProcess;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests the variable objects that the variable manager updates with a single
+ * <code>-var-update</code> command, and the expressions of the members that it builds
+ * without <code>-var-info-path-expression</code>.
+ */
+@RunWith(BackgroundRunner.class)
+public class MIVariableManagerTest {
+	private static final String VAR_CREATE = "-var-create";
+	private static final String VAR_UPDATE = "-var-update";
+	private static final String VAR_DELETE = "-var-delete";
+	private static final String VAR_LIST_CHILDREN = "-var-list-children";
+	private static final String VAR_INFO_PATH_EXPRESSION = "-var-info-path-expression";
+
+	/**
+	 * A change of the memory made behind the back of the expressions service, which
+	 * makes all the variable objects out-of-date.
+	 */
+	private static class TargetMemoryChangedEvent extends AbstractDMEvent<IMemoryDMContext>
+		implements IMemoryChangedEvent
+	{
+		public TargetMemoryChangedEvent(IMemoryDMContext context) {
+			super(context);
+		}
+
+		public IAddress[] getAddresses() {
+			return new IAddress[0];
+		}
+	}
+
+	private ScriptedGdbProcess fProcess;
+	private ScriptedGdbSession fSession;
+	private MIExpressions fExpressions;
+	private IMIContainerDMContext fContainerDmc;
+	private IFrameDMContext fFrameDmc;
+
+	@Before
+	public void startServices() throws Exception {
+		fProcess = new ScriptedGdbProcess(1, 1, 0, 0);
+		fSession = new ScriptedGdbSession(fProcess);
+		fSession.start(new MIStack(fSession.getSession()), new MIExpressions(fSession.getSession()));
+		fExpressions = fSession.getService(MIExpressions.class);
+		final ICommandControlService control = fSession.getService(ICommandControlService.class);
+		final GDBProcesses_7_0 processes = fSession.getService(GDBProcesses_7_0.class);
+		final MIStack stack = fSession.getService(MIStack.class);
+		fContainerDmc = fSession.call(new Callable<IMIContainerDMContext>() {
+			public IMIContainerDMContext call() {
+				return processes.createContainerContextFromGroupId(control.getContext(), "i1");
+			}
+		});
+		final IDMContext[] threads = fSession.query(new Query<IDMContext[]>() {
+			@Override
+			protected void execute(DataRequestMonitor<IDMContext[]> rm) {
+				processes.getProcessesBeingDebugged(fContainerDmc, rm);
+			}
+		});
+		fFrameDmc = fSession.call(new Callable<IFrameDMContext>() {
+			public IFrameDMContext call() {
+				return stack.createFrameDMContext((IMIExecutionDMContext) threads[0], 0);
+			}
+		});
+	}
+
+	@After
+	public void shutdownServices() throws Exception {
+		fSession.shutdown();
+	}
+
+	private IExpressionDMContext createExpression(final String expression) throws Exception {
+		return fSession.call(new Callable<IExpressionDMContext>() {
+			public IExpressionDMContext call() {
+				return fExpressions.createExpression(fFrameDmc, expression);
+			}
+		});
+	}
+
+	/**
+	 * Scripts the creation of an integer variable object for the given expression.
+	 */
+	private IExpressionDMContext createIntVariable(String expression, String name) throws Exception {
+		fProcess.setResult(VAR_CREATE, expression, "^done,name=\"" + name
+				+ "\",numchild=\"0\",value=\"0\",type=\"int\",thread-id=\"1\",has_more=\"0\"");
+		return createExpression(expression);
+	}
+
+	/**
+	 * Returns the natural values of the given expressions, requested at once like the
+	 * variables view requests them.
+	 */
+	private List<String> getValues(final IExpressionDMContext... expressions) throws Exception {
+		final String[] values = new String[expressions.length];
+		fSession.query(new Query<Object>() {
+			@Override
+			protected void execute(DataRequestMonitor<Object> rm) {
+				CountingRequestMonitor countingRm = new CountingRequestMonitor(ImmediateExecutor.getInstance(), rm);
+				countingRm.setDoneCount(expressions.length);
+				for (int i = 0; i < expressions.length; i++) {
+					final int index = i;
+					fExpressions.getFormattedExpressionValue(
+							fExpressions.getFormattedValueContext(expressions[i], IFormattedValues.NATURAL_FORMAT),
+							new DataRequestMonitor<FormattedValueDMData>(ImmediateExecutor.getInstance(), countingRm) {
+								@Override
+								protected void handleSuccess() {
+									values[index] = getData().getFormattedValue();
+									super.handleSuccess();
+								}
+							});
+				}
+			}
+		});
+		return Arrays.asList(values);
+	}
+
+	private IExpressionDMContext[] getSubExpressions(final IExpressionDMContext expression) throws Exception {
+		return fSession.query(new Query<IExpressionDMContext[]>() {
+			@Override
+			protected void execute(DataRequestMonitor<IExpressionDMContext[]> rm) {
+				fExpressions.getSubExpressions(expression, rm);
+			}
+		});
+	}
+
+	private static List<String> getExpressions(IExpressionDMContext[] expressions) {
+		List<String> result = new ArrayList<String>();
+		for (IExpressionDMContext expression : expressions) {
+			result.add(expression.getExpression());
+		}
+		return result;
+	}
+
+	/**
+	 * Makes all the variable objects out-of-date, like resuming the program does.
+	 */
+	private void memoryChanged() throws Exception {
+		fSession.call(new Callable<Object>() {
+			public Object call() {
+				fSession.getSession().dispatchEvent(
+						new TargetMemoryChangedEvent((IMemoryDMContext) fContainerDmc),
+						new Hashtable<String, String>());
+				return null;
+			}
+		});
+	}
+
+	private static String change(String name, String value) {
+		return "{name=\"" + name + "\",value=\"" + value + "\",in_scope=\"true\",type_changed=\"false\",has_more=\"0\"}";
+	}
+
+	private static String outOfScope(String name) {
+		return "{name=\"" + name + "\",in_scope=\"false\",type_changed=\"false\",has_more=\"0\"}";
+	}
+
+	private static String changelist(String... changes) {
+		StringBuilder result = new StringBuilder("^done,changelist=[");
+		for (int i = 0; i < changes.length; i++) {
+			if (i > 0) {
+				result.append(',');
+			}
+			result.append(changes[i]);
+		}
+		return result.append(']').toString();
+	}
+
+	private static String child(String name, String exp, int numChild, String type) {
+		return "child={name=\"" + name + "\",exp=\"" + exp + "\",numchild=\"" + numChild
+				+ (type == null ? "" : "\",type=\"" + type) + "\",thread-id=\"1\"}";
+	}
+
+	private void setChildren(String name, String... children) {
+		StringBuilder result = new StringBuilder("^done,numchild=\"").append(children.length).append("\",children=[");
+		for (int i = 0; i < children.length; i++) {
+			if (i > 0) {
+				result.append(',');
+			}
+			result.append(children[i]);
+		}
+		fProcess.setResult(VAR_LIST_CHILDREN, name, result.append("],has_more=\"0\"").toString());
+	}
+
+	/**
+	 * Scripts the answer of GDB to <code>-var-info-path-expression</code> for the given
+	 * variable object, and returns it.
+	 */
+	private String setPathExpression(String name, String path) {
+		fProcess.setResult(VAR_INFO_PATH_EXPRESSION, name, "^done,path_expr=\"" + path + "\"");
+		return path;
+	}
+
+	@Test
+	public void batchedUpdateTest() throws Exception {
+		IExpressionDMContext a = createIntVariable("a", "var1");
+		IExpressionDMContext b = createIntVariable("b", "var2");
+		IExpressionDMContext c = createIntVariable("c", "var3");
+		assertEquals(Arrays.asList("0", "0", "0"), getValues(a, b, c));
+
+		// The roots are updated with a single command, the changes are dispatched to their roots
+		memoryChanged();
+		int updateCount = fProcess.getCommandCount(VAR_UPDATE);
+		fProcess.setResult(VAR_UPDATE, changelist(change("var1", "1"), change("var3", "3")));
+		assertEquals(Arrays.asList("1", "0", "3"), getValues(a, b, c));
+		assertEquals(updateCount + 1, fProcess.getCommandCount(VAR_UPDATE));
+	}
+
+	@Test
+	public void otherRootChangesTest() throws Exception {
+		IExpressionDMContext a = createIntVariable("a", "var1");
+		IExpressionDMContext b = createIntVariable("b", "var2");
+		IExpressionDMContext c = createIntVariable("c", "var3");
+		assertEquals(Arrays.asList("0", "0", "0"), getValues(a, b, c));
+
+		// The update of a and b reports the change of c as well
+		memoryChanged();
+		fProcess.setResult(VAR_UPDATE, changelist(change("var1", "1"), change("var3", "3")));
+		assertEquals(Arrays.asList("1", "0"), getValues(a, b));
+		fProcess.setResult(VAR_UPDATE, null);
+		assertEquals(Arrays.asList("3"), getValues(c));
+	}
+
+	@Test
+	public void otherRootOutOfScopeTest() throws Exception {
+		IExpressionDMContext a = createIntVariable("a", "var1");
+		IExpressionDMContext b = createIntVariable("b", "var2");
+		IExpressionDMContext c = createIntVariable("c", "var3");
+		assertEquals(Arrays.asList("0", "0", "0"), getValues(a, b, c));
+		int createCount = fProcess.getCommandCount(VAR_CREATE);
+
+		// The update of a and b reports that c went out of scope
+		memoryChanged();
+		fProcess.setResult(VAR_UPDATE, changelist(change("var1", "1"), outOfScope("var3")));
+		assertEquals(Arrays.asList("1", "0"), getValues(a, b));
+		fProcess.setResult(VAR_UPDATE, null);
+
+		// The root of c is deleted right away, and created again when needed
+		assertEquals(Arrays.asList("0"), getValues(c));
+		assertEquals(1, fProcess.getCommandCount(VAR_DELETE));
+		assertEquals(createCount + 1, fProcess.getCommandCount(VAR_CREATE));
+	}
+
+	@Test
+	public void memberExpressionTest() throws Exception {
+		// struct T { int m; };
+		// struct S { int x; struct T *p; struct T a[1]; } s;
+		fProcess.setResult(VAR_CREATE, "s",
+				"^done,name=\"var1\",numchild=\"3\",value=\"{...}\",type=\"struct S\",thread-id=\"1\",has_more=\"0\"");
+		setChildren("var1",
+				child("var1.x", "x", 0, "int"),
+				child("var1.p", "p", 1, "struct T *"),
+				child("var1.a", "a", 1, "struct T [1]"));
+		setChildren("var1.p", child("var1.p.m", "m", 0, "int"));
+		fProcess.setResult(VAR_CREATE, "(s).a[0]",
+				"^done,name=\"var2\",numchild=\"1\",value=\"{...}\",type=\"struct T\",thread-id=\"1\",has_more=\"0\"");
+		setChildren("var2", child("var2.m", "m", 0, "int"));
+
+		// The members of the structure are built without asking GDB
+		IExpressionDMContext[] members = getSubExpressions(createExpression("s"));
+		assertEquals(Arrays.asList(
+				setPathExpression("var1.x", "(s).x"),
+				setPathExpression("var1.p", "(s).p"),
+				setPathExpression("var1.a", "(s).a")),
+				getExpressions(members));
+		assertEquals(0, fProcess.getCommandCount(VAR_INFO_PATH_EXPRESSION));
+
+		// GDB is asked for the members accessed through a pointer
+		assertEquals(Arrays.asList(setPathExpression("var1.p.m", "((s).p)->m")),
+				getExpressions(getSubExpressions(members[1])));
+		assertEquals(1, fProcess.getCommandCount(VAR_INFO_PATH_EXPRESSION));
+
+		// The elements of an array are roots, their members are built without asking GDB
+		IExpressionDMContext[] elements = getSubExpressions(members[2]);
+		assertEquals(Arrays.asList("(s).a[0]"), getExpressions(elements));
+		assertEquals(Arrays.asList(setPathExpression("var2.m", "((s).a[0]).m")),
+				getExpressions(getSubExpressions(elements[0])));
+		assertEquals(1, fProcess.getCommandCount(VAR_INFO_PATH_EXPRESSION));
+	}
+
+	@Test
+	public void baseClassExpressionTest() throws Exception {
+		// class Base { public: int b; };
+		// class Derived : public Base { public: int d; } obj;
+		fProcess.setResult(VAR_CREATE, "obj",
+				"^done,name=\"var1\",numchild=\"2\",value=\"{...}\",type=\"Derived\",thread-id=\"1\",has_more=\"0\"");
+		setChildren("var1",
+				child("var1.Base", "Base", 1, "Base"),
+				child("var1.public", "public", 1, null));
+		setChildren("var1.public", child("var1.public.d", "d", 0, "int"));
+		setChildren("var1.Base", child("var1.Base.public", "public", 1, null));
+		setChildren("var1.Base.public", child("var1.Base.public.b", "b", 0, "int"));
+
+		// GDB is asked for the base class, the access qualifiers are skipped
+		String base = setPathExpression("var1.Base", "((class Base) obj)");
+		IExpressionDMContext[] children = getSubExpressions(createExpression("obj"));
+		assertEquals(Arrays.asList(base, setPathExpression("var1.public.d", "((obj).d)")),
+				getExpressions(children));
+		assertEquals(1, fProcess.getCommandCount(VAR_INFO_PATH_EXPRESSION));
+
+		// The members of the base class are built without asking GDB
+		assertEquals(Arrays.asList(setPathExpression("var1.Base.public.b", "((((class Base) obj)).b)")),
+				getExpressions(getSubExpressions(children[0])));
+		assertEquals(1, fProcess.getCommandCount(VAR_INFO_PATH_EXPRESSION));
+	}
+}
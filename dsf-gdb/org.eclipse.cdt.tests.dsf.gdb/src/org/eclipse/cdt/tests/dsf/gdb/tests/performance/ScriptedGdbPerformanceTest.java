@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
+import org.eclipse.cdt.dsf.concurrent.CountingRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.concurrent.Query;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.DMContexts;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.service.IExpressions;
+import org.eclipse.cdt.dsf.debug.service.IExpressions.IExpressionDMContext;
+import org.eclipse.cdt.dsf.debug.service.IProcesses;
+import org.eclipse.cdt.dsf.debug.service.IProcesses.IThreadDMContext;
+import org.eclipse.cdt.dsf.debug.service.IProcesses.IThreadDMData;
+import org.eclipse.cdt.dsf.debug.service.IStack;
+import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
+import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMData;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandControlService;
+import org.eclipse.cdt.dsf.gdb.launching.ShutdownSequence;
+import org.eclipse.cdt.dsf.gdb.service.GDBProcesses_7_0;
+import org.eclipse.cdt.dsf.gdb.service.GDBRunControl_7_0;
+import org.eclipse.cdt.dsf.gdb.service.command.CommandFactory_6_8;
+import org.eclipse.cdt.dsf.gdb.service.command.GDBControl_7_0;
+import org.eclipse.cdt.dsf.mi.service.MIExpressions;
+import org.eclipse.cdt.dsf.mi.service.MIStack;
+import org.eclipse.cdt.dsf.service.DsfServicesTracker;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.cdt.dsf.service.IDsfService;
+import org.eclipse.cdt.tests.dsf.gdb.framework.BackgroundRunner;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGDBBackend;
+import org.eclipse.cdt.tests.dsf.gdb.framework.ScriptedGdbProcess;
+import org.eclipse.cdt.tests.dsf.gdb.launching.TestsPlugin;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunchConfigurationType;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures how long the DSF-GDB services take to provide the data shown by the Debug
+ * and Variables views for a large target. GDB is replaced by a {@link ScriptedGdbProcess},
+ * such that the results only depend on the services and on the configured latency.
+ */
+@RunWith(BackgroundRunner.class)
+public class ScriptedGdbPerformanceTest {
+	private static final boolean PRINT_TIMING = false;
+
+	private static final int THREAD_COUNT = 2000;
+	private static final int FRAME_COUNT = 10000;
+	private static final int ARRAY_LENGTH = 100000;
+	private static final long LATENCY = 0;
+	private static final int TIMEOUT = 120000;
+
+	private ScriptedGdbProcess fProcess;
+	private DsfSession fSession;
+	private DsfServicesTracker fServicesTracker;
+	private IProcesses fProcesses;
+	private IStack fStack;
+	private IExpressions fExpressions;
+	private ICommandControlService fCommandControl;
+
+	@Before
+	public void startServices() throws Exception {
+		ILaunchConfigurationType lcType = DebugPlugin.getDefault().getLaunchManager().getLaunchConfigurationType("org.eclipse.cdt.tests.dsf.gdb.TestLaunch");
+		final ILaunchConfigurationWorkingCopy lc = lcType.newInstance(null, "ScriptedGdbPerformanceTest");
+		lc.setAttribute(ICDTLaunchConfigurationConstants.ATTR_PROGRAM_NAME, "/scripted/a.out");
+
+		fProcess = new ScriptedGdbProcess(THREAD_COUNT, FRAME_COUNT, ARRAY_LENGTH, LATENCY);
+		fSession = DsfSession.startSession(new DefaultDsfExecutor(TestsPlugin.PLUGIN_ID), TestsPlugin.PLUGIN_ID);
+
+		Query<Object> query = new Query<Object>() {
+			@Override
+			protected void execute(DataRequestMonitor<Object> rm) {
+				IDsfService[] services = new IDsfService[] {
+					new ScriptedGDBBackend(fSession, lc, fProcess),
+					new GDBControl_7_0(fSession, lc, new CommandFactory_6_8()),
+					new GDBProcesses_7_0(fSession),
+					new GDBRunControl_7_0(fSession),
+					new MIStack(fSession),
+					new MIExpressions(fSession),
+				};
+				initialize(services, 0, rm);
+			}
+		};
+		fSession.getExecutor().execute(query);
+		query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+		fSession.getExecutor().submit(new Runnable() {
+			public void run() {
+				fServicesTracker = new DsfServicesTracker(TestsPlugin.getBundleContext(), fSession.getId());
+				fCommandControl = fServicesTracker.getService(ICommandControlService.class);
+				fProcesses = fServicesTracker.getService(IProcesses.class);
+				fStack = fServicesTracker.getService(IStack.class);
+				fExpressions = fServicesTracker.getService(IExpressions.class);
+			}
+		}).get();
+	}
+
+	private static void initialize(final IDsfService[] services, final int index, final RequestMonitor rm) {
+		if (index == services.length) {
+			rm.done();
+			return;
+		}
+		services[index].initialize(new RequestMonitor(ImmediateExecutor.getInstance(), rm) {
+			@Override
+			protected void handleSuccess() {
+				initialize(services, index + 1, rm);
+			}
+		});
+	}
+
+	@After
+	public void shutdownServices() throws Exception {
+		if (fServicesTracker != null) {
+			fSession.getExecutor().submit(new Runnable() {
+				public void run() {
+					fServicesTracker.dispose();
+				}
+			}).get();
+		}
+		Query<Object> query = new Query<Object>() {
+			@Override
+			protected void execute(DataRequestMonitor<Object> rm) {
+				fSession.getExecutor().execute(new ShutdownSequence(fSession.getExecutor(), fSession.getId(), rm));
+			}
+		};
+		fSession.getExecutor().execute(query);
+		query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		fSession.getExecutor().submit(new Runnable() {
+			public void run() {
+				DsfSession.endSession(fSession);
+			}
+		}).get();
+		fSession.getExecutor().shutdown();
+		fProcess.destroy();
+	}
+
+	private IDMContext[] getThreads() throws Exception {
+		Query<IDMContext[]> query = new Query<IDMContext[]>() {
+			@Override
+			protected void execute(final DataRequestMonitor<IDMContext[]> rm) {
+				fProcesses.getProcessesBeingDebugged(fCommandControl.getContext(), new DataRequestMonitor<IDMContext[]>(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleSuccess() {
+						fProcesses.getProcessesBeingDebugged(getData()[0], rm);
+					}
+				});
+			}
+		};
+		fSession.getExecutor().execute(query);
+		return query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The threads of the Debug view: the list of threads and the data of each of them.
+	 */
+	@Test
+	public void testThreads() throws Exception {
+		long time = System.currentTimeMillis();
+		final IDMContext[] threads = getThreads();
+		Query<IThreadDMData[]> query = new Query<IThreadDMData[]>() {
+			@Override
+			protected void execute(final DataRequestMonitor<IThreadDMData[]> rm) {
+				final IThreadDMData[] data = new IThreadDMData[threads.length];
+				CountingRequestMonitor crm = new CountingRequestMonitor(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleSuccess() {
+						rm.setData(data);
+						rm.done();
+					}
+				};
+				crm.setDoneCount(threads.length);
+				for (int i = 0; i < threads.length; i++) {
+					final int index = i;
+					IThreadDMContext threadDmc = DMContexts.getAncestorOfType(threads[i], IThreadDMContext.class);
+					fProcesses.getExecutionData(threadDmc, new DataRequestMonitor<IThreadDMData>(fSession.getExecutor(), crm) {
+						@Override
+						protected void handleSuccess() {
+							data[index] = getData();
+							super.handleSuccess();
+						}
+					});
+				}
+			}
+		};
+		fSession.getExecutor().execute(query);
+		IThreadDMData[] data = query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		time = System.currentTimeMillis() - time;
+
+		assertEquals(THREAD_COUNT, threads.length);
+		assertNotNull(data[THREAD_COUNT - 1].getId());
+		printTiming("Populated " + THREAD_COUNT + " threads", time);
+	}
+
+	/**
+	 * A fully expanded stack in the Debug view: the depth, the frames and the data of each frame.
+	 */
+	@Test
+	public void testStackFrames() throws Exception {
+		final IDMContext thread = getThreads()[0];
+		long time = System.currentTimeMillis();
+		Query<IFrameDMData[]> query = new Query<IFrameDMData[]>() {
+			@Override
+			protected void execute(final DataRequestMonitor<IFrameDMData[]> rm) {
+				fStack.getStackDepth(thread, 0, new DataRequestMonitor<Integer>(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleSuccess() {
+						fStack.getFrames(thread, new DataRequestMonitor<IFrameDMContext[]>(fSession.getExecutor(), rm) {
+							@Override
+							protected void handleSuccess() {
+								getFrameData(getData(), rm);
+							}
+						});
+					}
+				});
+			}
+		};
+		fSession.getExecutor().execute(query);
+		IFrameDMData[] data = query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		time = System.currentTimeMillis() - time;
+
+		assertEquals(FRAME_COUNT, data.length);
+		assertEquals("func" + (FRAME_COUNT - 1), data[FRAME_COUNT - 1].getFunction());
+		printTiming("Populated " + FRAME_COUNT + " stack frames", time);
+	}
+
+	private void getFrameData(IFrameDMContext[] frames, final DataRequestMonitor<IFrameDMData[]> rm) {
+		final IFrameDMData[] data = new IFrameDMData[frames.length];
+		CountingRequestMonitor crm = new CountingRequestMonitor(fSession.getExecutor(), rm) {
+			@Override
+			protected void handleSuccess() {
+				rm.setData(data);
+				rm.done();
+			}
+		};
+		crm.setDoneCount(frames.length);
+		for (int i = 0; i < frames.length; i++) {
+			final int index = i;
+			fStack.getFrameData(frames[i], new DataRequestMonitor<IFrameDMData>(fSession.getExecutor(), crm) {
+				@Override
+				protected void handleSuccess() {
+					data[index] = getData();
+					super.handleSuccess();
+				}
+			});
+		}
+	}
+
+	/**
+	 * An expanded array in the Variables view: the elements of the array.
+	 */
+	@Test
+	public void testArrayElements() throws Exception {
+		final IDMContext thread = getThreads()[0];
+		long time = System.currentTimeMillis();
+		Query<IExpressionDMContext[]> query = new Query<IExpressionDMContext[]>() {
+			@Override
+			protected void execute(final DataRequestMonitor<IExpressionDMContext[]> rm) {
+				fStack.getTopFrame(thread, new DataRequestMonitor<IFrameDMContext>(fSession.getExecutor(), rm) {
+					@Override
+					protected void handleSuccess() {
+						IExpressionDMContext array = fExpressions.createExpression(getData(), "array");
+						fExpressions.getSubExpressions(array, rm);
+					}
+				});
+			}
+		};
+		fSession.getExecutor().execute(query);
+		IExpressionDMContext[] elements = query.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		time = System.currentTimeMillis() - time;
+
+		assertEquals(ARRAY_LENGTH, elements.length);
+		assertEquals("array[" + (ARRAY_LENGTH - 1) + "]", elements[ARRAY_LENGTH - 1].getExpression());
+		printTiming("Populated " + ARRAY_LENGTH + " array elements", time);
+	}
+
+	private void printTiming(String operation, long time) {
+		if (PRINT_TIMING) {
+			System.out.println(operation + " in " + time + " ms using " + fProcess.getCommandCount() + " MI commands");
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.gdb.tests.performance;
+
+import org.eclipse.cdt.tests.dsf.gdb.framework.OnceOnlySuite;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+/**
+ * This suite executes the benchmarks of the DSF-GDB services. The benchmarks use a
+ * scripted stand-in for GDB, they don't depend on the version of GDB and run just once.
+ * Set PRINT_TIMING in the test classes to report the timings.
+ */
+@RunWith(OnceOnlySuite.class)
+@Suite.SuiteClasses({
+        ScriptedGdbPerformanceTest.class,
+        /* Add your test class here */
+        })
+public class Suite_Performance_Tests {
+	// This class is meant to be empty. It enables us to define the annotations
+	// which list all the different JUnit class we want to run. When creating a
+	// new test class, it should be added to the list above.
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2010, 2011 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,9 +35,11 @@ import org.eclipse.cdt.dsf.concurrent.IDsfStatusConstants;
 import org.eclipse.cdt.dsf.concurrent.Query;
 import org.eclipse.cdt.dsf.datamodel.DMContexts;
 import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.internal.ui.disassembly.model.DisassemblyDocument;
 import org.eclipse.cdt.dsf.debug.service.IDisassembly;
 import org.eclipse.cdt.dsf.debug.service.IDisassembly.IDisassemblyDMContext;
 import org.eclipse.cdt.dsf.debug.service.IDisassembly2;
+import org.eclipse.cdt.dsf.debug.service.IDisassembly2.IDisassemblyChangedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IExpressions;
 import org.eclipse.cdt.dsf.debug.service.IExpressions.IExpressionDMAddress;
 import org.eclipse.cdt.dsf.debug.service.IExpressions.IExpressionDMContext;
@@ -444,6 +446,22 @@ public class DisassemblyBackendDsf extends AbstractDisassemblyBackend implements
 		}
 	}
 
+	@DsfServiceEventHandler
+	public void handleEvent(final IDisassemblyChangedDMEvent event) {
+		if (fTargetContext == null) {
+			return;
+		}
+		// The range was shown from a cache that the back end has since contradicted.
+		fCallback.asyncExec(new Runnable() {
+			public void run() {
+				if (fCallback.getDocument() instanceof DisassemblyDocument) {
+					((DisassemblyDocument)fCallback.getDocument()).invalidateAddressRange(
+							event.getStartAddress(), event.getEndAddress(), false);
+					fCallback.updateVisibleArea();
+				}
+			}});
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.cdt.dsf.service.DsfSession.SessionEndedListener#sessionEnded(org.eclipse.cdt.dsf.service.DsfSession)
 	 */
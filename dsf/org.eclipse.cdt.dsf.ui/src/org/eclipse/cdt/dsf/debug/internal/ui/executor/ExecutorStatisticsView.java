@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.debug.internal.ui.executor;
+
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.internal.ui.DsfUIPlugin;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Shows the statistics of the executors of the active DSF sessions: the queue
+ * depth, the wait and run times of the runnables, and the request monitor
+ * chains which took the longest.
+ */
+public class ExecutorStatisticsView extends ViewPart {
+
+	private Text fText;
+
+	@Override
+	public void createPartControl(Composite parent) {
+		fText = new Text(parent, SWT.MULTI | SWT.READ_ONLY | SWT.H_SCROLL | SWT.V_SCROLL);
+		fText.setFont(JFaceResources.getTextFont());
+
+		Action refreshAction = new Action(Messages.ExecutorStatisticsView_refresh) {
+			@Override
+			public void run() {
+				refresh();
+			}
+		};
+		refreshAction.setImageDescriptor(DsfUIPlugin.getImageDescriptor("icons/refresh.gif")); //$NON-NLS-1$
+
+		Action resetAction = new Action(Messages.ExecutorStatisticsView_reset) {
+			@Override
+			public void run() {
+				for (DsfSession session : DsfSession.getActiveSessions()) {
+					if (session.getExecutor() instanceof DefaultDsfExecutor) {
+						((DefaultDsfExecutor)session.getExecutor()).getStatistics().reset();
+					}
+				}
+				refresh();
+			}
+		};
+		resetAction.setImageDescriptor(DsfUIPlugin.getImageDescriptor("icons/refreshall.gif")); //$NON-NLS-1$
+
+		IToolBarManager toolBar = getViewSite().getActionBars().getToolBarManager();
+		toolBar.add(refreshAction);
+		toolBar.add(resetAction);
+
+		refresh();
+	}
+
+	private void refresh() {
+		StringBuilder builder = new StringBuilder();
+		for (DsfSession session : DsfSession.getActiveSessions()) {
+			if (session.getExecutor() instanceof DefaultDsfExecutor) {
+				builder.append(NLS.bind(Messages.ExecutorStatisticsView_session, session.getId(), session.getOwnerId()));
+				builder.append('\n');
+				builder.append(((DefaultDsfExecutor)session.getExecutor()).getStatistics().toString());
+				builder.append('\n');
+			}
+		}
+		if (builder.length() == 0) {
+			builder.append(Messages.ExecutorStatisticsView_noSessions);
+		}
+		fText.setText(builder.toString());
+	}
+
+	@Override
+	public void setFocus() {
+		fText.setFocus();
+	}
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.debug.internal.ui.executor;
+
+import org.eclipse.osgi.util.NLS;
+
+public class Messages extends NLS {
+	public static String ExecutorStatisticsView_refresh;
+	public static String ExecutorStatisticsView_reset;
+	public static String ExecutorStatisticsView_session;
+	public static String ExecutorStatisticsView_noSessions;
+
+	static {
+		// initialize resource bundle
+		NLS.initializeMessages(Messages.class.getName(), Messages.class);
+	}
+
+	private Messages() {
+	}
+}
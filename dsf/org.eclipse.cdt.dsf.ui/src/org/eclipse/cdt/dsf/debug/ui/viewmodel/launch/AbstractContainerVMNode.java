@@ -286,13 +286,15 @@ public abstract class AbstractContainerVMNode extends AbstractExecutionContextVM
 	            return IModelDelta.CONTENT;
 	        }
 	    } else if (e instanceof IExitedDMEvent) {
-	        return IModelDelta.CONTENT;
+	    	if (dmc instanceof IContainerDMContext) {
+	    		return IModelDelta.CONTENT;
+	    	}
+	    	// The thread node removes the thread from the container
 	    } else if (e instanceof IStartedDMEvent) {
 	    	if (dmc instanceof IContainerDMContext) {
 	    		return IModelDelta.EXPAND | IModelDelta.SELECT;
-	    	} else {
-		        return IModelDelta.CONTENT;
 	    	}
+	    	// The thread node inserts the thread in the container
         } else if (e instanceof ModelProxyInstalledEvent || e instanceof DataModelInitializedEvent) {
             return IModelDelta.SELECT | IModelDelta.EXPAND;
 	    } else if (e instanceof StateChangedEvent) {
@@ -333,14 +335,10 @@ public abstract class AbstractContainerVMNode extends AbstractExecutionContextVM
 		    // or for the container itself.  
 		    // If a container exited, refresh the parent element so that the 
 		    // container may be removed.
-		    // If a thread exited within a container, refresh that container.
+		    // If a thread exited within a container, the thread node removes 
+		    // it from the container, without refreshing the other threads.
 			if (dmc instanceof IContainerDMContext) {
 	    		parentDelta.setFlags(parentDelta.getFlags() |  IModelDelta.CONTENT);
-	    	} else {
-		        IContainerDMContext containerCtx = DMContexts.getAncestorOfType(dmc, IContainerDMContext.class);
-		        if (containerCtx != null) {
-		            parentDelta.addNode(createVMContext(containerCtx), IModelDelta.CONTENT);
-		        }
 	    	}
 	    } else if (e instanceof IStartedDMEvent) {
             // A started event could either be for a thread within a container
@@ -348,13 +346,10 @@ public abstract class AbstractContainerVMNode extends AbstractExecutionContextVM
             // If a container started, issue an expand and select event to 
 	        // show the threads in the new container. 
 	        // Note: the EXPAND flag implies refreshing the parent element.
+	        // If a thread started within a container, the thread node inserts
+	        // it in the container.
 			if (dmc instanceof IContainerDMContext) {
 		        parentDelta.addNode(createVMContext(dmc), IModelDelta.EXPAND | IModelDelta.SELECT);
-			} else {
-				IContainerDMContext containerCtx = DMContexts.getAncestorOfType(dmc, IContainerDMContext.class);
-				if (containerCtx != null) {
-					parentDelta.addNode(createVMContext(containerCtx), IModelDelta.CONTENT);
-				}
 			}
         } else if (e instanceof ModelProxyInstalledEvent || e instanceof DataModelInitializedEvent) {
             // Model Proxy install event is generated when the model is first 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 Wind River Systems and others.
+ * Copyright (c) 2006, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ import org.eclipse.cdt.dsf.datamodel.DMContexts;
 import org.eclipse.cdt.dsf.datamodel.IDMContext;
 import org.eclipse.cdt.dsf.datamodel.IDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IContainerDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExecutionDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExitedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IStartedDMEvent;
@@ -198,6 +199,12 @@ public class AbstractLaunchVMProvider extends AbstractDMVMProvider
      * given execution context.
      */
     private ScheduledFuture<?> getRefreshFuture(IExecutionDMContext execCtx) {
+        ScheduledFuture<?> future = fRefreshStackFramesFutures.remove(execCtx);
+        if (future != null || !(execCtx instanceof IContainerDMContext)) {
+            // Only a container has children with their own refresh, avoid going 
+            // through the refreshes of all threads when many threads suspend.
+            return future;
+        }
         for (IExecutionDMContext refreshCtx : fRefreshStackFramesFutures.keySet()) {
             if (refreshCtx.equals(execCtx) || DMContexts.isAncestorOf(refreshCtx, execCtx)) {
                 return fRefreshStackFramesFutures.remove(refreshCtx);
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.cdt.dsf.debug.ui.viewmodel.launch;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 
@@ -32,7 +33,9 @@ import org.eclipse.cdt.dsf.debug.service.IRunControl.IContainerSuspendedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExecutionDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExecutionDMData;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExecutionDMData2;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IExitedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IResumedDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IStartedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.ISuspendedDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.StateChangeReason;
 import org.eclipse.cdt.dsf.debug.ui.viewmodel.SteppingController.SteppingTimedOutEvent;
@@ -336,6 +339,36 @@ public abstract class AbstractThreadVMNode extends AbstractExecutionContextVMNod
     }
     
     
+    /**
+     * Returns the index of the given thread among the threads of its container, 
+     * in the order in which they are shown, or -1 if it is not found.
+     */
+    private void getThreadIndex(final IExecutionDMContext execDmc, final DataRequestMonitor<Integer> rm) {
+        try {
+            getSession().getExecutor().execute(new DsfRunnable() {
+                public void run() {
+                    IRunControl runControl = getServicesTracker().getService(IRunControl.class);
+                    IContainerDMContext contDmc = DMContexts.getAncestorOfType(execDmc, IContainerDMContext.class);
+                    if (runControl == null || contDmc == null) {
+                        rm.setStatus(new Status(IStatus.ERROR, DsfUIPlugin.PLUGIN_ID, IDsfStatusConstants.REQUEST_FAILED, "No threads available", null)); //$NON-NLS-1$
+                        rm.done();
+                        return;
+                    }
+                    runControl.getExecutionContexts(contDmc, new DataRequestMonitor<IExecutionDMContext[]>(getSession().getExecutor(), rm) {
+                        @Override
+                        protected void handleSuccess() {
+                            rm.setData(Arrays.asList(getData()).indexOf(execDmc));
+                            rm.done();
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rm.setStatus(new Status(IStatus.ERROR, DsfUIPlugin.PLUGIN_ID, IDsfStatusConstants.NOT_SUPPORTED, "", null)); //$NON-NLS-1$
+            rm.done();
+        }
+    }
+    
     public int getDeltaFlags(Object e) {
         IDMContext dmc = e instanceof IDMEvent<?> ? ((IDMEvent<?>)e).getDMContext() : null;
 
@@ -349,6 +382,10 @@ public abstract class AbstractThreadVMNode extends AbstractExecutionContextVMNod
             return IModelDelta.NO_CHANGE;
         } else if (e instanceof SteppingTimedOutEvent) {
             return IModelDelta.CONTENT;            
+        } else if (e instanceof IStartedDMEvent && dmc instanceof IExecutionDMContext) {
+            return IModelDelta.INSERTED;
+        } else if (e instanceof IExitedDMEvent && dmc instanceof IExecutionDMContext) {
+            return IModelDelta.REMOVED;
         } else if (e instanceof ModelProxyInstalledEvent || e instanceof DataModelInitializedEvent) {
             return IModelDelta.SELECT | IModelDelta.EXPAND;
         } else if (e instanceof StateChangedEvent) {
@@ -389,6 +426,29 @@ public abstract class AbstractThreadVMNode extends AbstractExecutionContextVMNod
             // the user that the program is running.  
             parentDelta.addNode(createVMContext(dmc), IModelDelta.CONTENT);
             rm.done();            
+        } else if (e instanceof IStartedDMEvent && dmc instanceof IExecutionDMContext) {
+            // Insert the new thread rather than refreshing all the threads 
+            // of the container, which may be many.  Its index is looked up 
+            // in the service, without creating the elements of the other threads.
+            final IExecutionDMContext execDmc = (IExecutionDMContext)dmc;
+            getThreadIndex(
+                execDmc,
+                new DataRequestMonitor<Integer>(getExecutor(), rm) {
+                    @Override
+                    protected void handleCompleted() {
+                        if (isSuccess() && getData() >= 0 && nodeOffset >= 0) {
+                            parentDelta.addNode(createVMContext(execDmc), nodeOffset + getData(), IModelDelta.INSERTED);
+                        } else {
+                            parentDelta.setFlags(parentDelta.getFlags() | IModelDelta.CONTENT);
+                        }
+                        rm.done();
+                    }
+                });
+        } else if (e instanceof IExitedDMEvent && dmc instanceof IExecutionDMContext) {
+            // Remove the thread rather than refreshing all the threads 
+            // of the container.
+            parentDelta.addNode(createVMContext(dmc), IModelDelta.REMOVED);
+            rm.done();
         } else if (e instanceof ModelProxyInstalledEvent || e instanceof DataModelInitializedEvent) {
             // Model Proxy install event is generated when the model is first 
             // populated into the view.  This happens when a new debug session
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Wind River Systems, Inc. and others.
+ * Copyright (c) 2008, 2011 Wind River Systems, Inc. and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.cdt.dsf.debug.ui.viewmodel.launch;
 import java.util.Map;
 
 import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.datamodel.IDMEvent;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IContainerDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExecutionDMContext;
 import org.eclipse.cdt.dsf.debug.service.IRunControl.IExitedDMEvent;
@@ -31,7 +32,8 @@ import org.eclipse.jface.viewers.TreePath;
  * 
  * <p>
  * The underlying base update policy is considered for container contexts only.
- * In other cases the cache data is always flushed.
+ * In other cases the cache data is always flushed, except for the data of the
+ * other threads when the event is about a single thread.
  * </p>
  * 
  * @since 1.1
@@ -45,11 +47,18 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
         /** Indicates whether only the top stack frame should be updated */
         private final boolean fLazyStackFrameMode;
 
-		DelayedStackRefreshUpdateTester(IElementUpdateTester baseTester, boolean lazyStackFrameMode) {
+        /** The thread of the event, or <code>null</code> if the event is not about a single thread */
+        private final IExecutionDMContext fThreadDmc;
+
+		DelayedStackRefreshUpdateTester(IElementUpdateTester baseTester, boolean lazyStackFrameMode, IExecutionDMContext threadDmc) {
 		    fBaseTester = baseTester;
 		    fLazyStackFrameMode = lazyStackFrameMode;
+		    fThreadDmc = threadDmc;
 		}
 		public int getUpdateFlags(Object viewerInput, TreePath path) {
+		    if (isInOtherThread(path, fThreadDmc)) {
+		        return 0;
+		    }
             Object element = path.getSegmentCount() != 0 ? path.getLastSegment() : viewerInput;
 			if (element instanceof IDMVMContext) {
 				IDMContext dmc = ((IDMVMContext) element).getDMContext();
@@ -76,6 +85,9 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
 		    // actually clears the entries that were marked as dirty.
 			if (tester instanceof DelayedStackRefreshUpdateTester) {
 			    DelayedStackRefreshUpdateTester sfTester = (DelayedStackRefreshUpdateTester)tester;
+			    if (!includesThread(fThreadDmc, sfTester.fThreadDmc)) {
+			        return false;
+			    }
 			    if (fLazyStackFrameMode) {
 			    	if (sfTester.fLazyStackFrameMode) {
 			    	    return fBaseTester.includes(sfTester.fBaseTester);
@@ -93,7 +105,7 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
 		
         @Override
         public String toString() {
-            return "Delayed stack refresh (lazy = " + fLazyStackFrameMode + ", base = " + fBaseTester + ") update tester"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            return "Delayed stack refresh (lazy = " + fLazyStackFrameMode + ", thread = " + fThreadDmc + ", base = " + fBaseTester + ") update tester"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
         }
 
 	}
@@ -104,12 +116,19 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
         
         private final boolean fRefreshAll;
         
-        ThreadsUpdateTester(IElementUpdateTester baseTester, boolean refreshAll) {
+        /** The thread of the event, or <code>null</code> if the event is not about a single thread */
+        private final IExecutionDMContext fThreadDmc;
+        
+        ThreadsUpdateTester(IElementUpdateTester baseTester, boolean refreshAll, IExecutionDMContext threadDmc) {
             fBaseTester = baseTester;
             fRefreshAll = refreshAll;
+            fThreadDmc = threadDmc;
         }
 
         public int getUpdateFlags(Object viewerInput, TreePath path) {
+            if (!fRefreshAll && isInOtherThread(path, fThreadDmc)) {
+                return 0;
+            }
             Object element = path.getSegmentCount() != 0 ? path.getLastSegment() : viewerInput;
             
             if (!fRefreshAll && element instanceof IDMVMContext) {
@@ -132,6 +151,9 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
             // actually clears the entries that were marked as dirty.
             if (tester instanceof ThreadsUpdateTester) {
                 ThreadsUpdateTester threadsTester = (ThreadsUpdateTester)tester;
+                if (!fRefreshAll && !includesThread(fThreadDmc, threadsTester.fThreadDmc)) {
+                    return false;
+                }
                 if (fRefreshAll) {
                     if (threadsTester.fRefreshAll) {
                         return fBaseTester.includes(threadsTester.fBaseTester);
@@ -149,11 +171,55 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
         
         @Override
         public String toString() {
-            return "Threads update tester (base = " + fBaseTester + ") update tester"; //$NON-NLS-1$ //$NON-NLS-2$ 
+            return "Threads update tester (thread = " + fThreadDmc + ", base = " + fBaseTester + ") update tester"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
         }
 	}
 
 	
+	/**
+	 * Returns whether the given path is in the sub-tree of another thread than
+	 * the given one.  The events about a thread don't change the elements of
+	 * the other threads, which need not be flushed when many threads suspend
+	 * or resume one after the other.
+	 */
+	private static boolean isInOtherThread(TreePath path, IExecutionDMContext threadDmc) {
+	    if (threadDmc == null) {
+	        return false;
+	    }
+	    for (int i = 0; i < path.getSegmentCount(); i++) {
+	        Object segment = path.getSegment(i);
+	        if (segment instanceof IDMVMContext) {
+	            IDMContext dmc = ((IDMVMContext) segment).getDMContext();
+	            if (dmc instanceof IExecutionDMContext && !(dmc instanceof IContainerDMContext)) {
+	                return !dmc.equals(threadDmc);
+	            }
+	        }
+	    }
+	    return false;
+	}
+
+	/**
+	 * Returns whether a flush for the first thread covers a flush for the second
+	 * one, where <code>null</code> stands for all the threads.
+	 */
+	private static boolean includesThread(IExecutionDMContext threadDmc, IExecutionDMContext otherThreadDmc) {
+	    return threadDmc == null || threadDmc.equals(otherThreadDmc);
+	}
+
+	/**
+	 * Returns the thread that the given event is about, or <code>null</code> if
+	 * the event is not about a single thread.
+	 */
+	private static IExecutionDMContext getThread(Object event) {
+	    if (event instanceof IDMEvent<?>) {
+	        IDMContext dmc = ((IDMEvent<?>) event).getDMContext();
+	        if (dmc instanceof IExecutionDMContext && !(dmc instanceof IContainerDMContext)) {
+	            return (IExecutionDMContext) dmc;
+	        }
+	    }
+	    return null;
+	}
+
 	public DelayedStackRefreshUpdatePolicy(IVMUpdatePolicy base) {
 		super(base);
 	}
@@ -161,16 +227,16 @@ public class DelayedStackRefreshUpdatePolicy extends UpdatePolicyDecorator {
 	@Override
 	public IElementUpdateTester getElementUpdateTester(Object event) {
 		if (event instanceof ISuspendedDMEvent) {
-			return new DelayedStackRefreshUpdateTester(getBaseUpdatePolicy().getElementUpdateTester(event), true);
+			return new DelayedStackRefreshUpdateTester(getBaseUpdatePolicy().getElementUpdateTester(event), true, getThread(event));
 		} else if (event instanceof FullStackRefreshEvent) {
-            return new DelayedStackRefreshUpdateTester(getBaseUpdatePolicy().getElementUpdateTester(event), false);
+            return new DelayedStackRefreshUpdateTester(getBaseUpdatePolicy().getElementUpdateTester(event), false, getThread(event));
 		} else if (event instanceof IExitedDMEvent &&
 		           ((IExitedDMEvent)event).getDMContext() instanceof IContainerDMContext) 
 		{
             // container exit should always trigger a refresh
-            return new ThreadsUpdateTester(super.getElementUpdateTester(event), true);
+            return new ThreadsUpdateTester(super.getElementUpdateTester(event), true, null);
 		} else {
-		    return new ThreadsUpdateTester(super.getElementUpdateTester(event), false);
+		    return new ThreadsUpdateTester(super.getElementUpdateTester(event), false, getThread(event));
 		}
 	}
 	
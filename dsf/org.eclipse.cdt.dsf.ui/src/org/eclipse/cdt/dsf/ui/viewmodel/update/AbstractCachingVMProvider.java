@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems and others.
+ * Copyright (c) 2007, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -86,6 +86,28 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
 
     private static final int MAX_CACHE_SIZE = 1000;
 
+    /**
+     * Default limit of the estimated size of the data in the cache, in bytes.
+     * @see #getMaxCacheWeight()
+     */
+    private static final long DEFAULT_MAX_CACHE_WEIGHT = 4 * 1024 * 1024;
+
+    /**
+     * Estimated sizes used by {@link #estimateEntryWeight(ICacheEntry)}: of an
+     * entry with its key and path, of a cached child (the child element itself
+     * is shared with the key of the child's entry), and of a cached property
+     * not counting the characters of string values.
+     */
+    private static final int ENTRY_WEIGHT = 160;
+    private static final int CHILD_WEIGHT = 40;
+    private static final int PROPERTY_WEIGHT = 40;
+
+    /**
+     * Largest number of children retrieved beyond the requested range when 
+     * the viewer asks for children that are next to children already cached.
+     */
+    private static final int MAX_CHILDREN_PREFETCH = 64;
+
 	/**
      * Class representing a key to an element's data in the cache.  The main
      * components of this key are the viewer input and the path, they uniquely
@@ -142,6 +164,11 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
     private static class Entry {
         final Object fKey;
         
+        /**
+         * Estimated size of the data held by this entry, in bytes.
+         */
+        int fWeight = 0;
+        
         Entry fNext;
         Entry fPrevious;
 
@@ -360,6 +387,35 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
     private IVMUpdatePolicy[] fAvailableUpdatePolicies;
 
     public Map<Object, RootElementMarkerKey> fRootMarkers = new HashMap<Object, RootElementMarkerKey>();
+
+    /**
+     * Hit and miss counts of the cache per node.
+     */
+    private static class CacheStatistics implements ICacheStatistics {
+        final IVMNode fNode;
+        int fHitCount = 0;
+        int fMissCount = 0;
+        
+        CacheStatistics(IVMNode node) {
+            fNode = node;
+        }
+
+        public IVMNode getNode() { return fNode; }
+        public int getHitCount() { return fHitCount; }
+        public int getMissCount() { return fMissCount; }
+
+        @Override
+        public String toString() {
+            return fNode + " hits=" + fHitCount + ", misses=" + fMissCount; //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+    
+    private final Map<IVMNode, CacheStatistics> fCacheStatistics = new HashMap<IVMNode, CacheStatistics>();
+    
+    /**
+     * Sum of the estimated sizes of the entries in the cache.
+     */
+    private long fCacheWeight = 0;
     
     /**
      * Hash map holding cache data.  To store the cache information, the cache uses a 
@@ -446,6 +502,75 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         return getElementDataEntry(key, false);
     }
     
+    /**
+     * @since 2.2
+     */
+    public ICacheStatistics getCacheStatistics(IVMNode node) {
+        return fCacheStatistics.get(node);
+    }
+    
+    /**
+     * @since 2.2
+     */
+    public long getCacheWeight() {
+        return fCacheWeight;
+    }
+
+    /**
+     * Returns the limit of the estimated size in bytes of the data cached by 
+     * this provider.  When the limit is exceeded, the least recently used 
+     * entries are removed.  Providers of views which show large amounts of 
+     * data may override this method to give their view a different quota.
+     * 
+     * @since 2.2
+     */
+    protected long getMaxCacheWeight() {
+        return DEFAULT_MAX_CACHE_WEIGHT;
+    }
+    
+    /**
+     * Estimates the size in bytes of the data held by the given cache entry.
+     * The default implementation counts a fixed size per entry, per child and
+     * per property, plus the characters of the string properties.
+     * 
+     * @since 2.2
+     */
+    protected int estimateEntryWeight(ICacheEntry entry) {
+        int weight = ENTRY_WEIGHT;
+        if (entry.getChildren() != null) {
+            weight += entry.getChildren().size() * CHILD_WEIGHT;
+        }
+        weight += estimatePropertiesWeight(entry.getProperties());
+        weight += estimatePropertiesWeight(entry.getArchiveProperties());
+        return weight;
+    }
+    
+    private int estimatePropertiesWeight(Map<String, Object> properties) {
+        int weight = 0;
+        if (properties != null) {
+            for (Object value : properties.values()) {
+                weight += PROPERTY_WEIGHT;
+                if (value instanceof String) {
+                    weight += ((String)value).length() * 2;
+                }
+            }
+        }
+        return weight;
+    }
+    
+    private void countCacheAccess(IVMNode node, boolean hit) {
+        CacheStatistics stats = fCacheStatistics.get(node);
+        if (stats == null) {
+            stats = new CacheStatistics(node);
+            fCacheStatistics.put(node, stats);
+        }
+        if (hit) {
+            stats.fHitCount++;
+        } else {
+            stats.fMissCount++;
+        }
+    }
+    
     @Override
     public void updateNode(final IVMNode node, IHasChildrenUpdate[] updates) {
         LinkedList <IHasChildrenUpdate> missUpdates = new LinkedList<IHasChildrenUpdate>();
@@ -456,6 +581,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             updateRootElementMarker(key.fRootElement, node, update);
             
             // Check if the cache entry has this request result cached. 
+            countCacheAccess(node, entry.fHasChildren != null);
             if (entry.fHasChildren != null) {
                 // Cache Hit!  Just return the value.
                 if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
@@ -505,6 +631,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
         updateRootElementMarker(key.fRootElement, node, update);
         
         // Check if the cache entry has this request result cached. 
+        countCacheAccess(node, entry.fChildrenCount != null);
         if(entry.fChildrenCount != null) {
             // Cache Hit!  Just return the value.
             if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
@@ -552,6 +679,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             // Need to retrieve all the children if there is no children information yet.
             // Or if the client requested all children (offset = -1, length -1) and all 
             // the children are not yet known.
+            countCacheAccess(node, false);
             IChildrenUpdate updateProxy = new VMChildrenUpdate(
                 update, update.getOffset(), update.getLength(),
                 new ViewerDataRequestMonitor<List<Object>>(getExecutor(), update){
@@ -586,6 +714,10 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                 update.setChild(child, offset);
                             }
                         }
+                        if (flushCounter == entry.fFlushCounter) {
+                            updateEntryWeight(entry);
+                            trimCache();
+                        }
                         update.done();
                     }
                     
@@ -608,6 +740,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
 
             // The following assert should never fail given the first if statement. 
             assert entry.fAllChildrenKnown;
+            countCacheAccess(node, true);
             
             // we have all of the children in cache; return from cache
             for(int position = 0; position < entry.fChildren.size(); position++) {
@@ -636,6 +769,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 DsfUIPlugin.debug("cachePartialHitChildren(node = " + node + ", update = " + update + ", missing = " + childrenMissingFromCache + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ 
             }
             
+            countCacheAccess(node, childrenMissingFromCache.isEmpty());
             if (childrenMissingFromCache.size() > 0) {
                 // Note: it is possible that entry.fAllChildrenKnown == true at this point.
                 // This can happen if the node's has children implementation returns true
@@ -646,18 +780,47 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             	
                 // Some children were not found in the cache, create separate 
                 // proxy updates for the continuous ranges of missing children.
+                // Since some of the children were cached, the viewer is most 
+                // likely scrolling: extend the ranges at either end of the 
+                // update to also retrieve the neighbouring children which are 
+                // not cached yet.
+                final int updateStart = update.getOffset();
+                final int updateEnd = update.getOffset() + update.getLength();
+                int prefetchLength = Math.min(update.getLength(), MAX_CHILDREN_PREFETCH);
                 List<IChildrenUpdate> partialUpdates = new ArrayList<IChildrenUpdate>(2);
                 final CountingRequestMonitor multiRm = new ViewerCountingRequestMonitor(getExecutor(), update);
                 while(childrenMissingFromCache.size() > 0)
                 {
-                    final int offset = childrenMissingFromCache.get(0);
+                    int missingOffset = childrenMissingFromCache.get(0);
                     childrenMissingFromCache.remove(0);
-                    int length = 1;
-                    while(childrenMissingFromCache.size() > 0 && childrenMissingFromCache.get(0) == offset + length)
+                    int missingLength = 1;
+                    while(childrenMissingFromCache.size() > 0 && childrenMissingFromCache.get(0) == missingOffset + missingLength)
                     {
-                        length++;
+                        missingLength++;
                         childrenMissingFromCache.remove(0);
                     }
+
+                    int rangeStart = missingOffset;
+                    int rangeEnd = missingOffset + missingLength;
+                    if (entry.fChildrenCount != null) {
+                        int childrenCount = entry.fChildrenCount.intValue();
+                        if (rangeEnd == updateEnd) {
+                            while (rangeEnd < updateEnd + prefetchLength && rangeEnd < childrenCount &&
+                                   !entry.fChildren.containsKey(rangeEnd)) 
+                            {
+                                rangeEnd++;
+                            }
+                        }
+                        if (rangeStart == updateStart) {
+                            while (rangeStart > updateStart - prefetchLength && rangeStart > 0 &&
+                                   !entry.fChildren.containsKey(rangeStart - 1)) 
+                            {
+                                rangeStart--;
+                            }
+                        }
+                    }
+                    final int offset = rangeStart;
+                    final int length = rangeEnd - rangeStart;
                     
                     partialUpdates.add(new VMChildrenUpdate(
                         update, offset, length,
@@ -674,13 +837,20 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                 
                                 for (int i = 0; i < getData().size(); i++) {
                                     if (getData().get(i) != null) {
-                                        update.setChild(getData().get(i), offset + i);
+                                        // Prefetched children are only saved to the cache.
+                                        if (offset + i >= updateStart && offset + i < updateEnd) {
+                                            update.setChild(getData().get(i), offset + i);
+                                        }
                                         if (flushCounter == entry.fFlushCounter) {
                                             // Only save the children to the cahce if the entry wasn't flushed.
                                             entry.fChildren.put(offset + i, getData().get(i));
                                         }
                                     }
                                 }
+                                if (flushCounter == entry.fFlushCounter) {
+                                    updateEntryWeight(entry);
+                                    trimCache();
+                                }
                                 multiRm.done();
                             }
                         }));
@@ -722,8 +892,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 // Use special handling for null contexts, which we treat like it's an
                 // ancestor of all other contexts.
                 if (flushKey.includes(entryFlushKey)) {
-                    fCacheData.remove(entryFlushKey);
-                    entry.remove();
+                    removeEntry(entry);
                 }
                 
                 // If the flush context in current entry includes the current context
@@ -751,8 +920,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                         // There is no archived data, which means that this entry is empty, so remove it from cache 
                         // completely.
                         if (elementDataEntry.fArchiveProperties == null) {
-                            fCacheData.remove(entry.fKey);
-                            entry.remove();
+                            removeEntry(entry);
                         }                        
                     } else {
                         // We are not changing the archived data.  If archive data exists in the entry, leave it.
@@ -760,8 +928,7 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                         if (elementDataEntry.fArchiveProperties != null) {
                             elementDataEntry.fProperties = null;
                         } else {
-                            fCacheData.remove(entry.fKey);
-                            entry.remove();
+                            removeEntry(entry);
                         }
                     }
                     elementDataEntry.fFlushCounter++;                    
@@ -770,12 +937,15 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                     elementDataEntry.fChildren = null;
                     elementDataEntry.fAllChildrenKnown = false;
                     elementDataEntry.fDirty = false;
+                    updateEntryWeight(elementDataEntry);
                 } else if ((updateFlags & IVMUpdatePolicy.FLUSH_ALL_PROPERTIES) != 0) {
                 	elementDataEntry.fProperties = null;
+                    updateEntryWeight(elementDataEntry);
                 } else if ((updateFlags & IVMUpdatePolicy.FLUSH_PARTIAL_PROPERTIES) != 0) {
                     Collection<String> propertiesToFlush = flushKey.getPropertiesToFlush(elementDataKey, elementDataEntry.fDirty);
                     if (propertiesToFlush != null && elementDataEntry.fProperties != null) {
                         elementDataEntry.fProperties.keySet().removeAll(propertiesToFlush);
+                        updateEntryWeight(elementDataEntry);
                     }
                 } else if ((updateFlags & IVMUpdatePolicy.DIRTY) != 0) {
                     elementDataEntry.fDirty = true;
@@ -1053,6 +1223,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                 entry.fProperties.put(PROP_CACHE_ENTRY_DIRTY, true);
                 entry.fDirty = true;
             }
+            if (entry != null) {
+                updateEntryWeight(entry);
+            }
         }
     }
     
@@ -1062,10 +1235,49 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
     private void addEntry(Object key, Entry entry) {
         fCacheData.put(key, entry);
         entry.insert(fCacheListHead);
-        // If we are at capacity in the cache, remove the entry from head.
-        if (fCacheData.size() > MAX_CACHE_SIZE) {
-            fCacheData.remove(fCacheListHead.fNext.fKey);
-            fCacheListHead.fNext.remove();
+        if (entry instanceof ElementDataEntry) {
+            updateEntryWeight((ElementDataEntry)entry);
+        }
+        trimCache();
+    }
+    
+    private void removeEntry(Entry entry) {
+        fCacheData.remove(entry.fKey);
+        entry.remove();
+        fCacheWeight -= entry.fWeight;
+        entry.fWeight = 0;
+    }
+
+    /**
+     * Re-estimates the size of the data in the given entry, if the entry is
+     * still in the cache.
+     */
+    private void updateEntryWeight(ElementDataEntry entry) {
+        if (fCacheData.get(entry.fKey) != entry) {
+            return;
+        }
+        int weight = estimateEntryWeight(entry);
+        fCacheWeight += weight - entry.fWeight;
+        entry.fWeight = weight;
+    }
+
+    /**
+     * Removes the least recently used entries while the cache is over its
+     * count or size limits.  The most recently used element data entry is
+     * always kept, even though the root element and flush markers are used
+     * after it.
+     */
+    private void trimCache() {
+        Entry mostRecentlyUsed = fCacheListHead.fPrevious;
+        while (!(mostRecentlyUsed instanceof ElementDataEntry) && mostRecentlyUsed.fPrevious != fCacheListHead) {
+            mostRecentlyUsed = mostRecentlyUsed.fPrevious;
+        }
+
+        long maxWeight = getMaxCacheWeight();
+        while ((fCacheData.size() > MAX_CACHE_SIZE || fCacheWeight > maxWeight) &&
+               fCacheListHead.fNext != mostRecentlyUsed)
+        {
+            removeEntry(fCacheListHead.fNext);
         }
     }
     
@@ -1149,7 +1361,9 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
             
             // The request can be retrieved from cache if all the properties that were requested in the update are 
             // found in the map.
-            if (entry.fProperties != null && entry.fProperties.keySet().containsAll(update.getProperties())) {
+            boolean hit = entry.fProperties != null && entry.fProperties.keySet().containsAll(update.getProperties());
+            countCacheAccess(node, hit);
+            if (hit) {
                 // Cache Hit!  Just return the value.
                 if (DEBUG_CACHE && (DEBUG_PRESENTATION_ID == null || getPresentationContext().getId().equals(DEBUG_PRESENTATION_ID))) {
                     DsfUIPlugin.debug("cacheHitProperties(node = " + node + ", update = " + update + ", " + entry.fProperties + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
@@ -1243,6 +1457,8 @@ public class AbstractCachingVMProvider extends AbstractVMProvider
                                 cachedStatus = PropertiesUpdateStatus.mergePropertiesStatus(
                                     cachedStatus, missUpdateStatus, _missingProperties);
                                 cachedProperties.put(PROP_UPDATE_STATUS, cachedStatus);
+                                updateEntryWeight(entry);
+                                trimCache();
                             } else {
                                 // We are not caching the result of this update, but we should still return valid data 
                                 // to the client.  In case the update was canceled we can also return valid data to the 
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.ui.viewmodel.update;
+
+import org.eclipse.cdt.dsf.concurrent.ConfinedToDsfExecutor;
+import org.eclipse.cdt.dsf.ui.viewmodel.IVMNode;
+
+/**
+ * Counts of the updates of a VM node that a caching VM provider answered 
+ * from its cache, and of those it had to forward to the node.
+ * 
+ * @see ICachingVMProviderExtension2
+ * 
+ * @since 2.2
+ */
+@ConfinedToDsfExecutor("")
+public interface ICacheStatistics {
+
+    /**
+     * The VM node that these statistics are for.
+     */
+    public IVMNode getNode();
+    
+    /**
+     * Returns the number of updates that were completed from the cache.
+     */
+    public int getHitCount();
+    
+    /**
+     * Returns the number of updates that were forwarded to the node, 
+     * entirely or for a part of the requested data.
+     */
+    public int getMissCount();
+}
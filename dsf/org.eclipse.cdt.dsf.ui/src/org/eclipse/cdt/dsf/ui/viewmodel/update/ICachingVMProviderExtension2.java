@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 Wind River Systems and others.
+ * Copyright (c) 2010, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,8 @@ import org.eclipse.jface.viewers.TreePath;
 
 
 /**
- * Extension allowing access to the caching VM provider cache entries.
+ * Extension allowing access to the caching VM provider cache entries and
+ * statistics.
  * 
  * @since 2.2
  */
@@ -26,5 +27,16 @@ public interface ICachingVMProviderExtension2 extends ICachingVMProvider {
      * if the cache entry does not exist in the cache.
      */
     public ICacheEntry getCacheEntry(IVMNode node, Object viewerInput, TreePath path);
+
+    /**
+     * Returns the hit and miss counts of the cache for the given node.  May 
+     * return <code>null</code> if the cache was never accessed for the node.
+     */
+    public ICacheStatistics getCacheStatistics(IVMNode node);
+
+    /**
+     * Returns the estimated size in bytes of the data held in the cache.
+     */
+    public long getCacheWeight();
     
 }
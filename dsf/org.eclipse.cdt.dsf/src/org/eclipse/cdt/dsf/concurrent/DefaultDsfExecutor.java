@@ -13,10 +13,12 @@ package org.eclipse.cdt.dsf.concurrent;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -49,6 +51,11 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
      * Name of the executor, used in the executor's thread name.
      */
     private String fName;
+
+    /**
+     * Statistics of the runnables executed by this executor.
+     */
+    private final DsfExecutorStatistics fStatistics = new DsfExecutorStatistics(this);
     
     /** Thread factory that creates the single thread to be used for this executor */
     static class DsfThreadFactory implements ThreadFactory {
@@ -77,11 +84,9 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
         super(1, new DsfThreadFactory(name + " - " + fgInstanceCounter++)); //$NON-NLS-1$
         fName = name;
         
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            // If tracing, pre-start the dispatch thread, and add it to the map.
-            prestartAllCoreThreads();
-            fThreadToExecutorMap.put(((DsfThreadFactory)getThreadFactory()).fThread, DefaultDsfExecutor.this);
-        }
+        // Pre-start the dispatch thread, and add it to the map.
+        prestartAllCoreThreads();
+        fThreadToExecutorMap.put(((DsfThreadFactory)getThreadFactory()).fThread, DefaultDsfExecutor.this);
     }
     
     public boolean isInExecutorThread() {
@@ -101,6 +106,14 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
     protected String getName() { 
         return fName;
     }
+
+    /**
+     * Returns the statistics of the runnables executed by this executor.
+     * @since 2.2
+     */
+    public DsfExecutorStatistics getStatistics() {
+        return fStatistics;
+    }
     
     static void logException(Throwable t) {
         DsfPlugin plugin = DsfPlugin.getDefault();
@@ -139,10 +152,19 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
 
     /** 
      * This map is used by DsfRunnable/Query/DsfCallable to track by which executor
-     * an executable object was created.
-     * <br>Note: Only used when tracing. 
+     * an executable object was created, and by the request monitors to find the
+     * statistics to which they report.
+     */
+    static Map<Thread, DefaultDsfExecutor> fThreadToExecutorMap = 
+        Collections.synchronizedMap(new HashMap<Thread, DefaultDsfExecutor>());
+
+    /**
+     * Returns the executor whose dispatch thread is the current thread, or
+     * <code>null</code> if not called in the thread of a DSF executor.
      */
-    static Map<Thread, DefaultDsfExecutor> fThreadToExecutorMap = new HashMap<Thread, DefaultDsfExecutor>();
+    static DefaultDsfExecutor getCurrentExecutor() {
+        return fThreadToExecutorMap.get(Thread.currentThread());
+    }
     
     /** 
      * Currently executing runnable/callable.
@@ -415,71 +437,82 @@ public class DefaultDsfExecutor extends ScheduledThreadPoolExecutor
         }
     }
 
-    @Override
-    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    /**
+     * Wraps the given callable for tracing and for the executor statistics.
+     * Every path which queues an executable goes through exactly one of the 
+     * wrap methods, so that it is traced and accounted only once.
+     */
+    private <V> Callable<V> wrap(Callable<V> callable, long delayNanos) {
         if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
             if ( !(callable instanceof TracingWrapper) ) {
                 callable = new TracingWrapperCallable<V>(callable);
             }
         }
-        return super.schedule(callable, delay, unit);
+        if (fStatistics.isEnabled()) {
+            callable = fStatistics.wrap(callable, delayNanos);
+            fStatistics.queued();
+        }
+        return callable;
+    }
+
+    private Runnable wrap(Runnable command, long delayNanos) {
+        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
+            if ( !(command instanceof TracingWrapper) ) {
+                command = new TracingWrapperRunnable(command);
+            }
+        }
+        if (fStatistics.isEnabled()) {
+            command = fStatistics.wrap(command, delayNanos);
+            fStatistics.queued();
+        }
+        return command;
     }
-     @Override
-     public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
-         if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-             if ( !(command instanceof TracingWrapper) ) {
-                 command = new TracingWrapperRunnable(command);
-             }
-         }
-         return super.schedule(command, delay, unit);
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return super.schedule(wrap(callable, unit.toNanos(delay)), delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return super.schedule(wrap(command, unit.toNanos(delay)), delay, unit);
     }
 
     @Override
     public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            command = new TracingWrapperRunnable(command);
-        }
-        return super.scheduleAtFixedRate(command, initialDelay, period, unit);
+        return super.scheduleAtFixedRate(wrap(command, unit.toNanos(initialDelay)), initialDelay, period, unit);
     }
 
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            command = new TracingWrapperRunnable(command);
-        }
-        return super.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        return super.scheduleWithFixedDelay(wrap(command, unit.toNanos(initialDelay)), initialDelay, delay, unit);
     }
     
+    // The super class implements execute() and submit() by calling schedule() 
+    // with a zero delay.  Call the super class schedule() directly here, 
+    // rather than relying on that, so that the executables are not wrapped 
+    // a second time by the overridden schedule() methods.
+    
     @Override
     public void execute(Runnable command) {
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            command = new TracingWrapperRunnable(command);
-        }
-        super.execute(command);
+        super.schedule(wrap(command, 0), 0, TimeUnit.NANOSECONDS);
     }     
     
     @Override
     public Future<?> submit(Runnable command) {
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            command = new TracingWrapperRunnable(command);
-        }
-        return super.submit(command);
+        return super.schedule(wrap(command, 0), 0, TimeUnit.NANOSECONDS);
     }
     
     @Override
     public <T> Future<T> submit(Callable<T> callable) {
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            callable = new TracingWrapperCallable<T>(callable);
-        }
-        return super.submit(callable);
+        return super.schedule(wrap(callable, 0), 0, TimeUnit.NANOSECONDS);
     }
     
     @Override
     public <T> Future<T> submit(Runnable command, T result) {
-        if(DEBUG_EXECUTOR || ASSERTIONS_ENABLED) {
-            command = new TracingWrapperRunnable(command);
-        }
-        return super.submit(command, result);
+        // Wrap the runnable rather than the adapting callable, so that it is 
+        // accounted to its own class.
+        return super.schedule(Executors.callable(wrap(command, 0), result), 0, TimeUnit.NANOSECONDS);
     }
     
     @Override
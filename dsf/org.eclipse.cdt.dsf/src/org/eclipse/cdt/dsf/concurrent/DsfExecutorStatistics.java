@@ -0,0 +1,548 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.dsf.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.eclipse.cdt.dsf.internal.DsfPlugin;
+import org.eclipse.core.runtime.Platform;
+
+/**
+ * Statistics of the runnables executed by a {@link DefaultDsfExecutor}.
+ * <p>
+ * The executor measures how long each runnable waited in the queue and how
+ * long it ran, and accumulates the times in histograms per class of the
+ * runnable, and per owner of that class.  The owner is the top-level class
+ * in which the runnable is declared, for the anonymous runnables and request
+ * monitors created by a service this is the service.  The completion of a
+ * request monitor is accounted to the class of the request monitor.  The
+ * statistics also keep the request monitor chains which took the longest
+ * from the creation of their root monitor to its completion.
+ * </p>
+ * <p>
+ * The statistics are collected unless disabled with {@link #setEnabled(boolean)},
+ * they cost two time stamps and a map look-up per runnable.  When the
+ * <code>org.eclipse.cdt.dsf/debug/slowRunnables</code> tracing option is set,
+ * each runnable that runs longer than
+ * <code>org.eclipse.cdt.dsf/debug/slowRunnablesThreshold</code> milliseconds
+ * is reported to the trace output, with the stack where it was created.
+ * </p>
+ *
+ * @since 2.2
+ */
+@ThreadSafe
+public class DsfExecutorStatistics {
+
+    /**
+     * Flag indicating that the runnables which run longer than the threshold
+     * are reported to the trace output.
+     */
+    static boolean DEBUG_SLOW_RUNNABLES = false;
+
+    /**
+     * Run time in nanoseconds above which a runnable is reported as slow.
+     */
+    static long SLOW_RUNNABLE_THRESHOLD = 50 * 1000000L;
+
+    static {
+        DEBUG_SLOW_RUNNABLES = DsfPlugin.DEBUG && "true".equals( //$NON-NLS-1$
+            Platform.getDebugOption("org.eclipse.cdt.dsf/debug/slowRunnables")); //$NON-NLS-1$
+        if (DEBUG_SLOW_RUNNABLES) {
+            String threshold = Platform.getDebugOption("org.eclipse.cdt.dsf/debug/slowRunnablesThreshold"); //$NON-NLS-1$
+            if (threshold != null) {
+                try {
+                    SLOW_RUNNABLE_THRESHOLD = Long.parseLong(threshold.trim()) * 1000000L;
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of request monitor chains kept by {@link #getLongestRequestMonitorChains()}.
+     */
+    public static final int MAX_REQUEST_MONITOR_CHAINS = 10;
+
+    /**
+     * Upper bounds of the buckets of the histograms, in nanoseconds.  The last
+     * bucket holds the times of one second and more.
+     */
+    private static final long[] BUCKET_BOUNDS = new long[] {
+        10 * 1000L, 100 * 1000L, 1000 * 1000L, 10 * 1000000L, 100 * 1000000L, 1000 * 1000000L };
+
+    /**
+     * Distribution of times in decimal buckets from 10 microseconds to one second.
+     */
+    public static class Histogram {
+        private final long[] fCounts;
+        private long fTotalTime;
+        private long fMaxTime;
+
+        Histogram() {
+            fCounts = new long[BUCKET_BOUNDS.length + 1];
+        }
+
+        Histogram(Histogram other) {
+            fCounts = new long[other.fCounts.length];
+            System.arraycopy(other.fCounts, 0, fCounts, 0, fCounts.length);
+            fTotalTime = other.fTotalTime;
+            fMaxTime = other.fMaxTime;
+        }
+
+        void add(long time) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && time >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            fCounts[bucket]++;
+            fTotalTime += time;
+            if (time > fMaxTime) {
+                fMaxTime = time;
+            }
+        }
+
+        /** Returns the number of buckets of this histogram. */
+        public int getBucketCount() {
+            return fCounts.length;
+        }
+
+        /**
+         * Returns the exclusive upper bound of the given bucket in nanoseconds,
+         * or <code>Long.MAX_VALUE</code> for the last bucket.
+         */
+        public long getBucketUpperBound(int bucket) {
+            return bucket < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[bucket] : Long.MAX_VALUE;
+        }
+
+        /** Returns the number of times that fell in the given bucket. */
+        public long getCount(int bucket) {
+            return fCounts[bucket];
+        }
+
+        /** Returns the number of times added to this histogram. */
+        public long getSampleCount() {
+            long count = 0;
+            for (long bucketCount : fCounts) {
+                count += bucketCount;
+            }
+            return count;
+        }
+
+        /** Returns the sum of the times added to this histogram, in nanoseconds. */
+        public long getTotalTime() {
+            return fTotalTime;
+        }
+
+        /** Returns the longest time added to this histogram, in nanoseconds. */
+        public long getMaxTime() {
+            return fMaxTime;
+        }
+    }
+
+    /**
+     * Wait time and run time of the runnables of one class, or of one owner.
+     */
+    public static class ExecutableStatistics {
+        private final String fName;
+        private final Histogram fWaitTime;
+        private final Histogram fRunTime;
+
+        ExecutableStatistics(String name) {
+            fName = name;
+            fWaitTime = new Histogram();
+            fRunTime = new Histogram();
+        }
+
+        ExecutableStatistics(ExecutableStatistics other) {
+            fName = other.fName;
+            fWaitTime = new Histogram(other.fWaitTime);
+            fRunTime = new Histogram(other.fRunTime);
+        }
+
+        /** Returns the name of the class or owner. */
+        public String getName() {
+            return fName;
+        }
+
+        /** Returns the times between the submission of the runnables and the start of their execution. */
+        public Histogram getWaitTime() {
+            return fWaitTime;
+        }
+
+        /** Returns the times the runnables took to run. */
+        public Histogram getRunTime() {
+            return fRunTime;
+        }
+    }
+
+    /**
+     * A chain of request monitors, recorded when its root monitor completed.
+     */
+    @Immutable
+    public static class RequestMonitorChain {
+        private final String fName;
+        private final int fLength;
+        private final long fDuration;
+        private final StackTraceWrapper fCreatedAt;
+
+        RequestMonitorChain(String name, int length, long duration, StackTraceWrapper createdAt) {
+            fName = name;
+            fLength = length;
+            fDuration = duration;
+            fCreatedAt = createdAt;
+        }
+
+        /** Returns the class name of the root request monitor. */
+        public String getName() {
+            return fName;
+        }
+
+        /** Returns the number of request monitors on the longest path from the root. */
+        public int getLength() {
+            return fLength;
+        }
+
+        /** Returns the time from the creation of the root monitor to its completion, in nanoseconds. */
+        public long getDuration() {
+            return fDuration;
+        }
+
+        /**
+         * Returns the stack where the root monitor was created, or <code>null</code>
+         * if the creation stacks are not recorded.
+         */
+        public String getCreatedAt() {
+            return fCreatedAt != null ? fCreatedAt.toString() : null;
+        }
+    }
+
+    /**
+     * Statistics of a class of runnables, with a reference to the statistics
+     * of its owner so that one look-up per execution is enough.
+     */
+    private static class ClassStatistics extends ExecutableStatistics {
+        final ExecutableStatistics fOwner;
+
+        ClassStatistics(String name, ExecutableStatistics owner) {
+            super(name);
+            fOwner = owner;
+        }
+    }
+
+    private final DefaultDsfExecutor fExecutor;
+    private volatile boolean fEnabled = true;
+
+    private final Map<Class<?>, ClassStatistics> fClassStatistics = new HashMap<Class<?>, ClassStatistics>();
+    private final Map<String, ExecutableStatistics> fOwnerStatistics = new HashMap<String, ExecutableStatistics>();
+    private final List<RequestMonitorChain> fLongestChains = new ArrayList<RequestMonitorChain>();
+    private int fMaxQueueDepth;
+
+    DsfExecutorStatistics(DefaultDsfExecutor executor) {
+        fExecutor = executor;
+    }
+
+    /**
+     * Returns whether the statistics are collected.
+     */
+    public boolean isEnabled() {
+        return fEnabled;
+    }
+
+    /**
+     * Enables or disables the collection of the statistics.  Runnables
+     * submitted while the collection is disabled are not accounted.
+     */
+    public void setEnabled(boolean enabled) {
+        fEnabled = enabled;
+    }
+
+    /**
+     * Returns the number of runnables waiting in the queue of the executor,
+     * including the ones scheduled with a delay.
+     */
+    public int getQueueDepth() {
+        return fExecutor.getQueue().size();
+    }
+
+    /**
+     * Returns the largest number of runnables that were waiting in the queue
+     * when a runnable was submitted.
+     */
+    public synchronized int getMaxQueueDepth() {
+        return fMaxQueueDepth;
+    }
+
+    /**
+     * Returns the statistics per class of runnable, the longest total run time first.
+     */
+    public synchronized List<ExecutableStatistics> getExecutableStatistics() {
+        return copyAndSort(fClassStatistics.values());
+    }
+
+    /**
+     * Returns the statistics per owner of the runnables, the longest total run time first.
+     */
+    public synchronized List<ExecutableStatistics> getOwnerStatistics() {
+        return copyAndSort(fOwnerStatistics.values());
+    }
+
+    /**
+     * Returns the request monitor chains that took the longest, the longest first.
+     */
+    public synchronized List<RequestMonitorChain> getLongestRequestMonitorChains() {
+        return new ArrayList<RequestMonitorChain>(fLongestChains);
+    }
+
+    /**
+     * Discards the statistics collected so far.
+     */
+    public synchronized void reset() {
+        fClassStatistics.clear();
+        fOwnerStatistics.clear();
+        fLongestChains.clear();
+        fMaxQueueDepth = 0;
+    }
+
+    private List<ExecutableStatistics> copyAndSort(Iterable<? extends ExecutableStatistics> statistics) {
+        List<ExecutableStatistics> result = new ArrayList<ExecutableStatistics>();
+        for (ExecutableStatistics stats : statistics) {
+            result.add(new ExecutableStatistics(stats));
+        }
+        Collections.sort(result, new Comparator<ExecutableStatistics>() {
+            public int compare(ExecutableStatistics o1, ExecutableStatistics o2) {
+                long t1 = o1.getRunTime().getTotalTime();
+                long t2 = o2.getRunTime().getTotalTime();
+                return t1 < t2 ? 1 : (t1 > t2 ? -1 : 0);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns a report of the statistics, as shown by the executor statistics view.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Queue depth: ").append(getQueueDepth()); //$NON-NLS-1$
+        builder.append(", max: ").append(getMaxQueueDepth()).append('\n'); //$NON-NLS-1$
+
+        builder.append("\nRun time by owner:\n"); //$NON-NLS-1$
+        appendStatistics(builder, getOwnerStatistics());
+        builder.append("\nRun time by runnable class:\n"); //$NON-NLS-1$
+        appendStatistics(builder, getExecutableStatistics());
+
+        builder.append("\nLongest request monitor chains:\n"); //$NON-NLS-1$
+        for (RequestMonitorChain chain : getLongestRequestMonitorChains()) {
+            builder.append('\t').append(formatTime(chain.getDuration()));
+            builder.append("\tlength ").append(chain.getLength()); //$NON-NLS-1$
+            builder.append('\t').append(chain.getName()).append('\n');
+            if (chain.getCreatedAt() != null) {
+                builder.append(chain.getCreatedAt()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private void appendStatistics(StringBuilder builder, List<ExecutableStatistics> statistics) {
+        for (ExecutableStatistics stats : statistics) {
+            builder.append('\t').append(stats.getName()).append('\n');
+            appendHistogram(builder, "run ", stats.getRunTime()); //$NON-NLS-1$
+            appendHistogram(builder, "wait", stats.getWaitTime()); //$NON-NLS-1$
+        }
+    }
+
+    private void appendHistogram(StringBuilder builder, String label, Histogram histogram) {
+        long count = histogram.getSampleCount();
+        builder.append("\t\t").append(label); //$NON-NLS-1$
+        builder.append("  count ").append(count); //$NON-NLS-1$
+        builder.append("  total ").append(formatTime(histogram.getTotalTime())); //$NON-NLS-1$
+        builder.append("  max ").append(formatTime(histogram.getMaxTime())); //$NON-NLS-1$
+        builder.append("  ["); //$NON-NLS-1$
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            if (i > 0) builder.append(' ');
+            builder.append(histogram.getCount(i));
+        }
+        builder.append("]\n"); //$NON-NLS-1$
+    }
+
+    private static String formatTime(long nanos) {
+        if (nanos < 1000000L) {
+            return (nanos / 1000) + "us"; //$NON-NLS-1$
+        }
+        return (nanos / 1000000L) + "ms"; //$NON-NLS-1$
+    }
+
+    //
+    // Collection, called by the executor and the request monitors.
+    //
+
+    Runnable wrap(Runnable runnable, long delay) {
+        return new StatisticsWrapperRunnable(runnable, delay);
+    }
+
+    <V> Callable<V> wrap(Callable<V> callable, long delay) {
+        return new StatisticsWrapperCallable<V>(callable, delay);
+    }
+
+    void queued() {
+        int depth = fExecutor.getQueue().size();
+        synchronized (this) {
+            if (depth > fMaxQueueDepth) {
+                fMaxQueueDepth = depth;
+            }
+        }
+    }
+
+    void executed(Object executable, long waitTime, long runTime) {
+        // Account the completion of a request monitor to the monitor
+        Object accounted = executable;
+        if (accounted instanceof DefaultDsfExecutor.TracingWrapper) {
+            accounted = ((DefaultDsfExecutor.TracingWrapper)accounted).getExecutable();
+        }
+        if (accounted instanceof RequestMonitor.CompletedRunnable) {
+            accounted = ((RequestMonitor.CompletedRunnable)accounted).getRequestMonitor();
+        }
+
+        synchronized (this) {
+            ClassStatistics stats = getClassStatistics(accounted.getClass());
+            if (waitTime >= 0) {
+                stats.getWaitTime().add(waitTime);
+                stats.fOwner.getWaitTime().add(waitTime);
+            }
+            stats.getRunTime().add(runTime);
+            stats.fOwner.getRunTime().add(runTime);
+        }
+
+        if (DEBUG_SLOW_RUNNABLES && runTime >= SLOW_RUNNABLE_THRESHOLD) {
+            traceSlowRunnable(accounted, waitTime, runTime);
+        }
+    }
+
+    synchronized void requestMonitorChainCompleted(RequestMonitor rm, int length, long duration) {
+        int size = fLongestChains.size();
+        if (size == MAX_REQUEST_MONITOR_CHAINS && fLongestChains.get(size - 1).getDuration() >= duration) {
+            return;
+        }
+        int index = 0;
+        while (index < size && fLongestChains.get(index).getDuration() >= duration) {
+            index++;
+        }
+        fLongestChains.add(index, new RequestMonitorChain(rm.getClass().getName(), length, duration, rm.fCreatedAt));
+        if (fLongestChains.size() > MAX_REQUEST_MONITOR_CHAINS) {
+            fLongestChains.remove(MAX_REQUEST_MONITOR_CHAINS);
+        }
+    }
+
+    private ClassStatistics getClassStatistics(Class<?> executableClass) {
+        ClassStatistics stats = fClassStatistics.get(executableClass);
+        if (stats == null) {
+            Class<?> ownerClass = executableClass;
+            while (ownerClass.getEnclosingClass() != null) {
+                ownerClass = ownerClass.getEnclosingClass();
+            }
+            ExecutableStatistics owner = fOwnerStatistics.get(ownerClass.getName());
+            if (owner == null) {
+                owner = new ExecutableStatistics(ownerClass.getName());
+                fOwnerStatistics.put(ownerClass.getName(), owner);
+            }
+            stats = new ClassStatistics(executableClass.getName(), owner);
+            fClassStatistics.put(executableClass, stats);
+        }
+        return stats;
+    }
+
+    private void traceSlowRunnable(Object executable, long waitTime, long runTime) {
+        StringBuilder traceBuilder = new StringBuilder();
+        traceBuilder.append(DsfPlugin.getDebugTime());
+        traceBuilder.append(" Slow DSF runnable in executor ("); //$NON-NLS-1$
+        traceBuilder.append(fExecutor.getName());
+        traceBuilder.append("): ran "); //$NON-NLS-1$
+        traceBuilder.append(formatTime(runTime));
+        if (waitTime >= 0) {
+            traceBuilder.append(" after waiting "); //$NON-NLS-1$
+            traceBuilder.append(formatTime(waitTime));
+        }
+        traceBuilder.append("\n\t"); //$NON-NLS-1$
+        traceBuilder.append(executable.getClass().getName());
+        if (executable instanceof DsfExecutable && ((DsfExecutable)executable).fCreatedAt != null) {
+            traceBuilder.append("\n\tcreated at:\n"); //$NON-NLS-1$
+            traceBuilder.append(((DsfExecutable)executable).fCreatedAt);
+        }
+        DsfPlugin.debug(traceBuilder.toString());
+    }
+
+    /**
+     * Base of the wrappers which time the execution of a runnable or callable.
+     */
+    private abstract class StatisticsWrapper {
+        /** Time at which the executable is due to run, or -1 after its first run. */
+        private long fDueTime;
+
+        StatisticsWrapper(long delay) {
+            fDueTime = System.nanoTime() + delay;
+        }
+
+        long start() {
+            return System.nanoTime();
+        }
+
+        void done(Object executable, long start) {
+            long end = System.nanoTime();
+            // Periodic runnables have no meaningful wait time after the first run.
+            long waitTime = fDueTime >= 0 ? Math.max(0, start - fDueTime) : -1;
+            fDueTime = -1;
+            executed(executable, waitTime, end - start);
+        }
+    }
+
+    private class StatisticsWrapperRunnable extends StatisticsWrapper implements Runnable {
+        private final Runnable fRunnable;
+
+        StatisticsWrapperRunnable(Runnable runnable, long delay) {
+            super(delay);
+            fRunnable = runnable;
+        }
+
+        public void run() {
+            long start = start();
+            try {
+                fRunnable.run();
+            } finally {
+                done(fRunnable, start);
+            }
+        }
+    }
+
+    private class StatisticsWrapperCallable<V> extends StatisticsWrapper implements Callable<V> {
+        private final Callable<V> fCallable;
+
+        StatisticsWrapperCallable(Callable<V> callable, long delay) {
+            super(delay);
+            fCallable = callable;
+        }
+
+        public V call() throws Exception {
+            long start = start();
+            try {
+                return fCallable.call();
+            } finally {
+                done(fCallable, start);
+            }
+        }
+    }
+}
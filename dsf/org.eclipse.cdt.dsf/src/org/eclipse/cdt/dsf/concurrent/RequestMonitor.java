@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 Wind River Systems and others.
+ * Copyright (c) 2006, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -112,6 +112,16 @@ public class RequestMonitor extends DsfExecutable {
     private boolean fDone = false;
 
     private final ICanceledListener fCanceledListener;
+
+    /**
+     * Creation time of this monitor, the first monitor of the chain, the number
+     * of monitors from the root to this one, and on the root the largest such 
+     * number in the chain.  Used for the executor statistics.
+     */
+    private final long fCreationTime;
+    private final RequestMonitor fChainRoot;
+    private final int fChainLength;
+    private int fMaxChainLength;
     
 	/**
 	 * This field is never read by any code; its purpose is strictly to assist
@@ -158,6 +168,18 @@ public class RequestMonitor extends DsfExecutable {
             fCanceledListener = null;
         }
         
+        fCreationTime = System.nanoTime();
+        if (fParentRequestMonitor != null) {
+            fChainRoot = fParentRequestMonitor.fChainRoot;
+            fChainLength = fParentRequestMonitor.fChainLength + 1;
+        } else {
+            fChainRoot = this;
+            fChainLength = 1;
+        }
+        if (fChainLength > fChainRoot.fMaxChainLength) {
+            fChainRoot.fMaxChainLength = fChainLength;
+        }
+
         if (DEBUG_MONITORS) {
         	createMonitorBacktrace();
         }
@@ -290,23 +312,50 @@ public class RequestMonitor extends DsfExecutable {
         
         if (fParentRequestMonitor != null) {
             fParentRequestMonitor.removeCancelListener(fCanceledListener);
+        } else {
+            reportChainCompleted();
         }
         
         try {
-            fExecutor.execute(new DsfRunnable() {
-                public void run() {
-                    RequestMonitor.this.handleCompleted();
-                }
-                @Override
-                public String toString() {
-                    return "Completed: " + RequestMonitor.this.toString(); //$NON-NLS-1$
-                }
-            });
+            fExecutor.execute(new CompletedRunnable());
         } catch (RejectedExecutionException e) {
             handleRejectedExecutionException();
         }
     }
 
+    /**
+     * Runnable which calls the completion handler, the executor statistics
+     * account it to the class of the monitor.
+     */
+    class CompletedRunnable extends DsfRunnable {
+        RequestMonitor getRequestMonitor() {
+            return RequestMonitor.this;
+        }
+
+        public void run() {
+            RequestMonitor.this.handleCompleted();
+        }
+
+        @Override
+        public String toString() {
+            return "Completed: " + RequestMonitor.this.toString(); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Reports the completion of the chain of which this monitor is the root to
+     * the statistics of its executor, or of the executor of the current thread
+     * if this monitor completes in another executor.
+     */
+    private void reportChainCompleted() {
+        DefaultDsfExecutor executor = fExecutor instanceof DefaultDsfExecutor 
+            ? (DefaultDsfExecutor)fExecutor : DefaultDsfExecutor.getCurrentExecutor();
+        if (executor != null && executor.getStatistics().isEnabled()) {
+            executor.getStatistics().requestMonitorChainCompleted(
+                this, fMaxChainLength, System.nanoTime() - fCreationTime);
+        }
+    }
+
     @Override
     public String toString() {
         return "RequestMonitor (" + super.toString() + "): " + getStatus().toString(); //$NON-NLS-1$ //$NON-NLS-2$
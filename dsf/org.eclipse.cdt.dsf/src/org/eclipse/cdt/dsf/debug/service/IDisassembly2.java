@@ -1,5 +1,5 @@
 /*****************************************************************
- * Copyright (c) 2010 Texas Instruments and others
+ * Copyright (c) 2010, 2011 Texas Instruments and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -7,12 +7,14 @@
  *
  * Contributors:
  *     Patrick Chuong (Texas Instruments) - Bug 328168
+ *     Wind River Systems - Disassembly changed event
  *****************************************************************/
 package org.eclipse.cdt.dsf.debug.service;
 
 import java.math.BigInteger;
 
 import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.IDMEvent;
 
 /**
  * This interface extends the disassembly service with support for
@@ -21,6 +23,24 @@ import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
  * @since 2.2
  */
 public interface IDisassembly2 extends IDisassembly {
+	/**
+	 * Event indicating that the disassembly of an address range differs from what
+	 * the service returned earlier, for example because the service answered from
+	 * a cache that the back end has since contradicted.  Clients should request the
+	 * disassembly of the range again.
+	 */
+	public interface IDisassemblyChangedDMEvent extends IDMEvent<IDisassemblyDMContext> {
+		/**
+		 * @return the first address of the changed range
+		 */
+		BigInteger getStartAddress();
+
+		/**
+		 * @return the address following the changed range
+		 */
+		BigInteger getEndAddress();
+	}
+
 	/**
 	 * Aligns the given opCode address. This method will be call for each
 	 * disassembly request, the service should try to resolve 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 Wind River Systems and others.
+ * Copyright (c) 2007, 2011 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -456,13 +456,15 @@ public class CommandCache implements ICommandListener
                                 V subResult = (V)result.getSubsetResult(waitingEntry.getCommand());
                                 CommandResultInfo subResultInfo = new CommandResultInfo(subResult, status);
                                 
-                                if(fCachedContexts.get(context) != null){
-                                	fCachedContexts.get(context).put(waitingEntry, subResultInfo);
-                                } else {
-                                	HashMap<CommandInfo, CommandResultInfo> map = new HashMap<CommandInfo, CommandResultInfo>();
-                                	map.put(waitingEntry, subResultInfo);
-                                	fCachedContexts.put(context, map);
-                                }	
+                                if (isCacheable(status)) {
+                                	if(fCachedContexts.get(context) != null){
+                                		fCachedContexts.get(context).put(waitingEntry, subResultInfo);
+                                	} else {
+                                		HashMap<CommandInfo, CommandResultInfo> map = new HashMap<CommandInfo, CommandResultInfo>();
+                                		map.put(waitingEntry, subResultInfo);
+                                		fCachedContexts.put(context, map);
+                                	}
+                                }
 
                                 if (!isSuccess()) {
                                     
@@ -494,7 +496,7 @@ public class CommandCache implements ICommandListener
                     } else {
                     	// Save the command result in cache, but only if the command's context 
                     	// is still available.  Otherwise an error may get cached incorrectly.
-                    	if (isTargetAvailable(context)) {
+                    	if (isTargetAvailable(context) && isCacheable(status)) {
                     		CommandResultInfo resultInfo = new CommandResultInfo(result, status);
 
                     		if (fCachedContexts.get(context) != null){
@@ -535,6 +537,16 @@ public class CommandCache implements ICommandListener
         });
     }
 
+    /**
+     * Returns whether a command which completed with the given status may be cached.  
+     * A command which failed with {@link IDsfStatusConstants#INVALID_STATE} was not 
+     * processed by the back end, e.g. because the target resumed before the command 
+     * was sent, and it may succeed when it is sent again.
+     */
+    private boolean isCacheable(IStatus status) {
+        return status.isOK() || status.getCode() != IDsfStatusConstants.INVALID_STATE;
+    }
+
     /**
      * TODO
      */
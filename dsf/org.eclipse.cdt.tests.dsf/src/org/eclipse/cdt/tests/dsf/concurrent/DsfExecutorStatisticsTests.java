@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutorStatistics;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutorStatistics.ExecutableStatistics;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutorStatistics.RequestMonitorChain;
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.tests.dsf.TestDsfExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the statistics collected by the DSF executor.
+ */
+public class DsfExecutorStatisticsTests {
+    TestDsfExecutor fExecutor;
+
+    static class SlowRunnable extends DsfRunnable {
+        public void run() {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    static class CountedRunnable extends DsfRunnable {
+        public void run() {}
+    }
+
+    static class CountedCallable implements Callable<Object> {
+        public Object call() { return null; }
+    }
+
+    @Before
+    public void startExecutor() {
+        fExecutor = new TestDsfExecutor();
+    }
+
+    @After
+    public void shutdownExecutor() throws ExecutionException, InterruptedException {
+        fExecutor.submit(new DsfRunnable() { public void run() {
+            fExecutor.shutdown();
+        }}).get();
+        if (fExecutor.exceptionsCaught()) {
+            Throwable[] exceptions = fExecutor.getExceptions();
+            throw new ExecutionException(exceptions[0]);
+        }
+        fExecutor = null;
+    }
+
+    private ExecutableStatistics find(List<ExecutableStatistics> statistics, Class<?> executableClass) {
+        for (ExecutableStatistics stats : statistics) {
+            if (stats.getName().equals(executableClass.getName())) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void runTimeTest() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < 3; i++) {
+            fExecutor.execute(new SlowRunnable());
+        }
+        fExecutor.submit(new DsfRunnable() { public void run() {} }).get();
+
+        DsfExecutorStatistics statistics = fExecutor.getStatistics();
+        ExecutableStatistics stats = find(statistics.getExecutableStatistics(), SlowRunnable.class);
+        Assert.assertNotNull(stats);
+        Assert.assertEquals(3, stats.getRunTime().getSampleCount());
+        Assert.assertEquals(3, stats.getWaitTime().getSampleCount());
+        Assert.assertTrue(stats.getRunTime().getTotalTime() >= TimeUnit.MILLISECONDS.toNanos(60));
+        // The last runnable waited for the two before it.
+        Assert.assertTrue(stats.getWaitTime().getMaxTime() >= TimeUnit.MILLISECONDS.toNanos(30));
+        Assert.assertTrue(statistics.getMaxQueueDepth() >= 1);
+
+        // The runnables are declared in this test, which is their owner.
+        ExecutableStatistics owner = find(statistics.getOwnerStatistics(), DsfExecutorStatisticsTests.class);
+        Assert.assertNotNull(owner);
+        Assert.assertEquals(4, owner.getRunTime().getSampleCount());
+
+        statistics.reset();
+        Assert.assertNull(find(statistics.getExecutableStatistics(), SlowRunnable.class));
+    }
+
+    @Test
+    public void countTest() throws InterruptedException, ExecutionException {
+        final int count = 10;
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < count; i++) {
+            fExecutor.execute(new CountedRunnable());
+            futures.add(fExecutor.submit(new CountedRunnable()));
+            futures.add(fExecutor.submit(new CountedRunnable(), Boolean.TRUE));
+            futures.add(fExecutor.submit(new CountedCallable()));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        // Wait for the executed runnables, which have no future.
+        fExecutor.submit(new DsfRunnable() { public void run() {} }).get();
+
+        List<ExecutableStatistics> executableStatistics = fExecutor.getStatistics().getExecutableStatistics();
+        ExecutableStatistics runnableStats = find(executableStatistics, CountedRunnable.class);
+        Assert.assertNotNull(runnableStats);
+        Assert.assertEquals(3 * count, runnableStats.getRunTime().getSampleCount());
+        Assert.assertEquals(3 * count, runnableStats.getWaitTime().getSampleCount());
+        ExecutableStatistics callableStats = find(executableStatistics, CountedCallable.class);
+        Assert.assertNotNull(callableStats);
+        Assert.assertEquals(count, callableStats.getRunTime().getSampleCount());
+
+        // Each executable is accounted exactly once, and never to a wrapper.
+        int total = 0;
+        for (ExecutableStatistics stats : executableStatistics) {
+            Assert.assertFalse(stats.getName(), stats.getName().startsWith(DsfExecutorStatistics.class.getName()));
+            Assert.assertFalse(stats.getName(), stats.getName().startsWith(DefaultDsfExecutor.class.getName()));
+            Assert.assertFalse(stats.getName(), stats.getName().startsWith("java.util.concurrent."));
+            total += stats.getRunTime().getSampleCount();
+        }
+        // The runnables above, plus the one waited for.
+        Assert.assertEquals(4 * count + 1, total);
+    }
+
+    @Test
+    public void disabledTest() throws InterruptedException, ExecutionException {
+        DsfExecutorStatistics statistics = fExecutor.getStatistics();
+        statistics.setEnabled(false);
+        fExecutor.submit(new SlowRunnable()).get();
+        Assert.assertNull(find(statistics.getExecutableStatistics(), SlowRunnable.class));
+        statistics.setEnabled(true);
+    }
+
+    @Test
+    public void requestMonitorChainTest() throws InterruptedException, ExecutionException {
+        final RequestMonitor root = new RequestMonitor(fExecutor, null);
+        fExecutor.submit(new DsfRunnable() { public void run() {
+            RequestMonitor child = new RequestMonitor(fExecutor, root);
+            RequestMonitor grandChild = new RequestMonitor(fExecutor, child);
+            grandChild.done();
+        }}).get();
+        Thread.sleep(20);
+        fExecutor.submit(new DsfRunnable() { public void run() {} }).get();
+        Assert.assertTrue(root.isSuccess());
+
+        List<RequestMonitorChain> chains = fExecutor.getStatistics().getLongestRequestMonitorChains();
+        Assert.assertEquals(1, chains.size());
+        Assert.assertEquals(3, chains.get(0).getLength());
+        Assert.assertEquals(RequestMonitor.class.getName(), chains.get(0).getName());
+    }
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.debug.vm.launch;
+
+import org.eclipse.cdt.dsf.concurrent.DefaultDsfExecutor;
+import org.eclipse.cdt.dsf.concurrent.DsfExecutor;
+import org.eclipse.cdt.dsf.datamodel.AbstractDMContext;
+import org.eclipse.cdt.dsf.datamodel.AbstractDMEvent;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IContainerDMContext;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IExecutionDMContext;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IExitedDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IResumedDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.ISuspendedDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.StateChangeReason;
+import org.eclipse.cdt.dsf.debug.service.IStack.IFrameDMContext;
+import org.eclipse.cdt.dsf.debug.ui.viewmodel.launch.DelayedStackRefreshUpdatePolicy;
+import org.eclipse.cdt.dsf.debug.ui.viewmodel.launch.FullStackRefreshEvent;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.cdt.dsf.ui.viewmodel.AbstractVMContext;
+import org.eclipse.cdt.dsf.ui.viewmodel.datamodel.IDMVMContext;
+import org.eclipse.cdt.dsf.ui.viewmodel.update.AutomaticUpdatePolicy;
+import org.eclipse.cdt.dsf.ui.viewmodel.update.IElementUpdateTester;
+import org.eclipse.cdt.dsf.ui.viewmodel.update.IVMUpdatePolicy;
+import org.eclipse.jface.viewers.TreePath;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the update testers of the delayed stack refresh policy, which flush only
+ * the cache entries of the thread that an event is about.
+ */
+public class DelayedStackRefreshUpdatePolicyTest {
+
+    private static class TestDMContext extends AbstractDMContext {
+        final int fId;
+
+        TestDMContext(String sessionId, IDMContext parent, int id) {
+            super(sessionId, parent == null ? new IDMContext[0] : new IDMContext[] { parent });
+            fId = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return baseEquals(obj) && ((TestDMContext)obj).fId == fId;
+        }
+
+        @Override
+        public int hashCode() {
+            return baseHashCode() + fId;
+        }
+
+        @Override
+        public String toString() {
+            return baseToString() + "." + getClass().getSimpleName() + "[" + fId + "]";
+        }
+    }
+
+    private static class ContainerDMContext extends TestDMContext implements IContainerDMContext {
+        ContainerDMContext(String sessionId) {
+            super(sessionId, null, 0);
+        }
+    }
+
+    private static class ThreadDMContext extends TestDMContext implements IExecutionDMContext {
+        ThreadDMContext(IContainerDMContext container, int id) {
+            super(container.getSessionId(), container, id);
+        }
+    }
+
+    private static class FrameDMContext extends TestDMContext implements IFrameDMContext {
+        FrameDMContext(IExecutionDMContext thread, int level) {
+            super(thread.getSessionId(), thread, level);
+        }
+
+        public int getLevel() {
+            return fId;
+        }
+    }
+
+    private static class TestVMContext extends AbstractVMContext implements IDMVMContext {
+        private final IDMContext fDmc;
+
+        TestVMContext(IDMContext dmc) {
+            super(null);
+            fDmc = dmc;
+        }
+
+        public IDMContext getDMContext() {
+            return fDmc;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TestVMContext && ((TestVMContext)obj).fDmc.equals(fDmc);
+        }
+
+        @Override
+        public int hashCode() {
+            return fDmc.hashCode();
+        }
+    }
+
+    private static class SuspendedEvent extends AbstractDMEvent<IExecutionDMContext> implements ISuspendedDMEvent {
+        SuspendedEvent(IExecutionDMContext dmc) {
+            super(dmc);
+        }
+
+        public StateChangeReason getReason() {
+            return StateChangeReason.STEP;
+        }
+    }
+
+    private static class ResumedEvent extends AbstractDMEvent<IExecutionDMContext> implements IResumedDMEvent {
+        ResumedEvent(IExecutionDMContext dmc) {
+            super(dmc);
+        }
+
+        public StateChangeReason getReason() {
+            return StateChangeReason.STEP;
+        }
+    }
+
+    private static class ExitedEvent extends AbstractDMEvent<IExecutionDMContext> implements IExitedDMEvent {
+        ExitedEvent(IExecutionDMContext dmc) {
+            super(dmc);
+        }
+    }
+
+    private final IVMUpdatePolicy fPolicy = new DelayedStackRefreshUpdatePolicy(new AutomaticUpdatePolicy());
+
+    private DsfExecutor fDsfExecutor;
+    private DsfSession fDsfSession;
+    private ContainerDMContext fContainer;
+    private ThreadDMContext fThread1;
+    private ThreadDMContext fThread2;
+
+    @Before
+    public void startSession() {
+        fDsfExecutor = new DefaultDsfExecutor();
+        fDsfSession = DsfSession.startSession(fDsfExecutor, getClass().getName());
+        fContainer = new ContainerDMContext(fDsfSession.getId());
+        fThread1 = new ThreadDMContext(fContainer, 1);
+        fThread2 = new ThreadDMContext(fContainer, 2);
+    }
+
+    @After
+    public void endSession() {
+        DsfSession.endSession(fDsfSession);
+        fDsfExecutor.shutdown();
+    }
+
+    /**
+     * Returns the path of the view model elements from the container down to the given contexts.
+     */
+    private TreePath path(IDMContext... dmcs) {
+        Object[] segments = new Object[dmcs.length + 1];
+        segments[0] = new TestVMContext(fContainer);
+        for (int i = 0; i < dmcs.length; i++) {
+            segments[i + 1] = new TestVMContext(dmcs[i]);
+        }
+        return new TreePath(segments);
+    }
+
+    @Test
+    public void suspendedThreadTest() {
+        IElementUpdateTester tester = fPolicy.getElementUpdateTester(new SuspendedEvent(fThread1));
+
+        // The elements of the other threads are left alone
+        Assert.assertEquals(0, tester.getUpdateFlags(null, path(fThread2)));
+        Assert.assertEquals(0, tester.getUpdateFlags(null, path(fThread2, new FrameDMContext(fThread2, 0))));
+
+        // Only the top frame of the suspended thread is flushed, the others are marked dirty
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, tester.getUpdateFlags(null, path(fThread1, new FrameDMContext(fThread1, 0))));
+        Assert.assertEquals(IVMUpdatePolicy.DIRTY, tester.getUpdateFlags(null, path(fThread1, new FrameDMContext(fThread1, 1))));
+        Assert.assertEquals(IVMUpdatePolicy.ARCHIVE, tester.getUpdateFlags(null, path(fThread1)));
+    }
+
+    @Test
+    public void includesTest() {
+        IElementUpdateTester lazy1 = fPolicy.getElementUpdateTester(new SuspendedEvent(fThread1));
+        IElementUpdateTester lazy2 = fPolicy.getElementUpdateTester(new SuspendedEvent(fThread2));
+        IElementUpdateTester full1 = fPolicy.getElementUpdateTester(new FullStackRefreshEvent(fThread1));
+
+        Assert.assertTrue(lazy1.includes(fPolicy.getElementUpdateTester(new SuspendedEvent(fThread1))));
+        Assert.assertFalse(lazy1.includes(lazy2));
+        Assert.assertFalse(lazy2.includes(lazy1));
+
+        // A full refresh of the thread supersedes the lazy one, but not vice versa
+        Assert.assertTrue(full1.includes(lazy1));
+        Assert.assertFalse(lazy1.includes(full1));
+        Assert.assertFalse(full1.includes(lazy2));
+
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, full1.getUpdateFlags(null, path(fThread1, new FrameDMContext(fThread1, 1))));
+        Assert.assertEquals(0, full1.getUpdateFlags(null, path(fThread2, new FrameDMContext(fThread2, 1))));
+    }
+
+    @Test
+    public void resumedThreadTest() {
+        IElementUpdateTester tester = fPolicy.getElementUpdateTester(new ResumedEvent(fThread1));
+
+        Assert.assertEquals(0, tester.getUpdateFlags(null, path(fThread2)));
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, tester.getUpdateFlags(null, path(fThread1)));
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, tester.getUpdateFlags(null, path(fThread1, new FrameDMContext(fThread1, 1))));
+        Assert.assertEquals(IVMUpdatePolicy.ARCHIVE, tester.getUpdateFlags(null, path()));
+
+        Assert.assertTrue(tester.includes(fPolicy.getElementUpdateTester(new ResumedEvent(fThread1))));
+        Assert.assertFalse(tester.includes(fPolicy.getElementUpdateTester(new ResumedEvent(fThread2))));
+    }
+
+    @Test
+    public void containerExitedTest() {
+        IElementUpdateTester tester = fPolicy.getElementUpdateTester(new ExitedEvent(fContainer));
+
+        // The exit of the container flushes all the threads
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, tester.getUpdateFlags(null, path()));
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, tester.getUpdateFlags(null, path(fThread1)));
+        Assert.assertEquals(IVMUpdatePolicy.FLUSH, tester.getUpdateFlags(null, path(fThread2, new FrameDMContext(fThread2, 1))));
+
+        // It supersedes the flushes of single threads
+        Assert.assertTrue(tester.includes(fPolicy.getElementUpdateTester(new ResumedEvent(fThread2))));
+        Assert.assertFalse(fPolicy.getElementUpdateTester(new ResumedEvent(fThread2)).includes(tester));
+    }
+}
@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Wind River Systems and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Wind River Systems - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.cdt.tests.dsf.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.concurrent.ImmediateExecutor;
+import org.eclipse.cdt.dsf.concurrent.RequestMonitor;
+import org.eclipse.cdt.dsf.ui.viewmodel.AbstractVMAdapter;
+import org.eclipse.cdt.dsf.ui.viewmodel.AbstractVMNode;
+import org.eclipse.cdt.dsf.ui.viewmodel.IVMProvider;
+import org.eclipse.cdt.dsf.ui.viewmodel.VMChildrenCountUpdate;
+import org.eclipse.cdt.dsf.ui.viewmodel.VMChildrenUpdate;
+import org.eclipse.cdt.dsf.ui.viewmodel.VMDelta;
+import org.eclipse.cdt.dsf.ui.viewmodel.update.AbstractCachingVMProvider;
+import org.eclipse.cdt.dsf.ui.viewmodel.update.ICacheEntry;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IChildrenCountUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IChildrenUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IHasChildrenUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.PresentationContext;
+import org.eclipse.jface.viewers.TreePath;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Tests the eviction of the entries of the caching VM provider by their
+ * estimated size, and the children it retrieves beyond the requested range
+ * when the viewer scrolls.
+ *
+ * @since 2.2
+ */
+public class CacheWeightTests extends TestCase {
+
+    private static final String INPUT = "input";
+    private static final int CHILD_COUNT = 1000;
+
+    /**
+     * Node with {@link #CHILD_COUNT} children for any element, which records the
+     * ranges of children it is asked for.
+     */
+    private static class TestNode extends AbstractVMNode {
+        final List<String> fChildrenRanges = new ArrayList<String>();
+
+        TestNode(IVMProvider provider) {
+            super(provider);
+        }
+
+        public void update(IHasChildrenUpdate[] updates) {
+            for (IHasChildrenUpdate update : updates) {
+                update.setHasChilren(true);
+                update.done();
+            }
+        }
+
+        public void update(IChildrenCountUpdate[] updates) {
+            for (IChildrenCountUpdate update : updates) {
+                update.setChildCount(CHILD_COUNT);
+                update.done();
+            }
+        }
+
+        public void update(IChildrenUpdate[] updates) {
+            for (IChildrenUpdate update : updates) {
+                fChildrenRanges.add(update.getOffset() + "+" + update.getLength());
+                for (int i = update.getOffset(); i < update.getOffset() + update.getLength(); i++) {
+                    update.setChild(update.getElementPath().getLastSegment() + "." + i, i);
+                }
+                update.done();
+            }
+        }
+
+        public int getDeltaFlags(Object event) {
+            return 0;
+        }
+
+        public void buildDelta(Object event, VMDelta parent, int nodeOffset, RequestMonitor requestMonitor) {
+            requestMonitor.done();
+        }
+
+        List<String> takeChildrenRanges() {
+            List<String> ranges = new ArrayList<String>(fChildrenRanges);
+            fChildrenRanges.clear();
+            return ranges;
+        }
+    }
+
+    /**
+     * Provider with a settable quota.
+     */
+    private static class TestCachingVMProvider extends AbstractCachingVMProvider {
+        long fMaxCacheWeight = Long.MAX_VALUE;
+
+        TestCachingVMProvider(AbstractVMAdapter adapter, IPresentationContext context) {
+            super(adapter, context);
+        }
+
+        @Override
+        protected long getMaxCacheWeight() {
+            return fMaxCacheWeight;
+        }
+    }
+
+    /**
+     * Children update which records the children set by the provider,
+     * including those outside of the requested range.
+     */
+    private static class TestChildrenUpdate extends VMChildrenUpdate {
+        final List<Integer> fChildOffsets = new ArrayList<Integer>();
+        boolean fDone = false;
+
+        TestChildrenUpdate(TreePath path, IPresentationContext context, int offset, int length) {
+            super(path, INPUT, context, offset, length,
+                new DataRequestMonitor<List<Object>>(ImmediateExecutor.getInstance(), null));
+        }
+
+        @Override
+        public void setChild(Object element, int offset) {
+            fChildOffsets.add(offset);
+            super.setChild(element, offset);
+        }
+
+        @Override
+        public void done() {
+            super.done();
+            fDone = true;
+        }
+    }
+
+    Display fDisplay;
+    IPresentationContext fPresentationContext;
+    AbstractVMAdapter fVMAdapter;
+    TestCachingVMProvider fVMProvider;
+    TestNode fNode;
+
+    public CacheWeightTests(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // The test runs in the display thread, which is the VM provider's executor.
+        fDisplay = PlatformUI.getWorkbench().getDisplay();
+        fPresentationContext = new PresentationContext("TestViewer");
+        fVMAdapter = new AbstractVMAdapter() {
+            @Override
+            protected IVMProvider createViewModelProvider(IPresentationContext context) {
+                return fVMProvider;
+            }
+        };
+        fVMProvider = new TestCachingVMProvider(fVMAdapter, fPresentationContext);
+        fNode = new TestNode(fVMProvider);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        fNode.dispose();
+        fVMProvider.dispose();
+        fVMAdapter.dispose();
+        fPresentationContext.dispose();
+    }
+
+    private static TreePath path(String element) {
+        return new TreePath(new Object[] { element });
+    }
+
+    private List<Integer> getChildren(String element, int offset, int length) {
+        TestChildrenUpdate update = new TestChildrenUpdate(path(element), fPresentationContext, offset, length);
+        fVMProvider.updateNode(fNode, update);
+        while (!update.fDone) if (!fDisplay.readAndDispatch ()) fDisplay.sleep ();
+        return update.fChildOffsets;
+    }
+
+    private void getChildCount(String element) {
+        final boolean[] done = new boolean[1];
+        fVMProvider.updateNode(fNode, new VMChildrenCountUpdate(path(element), INPUT, fPresentationContext,
+            new DataRequestMonitor<Integer>(ImmediateExecutor.getInstance(), null) {
+                @Override
+                protected void handleCompleted() {
+                    done[0] = true;
+                }
+            }));
+        while (!done[0]) if (!fDisplay.readAndDispatch ()) fDisplay.sleep ();
+    }
+
+    /**
+     * Checks the elements whose children are cached.  Note that looking up
+     * an entry makes it the most recently used one.
+     */
+    private void checkCached(String[] cached, String[] evicted) {
+        for (String element : cached) {
+            assertNotNull(element, fVMProvider.getCacheEntry(fNode, INPUT, path(element)));
+        }
+        for (String element : evicted) {
+            assertNull(element, fVMProvider.getCacheEntry(fNode, INPUT, path(element)));
+        }
+    }
+
+    private static List<Integer> range(int start, int end) {
+        List<Integer> range = new ArrayList<Integer>();
+        for (int i = start; i < end; i++) {
+            range.add(i);
+        }
+        return range;
+    }
+
+    public void testEvictionOrder() {
+        getChildren("a", 0, 10);
+        long weight = fVMProvider.getCacheWeight();
+        assertTrue(weight > 0);
+        getChildren("b", 0, 10);
+        getChildren("c", 0, 10);
+        assertEquals(3 * weight, fVMProvider.getCacheWeight());
+
+        // Room for three entries: the least recently used one is evicted
+        fVMProvider.fMaxCacheWeight = 3 * weight;
+        getChildren("d", 0, 10);
+        assertEquals(3 * weight, fVMProvider.getCacheWeight());
+        checkCached(new String[] { "b", "c", "d" }, new String[] { "a" });
+
+        // Using an entry protects it from eviction
+        getChildren("b", 0, 10);
+        getChildren("e", 0, 10);
+        checkCached(new String[] { "b", "e", "d" }, new String[] { "c" });
+
+        // The size of the entries is what counts: an entry with twice the
+        // children makes room for itself by evicting two entries
+        getChildren("f", 0, 20);
+        assertTrue(fVMProvider.getCacheWeight() <= 3 * weight);
+        checkCached(new String[] { "d", "f" }, new String[] { "b", "e" });
+    }
+
+    public void testMostRecentlyUsedKept() {
+        // The quota is too small for any entry, the last one is kept anyway
+        fVMProvider.fMaxCacheWeight = 1;
+        assertEquals(range(0, 10), getChildren("a", 0, 10));
+        checkCached(new String[] { "a" }, new String[0]);
+
+        assertEquals(range(0, 10), getChildren("b", 0, 10));
+        checkCached(new String[] { "b" }, new String[] { "a" });
+
+        // The cached children are served from the cache
+        assertEquals(range(0, 10), getChildren("b", 0, 10));
+        assertEquals(Arrays.asList("0+10", "0+10"), fNode.takeChildrenRanges());
+    }
+
+    public void testPrefetch() {
+        getChildCount("p");
+
+        // Without cached children only the requested range is retrieved
+        assertEquals(range(0, 20), getChildren("p", 0, 20));
+        assertEquals(Arrays.asList("0+20"), fNode.takeChildrenRanges());
+
+        // Scrolling down: the missing range is extended by the length of the
+        // request, the prefetched children are cached but not given to the update
+        assertEquals(range(10, 30), getChildren("p", 10, 20));
+        assertEquals(Arrays.asList("20+30"), fNode.takeChildrenRanges());
+        ICacheEntry entry = fVMProvider.getCacheEntry(fNode, INPUT, path("p"));
+        assertEquals(range(0, 50), new ArrayList<Integer>(new TreeSet<Integer>(entry.getChildren().keySet())));
+
+        // The prefetched children are served from the cache
+        assertEquals(range(30, 50), getChildren("p", 30, 20));
+        assertTrue(fNode.takeChildrenRanges().isEmpty());
+
+        // A range between uncached children is extended at both ends, but
+        // not over the cached children
+        assertEquals(range(60, 80), getChildren("p", 60, 20));
+        assertEquals(Arrays.asList("50+50"), fNode.takeChildrenRanges());
+
+        // The prefetch is limited to 64 children and to the children count
+        assertEquals(range(200, 300), getChildren("p", 200, 100));
+        assertEquals(Arrays.asList("136+228"), fNode.takeChildrenRanges());
+        assertEquals(range(990, 1000), getChildren("p", 990, 10));
+        assertEquals(Arrays.asList("980+20"), fNode.takeChildrenRanges());
+    }
+}
@@ -35,6 +35,7 @@ import org.eclipse.cdt.dsf.ui.viewmodel.IVMNode;
 import org.eclipse.cdt.dsf.ui.viewmodel.IVMProvider;
 import org.eclipse.cdt.dsf.ui.viewmodel.properties.IPropertiesUpdate;
 import org.eclipse.cdt.dsf.ui.viewmodel.properties.PropertiesUpdateStatus;
+import org.eclipse.cdt.dsf.ui.viewmodel.update.ICacheStatistics;
 import org.eclipse.cdt.dsf.ui.viewmodel.update.IVMUpdatePolicy;
 import org.eclipse.cdt.dsf.ui.viewmodel.update.ManualUpdatePolicy;
 import org.eclipse.cdt.tests.dsf.IViewerUpdatesListenerConstants;
@@ -271,6 +272,23 @@ abstract public class FormattedValueTests extends TestCase implements IViewerUpd
         
     }
 
+    public void testCacheStatistics() {
+        setInput(IFormattedValues.NATURAL_FORMAT);
+        setUpdatePolicy(ManualUpdatePolicy.MANUAL_UPDATE_POLICY_ID);
+        
+        // The values of a new format are retrieved from the service, changing 
+        // back to the natural format is served from the cache.
+        setFormatAndValidate(IFormattedValues.HEX_FORMAT, true, false, false);
+        setFormatAndValidate(IFormattedValues.NATURAL_FORMAT, true, true, false);
+        
+        // The test runs in the display thread, which is the VM provider's executor.
+        ICacheStatistics stats = fVMProvider.getCacheStatistics(fVMProvider.getNode());
+        Assert.assertNotNull(stats);
+        Assert.assertTrue(stats.getMissCount() > 0);
+        Assert.assertTrue(stats.getHitCount() > 0);
+        Assert.assertTrue(fVMProvider.getCacheWeight() > 0);
+    }
+
     private void postEventInManualUpdateMode() {
         // Generate an event which will cause all cache entries to be marked dirty.
         fViewerListener.reset();